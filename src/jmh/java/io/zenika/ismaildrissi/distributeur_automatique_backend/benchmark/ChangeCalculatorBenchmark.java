@@ -0,0 +1,84 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.benchmark;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the change calculation strategies across amount ranges and coin inventories.
+ *
+ * <p>As on a machine taking sales, the inventory moves between calls: each call uses the
+ * next of a series of inventories drawn around the base one.</p>
+ *
+ * <p>Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ChangeCalculatorBenchmark"}.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChangeCalculatorBenchmark {
+
+    private static final int AMOUNT_COUNT = 1024;
+
+    /** Prime, so that amounts and inventories do not pair up the same way on every pass */
+    private static final int INVENTORY_COUNT = 1021;
+
+    @Param({"greedy", "dp", "cached"})
+    public String strategy;
+
+    /** small: 0.5 to 20 MAD, large: 50 to 200 MAD */
+    @Param({"small", "large"})
+    public String range;
+
+    /** plentiful: many coins of every kind, scarce: a few of each, skewed: no small coins */
+    @Param({"plentiful", "scarce", "skewed"})
+    public String inventory;
+
+    private ChangeCalculator calculator;
+    private int[][] inventories;
+    private long[] amounts;
+    private int next;
+    private int nextInventory;
+
+    @Setup
+    public void setUp() {
+        calculator = ChangeStrategy.from(strategy).create();
+        int[] base = switch (inventory) {
+            case "plentiful" -> new int[]{50, 50, 50, 50, 50};
+            case "scarce" -> new int[]{2, 2, 2, 1, 1};
+            case "skewed" -> new int[]{0, 0, 40, 1, 30};
+            default -> throw new IllegalArgumentException(inventory);
+        };
+        int minUnits = range.equals("small") ? 1 : 100;
+        int maxUnits = range.equals("small") ? 40 : 400;
+        Random random = new Random(42);
+        inventories = new int[INVENTORY_COUNT][];
+        for (int i = 0; i < INVENTORY_COUNT; i++) {
+            // Up to two coins taken or added per denomination, as sales and change do
+            inventories[i] = base.clone();
+            for (int d = 0; d < base.length; d++) {
+                inventories[i][d] = Math.max(0, base[d] + random.nextInt(5) - 2);
+            }
+        }
+        amounts = new long[AMOUNT_COUNT];
+        for (int i = 0; i < AMOUNT_COUNT; i++) {
+            amounts[i] = 50L * (minUnits + random.nextInt(maxUnits - minUnits + 1));
+        }
+    }
+
+    @Benchmark
+    public int[] calculateChange() {
+        long amount = amounts[next];
+        next = (next + 1) & (AMOUNT_COUNT - 1);
+        int[] available = inventories[nextInventory];
+        if (++nextInventory == INVENTORY_COUNT) {
+            nextInventory = 0;
+        }
+        return calculator.calculateChange(amount, available);
+    }
+}
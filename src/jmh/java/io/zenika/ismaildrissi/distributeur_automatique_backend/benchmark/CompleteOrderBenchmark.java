@@ -0,0 +1,182 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.benchmark;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.StockUpdateSubscriber;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl.TransactionServiceImpl;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.CoinInventoryRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.event.RingBufferDomainEventBus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole purchase through TransactionServiceImpl: insert a coin, select a
+ * product and complete the order.
+ *
+ * <p>Repositories are replaced by no-op implementations so the score reflects the
+ * application and domain code only. The product is paid with the exact amount, so the
+ * machine never runs out of change. The domain events go through the real ring buffer bus,
+ * with the stock update subscriber writing to the no-op repository.</p>
+ *
+ * <p>The whole path takes about ten seconds of calls to be fully compiled, hence the longer
+ * warmup.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompleteOrderBenchmark {
+
+    private static final String MACHINE = VendingMachineRepository.DEFAULT_MACHINE_ID;
+
+    private static final String SESSION = "benchmark";
+
+    private TransactionServiceImpl transactionService;
+    private RingBufferDomainEventBus domainEventBus;
+    private UUID productId;
+    private MoneyDTO coin;
+
+    @Setup
+    public void setUp() {
+        productId = UUID.randomUUID();
+        coin = new MoneyDTO(2.0);
+        Product product = new Product("Chocolate Bar", 2.0, new ProductId(productId), Integer.MAX_VALUE);
+        VendingMachine vendingMachine = new VendingMachine(List.of(product), List.of(Money.of(1.0)));
+        TransactionRepository transactionRepository = new NoOpTransactionRepository();
+        VendingMachineRepository vendingMachineRepository = new NoOpVendingMachineRepository();
+        domainEventBus = new RingBufferDomainEventBus(4096, List.of(new StockUpdateSubscriber(vendingMachineRepository,
+                new NoOpCoinInventoryRepository(), TransactionOperations.withoutTransaction(),
+                new ProductCatalogCache(vendingMachineRepository, new ProductMapperDto(), 1), StockReservation.local())));
+        vendingMachine.publishEventsTo(domainEventBus.publisherFor(MACHINE, null));
+        transactionService = new TransactionServiceImpl(
+                new MoneyMapper(),
+                new SelectedProductMapper(),
+                new ProductMapperDto(),
+                new VendingMachineRegistry(1, 1, machineId -> vendingMachine),
+                new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus),
+                transactionRepository,
+                StockReservation.local());
+    }
+
+    @TearDown
+    public void tearDown() {
+        domainEventBus.close();
+    }
+
+    @Benchmark
+    public OrderDTO purchase() {
+        transactionService.insertMoney(MACHINE, SESSION, coin);
+        transactionService.selectProduct(MACHINE, SESSION, productId);
+        return transactionService.completeOrder(MACHINE, SESSION);
+    }
+
+    static final class NoOpTransactionRepository implements TransactionRepository {
+
+        @Override
+        public void save(Transaction transaction) {
+        }
+
+        @Override
+        public Optional<Transaction> findById(String transactionId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void deleteById(String transactionId) {
+        }
+
+        @Override
+        public boolean existsById(String transactionId) {
+            return false;
+        }
+    }
+
+    static final class NoOpVendingMachineRepository implements VendingMachineRepository {
+
+        @Override
+        public Optional<Product> findProductById(ProductId productId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public List<Product> findAllProducts() {
+            return List.of();
+        }
+
+        @Override
+        public List<Product> findAllProducts(String machineId) {
+            return List.of();
+        }
+
+        @Override
+        public Product saveProduct(Product product) {
+            return product;
+        }
+
+        @Override
+        public Product saveProduct(String machineId, Product product) {
+            return product;
+        }
+
+        @Override
+        public Product updateProduct(Product product) {
+            return product;
+        }
+
+        @Override
+        public void decrementStock(Map<ProductId, Integer> quantities) {
+        }
+
+        @Override
+        public void reserveStock(Map<ProductId, Integer> quantities) {
+        }
+
+        @Override
+        public void deleteProductById(ProductId productId) {
+        }
+
+        @Override
+        public boolean productExistsById(ProductId productId) {
+            return false;
+        }
+    }
+
+    static final class NoOpCoinInventoryRepository implements CoinInventoryRepository {
+
+        @Override
+        public Optional<int[]> findCounts(String machineId) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void saveCounts(String machineId, int[] counts) {
+        }
+
+        @Override
+        public void adjustCounts(Map<String, int[]> deltas) {
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.benchmark;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.StockUpdateSubscriber;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.MachinePartitionExecutor;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl.PartitionedTransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl.TransactionServiceImpl;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.event.RingBufferDomainEventBus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the latency distribution of purchases made by many kiosks of the same machine
+ * at once, in the direct and partitioned execution modes.
+ *
+ * <p>Every benchmark thread is a kiosk with its own session. Compare the high percentiles
+ * of the two modes, for example with
+ * {@code -Djmh.args="ContendedPurchaseBenchmark -t 16"}.</p>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ContendedPurchaseBenchmark {
+
+    private static final String MACHINE = VendingMachineRepository.DEFAULT_MACHINE_ID;
+
+    @Param({"direct", "partitioned"})
+    public String mode;
+
+    private TransactionService transactionService;
+    private MachinePartitionExecutor executor;
+    private RingBufferDomainEventBus domainEventBus;
+    private UUID productId;
+    private MoneyDTO coin;
+
+    @State(Scope.Thread)
+    public static class Kiosk {
+
+        private static final AtomicInteger KIOSKS = new AtomicInteger();
+
+        private final String session = "kiosk-" + KIOSKS.incrementAndGet();
+    }
+
+    @Setup
+    public void setUp() {
+        productId = UUID.randomUUID();
+        coin = new MoneyDTO(2.0);
+        Product product = new Product("Chocolate Bar", 2.0, new ProductId(productId), Integer.MAX_VALUE);
+        VendingMachine vendingMachine = new VendingMachine(List.of(product), List.of(Money.of(1.0)));
+        VendingMachineRegistry registry = new VendingMachineRegistry(
+                Runtime.getRuntime().availableProcessors(), 1, machineId -> vendingMachine);
+        TransactionRepository transactionRepository = new CompleteOrderBenchmark.NoOpTransactionRepository();
+        VendingMachineRepository vendingMachineRepository = new CompleteOrderBenchmark.NoOpVendingMachineRepository();
+        domainEventBus = new RingBufferDomainEventBus(4096, List.of(new StockUpdateSubscriber(vendingMachineRepository,
+                new CompleteOrderBenchmark.NoOpCoinInventoryRepository(), TransactionOperations.withoutTransaction(),
+                new ProductCatalogCache(vendingMachineRepository, new ProductMapperDto(), 1), StockReservation.local())));
+        vendingMachine.publishEventsTo(domainEventBus.publisherFor(MACHINE, null));
+        TransactionSessionRegistry sessionRegistry = new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus);
+        TransactionService direct = new TransactionServiceImpl(
+                new MoneyMapper(),
+                new SelectedProductMapper(),
+                new ProductMapperDto(),
+                registry,
+                sessionRegistry,
+                transactionRepository,
+                StockReservation.local());
+        if (mode.equals("partitioned")) {
+            executor = new MachinePartitionExecutor(registry, 1024);
+            transactionService = new PartitionedTransactionService(direct, executor, registry, sessionRegistry);
+        } else {
+            transactionService = direct;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+        domainEventBus.close();
+    }
+
+    @Benchmark
+    public OrderDTO purchase(Kiosk kiosk) {
+        transactionService.insertMoney(MACHINE, kiosk.session, coin);
+        transactionService.selectProduct(MACHINE, kiosk.session, productId);
+        return transactionService.completeOrder(MACHINE, kiosk.session);
+    }
+}
@@ -0,0 +1,100 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.benchmark;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.ProductEntity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.mapper.ProductMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the application and infrastructure mappers on the request hot path.
+ *
+ * <p>The mappers are plain field copies. The {@code WithModelMapper} benchmarks map the same
+ * four product fields between beans through ModelMapper, the reflection-based mapping the
+ * mappers used to rely on, as a baseline of the per-call cost it adds.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapperBenchmark {
+
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final MoneyMapper moneyMapper = new MoneyMapper();
+    private final ProductMapperDto productMapperDto = new ProductMapperDto();
+    private final SelectedProductMapper selectedProductMapper = new SelectedProductMapper();
+    private final ProductMapper productMapper = new ProductMapper();
+
+    private final MoneyDTO moneyDTO = new MoneyDTO(5.0);
+    private final Money money = Money.of(5.0);
+    private final Product product = new Product("Soda Can", 2.5, new ProductId(UUID.randomUUID()), 8);
+    private final SelectedProduct selectedProduct = new SelectedProduct(product);
+    private final SelectedProductDTO selectedProductDTO = selectedProductMapper.toDto(selectedProduct);
+    private final ProductEntity productEntity = productMapper.toEntity(product, VendingMachineRepository.DEFAULT_MACHINE_ID);
+    private final ProductDTO productDTO = productMapperDto.toDTO(product);
+
+    @Benchmark
+    public Money moneyToDomain() {
+        return moneyMapper.toDomain(moneyDTO);
+    }
+
+    @Benchmark
+    public MoneyDTO moneyToDto() {
+        return moneyMapper.toDTO(money);
+    }
+
+    @Benchmark
+    public ProductDTO productToDto() {
+        return productMapperDto.toDTO(product);
+    }
+
+    @Benchmark
+    public Product productDtoToDomain() {
+        return productMapperDto.toDomain(productDTO);
+    }
+
+    @Benchmark
+    public ProductDTO productEntityToDtoWithModelMapper() {
+        return modelMapper.map(productEntity, ProductDTO.class);
+    }
+
+    @Benchmark
+    public ProductEntity productDtoToEntityWithModelMapper() {
+        return modelMapper.map(productDTO, ProductEntity.class);
+    }
+
+    @Benchmark
+    public SelectedProductDTO selectedProductToDto() {
+        return selectedProductMapper.toDto(selectedProduct);
+    }
+
+    @Benchmark
+    public SelectedProduct selectedProductToDomain() {
+        return selectedProductMapper.toDomain(selectedProductDTO);
+    }
+
+    @Benchmark
+    public Product productEntityToDomain() {
+        return productMapper.toDomain(productEntity);
+    }
+
+    @Benchmark
+    public ProductEntity productToEntity() {
+        return productMapper.toEntity(product, VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+}
@@ -0,0 +1,56 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.benchmark;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionResult;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Transaction aggregate: money insertion, product selection and completion.
+ *
+ * <p>Every operation starts from a fresh transaction, so the scores include its allocation.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionBenchmark {
+
+    private final Money tenMad = Money.of(10.0);
+    private final Money fiveMad = Money.of(5.0);
+    private final Product soda = new Product("Soda Can", 2.5, new ProductId(UUID.randomUUID()), Integer.MAX_VALUE);
+    private final Product chips = new Product("Chips", 3.0, new ProductId(UUID.randomUUID()), Integer.MAX_VALUE);
+
+    @Benchmark
+    public Transaction insertMoney() {
+        Transaction transaction = new Transaction("benchmark");
+        transaction.insertMoney(tenMad);
+        transaction.insertMoney(fiveMad);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction addProduct() {
+        Transaction transaction = new Transaction("benchmark");
+        transaction.insertMoney(tenMad);
+        transaction.addProduct(soda);
+        transaction.addProduct(chips);
+        return transaction;
+    }
+
+    @Benchmark
+    public TransactionResult complete() {
+        Transaction transaction = new Transaction("benchmark");
+        transaction.insertMoney(tenMad);
+        transaction.addProduct(soda);
+        transaction.addProduct(chips);
+        return transaction.complete();
+    }
+}
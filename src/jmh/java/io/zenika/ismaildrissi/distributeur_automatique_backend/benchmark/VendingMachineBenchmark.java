@@ -0,0 +1,79 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.benchmark;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the VendingMachine aggregate: change planning, change dispensing and product dispensing.
+ *
+ * <p>{@code canDispenseChange} is a lookup in the payable amounts of the inventory;
+ * {@code canDispenseChangeWithDeposit} also extends them with the coins of the payment.</p>
+ *
+ * <p>{@code calculateChange} consumes coins, so the benchmark refills the machine before
+ * every invocation; its score includes a small per-invocation harness overhead.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VendingMachineBenchmark {
+
+    /** Change returned for a 20 MAD payment of a 2.5 MAD product */
+    private static final long CHANGE = 1750;
+
+    private List<Product> products;
+    private List<Money> coins;
+    private List<Money> payment;
+    private ProductId productId;
+    private VendingMachine stockedMachine;
+    private VendingMachine machine;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        productId = new ProductId(UUID.randomUUID());
+        products = List.of(new Product("Soda Can", 2.5, productId, Integer.MAX_VALUE));
+        coins = new ArrayList<>();
+        for (Money coin : Money.denominations()) {
+            for (int i = 0; i < 5; i++) {
+                coins.add(coin);
+            }
+        }
+        stockedMachine = new VendingMachine(products, coins);
+        payment = List.of(Money.of(10.0), Money.of(10.0));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        machine = new VendingMachine(products, coins);
+    }
+
+    @Benchmark
+    public boolean canDispenseChange() {
+        return stockedMachine.canDispenseChange(CHANGE);
+    }
+
+    @Benchmark
+    public boolean canDispenseChangeWithDeposit() {
+        return stockedMachine.canDispenseChange(CHANGE, payment);
+    }
+
+    @Benchmark
+    public List<Money> calculateChange() {
+        return machine.calculateChange(CHANGE);
+    }
+
+    @Benchmark
+    public void dispenseProduct() {
+        stockedMachine.dispenseProduct(productId);
+    }
+}
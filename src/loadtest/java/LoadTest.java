@@ -0,0 +1,146 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load test of a running backend, used to compare the platform thread pool
+ * with the {@code virtual} profile.
+ *
+ * <p>Every simulated kiosk has its own session and repeats: list the products, insert a
+ * coin, select a product, read the selection and cancel the order. The cancellation keeps
+ * the stock constant, so the test can run for as long as needed.</p>
+ *
+ * <p>Run with Java 21: {@code java src/loadtest/java/LoadTest.java [baseUrl] [kiosks] [seconds]}.</p>
+ */
+public class LoadTest {
+
+    private static final Pattern PRODUCT = Pattern.compile("\"id\":\"([^\"]+)\",\"name\":\"[^\"]*\",\"price\":([0-9.]+)");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int kiosks = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String catalog = client.send(get(baseUrl + "/api/products", "warmup"), HttpResponse.BodyHandlers.ofString()).body();
+        // The kiosks insert 2 MAD: pick a product they can afford
+        String productId = null;
+        Matcher matcher = PRODUCT.matcher(catalog);
+        while (productId == null && matcher.find()) {
+            if (Double.parseDouble(matcher.group(2)) <= 2.0) {
+                productId = matcher.group(1);
+            }
+        }
+        if (productId == null) {
+            throw new IllegalStateException("No product costing 2 MAD or less in " + catalog);
+        }
+
+        // Warm up for a fifth of the run, then measure
+        run(client, baseUrl, productId, kiosks, Math.max(1, seconds / 5));
+        Result result = run(client, baseUrl, productId, kiosks, seconds);
+
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        System.out.printf("kiosks=%d duration=%ds requests=%d errors=%d%n", kiosks, seconds, latencies.length, result.errors());
+        System.out.printf("throughput=%.0f req/s%n", latencies.length / (double) seconds);
+        System.out.printf("p50=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+                millis(percentile(latencies, 0.50)), millis(percentile(latencies, 0.99)),
+                millis(percentile(latencies, 0.999)), millis(latencies[latencies.length - 1]));
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+
+    private static Result run(HttpClient client, String baseUrl, String productId, int kiosks, int seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> perKiosk = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < kiosks; i++) {
+                String session = "load-" + i;
+                perKiosk.add(null);
+                int index = i;
+                executor.execute(() -> {
+                    LatencyRecorder recorder = new LatencyRecorder();
+                    List<HttpRequest> scenario = List.of(
+                            get(baseUrl + "/api/products", session),
+                            post(baseUrl + "/api/transaction/money", session, "{\"value\":2.0}"),
+                            get(baseUrl + "/api/transaction/products/select/" + productId, session),
+                            get(baseUrl + "/api/transaction/products/selected", session),
+                            post(baseUrl + "/api/transaction/cancel", session, "")
+                    );
+                    while (System.nanoTime() < deadline) {
+                        for (HttpRequest request : scenario) {
+                            long start = System.nanoTime();
+                            try {
+                                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                                if (response.statusCode() >= 400) {
+                                    errors.incrementAndGet();
+                                }
+                            } catch (Exception e) {
+                                errors.incrementAndGet();
+                            }
+                            recorder.record(System.nanoTime() - start);
+                        }
+                    }
+                    synchronized (perKiosk) {
+                        perKiosk.set(index, recorder.toArray());
+                    }
+                });
+            }
+        }
+        long[] latencies = perKiosk.stream().flatMapToLong(Arrays::stream).toArray();
+        return new Result(latencies, errors.get());
+    }
+
+    private static HttpRequest get(String url, String session) {
+        return HttpRequest.newBuilder(URI.create(url)).header("X-Session-Id", session).GET().build();
+    }
+
+    private static HttpRequest post(String url, String session, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("X-Session-Id", session)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class LatencyRecorder {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void record(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
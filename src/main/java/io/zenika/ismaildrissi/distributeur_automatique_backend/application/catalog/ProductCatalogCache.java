@@ -0,0 +1,208 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read-through cache of the product catalogs served to the kiosks, one per machine.
+ *
+ * <p>Each catalog is held as an immutable {@link Snapshot} behind an
+ * {@link AtomicReference}: reading it is a single volatile read, whatever the request
+ * rate. The first read loads it from the {@link VendingMachineRepository}; afterwards
+ * stock changes are applied as patches producing a new snapshot, so the database is
+ * not queried again.</p>
+ *
+ * <p>Patches made inside a database transaction are applied once it commits, so the
+ * catalog never shows stock that was rolled back. A load racing with a patch is not
+ * cached, so an outdated read from the database cannot overwrite a newer snapshot.</p>
+ *
+ * <p>Versions are drawn from a single counter shared by every machine, so a version
+ * identifies one catalog of one machine. At most the configured number of machines are
+ * cached; beyond that the cache is emptied and catalogs are reloaded on demand.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Component
+public class ProductCatalogCache {
+
+    /**
+     * Immutable state of the catalog.
+     *
+     * @param version increased on every change of the catalog, or {@link #UNCACHED}
+     *                for a catalog read from the database but not cached
+     * @param products the products, or null while the catalog is not loaded
+     */
+    public record Snapshot(long version, List<ProductDTO> products) {
+
+        /** Version of a catalog that was loaded but could not be cached */
+        public static final long UNCACHED = -1;
+    }
+
+    /** Repository the catalog is loaded from */
+    private final VendingMachineRepository productRepository;
+
+    /** Mapper converting products to DTOs */
+    private final ProductMapperDto productMapper;
+
+    /** Maximum number of machines whose catalog is cached */
+    private final int capacity;
+
+    /** Source of the catalog versions, shared by every machine */
+    private final AtomicLong versions = new AtomicLong();
+
+    /** Current catalog per machine; a product list is null until the first load */
+    private final ConcurrentMap<String, AtomicReference<Snapshot>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty catalog cache, loaded on first read.
+     *
+     * @param productRepository the repository the catalog is loaded from
+     * @param productMapper the mapper converting products to DTOs
+     * @param capacity the maximum number of machines whose catalog is cached
+     */
+    public ProductCatalogCache(VendingMachineRepository productRepository, ProductMapperDto productMapper,
+                               @Value("${vending-machine.fleet.capacity:10000}") int capacity) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns every product of the catalog of the default machine.
+     *
+     * @return an unmodifiable list of products; its DTOs must not be modified
+     */
+    public List<ProductDTO> products() {
+        return products(VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+
+    /**
+     * Returns every product of the catalog of the given machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return an unmodifiable list of products; its DTOs must not be modified
+     */
+    public List<ProductDTO> products(String machineId) {
+        return catalog(machineId).products();
+    }
+
+    /**
+     * Returns the current catalog of the default machine, loading it if needed.
+     *
+     * @return a loaded snapshot of the catalog
+     */
+    public Snapshot catalog() {
+        return catalog(VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+
+    /**
+     * Returns the current catalog of the given machine with its version, loading it if needed.
+     *
+     * @param machineId the identifier of the machine
+     * @return a loaded snapshot of the catalog
+     */
+    public Snapshot catalog(String machineId) {
+        AtomicReference<Snapshot> snapshot = snapshot(machineId);
+        Snapshot current = snapshot.get();
+        if (current.products() != null) {
+            return current;
+        }
+        List<ProductDTO> products = Collections.unmodifiableList(
+                productRepository.findAllProducts(machineId).stream().map(productMapper::toDTO).toList()
+        );
+        Snapshot loaded = new Snapshot(versions.incrementAndGet(), products);
+        // Fails if the catalog was patched or invalidated meanwhile: the loaded list may be outdated
+        return snapshot.compareAndSet(current, loaded) ? loaded : new Snapshot(Snapshot.UNCACHED, products);
+    }
+
+    /**
+     * Removes dispensed units from the cached quantities of the default machine.
+     *
+     * @param quantities the number of units dispensed per product
+     */
+    public void decrementStock(Map<ProductId, Integer> quantities) {
+        decrementStock(VendingMachineRepository.DEFAULT_MACHINE_ID, quantities);
+    }
+
+    /**
+     * Removes dispensed units from the cached quantities of the given machine, once the
+     * current database transaction commits.
+     *
+     * @param machineId the identifier of the machine
+     * @param quantities the number of units dispensed per product
+     */
+    public void decrementStock(String machineId, Map<ProductId, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<UUID, Integer> byId = new HashMap<>();
+        quantities.forEach((productId, quantity) -> byId.put(productId.id(), quantity));
+        afterCommit(() -> snapshot(machineId).updateAndGet(current -> patch(current, byId)));
+    }
+
+    /**
+     * Drops the cached catalog of the default machine.
+     */
+    public void invalidate() {
+        invalidate(VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+
+    /**
+     * Drops the cached catalog of the given machine; the next read reloads it from the repository.
+     *
+     * @param machineId the identifier of the machine
+     */
+    public void invalidate(String machineId) {
+        afterCommit(() -> snapshot(machineId).updateAndGet(current -> new Snapshot(versions.incrementAndGet(), null)));
+    }
+
+    private AtomicReference<Snapshot> snapshot(String machineId) {
+        AtomicReference<Snapshot> snapshot = snapshots.get(machineId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        if (snapshots.size() >= capacity) {
+            snapshots.clear();
+        }
+        return snapshots.computeIfAbsent(machineId, id -> new AtomicReference<>(new Snapshot(versions.incrementAndGet(), null)));
+    }
+
+    private Snapshot patch(Snapshot current, Map<UUID, Integer> quantities) {
+        if (current.products() == null) {
+            return new Snapshot(versions.incrementAndGet(), null);
+        }
+        List<ProductDTO> patched = new ArrayList<>(current.products().size());
+        for (ProductDTO product : current.products()) {
+            Integer dispensed = quantities.get(product.getId());
+            patched.add(dispensed == null ? product
+                    : new ProductDTO(product.getId(), product.getName(), product.getPrice(), product.getQuantity() - dispensed));
+        }
+        return new Snapshot(versions.incrementAndGet(), Collections.unmodifiableList(patched));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object summarizing a completed order for the live event stream.
+ *
+ * <p>Unlike {@link OrderDTO}, it carries the change owed as an amount rather than the coins
+ * returned, which the stream reports before the machine has picked them.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompletedOrderDTO {
+
+    /** List of products that were purchased */
+    List<SelectedProductDTO> selectedProducts;
+
+    /** Change owed to the customer */
+    MoneyDTO change;
+}
@@ -0,0 +1,29 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object carrying a whole purchase in a single request.
+ *
+ * <p>It replaces the sequence of money insertions, product selections and order completion
+ * of the step-by-step flow: the coins and the products are given at once, and the purchase
+ * is either completed in full or refused with the coins returned.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PurchaseDTO {
+
+    /** Coins inserted for the purchase */
+    List<MoneyDTO> money;
+
+    /** Products to buy, with the number of units of each */
+    List<PurchaseItemDTO> products;
+}
@@ -0,0 +1,25 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object representing one line of a {@link PurchaseDTO}.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PurchaseItemDTO {
+
+    /** The unique identifier of the product to buy */
+    UUID id;
+
+    /** The number of units to buy */
+    int quantity;
+}
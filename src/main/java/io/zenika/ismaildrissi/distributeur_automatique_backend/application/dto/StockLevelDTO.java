@@ -0,0 +1,25 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Data Transfer Object carrying the current quantity of one product of a machine.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockLevelDTO {
+
+    /** The unique identifier of the product */
+    UUID id;
+
+    /** The quantity left in the vending machine */
+    Integer quantity;
+}
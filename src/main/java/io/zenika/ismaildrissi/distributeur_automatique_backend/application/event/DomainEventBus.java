@@ -0,0 +1,39 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+
+/**
+ * In-process bus carrying the {@link DomainEvent}s of the aggregates to the
+ * {@link DomainEventSubscriber}s.
+ *
+ * <p>The aggregates do not know which machine or session they belong to, so each one is
+ * attached to a {@link DomainEventPublisher} obtained from {@link #publisherFor(String, String)},
+ * which adds this routing context to every event it publishes.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface DomainEventBus {
+
+    /**
+     * Publishes an event to every subscriber.
+     *
+     * @param machineId the machine the event happened on
+     * @param sessionId the purchase session concerned, or null for an event of the machine itself
+     * @param event the event
+     */
+    void publish(String machineId, String sessionId, DomainEvent event);
+
+    /**
+     * Returns a publisher for the aggregates of the given machine and session.
+     *
+     * @param machineId the machine the aggregate belongs to
+     * @param sessionId the purchase session the aggregate belongs to, or null for the machine itself
+     * @return the publisher to attach the aggregate to
+     */
+    default DomainEventPublisher publisherFor(String machineId, String sessionId) {
+        return event -> publish(machineId, sessionId, event);
+    }
+}
@@ -0,0 +1,27 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+
+/**
+ * Consumer of the {@link DomainEvent}s published on the {@link DomainEventBus}.
+ *
+ * <p>Each subscriber runs on its own thread, off the request path, and receives every event
+ * in publication order. Events arrive in batches: {@code endOfBatch} is true on the last event
+ * available at that time, so a subscriber can accumulate work and flush it once per batch.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface DomainEventSubscriber {
+
+    /**
+     * Handles one event.
+     *
+     * @param machineId the machine the event happened on
+     * @param sessionId the purchase session concerned, or null for an event of the machine itself
+     * @param event the event
+     * @param endOfBatch whether no further event is available right now
+     */
+    void onEvent(String machineId, String sessionId, DomainEvent event, boolean endOfBatch);
+}
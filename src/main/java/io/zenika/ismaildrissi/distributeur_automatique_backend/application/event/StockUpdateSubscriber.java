@@ -0,0 +1,131 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.CoinsDeposited;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.CoinInventoryRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the stock dispensed and the coins moved by the machines, and patches the cached catalogs.
+ *
+ * <p>{@link ProductDispensed}, {@link ChangeDispensed} and {@link CoinsDeposited} events are
+ * accumulated until the end of a batch of the bus, then written in a single database
+ * transaction: one {@link VendingMachineRepository#decrementStock(Map)} call and one
+ * {@link CoinInventoryRepository#adjustCounts(Map)} call, whatever the number of orders and
+ * machines in the batch. Under load, many orders therefore share one commit; when idle, every
+ * order is written on its own.</p>
+ *
+ * <p>A batch that cannot be written is kept: the events of the next batches are added to it,
+ * and it is written with them. Nothing moved by the machines is lost while the database is
+ * unavailable.</p>
+ *
+ * <p>When the {@link StockReservation} already wrote the stock of each order, only the coins
+ * are written here; the catalogs are patched all the same.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Component
+public class StockUpdateSubscriber implements DomainEventSubscriber {
+
+    private static final Logger log = LoggerFactory.getLogger(StockUpdateSubscriber.class);
+
+    /** Repository the dispensed stock is written to */
+    private final VendingMachineRepository vendingMachineRepository;
+
+    /** Repository the coins dispensed and deposited are written to */
+    private final CoinInventoryRepository coinInventoryRepository;
+
+    /** Runs the writes of a batch in one database transaction */
+    private final TransactionOperations transactionOperations;
+
+    /** Cached product catalog, patched once the stock is written */
+    private final ProductCatalogCache productCatalog;
+
+    /** Tells whether the stock was already written when the products were dispensed */
+    private final StockReservation stockReservation;
+
+    /** Units dispensed since the last flush, per machine and product; only used by the bus thread */
+    private final Map<String, Map<ProductId, Integer>> pending = new HashMap<>();
+
+    /** Coins moved since the last flush, per machine and denomination index; only used by the bus thread */
+    private final Map<String, int[]> pendingCoins = new HashMap<>();
+
+    /**
+     * Constructs a new StockUpdateSubscriber.
+     *
+     * @param vendingMachineRepository the repository the dispensed stock is written to
+     * @param coinInventoryRepository the repository the coins dispensed and deposited are written to
+     * @param transactionOperations the operations running the writes of a batch in one transaction
+     * @param productCatalog the cached catalog patched with the dispensed stock
+     * @param stockReservation the reservation telling whether the stock is already written
+     */
+    public StockUpdateSubscriber(VendingMachineRepository vendingMachineRepository,
+                                 CoinInventoryRepository coinInventoryRepository,
+                                 TransactionOperations transactionOperations,
+                                 ProductCatalogCache productCatalog,
+                                 StockReservation stockReservation) {
+        this.vendingMachineRepository = vendingMachineRepository;
+        this.coinInventoryRepository = coinInventoryRepository;
+        this.transactionOperations = transactionOperations;
+        this.productCatalog = productCatalog;
+        this.stockReservation = stockReservation;
+    }
+
+    @Override
+    public void onEvent(String machineId, String sessionId, DomainEvent event, boolean endOfBatch) {
+        switch (event) {
+            case ProductDispensed dispensed -> pending.computeIfAbsent(machineId, id -> new LinkedHashMap<>())
+                    .merge(dispensed.productId(), dispensed.quantity(), Integer::sum);
+            case ChangeDispensed change -> addCoins(machineId, change.coins(), -1);
+            case CoinsDeposited deposited -> addCoins(machineId, deposited.coins(), 1);
+            default -> {
+            }
+        }
+        if (endOfBatch && !(pending.isEmpty() && pendingCoins.isEmpty())) {
+            flush();
+        }
+    }
+
+    private void addCoins(String machineId, List<Money> coins, int sign) {
+        int[] delta = pendingCoins.computeIfAbsent(machineId, id -> new int[Money.denominations().size()]);
+        coins.forEach(coin -> delta[coin.index()] += sign);
+    }
+
+    private void flush() {
+        // Product ids are unique across machines, so the whole batch is one statement batch
+        Map<ProductId, Integer> quantities = new LinkedHashMap<>();
+        pending.values().forEach(machine -> machine.forEach((id, units) -> quantities.merge(id, units, Integer::sum)));
+        try {
+            transactionOperations.executeWithoutResult(status -> {
+                if (!stockReservation.writesStock()) {
+                    vendingMachineRepository.decrementStock(quantities);
+                }
+                coinInventoryRepository.adjustCounts(Map.copyOf(pendingCoins));
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not write the stock and coins of {} machines, retrying with the next batch",
+                    pending.size() + pendingCoins.size(), e);
+            return;
+        }
+        Map<String, Map<ProductId, Integer>> written = new HashMap<>(pending);
+        pending.clear();
+        pendingCoins.clear();
+        written.forEach(productCatalog::decrementStock);
+    }
+}
@@ -0,0 +1,22 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions;
+
+/**
+ * Exception thrown when an order cannot be completed because the machine cannot give its change.
+ *
+ * <p>The check is made before anything is dispensed: the transaction stays open, so the
+ * customer can insert other coins, change the selection or cancel the order.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class ChangeNotAvailableException extends RuntimeException {
+
+    /**
+     * Constructs a new ChangeNotAvailableException with the specified detail message.
+     *
+     * @param message the detail message explaining why the order was refused
+     */
+    public ChangeNotAvailableException(String message) {
+        super(message);
+    }
+}
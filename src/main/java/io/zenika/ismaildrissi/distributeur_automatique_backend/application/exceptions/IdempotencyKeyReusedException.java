@@ -0,0 +1,22 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions;
+
+/**
+ * Exception thrown when an idempotency key is sent again with a different request.
+ *
+ * <p>A key identifies one request of a session: a retry must repeat the same operation with
+ * the same body to get the original result back.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    /**
+     * Constructs a new IdempotencyKeyReusedException with the specified detail message.
+     *
+     * @param message the detail message naming the reused key
+     */
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
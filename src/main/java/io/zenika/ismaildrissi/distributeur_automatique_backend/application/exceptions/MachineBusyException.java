@@ -0,0 +1,23 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions;
+
+/**
+ * Exception thrown when a command for a vending machine cannot be queued.
+ *
+ * <p>In partitioned execution mode every machine has a bounded command queue; this
+ * exception is raised when that queue is full or the executor is shutting down. The
+ * command was not executed and can be retried.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class MachineBusyException extends RuntimeException {
+
+    /**
+     * Constructs a new MachineBusyException with the specified detail message.
+     *
+     * @param message the detail message explaining why the command was rejected
+     */
+    public MachineBusyException(String message) {
+        super(message);
+    }
+}
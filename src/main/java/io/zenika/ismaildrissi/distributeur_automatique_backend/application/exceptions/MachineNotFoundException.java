@@ -0,0 +1,22 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions;
+
+/**
+ * Exception thrown when a request names a vending machine that is not part of the fleet.
+ *
+ * <p>A machine belongs to the fleet once it has products, a stored coin inventory or a
+ * journal. Any other machine id is rejected instead of serving an empty machine.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class MachineNotFoundException extends RuntimeException {
+
+    /**
+     * Constructs a new MachineNotFoundException with the specified detail message.
+     *
+     * @param message the detail message explaining which machine was not found
+     */
+    public MachineNotFoundException(String message) {
+        super(message);
+    }
+}
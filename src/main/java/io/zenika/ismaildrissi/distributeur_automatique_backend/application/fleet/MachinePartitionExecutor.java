@@ -0,0 +1,249 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineBusyException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs the commands of every vending machine on the single thread owning its partition.
+ *
+ * <p>The executor has one event loop per partition of the {@link VendingMachineRegistry}.
+ * Request threads enqueue commands into the bounded queue of the partition owning the
+ * machine and wait for the result; the event loop runs them one at a time, in arrival
+ * order. All mutations of a machine, and of the sessions buying from it, are thus made
+ * by a single writer: the locks guarding them are never contended, and a burst of
+ * requests on one machine queues up instead of piling up threads on its locks.</p>
+ *
+ * <p>A full queue rejects the command with a {@link MachineBusyException} rather than
+ * blocking the caller, so the queue bounds the latency of the commands it accepts. A
+ * command still queued when its wait times out, or when the executor is closed, is
+ * withdrawn and fails with a {@link MachineBusyException} too: it never runs afterwards.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class MachinePartitionExecutor implements AutoCloseable {
+
+    /** Marks the end of the commands of a partition */
+    private static final Runnable STOP = () -> {
+    };
+
+    /** Registry deciding which partition owns a machine */
+    private final VendingMachineRegistry registry;
+
+    /** Command queue of every partition, consumed by its event loop only */
+    private final BlockingQueue<Runnable>[] queues;
+
+    /** Event loop of every partition */
+    private final Thread[] loops;
+
+    /** Longest time a caller waits for its command to start, and close waits for each event loop */
+    private final Duration timeout;
+
+    /** Set once the executor stops accepting commands */
+    private volatile boolean closed;
+
+    /**
+     * Constructs an executor with one event loop per partition of the registry and starts it,
+     * waiting at most 30 seconds for a command to start.
+     *
+     * @param registry the registry deciding which partition owns a machine
+     * @param queueCapacity the maximum number of commands waiting in each partition
+     * @throws IllegalArgumentException if queueCapacity is not positive
+     */
+    public MachinePartitionExecutor(VendingMachineRegistry registry, int queueCapacity) {
+        this(registry, queueCapacity, Duration.ofSeconds(30));
+    }
+
+    /**
+     * Constructs an executor with one event loop per partition of the registry and starts it.
+     *
+     * @param registry the registry deciding which partition owns a machine
+     * @param queueCapacity the maximum number of commands waiting in each partition
+     * @param timeout the longest time a caller waits for its command to start
+     * @throws IllegalArgumentException if queueCapacity or timeout is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public MachinePartitionExecutor(VendingMachineRegistry registry, int queueCapacity, Duration timeout) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.registry = registry;
+        this.timeout = timeout;
+        int partitions = registry.partitionCount();
+        this.queues = new BlockingQueue[partitions];
+        this.loops = new Thread[partitions];
+        for (int i = 0; i < partitions; i++) {
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues[i] = queue;
+            loops[i] = new Thread(() -> runLoop(queue), "machine-partition-" + i);
+            loops[i].setDaemon(true);
+            loops[i].start();
+        }
+    }
+
+    /**
+     * Runs a command on the partition owning the given machine and returns its result.
+     *
+     * <p>A command issued from the event loop of the same partition runs immediately, so
+     * commands may call each other without deadlocking. A command which started is waited for
+     * until it ends, since its effects cannot be withdrawn.</p>
+     *
+     * @param machineId the machine the command applies to
+     * @param command the command to run
+     * @param <T> the type of the result
+     * @return the result of the command
+     * @throws MachineBusyException if the queue of the partition is full, the executor is closed
+     *         or the command did not start in time, in which case the command does not run
+     */
+    public <T> T execute(String machineId, Supplier<T> command) {
+        int partition = registry.partitionOf(machineId);
+        if (Thread.currentThread() == loops[partition]) {
+            return command.get();
+        }
+        if (closed) {
+            throw new MachineBusyException("Machine " + machineId + " is not accepting commands");
+        }
+        Command<T> task = new Command<>(command);
+        if (!queues[partition].offer(task)) {
+            throw new MachineBusyException("Machine " + machineId + " is busy, try again later");
+        }
+        if (closed) {
+            // Closed while offering: the event loop may already be stopped and the queue drained
+            task.withdraw(new MachineBusyException("Machine " + machineId + " is not accepting commands"));
+        }
+        return await(task, machineId);
+    }
+
+    /**
+     * Runs a command without result on the partition owning the given machine.
+     *
+     * @param machineId the machine the command applies to
+     * @param command the command to run
+     * @throws MachineBusyException if the queue of the partition is full or the executor is closed
+     */
+    public void run(String machineId, Runnable command) {
+        execute(machineId, () -> {
+            command.run();
+            return null;
+        });
+    }
+
+    /**
+     * Stops accepting commands, runs those already queued and stops the event loops.
+     *
+     * <p>Each event loop is waited for at most the timeout of the executor. The commands left
+     * in the queues afterwards, offered while closing or not run in time, are withdrawn.</p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            for (int i = 0; i < queues.length; i++) {
+                if (!queues[i].offer(STOP, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    // The queue stayed full: stop the event loop without running the commands left
+                    loops[i].interrupt();
+                }
+            }
+            for (Thread loop : loops) {
+                loop.join(timeout.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (BlockingQueue<Runnable> queue : queues) {
+            Runnable task;
+            while ((task = queue.poll()) != null) {
+                if (task instanceof Command<?> pending) {
+                    pending.withdraw(new MachineBusyException("Machine executor is closed"));
+                }
+            }
+        }
+    }
+
+    private static void runLoop(BlockingQueue<Runnable> queue) {
+        while (true) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            task.run();
+        }
+    }
+
+    private <T> T await(Command<T> task, String machineId) {
+        try {
+            try {
+                return task.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                task.withdraw(new MachineBusyException("Machine " + machineId + " is busy, try again later"));
+                // Either withdrawn now, or started and waited for until it ends
+                return task.result.get();
+            }
+        } catch (ExecutionException e) {
+            // Rethrow the exception of the command as is, so callers handle it like a direct call
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a machine command", e);
+        }
+    }
+
+    /**
+     * Command queued for an event loop, run or withdrawn exactly once.
+     */
+    private static final class Command<T> implements Runnable {
+
+        private final Supplier<T> command;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /** Set by whichever of the event loop and a withdrawal comes first */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Command(Supplier<T> command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                result.complete(command.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void withdraw(RuntimeException reason) {
+            if (claimed.compareAndSet(false, true)) {
+                result.completeExceptionally(reason);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.MachineState;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.CoinInventoryRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.MachineJournal;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Loads the {@link VendingMachine} aggregate of a machine for the {@link VendingMachineRegistry}.
+ *
+ * <p>The products of the machine come from the repository. When the machine was journaled,
+ * their quantities and the coins for change are the ones recovered from the
+ * {@link MachineJournal}, which is written as the machine changes and may be ahead of the
+ * repositories. Otherwise the coins come from the {@link CoinInventoryRepository}, and a
+ * machine without a stored inventory starts with the initial float, which is stored.</p>
+ *
+ * <p>A machine with no products, no stored inventory and no journal is not part of the fleet
+ * and is rejected, so a mistyped machine id never creates an empty machine.</p>
+ *
+ * <p>The loaded machine then publishes its events to the journal first and to the domain
+ * event bus next, so an event is journaled before any subscriber sees it.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class VendingMachineLoader implements Function<String, VendingMachine> {
+
+    /** Repository of the products of every machine */
+    private final VendingMachineRepository vendingMachineRepository;
+
+    /** Repository of the coins of every machine */
+    private final CoinInventoryRepository coinInventoryRepository;
+
+    /** Journal the stock and coins of the machines are recovered from */
+    private final MachineJournal journal;
+
+    /** Calculator of the change given by the machines */
+    private final ChangeCalculator changeCalculator;
+
+    /** Bus the domain events of the machines are published to */
+    private final DomainEventBus domainEventBus;
+
+    /** Coins of a machine without a journaled or stored inventory */
+    private final List<Money> initialChange;
+
+    /**
+     * Constructs a new VendingMachineLoader.
+     *
+     * @param vendingMachineRepository the repository of the products of every machine
+     * @param coinInventoryRepository the repository of the coins of every machine
+     * @param journal the journal the machines are recovered from
+     * @param changeCalculator the calculator of the change given by the machines
+     * @param domainEventBus the bus the domain events of the machines are published to
+     * @param initialChange the coins of a machine without a journaled or stored inventory
+     */
+    public VendingMachineLoader(VendingMachineRepository vendingMachineRepository,
+                                CoinInventoryRepository coinInventoryRepository,
+                                MachineJournal journal,
+                                ChangeCalculator changeCalculator,
+                                DomainEventBus domainEventBus,
+                                List<Money> initialChange) {
+        this.vendingMachineRepository = vendingMachineRepository;
+        this.coinInventoryRepository = coinInventoryRepository;
+        this.journal = journal;
+        this.changeCalculator = changeCalculator;
+        this.domainEventBus = domainEventBus;
+        this.initialChange = List.copyOf(initialChange);
+    }
+
+    /**
+     * Loads the aggregate of a machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return the machine
+     * @throws MachineNotFoundException if the machine is not part of the fleet
+     */
+    @Override
+    public VendingMachine apply(String machineId) {
+        List<Product> products = vendingMachineRepository.findAllProducts(machineId);
+        Optional<MachineState> recovered = journal.recover(machineId);
+        List<Money> coins;
+        if (recovered.isPresent()) {
+            Map<ProductId, Integer> stock = recovered.get().stock();
+            products = products.stream()
+                    .map(product -> new Product(product.name(), product.price(), product.productId(),
+                            stock.getOrDefault(product.productId(), product.quantity()), product.version()))
+                    .toList();
+            coins = recovered.get().coins();
+        } else if (products.isEmpty()) {
+            coins = coinInventoryRepository.findCounts(machineId).map(ChangeCalculator::coins)
+                    .orElseThrow(() -> new MachineNotFoundException("Machine was not found"));
+        } else {
+            coins = coinInventoryRepository.findCounts(machineId).map(ChangeCalculator::coins).orElseGet(() -> {
+                coinInventoryRepository.saveCounts(machineId, counts(initialChange));
+                return initialChange;
+            });
+        }
+
+        VendingMachine machine = new VendingMachine(products, coins, changeCalculator);
+        DomainEventPublisher bus = domainEventBus.publisherFor(machineId, null);
+        // A machine without products never changes, so there is nothing to journal
+        machine.publishEventsTo(products.isEmpty() ? bus : journal.attach(machineId, machine.state()).andThen(bus));
+        return machine;
+    }
+
+    /**
+     * Brings the stored stock and coins of every journaled machine in line with the journal.
+     *
+     * <p>The repositories are updated asynchronously from the domain events, so they may miss
+     * the last orders before a shutdown; this applies them again before any machine is loaded.</p>
+     */
+    public void reconcile() {
+        Map<String, int[]> coinCorrections = new HashMap<>();
+        journal.recoverAll().forEach((machineId, state) -> {
+            Map<ProductId, Integer> corrections = new HashMap<>();
+            for (Product product : vendingMachineRepository.findAllProducts(machineId)) {
+                Integer journaled = state.stock().get(product.productId());
+                if (journaled != null && journaled < product.quantity()) {
+                    corrections.put(product.productId(), product.quantity() - journaled);
+                }
+            }
+            if (!corrections.isEmpty()) {
+                vendingMachineRepository.decrementStock(corrections);
+            }
+
+            int[] journaledCoins = counts(state.coins());
+            Optional<int[]> stored = coinInventoryRepository.findCounts(machineId);
+            if (stored.isEmpty()) {
+                coinInventoryRepository.saveCounts(machineId, journaledCoins);
+            } else if (!Arrays.equals(stored.get(), journaledCoins)) {
+                int[] delta = new int[journaledCoins.length];
+                Arrays.setAll(delta, i -> journaledCoins[i] - stored.get()[i]);
+                coinCorrections.put(machineId, delta);
+            }
+        });
+        if (!coinCorrections.isEmpty()) {
+            coinInventoryRepository.adjustCounts(coinCorrections);
+        }
+    }
+
+    private static int[] counts(List<Money> coins) {
+        int[] counts = new int[Money.denominations().size()];
+        coins.forEach(coin -> counts[coin.index()]++);
+        return counts;
+    }
+}
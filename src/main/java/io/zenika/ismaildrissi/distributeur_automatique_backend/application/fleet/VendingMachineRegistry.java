@@ -0,0 +1,334 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory {@link VendingMachine} aggregates of the fleet served by this backend instance.
+ *
+ * <p>Machines are identified by id and loaded lazily on first use. They are sharded by id
+ * across a fixed number of partitions; each partition is guarded by its own lock, so
+ * lookups for machines of different partitions never contend. The lock is only held to
+ * look a machine up or to add one: a machine is loaded outside of it, and the other
+ * threads asking for the same machine meanwhile wait for that single load, while the
+ * other machines of the partition stay available.</p>
+ *
+ * <p>Memory is bounded: every partition keeps at most its share of the configured
+ * capacity and evicts its least recently used machines beyond that. A machine that still
+ * has purchase sessions is never evicted, so a partition may hold more machines while they
+ * serve customers. An evicted machine is
+ * loaded again on its next use, and the {@link VendingMachineLoader} recovers its stock and
+ * coins from the machine journal, so nothing is lost; reloading is still far slower than a
+ * lookup. The capacity should therefore exceed the number of machines active at the same
+ * time.</p>
+ *
+ * <p>Every evicted machine is handed to a release callback, which frees what was held for it,
+ * such as its journal. The machine cannot be loaded again until its release ends, so a
+ * reloaded machine never shares anything with the instance it replaces.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class VendingMachineRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(VendingMachineRegistry.class);
+
+    /** Loaded machines, one LRU map per partition */
+    private final Map<String, VendingMachine>[] partitions;
+
+    /**
+     * Loads and releases in progress, one map per partition, guarded by the lock of the partition.
+     * A release completes with null once the evicted machine may be loaded again.
+     */
+    private final Map<String, CompletableFuture<VendingMachine>>[] loading;
+
+    /** Lock of every partition */
+    private final ReentrantLock[] locks;
+
+    /** Maximum number of machines a partition keeps once no machine is pinned */
+    private final int perPartition;
+
+    /** Loads the aggregate of a machine that is not in memory */
+    private final Function<String, VendingMachine> loader;
+
+    /** Tells whether a machine must stay in memory, because it has purchase sessions */
+    private final Predicate<String> pinned;
+
+    /** Releases what was held for an evicted machine */
+    private final Consumer<String> release;
+
+    /**
+     * Constructs an empty registry evicting any machine beyond capacity.
+     *
+     * @param partitions the number of partitions machines are sharded across
+     * @param capacity the maximum number of machines kept in memory
+     * @param loader the function loading the aggregate of a machine from its id
+     * @throws IllegalArgumentException if partitions or capacity is not positive
+     */
+    public VendingMachineRegistry(int partitions, int capacity, Function<String, VendingMachine> loader) {
+        this(partitions, capacity, loader, machineId -> false);
+    }
+
+    /**
+     * Constructs an empty registry with nothing to release on eviction.
+     *
+     * @param partitions the number of partitions machines are sharded across
+     * @param capacity the maximum number of machines kept in memory while none is pinned
+     * @param loader the function loading the aggregate of a machine from its id
+     * @param pinned tells whether a machine must not be evicted; called under the partition lock
+     * @throws IllegalArgumentException if partitions or capacity is not positive
+     */
+    public VendingMachineRegistry(int partitions, int capacity, Function<String, VendingMachine> loader,
+                                  Predicate<String> pinned) {
+        this(partitions, capacity, loader, pinned, machineId -> {
+        });
+    }
+
+    /**
+     * Constructs an empty registry.
+     *
+     * @param partitions the number of partitions machines are sharded across
+     * @param capacity the maximum number of machines kept in memory while none is pinned
+     * @param loader the function loading the aggregate of a machine from its id
+     * @param pinned tells whether a machine must not be evicted; called under the partition lock
+     * @param release frees what was held for an evicted machine; called outside of the partition lock
+     * @throws IllegalArgumentException if partitions or capacity is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public VendingMachineRegistry(int partitions, int capacity, Function<String, VendingMachine> loader,
+                                  Predicate<String> pinned, Consumer<String> release) {
+        if (partitions <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Partitions and capacity must be positive");
+        }
+        this.perPartition = Math.max(1, capacity / partitions);
+        this.partitions = new Map[partitions];
+        this.loading = new Map[partitions];
+        this.locks = new ReentrantLock[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.locks[i] = new ReentrantLock();
+            this.partitions[i] = new LinkedHashMap<>(16, 0.75f, true);
+            this.loading[i] = new HashMap<>();
+        }
+        this.loader = loader;
+        this.pinned = pinned;
+        this.release = release;
+    }
+
+    /**
+     * Returns the aggregate of the given machine, loading it on first use.
+     *
+     * <p>A machine is loaded once, by the first thread asking for it; the threads asking for
+     * it during the load wait for that load and get the same machine, or the same error. A
+     * machine asked for while it is released after its eviction is loaded again once released.</p>
+     *
+     * @param machineId the identifier of the machine
+     * @return the machine, never null
+     * @throws RuntimeException any exception thrown by the loader, the machine then not being kept
+     */
+    public VendingMachine machine(String machineId) {
+        int partition = partitionOf(machineId);
+        while (true) {
+            CompletableFuture<VendingMachine> load;
+            boolean loads = false;
+            locks[partition].lock();
+            try {
+                VendingMachine machine = partitions[partition].get(machineId);
+                if (machine != null) {
+                    return machine;
+                }
+                load = loading[partition].get(machineId);
+                if (load == null) {
+                    load = new CompletableFuture<>();
+                    loading[partition].put(machineId, load);
+                    loads = true;
+                }
+            } finally {
+                locks[partition].unlock();
+            }
+            if (loads) {
+                return load(partition, machineId, load);
+            }
+            VendingMachine machine = await(load);
+            if (machine != null) {
+                return machine;
+            }
+            // The machine was being released after its eviction: load it again
+        }
+    }
+
+    private VendingMachine load(int partition, String machineId, CompletableFuture<VendingMachine> load) {
+        VendingMachine machine;
+        try {
+            machine = loader.apply(machineId);
+        } catch (RuntimeException | Error e) {
+            locks[partition].lock();
+            try {
+                loading[partition].remove(machineId);
+            } finally {
+                locks[partition].unlock();
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        Map<String, CompletableFuture<VendingMachine>> releases = new HashMap<>();
+        locks[partition].lock();
+        try {
+            partitions[partition].put(machineId, machine);
+            loading[partition].remove(machineId);
+            for (String evicted : evict(partitions[partition], machineId)) {
+                CompletableFuture<VendingMachine> released = new CompletableFuture<>();
+                loading[partition].put(evicted, released);
+                releases.put(evicted, released);
+            }
+        } finally {
+            locks[partition].unlock();
+        }
+        load.complete(machine);
+        releases.forEach((evicted, released) -> release(partition, evicted, released));
+        return machine;
+    }
+
+    private void release(int partition, String machineId, CompletableFuture<VendingMachine> released) {
+        try {
+            release.accept(machineId);
+        } catch (RuntimeException e) {
+            log.warn("Could not release evicted machine {}", machineId, e);
+        } finally {
+            locks[partition].lock();
+            try {
+                loading[partition].remove(machineId);
+            } finally {
+                locks[partition].unlock();
+            }
+            released.complete(null);
+        }
+    }
+
+    /**
+     * Returns the aggregate of the given machine if it is in memory, without loading it.
+     *
+     * <p>This method never waits: if another thread holds the lock of the partition, even
+     * briefly, it returns empty. Non-blocking callers use it as a fast path and load the
+     * machine with {@link #machine(String)} on a thread allowed to block.</p>
+     *
+     * @param machineId the identifier of the machine
+     * @return the machine, or empty if it is not in memory or its partition is busy
+     */
+    public Optional<VendingMachine> ifLoaded(String machineId) {
+        int partition = partitionOf(machineId);
+        if (!locks[partition].tryLock()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(partitions[partition].get(machineId));
+        } finally {
+            locks[partition].unlock();
+        }
+    }
+
+    /**
+     * Returns the partition owning the given machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return an index between 0 and {@link #partitionCount()} excluded
+     */
+    public int partitionOf(String machineId) {
+        int hash = machineId.hashCode();
+        // Spread the high bits, as HashMap does, before reducing to a partition index
+        return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return the partition count
+     */
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * Returns the number of machines currently held in memory.
+     *
+     * @return the machine count
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < partitions.length; i++) {
+            locks[i].lock();
+            try {
+                size += partitions[i].size();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Runs the given action on every machine currently held in memory.
+     *
+     * <p>Each partition is locked only while its machines are listed, never while the action
+     * runs, and listing them does not count as a use for the eviction order.</p>
+     *
+     * @param action the action receiving the id and the aggregate of every machine
+     */
+    public void forEachLoaded(BiConsumer<String, VendingMachine> action) {
+        for (int i = 0; i < partitions.length; i++) {
+            Map<String, VendingMachine> loaded;
+            locks[i].lock();
+            try {
+                loaded = new HashMap<>(partitions[i]);
+            } finally {
+                locks[i].unlock();
+            }
+            loaded.forEach(action);
+        }
+    }
+
+    private static VendingMachine await(CompletableFuture<VendingMachine> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Evicts the least recently used machines of a partition beyond its share of the capacity,
+     * skipping the pinned ones and the machine just added. The partition lock must be held.
+     *
+     * @return the evicted machine ids
+     */
+    private List<String> evict(Map<String, VendingMachine> partition, String added) {
+        List<String> evicted = new ArrayList<>();
+        Iterator<String> eldest = partition.keySet().iterator();
+        while (partition.size() > perPartition && eldest.hasNext()) {
+            String machineId = eldest.next();
+            if (!machineId.equals(added) && !pinned.test(machineId)) {
+                eldest.remove();
+                evicted.add(machineId);
+            }
+        }
+        return evicted;
+    }
+}
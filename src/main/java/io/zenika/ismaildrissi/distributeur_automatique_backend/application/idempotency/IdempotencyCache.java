@@ -0,0 +1,289 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.idempotency;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.IdempotencyKeyReusedException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineBusyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Results of the orders completed or cancelled with an idempotency key, so that a client retrying
+ * a request gets the original result back instead of running the operation a second time.
+ *
+ * <p>A key is scoped to a purchase session: the same key sent by two sessions denotes two
+ * requests. The first request with a key claims it and runs the operation; a retry arriving
+ * while it runs waits for its result, for a bounded time, and a retry arriving later reads it
+ * from the cache. A
+ * failed operation releases its key, so it can be retried once the cause is fixed, for example
+ * after inserting other coins when the change could not be given.</p>
+ *
+ * <p>The cache is bounded in size and in time. Entries are kept in insertion order, which is
+ * also their expiry order, so expired entries and the oldest ones beyond the capacity are
+ * dropped from the head of the map on each claim, in constant amortized time. Only entries
+ * whose operation has finished are dropped: a key still running stays claimed, and a claim
+ * finding the cache full of running keys is refused as busy. The map is guarded by a
+ * {@link ReentrantLock} held only for the lookup, never while an operation runs.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Component
+public class IdempotencyCache {
+
+    /** Identifies a request within the fleet */
+    private record Key(String machineId, String sessionId, String idempotencyKey) {
+    }
+
+    /** The request that claimed a key and its result, pending while the operation runs */
+    private record Entry(Object request, CompletableFuture<OrderDTO> result, long expiresAtNanos) {
+    }
+
+    /**
+     * A key claimed by a request.
+     *
+     * <p>The owner of the claim runs the operation and reports its outcome with
+     * {@link #complete(Claim, OrderDTO)} or {@link #release(Claim, Throwable)}; any other
+     * request waits for {@link #result()}.</p>
+     */
+    public static final class Claim {
+
+        private final Key key;
+
+        private final Entry entry;
+
+        private final boolean owner;
+
+        private Claim(Key key, Entry entry, boolean owner) {
+            this.key = key;
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        /**
+         * Checks if this request claimed the key first and must run the operation.
+         *
+         * @return true for the first request with the key
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+
+        /**
+         * Returns the result of the request that claimed the key.
+         *
+         * @return a future completed with the order, or failed with the error of the operation
+         */
+        public CompletableFuture<OrderDTO> result() {
+            return entry.result();
+        }
+    }
+
+    /** Claimed keys, oldest first */
+    private final Map<Key, Entry> entries = new LinkedHashMap<>();
+
+    /** Guards the map */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Maximum number of keys kept */
+    private final int capacity;
+
+    /** How long a key is kept after it is claimed */
+    private final long ttlNanos;
+
+    /** How long a retry waits for the request running with the same key */
+    private final Duration waitTimeout;
+
+    /** Source of {@link System#nanoTime()} values */
+    private final LongSupplier clock;
+
+    /**
+     * Constructs a cache of the given size and lifetime.
+     *
+     * @param capacity the maximum number of keys kept
+     * @param ttl how long a key is kept after it is claimed
+     * @param waitTimeout how long a retry waits for the request running with the same key
+     */
+    @Autowired
+    public IdempotencyCache(@Value("${vending-machine.idempotency.capacity:10000}") int capacity,
+                            @Value("${vending-machine.idempotency.ttl:PT10M}") Duration ttl,
+                            @Value("${vending-machine.idempotency.wait-timeout:PT30S}") Duration waitTimeout) {
+        this(capacity, ttl, waitTimeout, System::nanoTime);
+    }
+
+    IdempotencyCache(int capacity, Duration ttl, Duration waitTimeout, LongSupplier clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = ttl.toNanos();
+        this.waitTimeout = waitTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns how long a retry waits for the request running with the same key.
+     *
+     * @return the wait timeout
+     */
+    public Duration waitTimeout() {
+        return waitTimeout;
+    }
+
+    /**
+     * Runs an operation at most once per idempotency key.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param idempotencyKey the key sent by the client, or null to run the operation unconditionally
+     * @param request what the request asks for, compared with {@link Object#equals(Object)} on retries
+     * @param operation the operation to run
+     * @return the result of the operation, or the result of the first request with the same key
+     * @throws IdempotencyKeyReusedException if the key was claimed by a different request
+     * @throws MachineBusyException if the request running with the same key does not finish in
+     *         time, or too many keys are running
+     */
+    public OrderDTO execute(String machineId, String sessionId, String idempotencyKey, Object request,
+                            Supplier<OrderDTO> operation) {
+        if (idempotencyKey == null) {
+            return operation.get();
+        }
+        Claim claim = claim(machineId, sessionId, idempotencyKey, request);
+        if (!claim.isOwner()) {
+            try {
+                return claim.result().get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+            } catch (TimeoutException e) {
+                throw new MachineBusyException("The request with this idempotency key is still running, retry later");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MachineBusyException("Interrupted while waiting for the request with this idempotency key");
+            }
+        }
+        try {
+            OrderDTO result = operation.get();
+            complete(claim, result);
+            return result;
+        } catch (RuntimeException e) {
+            release(claim, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Claims an idempotency key, or joins the request that already claimed it.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param idempotencyKey the key sent by the client
+     * @param request what the request asks for, compared with {@link Object#equals(Object)} on retries
+     * @return the claim, owned by the caller if the key was free
+     * @throws IdempotencyKeyReusedException if the key was claimed by a different request
+     * @throws MachineBusyException if the cache is full of keys whose operation is still running
+     */
+    public Claim claim(String machineId, String sessionId, String idempotencyKey, Object request) {
+        Key key = new Key(machineId, sessionId, idempotencyKey);
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            evictExpired(now);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.request().equals(request)) {
+                    throw new IdempotencyKeyReusedException("Idempotency key already used for another request: " + idempotencyKey);
+                }
+                return new Claim(key, entry, false);
+            }
+            if (entries.size() >= capacity && !evictOldestFinished()) {
+                throw new MachineBusyException("Too many requests with an idempotency key in progress, retry later");
+            }
+            entry = new Entry(request, new CompletableFuture<>(), now + ttlNanos);
+            entries.put(key, entry);
+            return new Claim(key, entry, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the result of a claimed request and hands it to the retries waiting for it.
+     *
+     * @param claim the claim owned by the caller
+     * @param result the result of the operation
+     */
+    public void complete(Claim claim, OrderDTO result) {
+        claim.entry.result().complete(result);
+    }
+
+    /**
+     * Releases the key of a failed request, so that it can be retried, and fails the retries
+     * waiting for it. Does nothing if the request already completed.
+     *
+     * @param claim the claim owned by the caller
+     * @param failure the error of the operation
+     */
+    public void release(Claim claim, Throwable failure) {
+        if (!claim.entry.result().completeExceptionally(failure)) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.remove(claim.key, claim.entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of keys currently kept.
+     *
+     * @return the key count
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops the finished expired entries, which are at the head of the map, the lock being held */
+    private void evictExpired(long now) {
+        Iterator<Entry> oldestFirst = entries.values().iterator();
+        while (oldestFirst.hasNext()) {
+            Entry entry = oldestFirst.next();
+            if (entry.expiresAtNanos() - now > 0) {
+                return;
+            }
+            if (entry.result().isDone()) {
+                oldestFirst.remove();
+            }
+        }
+    }
+
+    /** Drops the oldest entry whose operation has finished, the lock being held */
+    private boolean evictOldestFinished() {
+        Iterator<Entry> oldestFirst = entries.values().iterator();
+        while (oldestFirst.hasNext()) {
+            if (oldestFirst.next().result().isDone()) {
+                oldestFirst.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+}
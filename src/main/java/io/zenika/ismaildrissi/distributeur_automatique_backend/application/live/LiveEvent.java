@@ -0,0 +1,101 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.live;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.CompletedOrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.StockLevelDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A change pushed to the kiosks subscribed to the live event stream of a machine.
+ *
+ * <p>Every event carries the new state rather than a delta: the total inserted amount,
+ * the whole selection, the new quantity of a product. An event can therefore replace any
+ * older event with the same {@link #key()} that a subscriber has not received yet without
+ * losing information.</p>
+ *
+ * @param type the kind of change
+ * @param machineId the machine the change happened on
+ * @param sessionId the purchase session concerned, or null for a change visible to every kiosk of the machine
+ * @param key the coalescing key: a newer event with the same key supersedes this one
+ * @param data the payload sent to the kiosks
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record LiveEvent(LiveEventType type, String machineId, String sessionId, String key, Object data) {
+
+    /**
+     * Creates the event of a new stock level, visible to every kiosk of the machine.
+     *
+     * @param machineId the machine holding the product
+     * @param stockLevel the new quantity of the product
+     * @return the event
+     */
+    public static LiveEvent stockChanged(String machineId, StockLevelDTO stockLevel) {
+        return new LiveEvent(LiveEventType.STOCK_CHANGED, machineId, null, "stock:" + stockLevel.getId(), stockLevel);
+    }
+
+    /**
+     * Creates the event of a money insertion.
+     *
+     * @param machineId the machine the session is purchasing from
+     * @param sessionId the purchase session
+     * @param total the total amount inserted in the session
+     * @return the event
+     */
+    public static LiveEvent moneyInserted(String machineId, String sessionId, MoneyDTO total) {
+        return new LiveEvent(LiveEventType.MONEY_INSERTED, machineId, sessionId, "money", total);
+    }
+
+    /**
+     * Creates the event of a selection change.
+     *
+     * @param type {@link LiveEventType#PRODUCT_SELECTED} or {@link LiveEventType#PRODUCT_UNSELECTED}
+     * @param machineId the machine the session is purchasing from
+     * @param sessionId the purchase session
+     * @param selection the whole selection of the session
+     * @return the event
+     */
+    public static LiveEvent selectionChanged(LiveEventType type, String machineId, String sessionId,
+                                             List<SelectedProductDTO> selection) {
+        return new LiveEvent(type, machineId, sessionId, "selection", selection);
+    }
+
+    /**
+     * Creates the event of a completed order.
+     *
+     * @param machineId the machine the session is purchasing from
+     * @param sessionId the purchase session
+     * @param order the purchased products and the change owed
+     * @return the event
+     */
+    public static LiveEvent orderCompleted(String machineId, String sessionId, CompletedOrderDTO order) {
+        return new LiveEvent(LiveEventType.ORDER_COMPLETED, machineId, sessionId, "order", order);
+    }
+
+    /**
+     * Creates the event of a cancelled order.
+     *
+     * @param machineId the machine the session is purchasing from
+     * @param sessionId the purchase session
+     * @param order the returned money
+     * @return the event
+     */
+    public static LiveEvent orderCancelled(String machineId, String sessionId, OrderDTO order) {
+        return new LiveEvent(LiveEventType.ORDER_CANCELLED, machineId, sessionId, "order", order);
+    }
+
+    /**
+     * Creates the event telling a subscriber that some of its events were dropped.
+     *
+     * @param machineId the machine of the subscriber
+     * @return the event
+     */
+    static LiveEvent resync(String machineId) {
+        return new LiveEvent(LiveEventType.RESYNC, machineId, null, "resync", Map.of("reason", "overflow"));
+    }
+}
@@ -0,0 +1,212 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.live;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fans the {@link LiveEvent}s of every machine out to the kiosks subscribed to it.
+ *
+ * <p>Publishing never blocks: an event is only added to the buffer of every interested
+ * subscription, and each subscription is drained by a task of the executor, so a slow
+ * connection only delays its own events. A subscription receives the machine-wide events
+ * of its machine and the events of its own purchase session.</p>
+ *
+ * <p>Buffers are bounded and coalescing. A pending event is replaced by a newer event with
+ * the same key, so a subscriber that falls behind receives the latest state of each key
+ * rather than every intermediate change. If a buffer still fills up with distinct keys, it
+ * is emptied and replaced by a single {@link LiveEventType#RESYNC} event telling the
+ * subscriber to reload its state.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class LiveEventHub implements AutoCloseable {
+
+    /** Subscriptions of every machine */
+    private final ConcurrentMap<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    /** Maximum number of distinct keys pending per subscription */
+    private final int bufferCapacity;
+
+    /** Runs the drain tasks, which may block on slow connections */
+    private final Executor executor;
+
+    /**
+     * Constructs a hub without subscriptions.
+     *
+     * @param bufferCapacity the maximum number of events pending per subscription
+     * @param executor the executor writing events to the subscribers
+     * @throws IllegalArgumentException if bufferCapacity is lower than 1
+     */
+    public LiveEventHub(int bufferCapacity, Executor executor) {
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive");
+        }
+        this.bufferCapacity = bufferCapacity;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes a kiosk to the events of a machine and of its purchase session.
+     *
+     * @param machineId the machine the kiosk is purchasing from
+     * @param sessionId the purchase session of the kiosk
+     * @param sink the connection the events are written to
+     * @return the subscription, to cancel once the connection is closed
+     */
+    public Subscription subscribe(String machineId, String sessionId, LiveEventSink sink) {
+        Subscription subscription = new Subscription(machineId, sessionId, sink);
+        subscriptions.compute(machineId, (id, machineSubscriptions) -> {
+            Set<Subscription> updated = machineSubscriptions == null ? new CopyOnWriteArraySet<>() : machineSubscriptions;
+            updated.add(subscription);
+            return updated;
+        });
+        return subscription;
+    }
+
+    /**
+     * Publishes an event to the subscriptions interested in it.
+     *
+     * @param event the event to publish
+     */
+    public void publish(LiveEvent event) {
+        Set<Subscription> machineSubscriptions = subscriptions.get(event.machineId());
+        if (machineSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : machineSubscriptions) {
+            if (event.sessionId() == null || event.sessionId().equals(subscription.sessionId)) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of open subscriptions.
+     *
+     * @return the subscription count
+     */
+    public int subscriptionCount() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Cancels every subscription and closes its connection.
+     */
+    @Override
+    public void close() {
+        subscriptions.values().forEach(machineSubscriptions -> machineSubscriptions.forEach(Subscription::cancel));
+    }
+
+    /**
+     * Subscription of one kiosk, with its bounded coalescing buffer.
+     */
+    public final class Subscription {
+
+        private final String machineId;
+
+        private final String sessionId;
+
+        private final LiveEventSink sink;
+
+        /** Guards the buffer and the drain state */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** Pending events by key, oldest first */
+        private final LinkedHashMap<String, LiveEvent> buffer = new LinkedHashMap<>();
+
+        /** Whether a drain task is scheduled or running */
+        private boolean draining;
+
+        private boolean cancelled;
+
+        private Subscription(String machineId, String sessionId, LiveEventSink sink) {
+            this.machineId = machineId;
+            this.sessionId = sessionId;
+            this.sink = sink;
+        }
+
+        /**
+         * Ends the subscription and closes its connection. Pending events are dropped.
+         */
+        public void cancel() {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                buffer.clear();
+            } finally {
+                lock.unlock();
+            }
+            // Drop the set of the machine with its last subscription, atomically with subscribe
+            subscriptions.computeIfPresent(machineId, (id, machineSubscriptions) -> {
+                machineSubscriptions.remove(this);
+                return machineSubscriptions.isEmpty() ? null : machineSubscriptions;
+            });
+            sink.close();
+        }
+
+        private void offer(LiveEvent event) {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                // Move a superseded event to the end, so the buffer stays in publication order
+                if (buffer.remove(event.key()) == null && buffer.size() >= bufferCapacity) {
+                    buffer.clear();
+                    LiveEvent resync = LiveEvent.resync(machineId);
+                    buffer.put(resync.key(), resync);
+                }
+                buffer.put(event.key(), event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // The hub is shutting down; never fail the publisher
+                cancel();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<LiveEvent> batch;
+                lock.lock();
+                try {
+                    if (cancelled || buffer.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(buffer.values());
+                    buffer.clear();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    for (LiveEvent event : batch) {
+                        sink.send(event);
+                    }
+                } catch (Exception e) {
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+}
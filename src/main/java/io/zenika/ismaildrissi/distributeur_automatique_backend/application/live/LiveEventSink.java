@@ -0,0 +1,25 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.live;
+
+import java.io.IOException;
+
+/**
+ * Connection of a subscriber to the live event stream, written by the {@link LiveEventHub}.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public interface LiveEventSink {
+
+    /**
+     * Writes an event to the subscriber. May block while the connection is slow.
+     *
+     * @param event the event to write
+     * @throws IOException if the connection is broken
+     */
+    void send(LiveEvent event) throws IOException;
+
+    /**
+     * Closes the connection once the subscription ends.
+     */
+    void close();
+}
@@ -0,0 +1,73 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.live;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.CompletedOrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.StockLevelDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventSubscriber;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.CoinsDeposited;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.MoneyInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductSelected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductUnselected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCancelled;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCompleted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Turns the domain events into the {@link LiveEvent}s pushed to the kiosks.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Component
+@RequiredArgsConstructor
+public class LiveEventSubscriber implements DomainEventSubscriber {
+
+    /** Hub pushing the events to the subscribed kiosks */
+    private final LiveEventHub liveEvents;
+
+    /** Mapper for converting between Money domain objects and MoneyDTOs */
+    private final MoneyMapper moneyMapper;
+
+    /** Mapper for converting between SelectedProduct domain objects and SelectedProductDTOs */
+    private final SelectedProductMapper selectedProductMapper;
+
+    @Override
+    public void onEvent(String machineId, String sessionId, DomainEvent event, boolean endOfBatch) {
+        switch (event) {
+            case MoneyInserted inserted -> liveEvents.publish(LiveEvent.moneyInserted(
+                    machineId, sessionId, new MoneyDTO(Money.toMad(inserted.insertedAmount()))));
+            case ProductSelected selected -> liveEvents.publish(LiveEvent.selectionChanged(
+                    LiveEventType.PRODUCT_SELECTED, machineId, sessionId, toDto(selected.selection())));
+            case ProductUnselected unselected -> liveEvents.publish(LiveEvent.selectionChanged(
+                    LiveEventType.PRODUCT_UNSELECTED, machineId, sessionId, toDto(unselected.selection())));
+            case ProductDispensed dispensed -> liveEvents.publish(LiveEvent.stockChanged(
+                    machineId, new StockLevelDTO(dispensed.productId().id(), dispensed.remaining())));
+            case TransactionCompleted completed -> liveEvents.publish(LiveEvent.orderCompleted(machineId, sessionId,
+                    new CompletedOrderDTO(toDto(completed.selectedProducts()), new MoneyDTO(Money.toMad(completed.change())))));
+            case TransactionCancelled cancelled -> liveEvents.publish(LiveEvent.orderCancelled(machineId, sessionId,
+                    new OrderDTO(List.of(), cancelled.returnedMoney().stream().map(moneyMapper::toDTO).collect(Collectors.toList()))));
+            // The coins are not pushed: kiosks only show the change owed
+            case ChangeDispensed ignored -> {
+            }
+            case CoinsDeposited ignored -> {
+            }
+        }
+    }
+
+    private List<SelectedProductDTO> toDto(List<SelectedProduct> selection) {
+        return selection.stream().map(selectedProductMapper::toDto).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,31 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.live;
+
+/**
+ * Kinds of changes pushed to the kiosks subscribed to the live event stream.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public enum LiveEventType {
+
+    /** The stock of a product of the machine changed; machine-wide */
+    STOCK_CHANGED,
+
+    /** Money was inserted; carries the new total of the session */
+    MONEY_INSERTED,
+
+    /** A product was selected; carries the whole selection of the session */
+    PRODUCT_SELECTED,
+
+    /** A product was unselected; carries the whole selection of the session */
+    PRODUCT_UNSELECTED,
+
+    /** The order of the session was completed; carries the order */
+    ORDER_COMPLETED,
+
+    /** The order of the session was cancelled; carries the returned money */
+    ORDER_CANCELLED,
+
+    /** Events were dropped for a slow subscriber, which must reload its state */
+    RESYNC
+}
@@ -3,7 +3,6 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapp
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
 import lombok.AllArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
 /**
@@ -30,7 +29,7 @@ public class MoneyMapper {
      * @return the corresponding Money domain object
      */
     public Money toDomain(MoneyDTO moneyDTO){
-        return new Money(moneyDTO.getValue());
+        return Money.of(moneyDTO.getValue());
     }
 
     /**
@@ -5,8 +5,6 @@ import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.S
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
-import lombok.AllArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
 /**
@@ -25,12 +23,8 @@ import org.springframework.stereotype.Component;
  * @since 1.0
  */
 @Component
-@AllArgsConstructor
 public class SelectedProductMapper {
 
-    /** ModelMapper instance for automated mapping operations */
-    ModelMapper modelMapper;
-
     /**
      * Converts a SelectedProductDTO to a SelectedProduct domain object.
      *
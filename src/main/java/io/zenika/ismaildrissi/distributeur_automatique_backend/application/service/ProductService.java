@@ -1,5 +1,6 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service;
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
 
 import java.util.List;
@@ -23,11 +24,24 @@ import java.util.UUID;
 public interface ProductService {
 
     /**
-     * Retrieves all products available in the vending machine.
+     * Retrieves all products available in the given vending machine.
      *
+     * @param machineId the identifier of the machine
      * @return a list of all products as DTOs
      */
-    public List<ProductDTO> listProducts();
+    public List<ProductDTO> listProducts(String machineId);
+
+    /**
+     * Retrieves all products of the given machine together with the version of the
+     * catalog they belong to.
+     *
+     * <p>The version changes whenever a quantity or a price changes, so callers can use
+     * it to cache anything derived from the product list.</p>
+     *
+     * @param machineId the identifier of the machine
+     * @return the current catalog snapshot
+     */
+    public ProductCatalogCache.Snapshot catalog(String machineId);
 
     /**
      * Retrieves a specific product by its unique identifier.
@@ -2,6 +2,8 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.application.serv
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
 import org.hibernate.query.Order;
 
@@ -13,8 +15,8 @@ import java.util.UUID;
  *
  * <p>This service orchestrates the complete transaction lifecycle including
  * money insertion, product selection, order completion, and cancellation.
- * It maintains transaction state and enforces business rules throughout
- * the purchase process.</p>
+ * It maintains one transaction per purchase session and enforces business
+ * rules throughout the purchase process.</p>
  *
  * <p>The service handles the coordination between the domain layer (Transaction,
  * VendingMachine) and provides a simplified interface for the presentation layer.
@@ -34,58 +36,106 @@ import java.util.UUID;
 public interface TransactionService {
 
     /**
-     * Inserts money into the current transaction.
+     * Inserts money into the current transaction of the given session.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param money the money denomination to insert
      */
-    void insertMoney(MoneyDTO money);
+    void insertMoney(String machineId, String sessionId, MoneyDTO money);
 
     /**
-     * Completes the current transaction, dispensing products and calculating change.
+     * Completes the current transaction of the given session, dispensing products and calculating change.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @return an OrderDTO containing the dispensed products and change
      */
-    OrderDTO completeOrder();
+    OrderDTO completeOrder(String machineId, String sessionId);
 
     /**
-     * Returns the total amount of money inserted in the current transaction.
+     * Buys the given products with the given coins in one step, as a transaction of the given
+     * session that is completed in full or cancelled with its coins returned.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller, which must have no money or product in its transaction
+     * @param purchase the coins inserted and the products to buy
+     * @return an OrderDTO containing the dispensed products and change
+     */
+    OrderDTO purchase(String machineId, String sessionId, PurchaseDTO purchase);
+
+    /**
+     * Checks, without changing anything, if the machine could give the exact change of the
+     * current transaction of the given session, optionally with one more product selected.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the product that would be added to the selection, or null for the current selection
+     * @return true if the inserted money covers the selection and its change could be given
+     */
+    boolean changeAvailable(String machineId, String sessionId, UUID productId);
+
+    /**
+     * Returns the total amount of money inserted in the current transaction of the given session.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @return the total inserted amount as a MoneyDTO
      */
-    MoneyDTO totalInsertedAmount();
+    MoneyDTO totalInsertedAmount(String machineId, String sessionId);
+
+    /**
+     * Returns the products in stock that the money left in the current transaction of the given
+     * session can pay for, once the selected products are paid.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return the affordable products as DTOs, cheapest first
+     */
+    List<ProductDTO> affordableProducts(String machineId, String sessionId);
 
     /**
-     * Selects a product for purchase in the current transaction.
+     * Selects a product for purchase in the current transaction of the given session.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param productId the unique identifier of the product to select
      */
-    void selectProduct(UUID productId);
+    void selectProduct(String machineId, String sessionId, UUID productId);
 
     /**
-     * Removes a product from the current transaction.
+     * Removes a product from the current transaction of the given session.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param productId the unique identifier of the product to unselect
      */
-    void unselectProduct(UUID productId);
+    void unselectProduct(String machineId, String sessionId, UUID productId);
 
     /**
-     * Cancels the current transaction and returns all inserted money.
+     * Cancels the current transaction of the given session and returns all inserted money.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @return an OrderDTO containing the returned money
      */
-    OrderDTO cancelOrder();
+    OrderDTO cancelOrder(String machineId, String sessionId);
 
     /**
-     * Returns the list of currently selected products.
+     * Returns the list of currently selected products of the given session.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @return a list of selected products as DTOs
      */
-    List<SelectedProductDTO> selectedProducts();
+    List<SelectedProductDTO> selectedProducts(String machineId, String sessionId);
 
     /**
-     * Returns the list of currently selected products.
+     * Returns the list of currently selected products of the given session.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @return a list of selected products as DTOs
      */
-    List<SelectedProductDTO> getSelectedProducst();
+    List<SelectedProductDTO> getSelectedProducst(String machineId, String sessionId);
 }
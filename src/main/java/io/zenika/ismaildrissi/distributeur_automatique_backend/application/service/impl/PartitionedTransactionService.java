@@ -0,0 +1,138 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.MachinePartitionExecutor;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * TransactionService running every operation on the partition owning its machine.
+ *
+ * <p>This decorator is used in the {@code partitioned} execution mode. It hands each
+ * call to a {@link MachinePartitionExecutor}, so the operations of a machine are
+ * serialized on the single thread owning it instead of running concurrently on the
+ * request threads.</p>
+ *
+ * <p>The event loop is kept away from the database: the session of the caller is registered
+ * and the machine loaded on the request thread, before the command is queued. The session
+ * pins the machine, so the command finds it in memory. The wrapped service is expected to be
+ * the plain implementation, not its transactional proxy, so a command takes no pool
+ * connection either.</p>
+ *
+ * <p>Two limits remain. The session lock is still taken by the wrapped service: it is never
+ * contended on the loop, but guards the session against the idle eviction, which runs on
+ * its own thread. In the {@code database} stock reservation mode, the conditional stock
+ * update of an order still runs on the loop, so a slow database delays the other machines
+ * of the partition.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class PartitionedTransactionService implements TransactionService {
+
+    /** Service performing the operations */
+    private final TransactionService delegate;
+
+    /** Executor owning the machines */
+    private final MachinePartitionExecutor executor;
+
+    /** Machines of the fleet, loaded before their commands are queued */
+    private final VendingMachineRegistry vendingMachines;
+
+    /** Sessions of the callers, registered before their commands are queued */
+    private final TransactionSessionRegistry sessionRegistry;
+
+    /**
+     * Constructs a service running the operations of the delegate on the given executor.
+     *
+     * @param delegate the service performing the operations, without database transaction of its own
+     * @param executor the executor owning the machines
+     * @param vendingMachines the machines of the fleet
+     * @param sessionRegistry the sessions of the callers
+     */
+    public PartitionedTransactionService(TransactionService delegate, MachinePartitionExecutor executor,
+                                         VendingMachineRegistry vendingMachines, TransactionSessionRegistry sessionRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.vendingMachines = vendingMachines;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public void insertMoney(String machineId, String sessionId, MoneyDTO money) {
+        run(machineId, sessionId, () -> delegate.insertMoney(machineId, sessionId, money));
+    }
+
+    @Override
+    public OrderDTO completeOrder(String machineId, String sessionId) {
+        return execute(machineId, sessionId, () -> delegate.completeOrder(machineId, sessionId));
+    }
+
+    @Override
+    public OrderDTO purchase(String machineId, String sessionId, PurchaseDTO purchase) {
+        return execute(machineId, sessionId, () -> delegate.purchase(machineId, sessionId, purchase));
+    }
+
+    @Override
+    public boolean changeAvailable(String machineId, String sessionId, UUID productId) {
+        return execute(machineId, sessionId, () -> delegate.changeAvailable(machineId, sessionId, productId));
+    }
+
+    @Override
+    public List<ProductDTO> affordableProducts(String machineId, String sessionId) {
+        return execute(machineId, sessionId, () -> delegate.affordableProducts(machineId, sessionId));
+    }
+
+    @Override
+    public MoneyDTO totalInsertedAmount(String machineId, String sessionId) {
+        return execute(machineId, sessionId, () -> delegate.totalInsertedAmount(machineId, sessionId));
+    }
+
+    @Override
+    public void selectProduct(String machineId, String sessionId, UUID productId) {
+        run(machineId, sessionId, () -> delegate.selectProduct(machineId, sessionId, productId));
+    }
+
+    @Override
+    public void unselectProduct(String machineId, String sessionId, UUID productId) {
+        run(machineId, sessionId, () -> delegate.unselectProduct(machineId, sessionId, productId));
+    }
+
+    @Override
+    public OrderDTO cancelOrder(String machineId, String sessionId) {
+        return execute(machineId, sessionId, () -> delegate.cancelOrder(machineId, sessionId));
+    }
+
+    @Override
+    public List<SelectedProductDTO> selectedProducts(String machineId, String sessionId) {
+        return execute(machineId, sessionId, () -> delegate.selectedProducts(machineId, sessionId));
+    }
+
+    @Override
+    public List<SelectedProductDTO> getSelectedProducst(String machineId, String sessionId) {
+        return selectedProducts(machineId, sessionId);
+    }
+
+    private <T> T execute(String machineId, String sessionId, Supplier<T> command) {
+        // Register and load on the request thread, so the event loop never waits on the database
+        sessionRegistry.session(machineId, sessionId);
+        vendingMachines.machine(machineId);
+        return executor.execute(machineId, command);
+    }
+
+    private void run(String machineId, String sessionId, Runnable command) {
+        execute(machineId, sessionId, () -> {
+            command.run();
+            return null;
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl;
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.ProductService;
@@ -12,7 +13,6 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of the ProductService interface providing product management operations.
@@ -46,17 +46,36 @@ public class ProductServiceImpl implements ProductService {
     /** Mapper for converting between Product domain objects and ProductDTOs */
     ProductMapperDto productMapper;
 
+    /** Cached catalog served to the kiosks */
+    ProductCatalogCache catalogCache;
+
     /**
-     * Retrieves all products available in the vending machine.
+     * Retrieves all products available in the given vending machine.
      *
-     * <p>This method fetches all products from the repository and converts them
-     * to DTOs suitable for presentation layer consumption.</p>
+     * <p>The products are served from the {@link ProductCatalogCache}, which only reads
+     * the repository on first use or after an invalidation. No database transaction is
+     * started for a cached read.</p>
      *
+     * @param machineId the identifier of the machine
      * @return a list of ProductDTO objects representing all available products
      */
     @Override
-    public List<ProductDTO> listProducts() {
-        return productRepository.findAllProducts().stream().map(productMapper::toDTO).collect(Collectors.toList());
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public List<ProductDTO> listProducts(String machineId) {
+        return catalogCache.products(machineId);
+    }
+
+    /**
+     * Retrieves all products of the given machine together with the version of the
+     * catalog they belong to.
+     *
+     * @param machineId the identifier of the machine
+     * @return the current catalog snapshot
+     */
+    @Override
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ProductCatalogCache.Snapshot catalog(String machineId) {
+        return catalogCache.catalog(machineId);
     }
 
     /**
@@ -2,22 +2,38 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.application.serv
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseItemDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MoneyNotYetInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSession;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionResult;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.IllegalTransactionStateException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -29,7 +45,11 @@ import java.util.stream.Collectors;
  * machine system. It manages the interaction between the domain layer (Transaction, VendingMachine)
  * and provides a simplified interface for the presentation layer through DTOs.</p>
  *
- * <p>The service maintains transaction state throughout the user session and handles:
+ * <p>The service keeps one transaction per purchase session in a
+ * {@link TransactionSessionRegistry}, so concurrent kiosk clients never share state, and works on
+ * the machine of the fleet named by the caller, taken from a {@link VendingMachineRegistry}. The
+ * aggregates publish every state change as a domain event, so persisting the dispensed stock,
+ * patching the catalog and notifying the kiosks all happen off the request thread. It handles:
  * <ul>
  *   <li>Transaction creation and lifecycle management</li>
  *   <li>Money insertion and tracking</li>
@@ -56,93 +76,157 @@ public class TransactionServiceImpl implements TransactionService {
     /** Mapper for converting between SelectedProduct domain objects and SelectedProductDTOs */
     private final SelectedProductMapper selectedProductMapper;
 
-    /** The vending machine domain object for product and change operations */
-    private final VendingMachine vendingMachine;
+    /** Mapper for converting Product domain objects to ProductDTOs */
+    private final ProductMapperDto productMapper;
 
-    /** Repository for persisting product updates */
-    private final VendingMachineRepository vendingMachineRepository;
+    /** The vending machines of the fleet, for product and change operations */
+    private final VendingMachineRegistry vendingMachines;
 
-    /** The current active transaction, null if no transaction is in progress */
-    private Transaction transaction;
+    /** Registry holding the in-flight transaction of every purchase session */
+    private final TransactionSessionRegistry sessionRegistry;
 
-    /**
-     * Gets the current transaction, creating a new one if none exists.
-     *
-     * @return the current active transaction
-     */
-    private Transaction currentTransaction() {
-        if (transaction == null) {
-            transaction = new Transaction(UUID.randomUUID().toString());
-        }
-        return transaction;
-    }
+    /** Repository tracking in-flight transactions and archiving closed ones */
+    private final TransactionRepository transactionRepository;
 
-    /**
-     * Creates a new transaction, replacing any existing one.
-     *
-     * @return the newly created transaction
-     */
-    private Transaction newTransaction(){
-        transaction = new Transaction(UUID.randomUUID().toString());
-        return transaction;
-    }
+    /** Takes the units of an order from the stored stock first, when nodes share the database */
+    private final StockReservation stockReservation;
 
     /**
-     * Removes the current transaction, typically after completion or cancellation.
-     */
-    private void removeTransaction() {
-        this.transaction = null;
-    }
-
-    /**
-     * Inserts money into the current transaction.
+     * Inserts money into the current transaction of the given session.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param money the money denomination to insert
      */
     @Override
-    public void insertMoney(MoneyDTO money) {
-        currentTransaction().insertMoney(moneyMapper.toDomain(money));
+    public void insertMoney(String machineId, String sessionId, MoneyDTO money) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        session.lock();
+        try {
+            Transaction transaction = session.currentTransaction();
+            transaction.insertMoney(moneyMapper.toDomain(money));
+            transactionRepository.save(transaction);
+        } finally {
+            session.unlock();
+        }
     }
 
     /**
-     * Selects a product for purchase in the current transaction.
+     * Selects a product for purchase in the current transaction of the given session.
      *
      * <p>This method validates that the product exists and is available before
      * adding it to the transaction. The transaction will enforce business rules
      * such as sufficient funds validation.</p>
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param productId the unique identifier of the product to select
      * @throws ProductNotFoundException if the product is not found or not available
      */
     @Override
-    public void selectProduct(UUID productId) {
+    public void selectProduct(String machineId, String sessionId, UUID productId) {
         ProductId id = new ProductId(productId);
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        VendingMachine vendingMachine = machine(session);
         if (!vendingMachine.isProductAvailable(id)) {
             throw new ProductNotFoundException("Product was not found");
         }
-        currentTransaction().addProduct(vendingMachine.getProduct(id));
+        session.lock();
+        try {
+            Transaction transaction = session.currentTransaction();
+            transaction.addProduct(vendingMachine.getProduct(id));
+            transactionRepository.save(transaction);
+        } finally {
+            session.unlock();
+        }
     }
 
     @Override
-    public OrderDTO completeOrder() {
-        if(transaction == null) {
-            throw new MoneyNotYetInserted("Can't complete order because there is no current transaction");
+    public OrderDTO completeOrder(String machineId, String sessionId) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        session.lock();
+        try {
+            Transaction transaction = session.activeTransaction().orElseThrow(
+                    () -> new MoneyNotYetInserted("Can't complete order because there is no current transaction")
+            );
+            return complete(session, machine(session), transaction);
+        } finally {
+            session.unlock();
         }
-        TransactionResult result = currentTransaction().complete();
+    }
 
-        // Dispense selected products
-        currentTransaction().selectedProducts().forEach(
-                selectedProduct -> vendingMachine.dispenseProduct(selectedProduct.productId())
-        );
+    /**
+     * Buys the given products with the given coins in one step.
+     *
+     * <p>The products and quantities are checked against the machine before anything changes, then
+     * the coins are inserted, the products selected and the order completed under a single hold of
+     * the session lock, with a single save of the transaction. If a step fails, the transaction is
+     * cancelled so that no coin stays in the session.</p>
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param purchase the coins inserted and the products to buy
+     * @return an OrderDTO containing the dispensed products and change
+     * @throws IllegalProductQuantity if no product or a quantity below one is given
+     * @throws ProductNotFoundException if a product is not found or not in stock in the quantity asked
+     * @throws IllegalTransactionStateException if the transaction of the session already holds money or products
+     */
+    @Override
+    public OrderDTO purchase(String machineId, String sessionId, PurchaseDTO purchase) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        VendingMachine vendingMachine = machine(session);
+        List<Product> products = purchasedProducts(vendingMachine, purchase.getProducts());
+        List<Money> coins = purchase.getMoney() == null ? List.of()
+                : purchase.getMoney().stream().map(moneyMapper::toDomain).toList();
+        session.lock();
+        try {
+            // A transaction only opened by reading the session state holds nothing and can be used
+            Transaction transaction = session.currentTransaction();
+            if (transaction.insertedAmount() > 0 || !transaction.selectedProducts().isEmpty()) {
+                throw new IllegalTransactionStateException("Complete or cancel the transaction in progress first.");
+            }
+            try {
+                coins.forEach(transaction::insertMoney);
+                products.forEach(transaction::addProduct);
+                return complete(session, vendingMachine, transaction);
+            } catch (RuntimeException e) {
+                // Give the coins back: a failed purchase leaves nothing in the session, whatever state
+                // it failed in and even if the cancellation cannot be saved
+                try {
+                    if (transaction.status() == TransactionStatus.IN_PROGRESS) {
+                        transaction.cancel();
+                        transactionRepository.save(transaction);
+                    }
+                } catch (RuntimeException cancellation) {
+                    e.addSuppressed(cancellation);
+                } finally {
+                    session.close();
+                }
+                throw e;
+            }
+        } finally {
+            session.unlock();
+        }
+    }
 
-        // Calculate inserted total
-        Double insertedMoney = result.insertedMoney()
-                .stream()
-                .map(Money::value)
-                .reduce(0.0, Double::sum);
+    /**
+     * Completes the transaction of a session, which must be locked by the caller.
+     */
+    private OrderDTO complete(TransactionSession session, VendingMachine vendingMachine, Transaction transaction) {
+        // Refuse the order while it is still open if it cannot be completed or its change cannot be given
+        transaction.checkCompletable();
+        if (transaction.change() > 0 && !vendingMachine.canDispenseChange(transaction.change(), transaction.insertedMoney())) {
+            throw new ChangeNotAvailableException("The machine cannot give the change of this order");
+        }
 
-        // Calculate change
-        List<Money> change = vendingMachine.calculateChange(insertedMoney - result.totalPrice());
+        // Sell before completing: the products, the coins paid and the change move together, or
+        // nothing moves and the order stays open, to be retried or cancelled
+        List<Money> change = stockReservation.sell(vendingMachine,
+                transaction.selectedProducts().stream().map(SelectedProduct::productId).toList(),
+                transaction.insertedMoney(),
+                transaction.change()
+        );
+        TransactionResult result = transaction.complete();
 
         // Map to DTO
         OrderDTO orderDTO = new OrderDTO();
@@ -150,62 +234,143 @@ public class TransactionServiceImpl implements TransactionService {
                 result.selectedProducts().stream().map(selectedProductMapper::toDto).collect(Collectors.toList())
         );
 
-
-        result.updateProducts().forEach(
-                vendingMachineRepository::updateProduct
-        );
-
         orderDTO.setReturnedMoney(
                 change.stream().map(moneyMapper::toDTO).collect(Collectors.toList())
         );
-        removeTransaction();
+        transactionRepository.save(transaction);
+        session.close();
         return orderDTO;
     }
 
+    /**
+     * Returns the machine of a session. The session must be registered first: it pins the machine,
+     * which can then not be evicted and loaded again as a second instance while it is in use.
+     */
+    private VendingMachine machine(TransactionSession session) {
+        return vendingMachines.machine(session.machineId());
+    }
+
+    /**
+     * Resolves the lines of a purchase to the products to select, one per unit.
+     */
+    private static List<Product> purchasedProducts(VendingMachine vendingMachine, List<PurchaseItemDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalProductQuantity("A purchase needs at least one product.");
+        }
+        List<Product> products = new ArrayList<>();
+        for (PurchaseItemDTO item : items) {
+            if (item.getQuantity() < 1) {
+                throw new IllegalProductQuantity("Cannot buy less than one unit of a product.");
+            }
+            ProductId id = new ProductId(item.getId());
+            if (!vendingMachine.isProductAvailable(id) || vendingMachine.getProduct(id).quantity() < item.getQuantity()) {
+                throw new ProductNotFoundException("Product was not found");
+            }
+            products.addAll(Collections.nCopies(item.getQuantity(), vendingMachine.getProduct(id)));
+        }
+        return products;
+    }
+
     @Override
-    public OrderDTO cancelOrder() {
-        if(transaction == null) {
-            throw new MoneyNotYetInserted("Can't cancel order because there is no current transaction");
+    public boolean changeAvailable(String machineId, String sessionId, UUID productId) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        VendingMachine vendingMachine = machine(session);
+        long price = productId == null ? 0 : vendingMachine.getProduct(new ProductId(productId)).priceCents();
+        session.lock();
+        try {
+            Transaction transaction = session.currentTransaction();
+            long change = transaction.change() - price;
+            return change >= 0 && vendingMachine.canDispenseChange(change, transaction.insertedMoney());
+        } finally {
+            session.unlock();
         }
-        TransactionResult result = currentTransaction().cancel();
+    }
 
-        OrderDTO orderDTO = new OrderDTO();
+    @Override
+    public OrderDTO cancelOrder(String machineId, String sessionId) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        session.lock();
+        try {
+            Transaction transaction = session.activeTransaction().orElseThrow(
+                    () -> new MoneyNotYetInserted("Can't cancel order because there is no current transaction")
+            );
+            TransactionResult result = transaction.cancel();
 
+            OrderDTO orderDTO = new OrderDTO();
 
-        orderDTO.setSelectedProducts(List.of());
-        orderDTO.setReturnedMoney(
-                result.insertedMoney().stream().map(moneyMapper::toDTO).collect(Collectors.toList())
-        );
 
-        removeTransaction();
-        return orderDTO;
+            orderDTO.setSelectedProducts(List.of());
+            orderDTO.setReturnedMoney(
+                    result.insertedMoney().stream().map(moneyMapper::toDTO).collect(Collectors.toList())
+            );
+
+            transactionRepository.save(transaction);
+            session.close();
+            return orderDTO;
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Override
+    public List<SelectedProductDTO> selectedProducts(String machineId, String sessionId) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        session.lock();
+        try {
+            return session.currentTransaction()
+                    .selectedProducts()
+                    .stream()
+                    .map(selectedProductMapper::toDto)
+                    .collect(Collectors.toList());
+        } finally {
+            session.unlock();
+        }
     }
 
     @Override
-    public List<SelectedProductDTO> selectedProducts() {
-        return currentTransaction()
-                .selectedProducts()
-                .stream()
-                .map(selectedProductMapper::toDto)
-                .collect(Collectors.toList());
+    public MoneyDTO totalInsertedAmount(String machineId, String sessionId) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        session.lock();
+        try {
+            return new MoneyDTO(Money.toMad(session.currentTransaction().insertedAmount()));
+        } finally {
+            session.unlock();
+        }
     }
 
     @Override
-    public MoneyDTO totalInsertedAmount() {
-        return new MoneyDTO(currentTransaction().insertedMoney().stream().map(Money::value).reduce(0.0, Double::sum));
+    public List<ProductDTO> affordableProducts(String machineId, String sessionId) {
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        VendingMachine vendingMachine = machine(session);
+        long budget;
+        session.lock();
+        try {
+            budget = session.currentTransaction().change();
+        } finally {
+            session.unlock();
+        }
+        return vendingMachine.affordableProducts(budget).stream().map(productMapper::toDTO).toList();
     }
 
     @Override
-    public List<SelectedProductDTO> getSelectedProducst(){
-        return currentTransaction().selectedProducts().stream().map(selectedProductMapper::toDto).collect(Collectors.toList());
+    public List<SelectedProductDTO> getSelectedProducst(String machineId, String sessionId){
+        return selectedProducts(machineId, sessionId);
     }
 
     @Override
-    public void unselectProduct(UUID productId) {
+    public void unselectProduct(String machineId, String sessionId, UUID productId) {
         ProductId id = new ProductId(productId);
+        TransactionSession session = sessionRegistry.session(machineId, sessionId);
+        VendingMachine vendingMachine = machine(session);
         if (!vendingMachine.isProductAvailable(id)) {
             throw new ProductNotFoundException("Product was not found");
         }
-        currentTransaction().removeProduct(vendingMachine.getProduct(id));
+        session.lock();
+        try {
+            session.currentTransaction().removeProduct(vendingMachine.getProduct(id));
+        } finally {
+            session.unlock();
+        }
     }
+
 }
@@ -0,0 +1,142 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.session;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the in-flight transaction of a single kiosk client.
+ *
+ * <p>A session outlives the transactions it carries: once a transaction is completed
+ * or cancelled it is detached with {@link #close()} and the next operation on the
+ * session implicitly starts a new one, mirroring the original single-customer flow.</p>
+ *
+ * <p>Callers that perform several steps on the transaction must hold the session
+ * lock ({@link #lock()} / {@link #unlock()}) for the whole sequence, so that two
+ * requests from the same client cannot interleave. Different sessions never
+ * contend with each other. The lock is a {@link ReentrantLock} rather than a monitor
+ * because the sequence may wait on the database: a virtual thread blocked inside a
+ * {@code synchronized} block would pin its carrier thread.</p>
+ *
+ * <p>Every transaction of the session publishes its domain events to the publisher of the
+ * session, which knows the machine and session they belong to.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public final class TransactionSession {
+
+    /** The machine the session is purchasing from */
+    private final String machineId;
+
+    /** The identifier supplied by the client (header or cookie) */
+    private final String id;
+
+    /** Receives the domain events of the transactions of this session */
+    private final DomainEventPublisher events;
+
+    /** The current transaction, null between two purchases */
+    private Transaction transaction;
+
+    /** Serializes the multi-step operations of the session */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Last time the session was touched, used for idle expiry */
+    private volatile long lastAccessNanos;
+
+    /**
+     * Constructs an empty session.
+     *
+     * @param machineId the machine the session is purchasing from
+     * @param id the session identifier
+     * @param events the publisher of the domain events of the session
+     */
+    TransactionSession(String machineId, String id, DomainEventPublisher events) {
+        this.machineId = machineId;
+        this.id = id;
+        this.events = events;
+        touch();
+    }
+
+    /**
+     * Returns the machine the session is purchasing from.
+     *
+     * @return the machine id
+     */
+    public String machineId() {
+        return machineId;
+    }
+
+    /**
+     * Returns the session identifier.
+     *
+     * @return the session id
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Gets the current transaction, creating a new one if none exists.
+     *
+     * @return the current active transaction
+     */
+    public synchronized Transaction currentTransaction() {
+        if (transaction == null) {
+            transaction = new Transaction(UUID.randomUUID().toString());
+            transaction.publishEventsTo(events);
+        }
+        return transaction;
+    }
+
+    /**
+     * Returns the current transaction without creating one.
+     *
+     * @return the active transaction, or empty if no purchase is in progress
+     */
+    public synchronized Optional<Transaction> activeTransaction() {
+        return Optional.ofNullable(transaction);
+    }
+
+    /**
+     * Detaches the current transaction, typically after completion or cancellation.
+     */
+    public synchronized void close() {
+        transaction = null;
+    }
+
+    /**
+     * Acquires the session lock, waiting if another request holds it.
+     */
+    public void lock() {
+        lock.lock();
+    }
+
+    /**
+     * Releases the session lock.
+     */
+    public void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * Records an access to this session.
+     */
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * Checks whether the session has been idle for at least the given duration.
+     *
+     * @param now the current {@link System#nanoTime()} value
+     * @param idleTimeoutNanos the idle timeout in nanoseconds
+     * @return true if the session has expired
+     */
+    boolean isIdle(long now, long idleTimeoutNanos) {
+        return now - lastAccessNanos >= idleTimeoutNanos;
+    }
+}
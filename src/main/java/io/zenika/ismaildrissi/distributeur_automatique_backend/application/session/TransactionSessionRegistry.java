@@ -0,0 +1,147 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.session;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the purchase sessions currently known to this backend instance.
+ *
+ * <p>Each kiosk client is identified by a session id and gets its own
+ * {@link TransactionSession}, so concurrent customers no longer share a single
+ * in-flight transaction. Sessions are kept in a {@link ConcurrentHashMap}: lookups
+ * are lock-free and creation only contends on the bin of the given key. A session id is
+ * scoped to a machine of the fleet: the same id used on two machines denotes two
+ * sessions.</p>
+ *
+ * <p>Sessions that have not been used for the configured idle timeout are evicted
+ * periodically. An unfinished transaction left behind by an evicted session is
+ * cancelled and handed to the {@link TransactionRepository} so that it is archived
+ * like any other closed transaction.</p>
+ *
+ * <p>The number of sessions of every machine is kept alongside, so the fleet can tell the
+ * machines still serving customers from the ones it may evict.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Component
+public class TransactionSessionRegistry {
+
+    /** Identifies a session within the fleet */
+    private record SessionKey(String machineId, String sessionId) {
+    }
+
+    /** Active sessions indexed by their machine and identifier */
+    private final ConcurrentMap<SessionKey, TransactionSession> sessions = new ConcurrentHashMap<>();
+
+    /** Number of registered sessions per machine, absent when a machine has none */
+    private final ConcurrentMap<String, Integer> sessionsPerMachine = new ConcurrentHashMap<>();
+
+    /** Repository archiving the transactions abandoned by evicted sessions */
+    private final TransactionRepository transactionRepository;
+
+    /** Idle duration after which a session is evicted */
+    private final long idleTimeoutNanos;
+
+    /** Bus receiving the domain events of the transactions */
+    private final DomainEventBus domainEventBus;
+
+    /**
+     * Constructs a registry with the given idle timeout.
+     *
+     * @param transactionRepository the repository archiving abandoned transactions
+     * @param idleTimeout how long a session may stay unused before being evicted
+     * @param domainEventBus the bus receiving the domain events of the transactions
+     */
+    public TransactionSessionRegistry(TransactionRepository transactionRepository,
+                                      @Value("${vending-machine.session.idle-timeout:PT5M}") Duration idleTimeout,
+                                      DomainEventBus domainEventBus) {
+        this.transactionRepository = transactionRepository;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.domainEventBus = domainEventBus;
+    }
+
+    /**
+     * Returns the session with the given identifier on the default machine, creating it on first use.
+     *
+     * @param sessionId the session identifier
+     * @return the session, never null
+     */
+    public TransactionSession session(String sessionId) {
+        return session(VendingMachineRepository.DEFAULT_MACHINE_ID, sessionId);
+    }
+
+    /**
+     * Returns the session with the given identifier on the given machine, creating it on first use.
+     *
+     * @param machineId the machine the session is purchasing from
+     * @param sessionId the session identifier
+     * @return the session, never null
+     */
+    public TransactionSession session(String machineId, String sessionId) {
+        TransactionSession session = sessions.computeIfAbsent(new SessionKey(machineId, sessionId), key -> {
+            sessionsPerMachine.merge(key.machineId(), 1, Integer::sum);
+            return new TransactionSession(key.machineId(), key.sessionId(),
+                    domainEventBus.publisherFor(key.machineId(), key.sessionId()));
+        });
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Returns the number of sessions currently registered.
+     *
+     * @return the session count
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Checks if the given machine has sessions that were not evicted yet.
+     *
+     * @param machineId the machine identifier
+     * @return true if at least one session of the machine is registered
+     */
+    public boolean hasOpenSessions(String machineId) {
+        return sessionsPerMachine.containsKey(machineId);
+    }
+
+    /**
+     * Evicts every session that has been idle for longer than the configured timeout.
+     */
+    @Scheduled(fixedDelayString = "${vending-machine.session.eviction-interval:PT1M}")
+    public void evictIdleSessions() {
+        long now = System.nanoTime();
+        for (TransactionSession session : sessions.values()) {
+            if (session.isIdle(now, idleTimeoutNanos) && sessions.remove(new SessionKey(session.machineId(), session.id()), session)) {
+                sessionsPerMachine.computeIfPresent(session.machineId(), (machineId, count) -> count == 1 ? null : count - 1);
+                abandon(session);
+            }
+        }
+    }
+
+    private void abandon(TransactionSession session) {
+        session.lock();
+        try {
+            session.activeTransaction().ifPresent(transaction -> {
+                if (transaction.status() == TransactionStatus.IN_PROGRESS) {
+                    transaction.cancel();
+                }
+                transactionRepository.save(transaction);
+            });
+            session.close();
+        } finally {
+            session.unlock();
+        }
+    }
+}
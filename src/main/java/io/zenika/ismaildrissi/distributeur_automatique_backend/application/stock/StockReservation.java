@@ -0,0 +1,105 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides where the stock of an order is taken from before its products are sold.
+ *
+ * <p>In local mode, the machine in memory is the only reference: the products are dispensed
+ * by it and the stored stock is written behind, from the {@code ProductDispensed} events.
+ * This is enough while a single node serves each machine.</p>
+ *
+ * <p>In database mode, for nodes sharing the database, the stored stock is the reference: the
+ * units are first reserved with conditional decrements, which fail instead of selling a unit
+ * another node already sold, then sold by the machine in memory. Both happen in one
+ * database transaction, so a sale that fails, for lack of change for instance, gives the
+ * reserved units back. The stored
+ * stock is then already written, and the write-behind must skip it.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class StockReservation {
+
+    /** Repository the units are reserved in, or null in local mode */
+    private final VendingMachineRepository vendingMachineRepository;
+
+    /** Runs the reservation and the sale in one database transaction */
+    private final TransactionOperations transactionOperations;
+
+    private StockReservation(VendingMachineRepository vendingMachineRepository, TransactionOperations transactionOperations) {
+        this.vendingMachineRepository = vendingMachineRepository;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * Returns a reservation dispensing from the machines in memory only.
+     *
+     * @return the local reservation
+     */
+    public static StockReservation local() {
+        return new StockReservation(null, null);
+    }
+
+    /**
+     * Returns a reservation taking the units from the stored stock before dispensing them.
+     *
+     * @param vendingMachineRepository the repository the units are reserved in
+     * @param transactionOperations the operations running the reservation and the sale in one transaction
+     * @return the database reservation
+     */
+    public static StockReservation database(VendingMachineRepository vendingMachineRepository,
+                                            TransactionOperations transactionOperations) {
+        return new StockReservation(vendingMachineRepository, transactionOperations);
+    }
+
+    /**
+     * Checks if the stored stock is written when the products are sold.
+     *
+     * @return true in database mode, where the write-behind must not decrement the stock again
+     */
+    public boolean writesStock() {
+        return vendingMachineRepository != null;
+    }
+
+    /**
+     * Sells products from a machine, after reserving them in the database in database mode.
+     *
+     * @param vendingMachine the machine to sell from
+     * @param ids the products to sell, one per unit
+     * @param deposited the coins paid for the order
+     * @param change the change to give, in centimes
+     * @return the coins given as change, largest first
+     * @throws ProductNotFoundException if a product is not available in the quantity asked, in
+     *         which case nothing is sold nor reserved
+     * @throws ChangeNotAvailableException if the change cannot be made, in which case nothing
+     *         is sold nor reserved
+     */
+    public List<Money> sell(VendingMachine vendingMachine, List<ProductId> ids, List<Money> deposited, long change) {
+        if (!writesStock()) {
+            return vendingMachine.sell(ids, deposited, change);
+        }
+        Map<ProductId, Integer> units = new LinkedHashMap<>();
+        ids.forEach(id -> units.merge(id, 1, Integer::sum));
+        return transactionOperations.execute(status -> {
+            try {
+                vendingMachineRepository.reserveStock(units);
+            } catch (IllegalProductQuantity e) {
+                // Sold by another node: this machine's copy of the stock is behind
+                throw new ProductNotFoundException("Product not available");
+            }
+            return vendingMachine.sell(ids, deposited, change);
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventSubscriber;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.event.RingBufferDomainEventBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+// Domain events: one ring buffer shared by every machine, each subscriber drained by its own thread
+@Configuration
+public class DomainEventConfig {
+
+    @Bean
+    public RingBufferDomainEventBus domainEventBus(@Value("${vending-machine.domain-events.ring-size:4096}") int ringSize,
+                                                   List<DomainEventSubscriber> subscribers) {
+        return new RingBufferDomainEventBus(ringSize, subscribers);
+    }
+}
@@ -0,0 +1,41 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.MachinePartitionExecutor;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl.PartitionedTransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Partitioned mode: the commands of each machine run on the event loop of its partition.
+// In the default direct mode they run on the request threads.
+@Configuration
+@ConditionalOnProperty(name = "vending-machine.execution.mode", havingValue = "partitioned")
+public class ExecutionConfig {
+
+    @Bean
+    public MachinePartitionExecutor machinePartitionExecutor(VendingMachineRegistry vendingMachineRegistry,
+                                                             @Value("${vending-machine.execution.queue-capacity:1024}") int queueCapacity,
+                                                             @Value("${vending-machine.execution.timeout:PT30S}") Duration timeout) {
+        return new MachinePartitionExecutor(vendingMachineRegistry, queueCapacity, timeout);
+    }
+
+    // Wrapped by the metered service, which is the one injected. The event loops run the service
+    // itself, not its transactional proxy, so a command never holds a pool connection
+    @Bean
+    public TransactionService partitionedTransactionService(@Qualifier("transactionServiceImpl") TransactionService transactionService,
+                                                            MachinePartitionExecutor machinePartitionExecutor,
+                                                            VendingMachineRegistry vendingMachineRegistry,
+                                                            TransactionSessionRegistry transactionSessionRegistry) {
+        TransactionService target = AopProxyUtils.getSingletonTarget(transactionService) instanceof TransactionService service
+                ? service : transactionService;
+        return new PartitionedTransactionService(target, machinePartitionExecutor, vendingMachineRegistry, transactionSessionRegistry);
+    }
+}
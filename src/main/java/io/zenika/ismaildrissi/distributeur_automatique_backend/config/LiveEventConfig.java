@@ -0,0 +1,20 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.live.LiveEventHub;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+// Live event stream: each subscriber is drained by a virtual thread, so a slow kiosk
+// connection parks a virtual thread instead of holding a platform thread
+@Configuration
+public class LiveEventConfig {
+
+    @Bean
+    public LiveEventHub liveEventHub(@Value("${vending-machine.events.buffer-capacity:64}") int bufferCapacity) {
+        return new LiveEventHub(bufferCapacity,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("live-events-", 0).factory()));
+    }
+}
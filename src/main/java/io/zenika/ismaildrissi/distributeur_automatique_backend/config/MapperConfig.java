@@ -1,24 +0,0 @@
-package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
-
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
-import lombok.AllArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.context.annotation.Lazy;
-
-import java.util.ArrayList;
-import java.util.List;
-
-@Configuration
-@AllArgsConstructor
-public class MapperConfig {
-
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
-}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics.MachineGauges;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics.MeteredTransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics.MeteredVendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.VendingMachineRepositoryImpl;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.Optional;
+
+// Metrics of the purchase pipeline, scraped from /actuator/prometheus. The metered decorators
+// wrap the beans doing the work and are injected everywhere in their place.
+@Configuration
+public class MetricsConfig {
+
+    // Outermost layer, so a partitioned call is timed with its wait in the partition queue
+    @Bean
+    @Primary
+    public TransactionService meteredTransactionService(@Qualifier("transactionServiceImpl") TransactionService transactionService,
+                                                        @Qualifier("partitionedTransactionService") Optional<TransactionService> partitionedTransactionService,
+                                                        MeterRegistry meterRegistry) {
+        return new MeteredTransactionService(partitionedTransactionService.orElse(transactionService), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public VendingMachineRepository meteredVendingMachineRepository(VendingMachineRepositoryImpl vendingMachineRepository,
+                                                                    MeterRegistry meterRegistry) {
+        return new MeteredVendingMachineRepository(vendingMachineRepository, meterRegistry);
+    }
+
+    @Bean
+    public MachineGauges machineGauges(VendingMachineRegistry vendingMachineRegistry, MeterRegistry meterRegistry) {
+        return new MachineGauges(vendingMachineRegistry, meterRegistry);
+    }
+}
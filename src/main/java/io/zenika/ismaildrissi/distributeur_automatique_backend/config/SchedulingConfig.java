@@ -0,0 +1,9 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,15 +1,29 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineLoader;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.CoinInventoryRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.MachineJournal;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeStrategy;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics.MeteredChangeCalculator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 
 @Configuration
@@ -18,22 +32,52 @@ public class VendingMachineConfig {
 
     private final VendingMachineRepository vendingMachineRepository;
 
+    private final CoinInventoryRepository coinInventoryRepository;
+
+    @Bean
+    public ChangeCalculator changeCalculator(@Value("${vending-machine.change.strategy:dp}") String strategy,
+                                             MeterRegistry meterRegistry) {
+        ChangeStrategy changeStrategy = ChangeStrategy.from(strategy);
+        return new MeteredChangeCalculator(changeStrategy.create(), changeStrategy.name().toLowerCase(Locale.ROOT), meterRegistry);
+    }
+
     @Bean
-    public VendingMachine vendingMachine() {
+    public VendingMachineRegistry vendingMachineRegistry(ChangeCalculator changeCalculator,
+                                                         DomainEventBus domainEventBus,
+                                                         MachineJournal machineJournal,
+                                                         TransactionSessionRegistry sessionRegistry,
+                                                         @Value("${vending-machine.fleet.partitions:0}") int partitions,
+                                                         @Value("${vending-machine.fleet.capacity:10000}") int capacity) {
         seedInitialProducts();
-        List<Product> initialProducts = vendingMachineRepository.findAllProducts();
-        List<Money> initialChange = getInitialChange();
+        VendingMachineLoader loader = new VendingMachineLoader(
+                vendingMachineRepository, coinInventoryRepository, machineJournal, changeCalculator, domainEventBus, getInitialChange());
+        loader.reconcile();
+        // 0 means one partition per core
+        int partitionCount = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        // A machine still serving sessions stays in memory, so it is never loaded twice, and an
+        // evicted machine gives its mapped journal back
+        return new VendingMachineRegistry(partitionCount, capacity, loader, sessionRegistry::hasOpenSessions,
+                machineJournal::detach);
+    }
 
-        return new VendingMachine(initialProducts, initialChange);
+    // Database mode reserves the stock of every order in the database first, for nodes sharing it
+    @Bean
+    public StockReservation stockReservation(@Value("${vending-machine.stock.reservation:local}") String mode,
+                                             TransactionOperations transactionOperations) {
+        return switch (mode.toLowerCase(Locale.ROOT)) {
+            case "local" -> StockReservation.local();
+            case "database" -> StockReservation.database(vendingMachineRepository, transactionOperations);
+            default -> throw new IllegalArgumentException("Unknown stock reservation mode: " + mode);
+        };
     }
 
     private List<Money> getInitialChange() {
         return List.of(
-                new Money(0.5), new Money(0.5), new Money(0.5), new Money(0.5), new Money(0.5),
-                new Money(1), new Money(1), new Money(1), new Money(1), new Money(1),
-                new Money(2), new Money(2), new Money(2), new Money(2), new Money(2),
-                new Money(5), new Money(5), new Money(5), new Money(5),
-                new Money(10), new Money(10), new Money(10)
+                Money.of(0.5), Money.of(0.5), Money.of(0.5), Money.of(0.5), Money.of(0.5),
+                Money.of(1), Money.of(1), Money.of(1), Money.of(1), Money.of(1),
+                Money.of(2), Money.of(2), Money.of(2), Money.of(2), Money.of(2),
+                Money.of(5), Money.of(5), Money.of(5), Money.of(5),
+                Money.of(10), Money.of(10), Money.of(10)
         );
     }
 
@@ -59,6 +103,7 @@ public class VendingMachineConfig {
     }
 
     private Product createProduct(String name, double price, int quantity) {
-        return new Product(name, price, new ProductId(UUID.randomUUID()), quantity);
+        // Derived from the name, so the journaled stock still matches the products seeded after a restart
+        return new Product(name, price, new ProductId(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8))), quantity);
     }
 }
@@ -0,0 +1,37 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineIdArgumentResolver;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionIdArgumentResolver;
+import org.springdoc.core.utils.SpringDocUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebConfig implements WebMvcConfigurer {
+
+    static {
+        // The session and machine ids come from headers, cookies or the path, not from request parameters
+        SpringDocUtils.getConfig().addAnnotationsToIgnore(SessionId.class, MachineId.class);
+    }
+
+    // Clients without a session id share one session only on a single-kiosk deployment
+    private final boolean singleKiosk;
+
+    public WebConfig(@Value("${vending-machine.session.single-kiosk:false}") boolean singleKiosk) {
+        this.singleKiosk = singleKiosk;
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new SessionIdArgumentResolver(singleKiosk));
+        resolvers.add(new MachineIdArgumentResolver());
+    }
+}
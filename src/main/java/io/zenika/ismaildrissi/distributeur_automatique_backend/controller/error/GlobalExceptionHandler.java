@@ -1,7 +1,12 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.error;
 
 import io.swagger.v3.oas.annotations.Hidden;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.IdempotencyKeyReusedException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineBusyException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineNotFoundException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.IllegalTransactionStateException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.InsufficientFundsException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
 import org.springframework.http.HttpStatus;
@@ -22,6 +27,11 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
+    @ExceptionHandler(MachineNotFoundException.class)
+    public ResponseEntity<Object> handleMachineNotFound(MachineNotFoundException ex) {
+        return buildErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalProductQuantity.class)
     public ResponseEntity<Object> handleIllegalProductQuantity(IllegalProductQuantity ex) {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -32,6 +42,26 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, "Insufficient funds");
     }
 
+    @ExceptionHandler(ChangeNotAvailableException.class)
+    public ResponseEntity<Object> handleChangeNotAvailable(ChangeNotAvailableException ex) {
+        return buildErrorResponse(HttpStatus.CONFLICT, ex.getMessage());
+    }
+
+    @ExceptionHandler(IllegalTransactionStateException.class)
+    public ResponseEntity<Object> handleIllegalTransactionState(IllegalTransactionStateException ex) {
+        return buildErrorResponse(HttpStatus.CONFLICT, ex.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Object> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+        return buildErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+    }
+
+    @ExceptionHandler(MachineBusyException.class)
+    public ResponseEntity<Object> handleMachineBusy(MachineBusyException ex) {
+        return buildErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<Object> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
         return buildErrorResponse(HttpStatus.BAD_REQUEST, "Invalid parameter: " + ex.getName());
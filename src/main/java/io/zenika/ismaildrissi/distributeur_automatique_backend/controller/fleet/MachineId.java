@@ -0,0 +1,24 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a controller method parameter to the vending machine the caller is using.
+ *
+ * <p>The machine id is read from the {@code {machineId}} path segment of
+ * {@code /api/machines/{machineId}/...} routes, then from the
+ * {@value MachineIdArgumentResolver#MACHINE_HEADER} header, and falls back to the default
+ * machine so that single-machine deployments keep working without any change.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface MachineId {
+}
@@ -0,0 +1,50 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.springframework.core.MethodParameter;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Resolves {@link MachineId}-annotated parameters from the incoming request.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class MachineIdArgumentResolver implements HandlerMethodArgumentResolver {
+
+    /** Name of the path variable carrying the machine id */
+    public static final String MACHINE_PATH_VARIABLE = "machineId";
+
+    /** Request header carrying the machine id when the path does not */
+    public static final String MACHINE_HEADER = "X-Machine-Id";
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(MachineId.class)
+                && String.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Map<String, String> variables = (Map<String, String>) webRequest.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (variables != null && StringUtils.hasText(variables.get(MACHINE_PATH_VARIABLE))) {
+            return variables.get(MACHINE_PATH_VARIABLE);
+        }
+        String header = webRequest.getHeader(MACHINE_HEADER);
+        if (StringUtils.hasText(header)) {
+            return header;
+        }
+        return VendingMachineRepository.DEFAULT_MACHINE_ID;
+    }
+}
@@ -0,0 +1,91 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.live.LiveEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.live.LiveEventHub;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.live.LiveEventSink;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionIdArgumentResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * REST controller streaming the state changes of a vending machine as server-sent events.
+ *
+ * <p>A kiosk opens one stream and receives the stock changes of its machine and the changes
+ * of its own purchase session (money inserted, products selected or unselected, order
+ * completed or cancelled), so it no longer needs to poll the product and transaction
+ * endpoints. The event name is the {@link io.zenika.ismaildrissi.distributeur_automatique_backend.application.live.LiveEventType}
+ * and the data is the new state as JSON. A {@code RESYNC} event means that events were
+ * dropped because the kiosk fell behind; it should then reload its state from the REST
+ * endpoints.</p>
+ *
+ * <p>Browsers cannot set headers on an {@code EventSource}, so the session is usually taken
+ * from the {@code VM_SESSION} cookie (see {@link SessionId}).</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping({"/api/events", "/api/machines/{machineId}/events"})
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = SessionIdArgumentResolver.SESSION_HEADER)
+public class EventStreamController {
+
+    /** Hub the streams subscribe to */
+    private final LiveEventHub liveEvents;
+
+    /** Time after which a stream is closed; the EventSource of the browser then reconnects */
+    private final Duration timeout;
+
+    /**
+     * Constructs a new EventStreamController.
+     *
+     * @param liveEvents the hub the streams subscribe to
+     * @param timeout the time after which a stream is closed
+     */
+    public EventStreamController(LiveEventHub liveEvents,
+                                 @Value("${vending-machine.events.timeout:PT30M}") Duration timeout) {
+        this.liveEvents = liveEvents;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Opens the event stream of the caller.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return the emitter of the stream
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@MachineId String machineId, @SessionId String sessionId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        LiveEventHub.Subscription subscription = liveEvents.subscribe(machineId, sessionId, new SseEmitterSink(emitter));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+
+    private record SseEmitterSink(SseEmitter emitter) implements LiveEventSink {
+
+        @Override
+        public void send(LiveEvent event) throws IOException {
+            emitter.send(SseEmitter.event().name(event.type().name()).data(event.data(), MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
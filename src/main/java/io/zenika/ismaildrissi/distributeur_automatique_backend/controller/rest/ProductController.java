@@ -1,13 +1,28 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.ProductService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineIdArgumentResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * REST controller for managing product-related operations in the vending machine system.
@@ -23,24 +38,56 @@ import java.util.List;
  * <p>All endpoints return JSON responses containing product information suitable
  * for display in client applications.</p>
  *
+ * <p>The catalog is polled continuously by the kiosks, so its JSON is encoded once per
+ * catalog version and served as raw bytes. Each version gets a strong ETag; a request
+ * whose {@code If-None-Match} header matches it is answered with 304 Not Modified and
+ * no body.</p>
+ *
+ * <p>Each machine of the fleet has its own catalog, named by the
+ * {@code /api/machines/{machineId}} prefix or the {@code X-Machine-Id} header (see
+ * {@link MachineId}). Catalog versions are unique across machines, so an ETag never
+ * matches the catalog of another machine.</p>
+ *
  * @author Ismail Drissi
  * @since 1.0
  */
 @RestController
-@RequestMapping("/api/products")
-@CrossOrigin(origins = "http://localhost:3000")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping({"/api/products", "/api/machines/{machineId}/products"})
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = HttpHeaders.ETAG)
 public class ProductController {
 
+    /** Catalog JSON encoded for one catalog version */
+    private record EncodedCatalog(long version, String etag, byte[] json) {
+    }
+
     /** Service for handling product-related business logic */
     private final ProductService productService;
 
+    /** Mapper used to encode the catalog */
+    private final ObjectMapper objectMapper;
+
+    /** Distinguishes the ETags of this instance from those issued before a restart */
+    private final String etagPrefix = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    /** Maximum number of machines whose encoded catalog is kept */
+    private final int capacity;
+
+    /** Last encoded catalog per machine */
+    private final ConcurrentMap<String, EncodedCatalog> encodedCatalogs = new ConcurrentHashMap<>();
+
     /**
      * Constructs a new ProductController with the specified ProductService.
      *
      * @param productService the service for handling product operations
+     * @param objectMapper the mapper used to encode the catalog
+     * @param capacity the maximum number of machines whose encoded catalog is kept
      */
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper,
+                             @Value("${vending-machine.fleet.capacity:10000}") int capacity) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
     }
 
     /**
@@ -48,12 +95,69 @@ public class ProductController {
      *
      * <p>This endpoint returns a complete list of all products currently
      * available in the vending machine, including their names, prices,
-     * and quantities.</p>
+     * and quantities, as a JSON array of {@link ProductDTO}.</p>
      *
-     * @return a list of ProductDTO objects representing all available products
+     * @param machineId the machine whose products are listed
+     * @param ifNoneMatch the ETag of the catalog already held by the client, if any
+     * @return the encoded catalog, or 304 Not Modified if the client's copy is current
      */
-    @GetMapping
-    public List<ProductDTO> getAllProducts() {
-        return productService.listProducts();
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAllProducts(
+            @MachineId String machineId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        EncodedCatalog catalog = encodedCatalog(machineId);
+        if (catalog.etag() == null) {
+            return ResponseEntity.ok().varyBy(MachineIdArgumentResolver.MACHINE_HEADER)
+                    .contentType(MediaType.APPLICATION_JSON).body(catalog.json());
+        }
+        if (matches(ifNoneMatch, catalog.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(MachineIdArgumentResolver.MACHINE_HEADER)
+                    .eTag(catalog.etag()).build();
+        }
+        return ResponseEntity.ok().varyBy(MachineIdArgumentResolver.MACHINE_HEADER).eTag(catalog.etag())
+                .contentType(MediaType.APPLICATION_JSON).body(catalog.json());
+    }
+
+    private EncodedCatalog encodedCatalog(String machineId) {
+        ProductCatalogCache.Snapshot snapshot = productService.catalog(machineId);
+        EncodedCatalog current = encodedCatalogs.get(machineId);
+        if (current != null && current.version() == snapshot.version()) {
+            return current;
+        }
+        EncodedCatalog encoded;
+        try {
+            encoded = snapshot.version() == ProductCatalogCache.Snapshot.UNCACHED
+                    ? new EncodedCatalog(snapshot.version(), null, objectMapper.writeValueAsBytes(snapshot.products()))
+                    : new EncodedCatalog(snapshot.version(), "\"" + etagPrefix + "-" + snapshot.version() + "\"",
+                            objectMapper.writeValueAsBytes(snapshot.products()));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (encoded.etag() != null) {
+            if (current == null && encodedCatalogs.size() >= capacity) {
+                encodedCatalogs.clear();
+            }
+            // Never replace a newer encoding with one from a slower concurrent request
+            encodedCatalogs.merge(machineId, encoded,
+                    (previous, next) -> next.version() > previous.version() ? next : previous);
+        }
+        return encoded;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            // If-None-Match uses the weak comparison: W/"x" matches "x"
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
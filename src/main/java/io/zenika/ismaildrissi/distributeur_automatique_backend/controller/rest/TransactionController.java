@@ -2,10 +2,17 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.idempotency.IdempotencyCache;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionIdArgumentResolver;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
 import org.hibernate.query.Order;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -29,6 +36,15 @@ import java.util.UUID;
  *   <li>Querying transaction state</li>
  * </ul></p>
  *
+ * <p>Every endpoint operates on the purchase session of the caller, identified by the
+ * {@code X-Session-Id} header or the {@code VM_SESSION} cookie (see {@link SessionId}), on the
+ * machine named by the {@code /api/machines/{machineId}} prefix or the {@code X-Machine-Id}
+ * header (see {@link MachineId}).</p>
+ *
+ * <p>The requests completing, cancelling or making a purchase accept an
+ * {@value #IDEMPOTENCY_HEADER} header: a retry with the same key returns the result of the first
+ * request from the {@link IdempotencyCache} instead of running it again.</p>
+ *
  * <p>All endpoints are configured to handle CORS requests from the frontend
  * application and return JSON responses suitable for web clients.</p>
  *
@@ -36,89 +52,162 @@ import java.util.UUID;
  * @since 1.0
  */
 @RestController
-@RequestMapping("/api/transaction")
-@CrossOrigin(origins = "http://localhost:3000")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping({"/api/transaction", "/api/machines/{machineId}/transaction"})
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = SessionIdArgumentResolver.SESSION_HEADER)
 public class TransactionController {
 
+    /** Header carrying the idempotency key of a request */
+    public static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+
     /** Service for handling transaction-related business logic */
     private final TransactionService transactionService;
 
+    /** Results of the requests sent with an idempotency key */
+    private final IdempotencyCache idempotencyCache;
+
     /**
      * Constructs a new TransactionController with the specified TransactionService.
      *
      * @param transactionService the service for handling transaction operations
+     * @param idempotencyCache the results of the requests sent with an idempotency key
      */
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, IdempotencyCache idempotencyCache) {
         this.transactionService = transactionService;
+        this.idempotencyCache = idempotencyCache;
     }
 
     /**
      * Retrieves the total amount of money inserted in the current transaction.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @return a MoneyDTO representing the total inserted amount
      */
     @GetMapping("/money/inserted")
-    public MoneyDTO insertedMoney() {
-        return transactionService.totalInsertedAmount();
+    public MoneyDTO insertedMoney(@MachineId String machineId, @SessionId String sessionId) {
+        return transactionService.totalInsertedAmount(machineId, sessionId);
     }
 
     /**
      * Retrieves the list of products currently selected in the transaction.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @return a list of SelectedProductDTO representing the selected products
      */
     @GetMapping("/products/selected")
-    public List<SelectedProductDTO> getSelectedProducts() {
-        return transactionService.selectedProducts();
+    public List<SelectedProductDTO> getSelectedProducts(@MachineId String machineId, @SessionId String sessionId) {
+        return transactionService.selectedProducts(machineId, sessionId);
+    }
+
+    /**
+     * Retrieves the products in stock that the money left in the current transaction can pay for.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return the affordable products, cheapest first
+     */
+    @GetMapping("/products/affordable")
+    public List<ProductDTO> getAffordableProducts(@MachineId String machineId, @SessionId String sessionId) {
+        return transactionService.affordableProducts(machineId, sessionId);
+    }
+
+    /**
+     * Checks if the machine could give the exact change of the current transaction, optionally
+     * with one more product selected, so a kiosk can warn before the order is completed.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the product that would be added to the selection, if any
+     * @return true if the inserted money covers the selection and its change could be given
+     */
+    @GetMapping("/change/available")
+    public boolean changeAvailable(@MachineId String machineId, @SessionId String sessionId,
+                                   @RequestParam(required = false) UUID productId) {
+        return transactionService.changeAvailable(machineId, sessionId, productId);
     }
 
     /**
      * Selects a product for purchase in the current transaction.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param productId the string representation of the product UUID to select
      */
     @GetMapping("/products/select/{productId}")
-    public void selectProduct(@PathVariable String productId) {
-        transactionService.selectProduct(UUID.fromString(productId));
+    public void selectProduct(@MachineId String machineId, @SessionId String sessionId, @PathVariable String productId) {
+        transactionService.selectProduct(machineId, sessionId, UUID.fromString(productId));
     }
 
     /**
      * Removes a product from the current transaction.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param productId the string representation of the product UUID to unselect
      */
     @GetMapping("/products/unselect/{productId}")
-    public void unselectProduct(@PathVariable String productId) {
-        transactionService.unselectProduct(UUID.fromString(productId));
+    public void unselectProduct(@MachineId String machineId, @SessionId String sessionId, @PathVariable String productId) {
+        transactionService.unselectProduct(machineId, sessionId, UUID.fromString(productId));
     }
 
     /**
      * Inserts money into the current transaction.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
      * @param moneyDTO the money denomination to insert
      */
     @PostMapping("/money")
-    public void insertMoney(@RequestBody MoneyDTO moneyDTO) {
-        transactionService.insertMoney(moneyDTO);
+    public void insertMoney(@MachineId String machineId, @SessionId String sessionId, @RequestBody MoneyDTO moneyDTO) {
+        transactionService.insertMoney(machineId, sessionId, moneyDTO);
     }
 
     /**
      * Completes the current transaction, dispensing products and calculating change.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param idempotencyKey the key identifying the request across retries, if any
      * @return an OrderDTO containing the dispensed products and returned change
      */
     @PostMapping("/complete")
-    public OrderDTO complete() {
-        return transactionService.completeOrder();
+    public OrderDTO complete(@MachineId String machineId, @SessionId String sessionId,
+                             @RequestHeader(name = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyCache.execute(machineId, sessionId, idempotencyKey, "complete",
+                () -> transactionService.completeOrder(machineId, sessionId));
+    }
+
+    /**
+     * Buys products in a single request: the coins are inserted, the products selected and the
+     * order completed at once, or the coins are returned if the purchase cannot be served.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param purchase the coins inserted and the products to buy, with their quantities
+     * @param idempotencyKey the key identifying the request across retries, if any
+     * @return an OrderDTO containing the dispensed products and returned change
+     */
+    @PostMapping("/purchase")
+    public OrderDTO purchase(@MachineId String machineId, @SessionId String sessionId, @RequestBody PurchaseDTO purchase,
+                             @RequestHeader(name = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyCache.execute(machineId, sessionId, idempotencyKey, purchase,
+                () -> transactionService.purchase(machineId, sessionId, purchase));
     }
 
     /**
      * Cancels the current transaction and returns all inserted money.
      *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param idempotencyKey the key identifying the request across retries, if any
      * @return an OrderDTO containing the returned money
      */
     @PostMapping("/cancel")
-    public OrderDTO cancel() {
-        return transactionService.cancelOrder();
+    public OrderDTO cancel(@MachineId String machineId, @SessionId String sessionId,
+                           @RequestHeader(name = IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyCache.execute(machineId, sessionId, idempotencyKey, "cancel",
+                () -> transactionService.cancelOrder(machineId, sessionId));
     }
 }
@@ -0,0 +1,25 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a controller method parameter to the purchase session of the caller.
+ *
+ * <p>The session id is read from the {@value SessionIdArgumentResolver#SESSION_HEADER}
+ * header, then from the {@value SessionIdArgumentResolver#SESSION_COOKIE} cookie. A client
+ * sending neither gets a new session, whose id is returned in that header and cookie; on a
+ * single-kiosk deployment it uses the {@value SessionIdArgumentResolver#DEFAULT_SESSION}
+ * session instead.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SessionId {
+}
@@ -0,0 +1,112 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.UUID;
+
+/**
+ * Resolves {@link SessionId}-annotated parameters from the incoming request.
+ *
+ * <p>A request carrying neither the header nor the cookie starts a new session: a random
+ * id is minted and returned in the {@value #SESSION_HEADER} response header and in an
+ * {@code HttpOnly} {@value #SESSION_COOKIE} cookie, so that the next requests of the client,
+ * and its event stream, join the same session. Only a single-kiosk deployment falls back
+ * to the shared {@value #DEFAULT_SESSION} session instead.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class SessionIdArgumentResolver implements HandlerMethodArgumentResolver {
+
+    /** Request header carrying the session id */
+    public static final String SESSION_HEADER = "X-Session-Id";
+
+    /** Cookie carrying the session id when the header is absent */
+    public static final String SESSION_COOKIE = "VM_SESSION";
+
+    /** Session shared by the clients that do not send any identifier, in single-kiosk mode */
+    public static final String DEFAULT_SESSION = "default";
+
+    /** Whether clients without an identifier share the default session instead of starting their own */
+    private final boolean singleKiosk;
+
+    /**
+     * Constructs a new SessionIdArgumentResolver.
+     *
+     * @param singleKiosk whether clients without an identifier share the {@value #DEFAULT_SESSION} session
+     */
+    public SessionIdArgumentResolver(boolean singleKiosk) {
+        this.singleKiosk = singleKiosk;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(SessionId.class)
+                && String.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        String header = webRequest.getHeader(SESSION_HEADER);
+        if (StringUtils.hasText(header)) {
+            return header;
+        }
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        if (request != null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (SESSION_COOKIE.equals(cookie.getName()) && StringUtils.hasText(cookie.getValue())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        if (singleKiosk) {
+            return DEFAULT_SESSION;
+        }
+        String sessionId = newSessionId();
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.setHeader(SESSION_HEADER, sessionId);
+            response.addHeader(HttpHeaders.SET_COOKIE,
+                    sessionCookie(sessionId, request != null && request.isSecure()).toString());
+        }
+        return sessionId;
+    }
+
+    /**
+     * Mints the id of a new session. Ids are random UUIDs, so a client cannot guess the
+     * session of another one.
+     *
+     * @return the new session id
+     */
+    static String newSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Builds the cookie returning a new session id to the client. It is not readable from
+     * scripts and is only sent by the browser on same-site requests.
+     *
+     * @param sessionId the new session id
+     * @param secure whether the request came over HTTPS, in which case the cookie is only sent back over HTTPS
+     * @return the session cookie
+     */
+    static ResponseCookie sessionCookie(String sessionId, boolean secure) {
+        return ResponseCookie.from(SESSION_COOKIE, sessionId)
+                .path("/")
+                .httpOnly(true)
+                .secure(secure)
+                .sameSite("Lax")
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+
+import java.util.List;
+
+/**
+ * Coins left the machine as change.
+ *
+ * @param amount the change given, in centimes
+ * @param coins the coins withdrawn from the inventory
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record ChangeDispensed(long amount, List<Money> coins) implements DomainEvent {
+}
@@ -0,0 +1,16 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+
+import java.util.List;
+
+/**
+ * Coins inserted for a completed order were moved to the cash box of the machine.
+ *
+ * @param coins the coins added to the inventory
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record CoinsDeposited(List<Money> coins) implements DomainEvent {
+}
@@ -0,0 +1,15 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+/**
+ * A state change of a {@link io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction}
+ * or a {@link io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine}.
+ *
+ * <p>Events are immutable and emitted by the aggregates themselves, through the
+ * {@link DomainEventPublisher} they are attached to, once the change is applied.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public sealed interface DomainEvent permits MoneyInserted, ProductSelected, ProductUnselected,
+        TransactionCompleted, TransactionCancelled, ProductDispensed, ChangeDispensed, CoinsDeposited {
+}
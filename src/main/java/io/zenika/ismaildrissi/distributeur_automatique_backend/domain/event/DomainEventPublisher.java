@@ -0,0 +1,38 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+/**
+ * Receives the {@link DomainEvent}s emitted by an aggregate.
+ *
+ * <p>Aggregates call the publisher while their state is being changed, so implementations
+ * must return quickly and must not call back into the aggregate.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface DomainEventPublisher {
+
+    /** Publisher of aggregates whose events nobody listens to */
+    DomainEventPublisher NONE = event -> {
+    };
+
+    /**
+     * Publishes an event.
+     *
+     * @param event the event emitted by the aggregate
+     */
+    void publish(DomainEvent event);
+
+    /**
+     * Returns a publisher handing every event to this publisher, then to the given one.
+     *
+     * @param next the publisher receiving the events next
+     * @return the composed publisher
+     */
+    default DomainEventPublisher andThen(DomainEventPublisher next) {
+        return event -> {
+            publish(event);
+            next.publish(event);
+        };
+    }
+}
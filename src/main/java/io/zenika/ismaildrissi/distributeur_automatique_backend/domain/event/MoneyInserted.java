@@ -0,0 +1,16 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+
+/**
+ * Money was inserted into a transaction.
+ *
+ * @param transactionId the transaction
+ * @param money the inserted coin or note
+ * @param insertedAmount the total inserted in the transaction, in centimes
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record MoneyInserted(String transactionId, Money money, long insertedAmount) implements DomainEvent {
+}
@@ -0,0 +1,16 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+
+/**
+ * Units of a product left the machine.
+ *
+ * @param productId the product
+ * @param quantity the number of units dispensed
+ * @param remaining the quantity left in the machine after dispensing
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record ProductDispensed(ProductId productId, int quantity, int remaining) implements DomainEvent {
+}
@@ -0,0 +1,19 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+
+import java.util.List;
+
+/**
+ * A product was added to the selection of a transaction.
+ *
+ * @param transactionId the transaction
+ * @param productId the product selected
+ * @param selection the whole selection of the transaction after the change
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record ProductSelected(String transactionId, ProductId productId, List<SelectedProduct> selection) implements DomainEvent {
+}
@@ -0,0 +1,19 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+
+import java.util.List;
+
+/**
+ * A product was removed from the selection of a transaction.
+ *
+ * @param transactionId the transaction
+ * @param productId the product unselected
+ * @param selection the whole selection of the transaction after the change
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record ProductUnselected(String transactionId, ProductId productId, List<SelectedProduct> selection) implements DomainEvent {
+}
@@ -0,0 +1,17 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+
+import java.util.List;
+
+/**
+ * A transaction was cancelled and its money returned.
+ *
+ * @param transactionId the transaction
+ * @param returnedMoney the money given back, as inserted
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record TransactionCancelled(String transactionId, List<Money> returnedMoney) implements DomainEvent {
+}
@@ -0,0 +1,29 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+
+import java.util.List;
+
+/**
+ * A transaction was completed: its products are paid for and its change is owed.
+ *
+ * @param transactionId the transaction
+ * @param selectedProducts the products bought
+ * @param insertedAmount the total inserted, in centimes
+ * @param totalPrice the total price of the products, in centimes
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record TransactionCompleted(String transactionId, List<SelectedProduct> selectedProducts,
+                                   long insertedAmount, long totalPrice) implements DomainEvent {
+
+    /**
+     * Returns the change owed to the customer.
+     *
+     * @return the inserted amount minus the total price, in centimes
+     */
+    public long change() {
+        return insertedAmount - totalPrice;
+    }
+}
@@ -2,51 +2,172 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.tra
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.InvalidMoneyValueException;
 
-import java.math.BigDecimal;
-import java.util.Set;
+import java.util.List;
 
 /**
- * Represents a monetary value in the vending machine system using Moroccan Dirham (MAD).
- * This record enforces validation to ensure only valid coin denominations are accepted.
+ * Represents a coin in the vending machine system using Moroccan Dirham (MAD).
+ * Only valid coin denominations can be represented.
  *
  * <p>Valid coin denominations are: 0.5, 1.0, 2.0, 5.0, and 10.0 MAD.</p>
  *
- * <p>This is an immutable value object that guarantees the integrity of monetary values
- * throughout the system by validating input at construction time.</p>
+ * <p>Amounts are carried as a {@code long} number of centimes so that sums and
+ * differences are exact. There is exactly one instance per denomination: the factory
+ * methods return cached canonical coins and never allocate, which also makes
+ * {@code ==} a valid equality test.</p>
  *
- * @param value the monetary value in MAD, must be positive and a valid denomination
- *
- * @throws InvalidMoneyValueException if the value is not positive or not a valid denomination
+ * <p>The static helpers {@link #toCents(double)} and {@link #toMad(long)} convert
+ * between centimes and the MAD amounts used by the API and the database.</p>
  *
  * @author Ismail Drissi
  * @since 1.0
  */
-public record Money(double value) {
+public final class Money {
+
+    /** Number of centimes in one MAD */
+    public static final long CENTS_PER_MAD = 100;
+
+    /** Valid coin denominations in centimes, in ascending order */
+    private static final long[] DENOMINATIONS = {50, 100, 200, 500, 1000};
+
+    /** Canonical coin instances, indexed like {@link #DENOMINATIONS} */
+    private static final Money[] COINS = new Money[DENOMINATIONS.length];
+
+    /** Canonical coins as an immutable list, in ascending order */
+    private static final List<Money> DENOMINATION_LIST;
+
+    static {
+        for (int i = 0; i < DENOMINATIONS.length; i++) {
+            COINS[i] = new Money(DENOMINATIONS[i], i);
+        }
+        DENOMINATION_LIST = List.of(COINS);
+    }
 
-    /** Set of valid coin denominations in MAD */
-    private static final Set<Double> VALID_VALUES = Set.of(0.5, 1.0, 2.0, 5.0, 10.0);
+    /** The coin value in centimes */
+    private final long cents;
+
+    /** The position of this coin in {@link #denominations()} */
+    private final int index;
+
+    private Money(long cents, int index) {
+        this.cents = cents;
+        this.index = index;
+    }
 
     /**
-     * Compact constructor that validates the monetary value.
+     * Returns the canonical coin for the given MAD value.
      *
+     * @param value the monetary value in MAD
+     * @return the cached coin instance
      * @throws InvalidMoneyValueException if value is not positive or not a valid denomination
      */
-    public Money {
+    public static Money of(double value) {
         if (value <= 0) {
             throw new InvalidMoneyValueException("Money must be positive.");
-        } else if (!VALID_VALUES.contains(value)) {
+        }
+        long cents = Math.round(value * CENTS_PER_MAD);
+        Money coin = coin(cents);
+        if (coin == null || toMad(cents) != value) {
             throw new InvalidMoneyValueException("Invalid MAD coin: " + value);
         }
+        return coin;
     }
 
     /**
-     * Factory method to create a Money instance.
+     * Returns the canonical coin for the given number of centimes.
      *
-     * @param value the monetary value in MAD
-     * @return a new Money instance
-     * @throws InvalidMoneyValueException if the value is invalid
+     * @param cents the monetary value in centimes
+     * @return the cached coin instance
+     * @throws InvalidMoneyValueException if value is not positive or not a valid denomination
      */
-    public static Money of (double value) {
-        return new Money(value);
+    public static Money ofCents(long cents) {
+        if (cents <= 0) {
+            throw new InvalidMoneyValueException("Money must be positive.");
+        }
+        Money coin = coin(cents);
+        if (coin == null) {
+            throw new InvalidMoneyValueException("Invalid MAD coin: " + toMad(cents));
+        }
+        return coin;
+    }
+
+    /**
+     * Returns every valid coin, in ascending order of value.
+     *
+     * @return the immutable list of canonical coins
+     */
+    public static List<Money> denominations() {
+        return DENOMINATION_LIST;
+    }
+
+    /**
+     * Converts a MAD amount to centimes, rounding to the nearest centime.
+     *
+     * @param amount the amount in MAD
+     * @return the amount in centimes
+     */
+    public static long toCents(double amount) {
+        return Math.round(amount * CENTS_PER_MAD);
+    }
+
+    /**
+     * Converts an amount in centimes to MAD.
+     *
+     * @param cents the amount in centimes
+     * @return the amount in MAD
+     */
+    public static double toMad(long cents) {
+        return (double) cents / CENTS_PER_MAD;
+    }
+
+    /**
+     * Returns the value of this coin in centimes.
+     *
+     * @return the coin value in centimes
+     */
+    public long cents() {
+        return cents;
+    }
+
+    /**
+     * Returns the value of this coin in MAD.
+     *
+     * @return the coin value in MAD
+     */
+    public double value() {
+        return toMad(cents);
+    }
+
+    /**
+     * Returns the position of this coin in {@link #denominations()}, suitable to
+     * index per-denomination arrays.
+     *
+     * @return the denomination index
+     */
+    public int index() {
+        return index;
+    }
+
+    private static Money coin(long cents) {
+        for (Money coin : COINS) {
+            if (coin.cents == cents) {
+                return coin;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof Money other && other.cents == cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return "Money[value=" + value() + "]";
     }
-}
\ No newline at end of file
+}
@@ -28,10 +28,10 @@ public class SelectedProduct {
     private final String name;
 
     /**
-     * The price of the product at the time of selection.
+     * The price of the product in centimes at the time of selection.
      * This preserves the original price even if the product price changes later.
      */
-    private final double priceAtSelection;
+    private final long priceAtSelection;
 
     /**
      * Constructs a SelectedProduct with explicit values.
@@ -43,7 +43,7 @@ public class SelectedProduct {
     public SelectedProduct(ProductId productId, String name, double price) {
         this.productId = productId;
         this.name = name;
-        this.priceAtSelection = price;
+        this.priceAtSelection = Money.toCents(price);
     }
 
     /**
@@ -54,7 +54,7 @@ public class SelectedProduct {
      */
     public SelectedProduct(Product product) {
         this.productId = product.productId();
-        this.priceAtSelection = product.price();
+        this.priceAtSelection = product.priceCents();
         this.name = product.name();
     }
 
@@ -70,9 +70,18 @@ public class SelectedProduct {
     /**
      * Returns the price of the product at the time of selection.
      *
-     * @return the price at selection time
+     * @return the price at selection time in MAD
      */
     public double priceAtSelection() {
+        return Money.toMad(priceAtSelection);
+    }
+
+    /**
+     * Returns the price of the product in centimes at the time of selection.
+     *
+     * @return the price at selection time in centimes
+     */
+    public long priceAtSelectionCents() {
         return priceAtSelection;
     }
 
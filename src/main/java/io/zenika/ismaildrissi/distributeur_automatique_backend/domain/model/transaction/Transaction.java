@@ -1,12 +1,15 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction;
 
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.MoneyInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductSelected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductUnselected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCancelled;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCompleted;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.IllegalTransactionStateException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.InsufficientFundsException;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.ChangeCalculatorImpl;
 
 import java.util.*;
 
@@ -31,6 +34,13 @@ import java.util.*;
  *   <li>Completion requires sufficient funds for all selected products</li>
  * </ul></p>
  *
+ * <p>The inserted amount and the total price are kept as running totals in centimes,
+ * updated on every insertion and selection, so reading them is O(1).</p>
+ *
+ * <p>Every change is emitted as a domain event ({@link MoneyInserted}, {@link ProductSelected},
+ * {@link ProductUnselected}, {@link TransactionCompleted}, {@link TransactionCancelled}) to the
+ * publisher the transaction is attached to.</p>
+ *
  * @author Ismail Drissi
  * @since 1.0
  */
@@ -51,6 +61,15 @@ public class Transaction {
     /** Current status of the transaction */
     TransactionStatus status;
 
+    /** Running total of the inserted money, in centimes */
+    long insertedAmount;
+
+    /** Running total of the selected products' prices, in centimes */
+    long totalPrice;
+
+    /** Receives the events of this transaction */
+    DomainEventPublisher events = DomainEventPublisher.NONE;
+
     /**
      * Constructs a new transaction with the specified ID.
      * The transaction starts in IN_PROGRESS status with empty collections.
@@ -65,6 +84,22 @@ public class Transaction {
         this.status = TransactionStatus.IN_PROGRESS;
     }
 
+    /**
+     * Rebuilds a closed transaction from the transaction history.
+     *
+     * <p>The history only keeps the identity and the final status of a transaction,
+     * so the restored instance carries no money and no selected products.</p>
+     *
+     * @param id the unique identifier of the transaction
+     * @param status the status recorded in the history
+     * @return the restored transaction
+     */
+    public static Transaction restore(String id, TransactionStatus status) {
+        Transaction transaction = new Transaction(id);
+        transaction.status = status;
+        return transaction;
+    }
+
     /**
      * Adds a product to the transaction if sufficient funds are available.
      *
@@ -76,11 +111,15 @@ public class Transaction {
         if (status != TransactionStatus.IN_PROGRESS) {
             throw new IllegalTransactionStateException("Cannot add products to a completed transaction.");
         }
-        if (product.price() > totalInsertedAmount()) {
+        if (product.priceCents() > insertedAmount) {
             throw new InsufficientFundsException("Cannot add product due to insufficient funds.");
         }
         selectedProducts.add(new SelectedProduct(product));
+        totalPrice += product.priceCents();
         updatedProducts.add(product);
+        if (published()) {
+            events.publish(new ProductSelected(id, product.productId(), List.copyOf(selectedProducts)));
+        }
     }
 
     /**
@@ -96,6 +135,10 @@ public class Transaction {
         for (SelectedProduct selectedProduct : selectedProducts) {
             if(selectedProduct.productId().equals(product.productId())) {
                 selectedProducts.remove(selectedProduct);
+                totalPrice -= selectedProduct.priceAtSelectionCents();
+                if (published()) {
+                    events.publish(new ProductUnselected(id, product.productId(), List.copyOf(selectedProducts)));
+                }
                 return;
             }
         }
@@ -113,56 +156,68 @@ public class Transaction {
             throw new IllegalTransactionStateException("Cannot insert money into a completed transaction.");
         }
         insertedMoney.add(money);
+        insertedAmount += money.cents();
+        if (published()) {
+            events.publish(new MoneyInserted(id, money, insertedAmount));
+        }
     }
 
     /**
-     * Calculates the total amount of money inserted into the transaction.
+     * Returns the total amount of money inserted into the transaction.
      *
-     * @return the sum of all inserted money denominations
+     * @return the sum of all inserted money denominations, in centimes
      */
-    private double totalInsertedAmount() {
-        return insertedMoney.stream()
-                .map(Money::value)
-                .reduce(0.0, Double::sum);
+    public long insertedAmount() {
+        return insertedAmount;
     }
 
     /**
-     * Calculates the change amount (inserted amount minus total price).
+     * Returns the total price of all selected products.
      *
-     * @return the change amount, positive if overpaid, negative if underpaid
+     * @return the sum of prices of all selected products, in centimes
      */
-    private Double totalCost() {
-        return totalInsertedAmount() - totalPrice();
+    public long totalPrice() {
+        return totalPrice;
     }
 
     /**
-     * Calculates the total price of all selected products.
+     * Returns the change amount (inserted amount minus total price).
      *
-     * @return the sum of prices of all selected products
+     * @return the change amount in centimes, positive if overpaid, negative if underpaid
      */
-    private double totalPrice() {
-        return selectedProducts.stream()
-                .map(SelectedProduct::priceAtSelection)
-                .reduce(0.0, Double::sum);
+    public long change() {
+        return insertedAmount - totalPrice;
     }
 
     /**
-     * Completes the transaction if sufficient funds are available.
+     * Checks that the transaction could be completed now, without changing it.
      *
-     * @return a TransactionResult containing the transaction details
      * @throws IllegalTransactionStateException if the transaction is not in progress
      * @throws InsufficientFundsException if there are insufficient funds
      */
-    public TransactionResult complete() {
+    public void checkCompletable() {
         if (status != TransactionStatus.IN_PROGRESS) {
             throw new IllegalTransactionStateException("Transaction is already completed.");
         }
-        double totalCost = totalCost();
-        if (totalCost < 0){
+        if (change() < 0){
             throw new InsufficientFundsException("Inserted amount is less than the total price.");
         }
+    }
+
+    /**
+     * Completes the transaction if sufficient funds are available.
+     *
+     * @return a TransactionResult containing the transaction details
+     * @throws IllegalTransactionStateException if the transaction is not in progress
+     * @throws InsufficientFundsException if there are insufficient funds
+     */
+    public TransactionResult complete() {
+        checkCompletable();
         status = TransactionStatus.COMPLETED;
-        return new TransactionResult(selectedProducts(), insertedMoney(), totalPrice(), updatedProducts);
+        if (published()) {
+            events.publish(new TransactionCompleted(id, List.copyOf(selectedProducts), insertedAmount, totalPrice));
+        }
+        return new TransactionResult(selectedProducts(), insertedMoney(), insertedAmount, totalPrice, updatedProducts);
     }
 
     /**
@@ -176,7 +231,27 @@ public class Transaction {
             throw new IllegalTransactionStateException("Cannot cancel a completed transaction.");
         }
         status = TransactionStatus.CANCELLED;
-        return new TransactionResult(Collections.emptyList(), insertedMoney(), 0.0, updatedProducts);
+        if (published()) {
+            events.publish(new TransactionCancelled(id, List.copyOf(insertedMoney)));
+        }
+        return new TransactionResult(Collections.emptyList(), insertedMoney(), insertedAmount, 0, updatedProducts);
+    }
+
+    /**
+     * Attaches the transaction to the publisher receiving its domain events.
+     *
+     * @param publisher the publisher of the events emitted from now on
+     */
+    public void publishEventsTo(DomainEventPublisher publisher) {
+        this.events = publisher;
+    }
+
+    /**
+     * Tells whether the events of this transaction are listened to. Events carry copies of
+     * the selection and of the inserted money, so they are only built when they are.
+     */
+    private boolean published() {
+        return events != DomainEventPublisher.NONE;
     }
 
     /**
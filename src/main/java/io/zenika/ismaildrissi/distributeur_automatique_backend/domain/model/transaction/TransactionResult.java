@@ -19,7 +19,8 @@ import java.util.Set;
  *
  * @param selectedProducts the list of products that were selected during the transaction
  * @param insertedMoney the list of money denominations that were inserted
- * @param totalPrice the total price of all selected products
+ * @param insertedAmount the total amount of money inserted, in centimes
+ * @param totalPrice the total price of all selected products, in centimes
  * @param updateProducts the set of products that need to be updated in the repository
  *
  * @author Ismail Drissi
@@ -28,7 +29,17 @@ import java.util.Set;
 public record TransactionResult(
         List<SelectedProduct> selectedProducts,
         List<Money> insertedMoney,
-        Double totalPrice,
+        long insertedAmount,
+        long totalPrice,
         Set<Product> updateProducts
 ) {
+
+    /**
+     * Returns the change owed to the customer.
+     *
+     * @return the inserted amount minus the total price, in centimes
+     */
+    public long change() {
+        return insertedAmount - totalPrice;
+    }
 }
@@ -0,0 +1,152 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coins held by the vending machine to give change.
+ *
+ * <p>Counts are kept in an array indexed like {@link Money#denominations()} that is never
+ * modified: every change builds the next array and swaps it in with compare-and-set, so the
+ * inventory can be shared by concurrent requests without a lock. Withdrawals take a whole
+ * plan and are all-or-nothing, and no reader ever sees a withdrawal half done. A count never
+ * goes negative.</p>
+ *
+ * <p>The amounts the coins can pay are kept as {@link PayableAmounts}, brought up to date
+ * with the counts when asked for: coins added since the last call extend the set in place
+ * of recomputing it.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class CoinInventory {
+
+    /** Number of coins per denomination index, replaced as a whole by every change */
+    private final AtomicReference<int[]> counts;
+
+    /** Amounts payable with the counts last seen by {@link #payableAmounts()} */
+    private volatile PayableAmounts payable;
+
+    /**
+     * Constructs an inventory holding the given coins.
+     *
+     * @param coins the initial coins
+     */
+    public CoinInventory(List<Money> coins) {
+        int[] initial = new int[Money.denominations().size()];
+        for (Money coin : coins) {
+            initial[coin.index()]++;
+        }
+        this.counts = new AtomicReference<>(initial);
+        this.payable = PayableAmounts.of(counts(), PayableAmounts.DEFAULT_MAX_AMOUNT);
+    }
+
+    /**
+     * Adds one coin to the inventory.
+     *
+     * @param coin the coin to add
+     */
+    public void add(Money coin) {
+        int[] current;
+        int[] updated;
+        do {
+            current = counts.get();
+            updated = current.clone();
+            updated[coin.index()]++;
+        } while (!counts.compareAndSet(current, updated));
+    }
+
+    /**
+     * Returns the number of coins of the given denomination.
+     *
+     * @param coin the denomination
+     * @return the number of coins available
+     */
+    public int count(Money coin) {
+        return counts.get()[coin.index()];
+    }
+
+    /**
+     * Returns a copy of the counts, indexed like {@link Money#denominations()}.
+     *
+     * @return the number of coins per denomination index
+     */
+    public int[] counts() {
+        return counts.get().clone();
+    }
+
+    /**
+     * Returns the amounts the coins currently held can pay exactly.
+     *
+     * <p>Two concurrent callers may both compute the update; either result is correct for
+     * the counts it was computed from, so the last one written is kept.</p>
+     *
+     * @return the payable amounts
+     */
+    public PayableAmounts payableAmounts() {
+        PayableAmounts current = payable;
+        PayableAmounts updated = current.update(counts());
+        if (updated != current) {
+            payable = updated;
+        }
+        return updated;
+    }
+
+    /**
+     * Removes every coin of the plan if, and only if, all of them are available.
+     *
+     * @param plan the number of coins to remove per denomination index
+     * @return true if the coins were removed, false if the inventory was left unchanged
+     */
+    public boolean withdraw(int[] plan) {
+        int[] current;
+        int[] updated;
+        do {
+            current = counts.get();
+            updated = current.clone();
+            for (int i = 0; i < plan.length; i++) {
+                updated[i] -= plan[i];
+                if (updated[i] < 0) {
+                    return false;
+                }
+            }
+        } while (!counts.compareAndSet(current, updated));
+        return true;
+    }
+
+    /**
+     * Adds coins and withdraws the change planned against the result, as one change.
+     *
+     * <p>The plan is made against the counts the coins are added to, and is applied only if
+     * no other change happened in between; otherwise it is made again. Either both the
+     * deposit and the withdrawal happen, or neither does.</p>
+     *
+     * @param deposited the coins to add
+     * @param planner returns the coins to withdraw per denomination index for the given
+     *                counts, or null if no withdrawal is possible
+     * @return the coins withdrawn per denomination index, or null if the inventory was left unchanged
+     */
+    public int[] exchange(List<Money> deposited, UnaryOperator<int[]> planner) {
+        int[] current;
+        int[] updated;
+        int[] plan;
+        do {
+            current = counts.get();
+            updated = current.clone();
+            for (Money coin : deposited) {
+                updated[coin.index()]++;
+            }
+            plan = planner.apply(updated.clone());
+            if (plan == null) {
+                return null;
+            }
+            for (int i = 0; i < plan.length; i++) {
+                updated[i] -= plan[i];
+            }
+        } while (!counts.compareAndSet(current, updated));
+        return plan;
+    }
+}
@@ -0,0 +1,26 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock and coins of a {@link VendingMachine} at a point in time.
+ *
+ * <p>This is the part of the machine that changes while it sells, as opposed to the product
+ * names and prices kept by the {@link io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository}.</p>
+ *
+ * @param stock the quantity of every product
+ * @param coins the coins available for change
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public record MachineState(Map<ProductId, Integer> stock, List<Money> coins) {
+
+    public MachineState {
+        stock = Map.copyOf(stock);
+        coins = List.copyOf(coins);
+    }
+}
@@ -0,0 +1,161 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Amounts that a set of coins can pay exactly, up to a bound.
+ *
+ * <p>Bit {@code i} of the set is on when {@code i} times the smallest denomination can be
+ * paid with some of the coins, so checking an amount is a single bit test. Adding a coin of
+ * value {@code v} to the set only ORs the set with itself shifted by {@code v}; adding
+ * {@code k} coins of the same value takes {@code log k} such shifts. Removing coins cannot
+ * be undone that way, so it rebuilds the set from the counts.</p>
+ *
+ * <p>Coins that do not fit under the bound can never be part of a payment within it: counts
+ * are capped accordingly, so a machine full of coins costs no more than a bound's worth.
+ * Instances are immutable.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public final class PayableAmounts {
+
+    /** Largest amount answered by default, in centimes */
+    public static final long DEFAULT_MAX_AMOUNT = 20_000;
+
+    /** Value of one bit: every denomination is a multiple of the smallest one */
+    private static final long UNIT = Money.denominations().get(0).cents();
+
+    /** Largest amount answered, in centimes */
+    private final long maxAmount;
+
+    /** Number of coins per denomination index, capped to what can be used under the bound */
+    private final int[] counts;
+
+    /** Bit {@code i} is on when {@code i * UNIT} can be paid */
+    private final long[] bits;
+
+    private PayableAmounts(long maxAmount, int[] counts, long[] bits) {
+        this.maxAmount = maxAmount;
+        this.counts = counts;
+        this.bits = bits;
+    }
+
+    /**
+     * Computes the amounts payable with the given coins.
+     *
+     * @param counts the number of coins per denomination index
+     * @param maxAmount the largest amount to answer, in centimes
+     * @return the payable amounts
+     */
+    public static PayableAmounts of(int[] counts, long maxAmount) {
+        long[] bits = new long[(int) (maxAmount / UNIT / Long.SIZE) + 1];
+        bits[0] = 1L;
+        int[] capped = cap(counts, maxAmount);
+        for (int i = 0; i < capped.length; i++) {
+            addCoins(bits, i, capped[i]);
+        }
+        return new PayableAmounts(maxAmount, capped, bits);
+    }
+
+    /**
+     * Returns the amounts payable with the given coins, reusing this set when possible.
+     *
+     * @param counts the number of coins per denomination index
+     * @return this set if the counts make no difference under the bound, a set extended with
+     *         the added coins if no count decreased, or a set rebuilt from the counts otherwise
+     */
+    public PayableAmounts update(int[] counts) {
+        int[] capped = cap(counts, maxAmount);
+        if (Arrays.equals(capped, this.counts)) {
+            return this;
+        }
+        for (int i = 0; i < capped.length; i++) {
+            if (capped[i] < this.counts[i]) {
+                return of(counts, maxAmount);
+            }
+        }
+        long[] extended = bits.clone();
+        for (int i = 0; i < capped.length; i++) {
+            addCoins(extended, i, capped[i] - this.counts[i]);
+        }
+        return new PayableAmounts(maxAmount, capped, extended);
+    }
+
+    /**
+     * Returns the amounts payable once the given coins are added.
+     *
+     * @param coins the coins to add
+     * @return the extended set, or this set if there is no coin to add
+     */
+    public PayableAmounts plus(List<Money> coins) {
+        if (coins.isEmpty()) {
+            return this;
+        }
+        int[] added = counts.clone();
+        coins.forEach(coin -> added[coin.index()]++);
+        return update(added);
+    }
+
+    /**
+     * Checks if the given amount is within the bound of this set.
+     *
+     * @param amount the amount, in centimes
+     * @return true if {@link #canPay(long)} answers for this amount
+     */
+    public boolean covers(long amount) {
+        return amount >= 0 && amount <= maxAmount;
+    }
+
+    /**
+     * Checks if the given amount can be paid exactly.
+     *
+     * @param amount the amount, in centimes, within the bound of this set
+     * @return true if some of the coins add up to the amount
+     * @throws IllegalArgumentException if the amount is not covered by this set
+     */
+    public boolean canPay(long amount) {
+        if (!covers(amount)) {
+            throw new IllegalArgumentException("Amount out of the payable range: " + amount);
+        }
+        if (amount % UNIT != 0) {
+            return false;
+        }
+        int bit = (int) (amount / UNIT);
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static int[] cap(int[] counts, long maxAmount) {
+        int[] capped = new int[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            capped[i] = (int) Math.min(counts[i], maxAmount / Money.denominations().get(i).cents());
+        }
+        return capped;
+    }
+
+    /** Adds coins of one denomination, split in chunks of 1, 2, 4... coins that can each be taken or not */
+    private static void addCoins(long[] bits, int index, int count) {
+        int step = (int) (Money.denominations().get(index).cents() / UNIT);
+        for (int chunk = 1; count > 0; chunk <<= 1) {
+            int taken = Math.min(chunk, count);
+            shiftOr(bits, taken * step);
+            count -= taken;
+        }
+    }
+
+    /** Sets bits |= bits << shift, dropping the bits shifted past the end */
+    private static void shiftOr(long[] bits, int shift) {
+        int words = shift >>> 6;
+        int offset = shift & 63;
+        for (int i = bits.length - 1; i >= words; i--) {
+            long shifted = bits[i - words] << offset;
+            if (offset != 0 && i - words - 1 >= 0) {
+                shifted |= bits[i - words - 1] >>> (64 - offset);
+            }
+            bits[i] |= shifted;
+        }
+    }
+}
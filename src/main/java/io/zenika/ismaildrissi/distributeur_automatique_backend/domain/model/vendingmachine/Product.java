@@ -1,7 +1,10 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents a product available in the vending machine.
  *
@@ -10,7 +13,8 @@ import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vend
  * The product maintains its own inventory state and provides methods to check
  * availability and manage stock levels.</p>
  *
- * <p>The product is designed to be thread-safe for quantity operations and enforces
+ * <p>The product is designed to be thread-safe for quantity operations: the stock is an atomic
+ * counter decremented with compare-and-set, so it never goes negative. It enforces
  * business rules such as preventing quantity reduction when out of stock.</p>
  *
  * @author Ismail Drissi
@@ -24,11 +28,14 @@ public class Product {
     /** The display name of the product */
     private final String name;
 
-    /** The price of the product in MAD */
-    private final double price;
+    /** The price of the product in centimes */
+    private final long priceCents;
+
+    /** The current quantity available in the vending machine, updated with compare-and-set */
+    private final AtomicInteger quantity;
 
-    /** The current quantity available in the vending machine */
-    private int quantity;
+    /** Version of the stored product this one was read from, or null if it was never stored */
+    private final Long version;
 
     /**
      * Constructs a new Product with the specified details.
@@ -39,10 +46,24 @@ public class Product {
      * @param quantity the initial quantity available, should be non-negative
      */
     public Product(String name, double price, ProductId productId, int quantity) {
+        this(name, price, productId, quantity, null);
+    }
+
+    /**
+     * Constructs a Product read from the repository.
+     *
+     * @param name the display name of the product, should not be null or empty
+     * @param price the price of the product in MAD, should be positive
+     * @param productId the unique identifier for this product, must not be null
+     * @param quantity the initial quantity available, should be non-negative
+     * @param version the version of the stored product, or null if it was never stored
+     */
+    public Product(String name, double price, ProductId productId, int quantity, Long version) {
         this.productId = productId;
         this.name = name;
-        this.price = price;
-        this.quantity = quantity;
+        this.priceCents = Money.toCents(price);
+        this.quantity = new AtomicInteger(quantity);
+        this.version = version;
     }
 
     /**
@@ -69,7 +90,16 @@ public class Product {
      * @return the product price
      */
     public double price() {
-        return price;
+        return Money.toMad(priceCents);
+    }
+
+    /**
+     * Returns the price of this product in centimes.
+     *
+     * @return the product price in centimes
+     */
+    public long priceCents() {
+        return priceCents;
     }
 
     /**
@@ -78,7 +108,19 @@ public class Product {
      * @return the current quantity
      */
     public int quantity() {
-        return quantity;
+        return quantity.get();
+    }
+
+    /**
+     * Returns the version of the stored product this one was read from.
+     *
+     * <p>The repository refuses to update a product whose stored version moved on since it
+     * was read, so that an edit based on a stale copy is not written over a newer one.</p>
+     *
+     * @return the version, or null if the product was never stored
+     */
+    public Long version() {
+        return version;
     }
 
     /**
@@ -87,7 +129,7 @@ public class Product {
      * @return true if quantity is greater than 0, false otherwise
      */
     public boolean isAvailable() {
-        return quantity > 0;
+        return quantity.get() > 0;
     }
 
     /**
@@ -97,9 +139,35 @@ public class Product {
      * @throws IllegalProductQuantity if the product is already out of stock
      */
     public void decreaseQuantity() {
-        if (quantity <= 0) {
+        if (!tryDecreaseQuantity(1)) {
             throw new IllegalProductQuantity("Cannot decrease quantity. Product out of stock.");
         }
-        quantity--;
+    }
+
+    /**
+     * Atomically decreases the quantity by the given amount, unless fewer units are in stock.
+     *
+     * @param amount the number of units to remove
+     * @return true if the units were removed, false if the quantity was left unchanged
+     */
+    public boolean tryDecreaseQuantity(int amount) {
+        int current;
+        do {
+            current = quantity.get();
+            if (current < amount) {
+                return false;
+            }
+        } while (!quantity.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    /**
+     * Atomically increases the quantity by the given amount, for instance to release
+     * units reserved by an order that could not be completed.
+     *
+     * @param amount the number of units to add back
+     */
+    public void increaseQuantity(int amount) {
+        quantity.addAndGet(amount);
     }
 }
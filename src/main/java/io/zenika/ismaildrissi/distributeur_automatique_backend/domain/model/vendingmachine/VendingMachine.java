@@ -1,9 +1,18 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.CoinsDeposited;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.OptimalChangeCalculator;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Represents a vending machine that manages products and change dispensing.
@@ -12,10 +21,29 @@ import java.util.*;
  * for product management, change calculation, and product dispensing. It maintains
  * an inventory of products and available change denominations.</p>
  *
+ * <p>Change is planned by the injected {@link ChangeCalculator} against a snapshot of the {@link CoinInventory} and the coins
+ * are only removed once a complete plan exists, so a failed attempt never consumes
+ * coins.</p>
+ *
+ * <p>The machine is shared by every purchase session and needs no global lock: product
+ * stock and coin counts are atomic counters updated with compare-and-set, and an order
+ * reserves all of its products at once, releasing them if any is out of stock. A sale
+ * reserves the products, then deposits the coins and withdraws the change in a single
+ * inventory update, so a sale whose change cannot be made leaves the machine untouched.</p>
+ *
+ * <p>The products never change once the machine is built, so they are also kept sorted by
+ * price, with a bitset of the ones in stock updated by every dispense. The products a customer
+ * can afford are then a prefix of the price order, filtered by the bitset, and listing them
+ * only reads the products returned.</p>
+ *
+ * <p>Dispensed products, dispensed change and deposited coins are emitted as
+ * {@link ProductDispensed}, {@link ChangeDispensed} and {@link CoinsDeposited} events to the
+ * publisher the machine is attached to.</p>
+ *
  * <p>Key responsibilities:
  * <ul>
  *   <li>Managing product inventory and availability</li>
- *   <li>Calculating and dispensing change using a greedy algorithm</li>
+ *   <li>Calculating and dispensing change with the fewest coins available</li>
  *   <li>Validating product availability before dispensing</li>
  *   <li>Maintaining change inventory for accurate change dispensing</li>
  * </ul></p>
@@ -25,12 +53,30 @@ import java.util.*;
  */
 public class VendingMachine {
 
-    /** Map of available change denominations and their quantities */
-    private final Map<Money, Integer> availableChange;
+    /** Strategy planning the coins returned as change */
+    private final ChangeCalculator changeCalculator;
+
+    /** Coins available for change */
+    private final CoinInventory availableChange;
 
     /** Map of products indexed by their unique identifiers */
     private final Map<ProductId, Product> products;
 
+    /** Products sorted by price, cheapest first */
+    private final List<Product> byPrice;
+
+    /** Price of the product at each position of {@link #byPrice}, in centimes */
+    private final long[] prices;
+
+    /** Position of each product in {@link #byPrice} */
+    private final Map<ProductId, Integer> positions;
+
+    /** Bit {@code i} is on when the product at position {@code i} of {@link #byPrice} is in stock */
+    private final AtomicLongArray inStock;
+
+    /** Receives the events of this machine */
+    private volatile DomainEventPublisher events = DomainEventPublisher.NONE;
+
     /**
      * Constructs a new VendingMachine with initial products and change.
      *
@@ -38,25 +84,69 @@ public class VendingMachine {
      * @param initialChange the list of money denominations available for change
      */
     public VendingMachine(List<Product> initialProducts, List<Money> initialChange) {
-        this.products = new HashMap<>();
+        this(initialProducts, initialChange, new OptimalChangeCalculator());
+    }
+
+    /**
+     * Constructs a new VendingMachine with initial products, change and change strategy.
+     *
+     * @param initialProducts the list of products to stock in the machine
+     * @param initialChange the list of money denominations available for change
+     * @param changeCalculator the strategy planning the coins returned as change
+     */
+    public VendingMachine(List<Product> initialProducts, List<Money> initialChange, ChangeCalculator changeCalculator) {
+        this.changeCalculator = changeCalculator;
+        this.products = new ConcurrentHashMap<>();
         for (Product p : initialProducts) {
             products.put(p.productId(), p);
         }
 
-        this.availableChange = new HashMap<>();
-        for (Money m : initialChange) {
-            availableChange.put(m, availableChange.getOrDefault(m, 0) + 1);
+        this.byPrice = products.values().stream()
+                .sorted(Comparator.comparingLong(Product::priceCents))
+                .toList();
+        this.prices = byPrice.stream().mapToLong(Product::priceCents).toArray();
+        this.positions = new HashMap<>();
+        this.inStock = new AtomicLongArray((byPrice.size() + Long.SIZE - 1) / Long.SIZE);
+        for (int i = 0; i < byPrice.size(); i++) {
+            positions.put(byPrice.get(i).productId(), i);
+            refreshStock(byPrice.get(i).productId());
         }
+
+        this.availableChange = new CoinInventory(initialChange);
     }
 
     /**
      * Checks if the machine can dispense the exact change for the given amount.
      *
-     * @param amount the change amount to check
+     * @param amount the change amount to check, in centimes
      * @return true if exact change can be dispensed, false otherwise
      */
-    public boolean canDispenseChange(double amount) {
-        return !calculateChange(amount).isEmpty();
+    public boolean canDispenseChange(long amount) {
+        return canDispenseChange(amount, List.of());
+    }
+
+    /**
+     * Checks if the machine could dispense the exact change for the given amount once the given
+     * coins are deposited, without changing anything.
+     *
+     * <p>When the change strategy makes change for every payable amount, the answer is a
+     * lookup in the {@link PayableAmounts} of the inventory. Otherwise, or for amounts beyond
+     * their bound, the change is planned against the counts.</p>
+     *
+     * @param amount the change amount to check, in centimes
+     * @param deposited the coins that will be added to the inventory before the change is given
+     * @return true if exact change could be dispensed, false otherwise
+     */
+    public boolean canDispenseChange(long amount, List<Money> deposited) {
+        if (changeCalculator.findsEveryExactChange()) {
+            PayableAmounts payable = availableChange.payableAmounts().plus(deposited);
+            if (payable.covers(amount)) {
+                return payable.canPay(amount);
+            }
+        }
+        int[] counts = availableChange.counts();
+        deposited.forEach(coin -> counts[coin.index()]++);
+        return changeCalculator.calculateChange(amount, counts) != null;
     }
 
     /**
@@ -74,26 +164,51 @@ public class VendingMachine {
     }
 
 
-    // Greedy based change calculation
-    public List<Money> calculateChange(double amount) {
-        List<Money> change = new ArrayList<>();
-        double remaining = amount;
-
-        List<Money> sortedMoney = availableChange.keySet().stream()
-                .sorted(Comparator.comparingDouble(Money::value).reversed())
-                .toList();
-
-        for (Money m : sortedMoney) {
-            while (remaining >= m.value() && availableChange.get(m) > 0) {
-                change.add(m);
-                remaining -= m.value();
-                remaining = Math.round(remaining * 100.0) / 100.0;
-                availableChange.put(m, availableChange.get(m) - 1);
+    /**
+     * Calculates the change for the given amount and removes the coins from the inventory.
+     *
+     * <p>The inventory is only modified when exact change can be made. If a concurrent
+     * order takes some of the planned coins first, the change is planned again.</p>
+     *
+     * @param amount the change amount, in centimes
+     * @return the coins to return, largest first, or an empty list if exact change cannot be made
+     */
+    public List<Money> calculateChange(long amount) {
+        while (true) {
+            int[] plan = changeCalculator.calculateChange(amount, availableChange.counts());
+            if (plan == null) {
+                return Collections.emptyList();
             }
+            if (availableChange.withdraw(plan)) {
+                List<Money> coins = ChangeCalculator.coins(plan);
+                events.publish(new ChangeDispensed(amount, coins));
+                return coins;
+            }
+            // Another order took some of the planned coins: plan again against the new counts
         }
+    }
 
-        if (remaining > 0) return Collections.emptyList();
-        return change;
+    /**
+     * Moves the coins inserted for an order to the inventory, where they can be given as change.
+     *
+     * @param coins the coins to deposit
+     */
+    public void depositCoins(List<Money> coins) {
+        if (coins.isEmpty()) {
+            return;
+        }
+        coins.forEach(availableChange::add);
+        events.publish(new CoinsDeposited(List.copyOf(coins)));
+    }
+
+    /**
+     * Returns the number of coins of the given denomination available for change.
+     *
+     * @param coin the denomination
+     * @return the number of coins available
+     */
+    public int coinCount(Money coin) {
+        return availableChange.count(coin);
     }
 
     /**
@@ -103,7 +218,8 @@ public class VendingMachine {
      * @return true if the product exists and has quantity greater than 0
      */
     public boolean isProductAvailable(ProductId id) {
-        return products.containsKey(id) && products.get(id).quantity() > 0;
+        Product product = products.get(id);
+        return product != null && product.isAvailable();
     }
 
     /**
@@ -113,18 +229,207 @@ public class VendingMachine {
      * @throws ProductNotFoundException if the product is not available
      */
     public void dispenseProduct(ProductId id) {
-        if (!isProductAvailable(id)) {
+        Product product = products.get(id);
+        if (product == null || !product.tryDecreaseQuantity(1)) {
             throw new ProductNotFoundException("Product not available");
         }
-        products.get(id).decreaseQuantity(); // You’ll need a method for this
+        refreshStock(id);
+        events.publish(new ProductDispensed(id, 1, product.quantity()));
+    }
+
+    /**
+     * Dispenses every product of an order, or none of them.
+     *
+     * <p>The units are reserved product by product; if one product runs out, the units
+     * already reserved for the order are put back before failing.</p>
+     *
+     * @param ids the identifiers of the products to dispense, repeated once per unit
+     * @throws ProductNotFoundException if a product does not exist or has too few units left
+     */
+    public void dispenseProducts(List<ProductId> ids) {
+        Map<ProductId, Integer> units = reserve(ids);
+        publishDispensed(units);
+    }
+
+    /**
+     * Sells the products of an order: dispenses them, deposits the coins paid and gives the change.
+     *
+     * <p>The products are reserved first, then the coins are deposited and the change is
+     * withdrawn in one update of the inventory, planned against the coins it holds at that
+     * moment. If no change can be made, the products are released and the machine is left as
+     * it was. The events are only published once the whole sale has succeeded.</p>
+     *
+     * @param ids the identifiers of the products to sell, repeated once per unit
+     * @param deposited the coins paid for the order
+     * @param change the change to give, in centimes
+     * @return the coins given as change, largest first
+     * @throws ProductNotFoundException if a product does not exist or has too few units left
+     * @throws ChangeNotAvailableException if the change cannot be made with the coins available
+     */
+    public List<Money> sell(List<ProductId> ids, List<Money> deposited, long change) {
+        Map<ProductId, Integer> units = reserve(ids);
+        int[] plan = availableChange.exchange(deposited, counts -> changeCalculator.calculateChange(change, counts));
+        if (plan == null) {
+            release(units);
+            throw new ChangeNotAvailableException("The machine cannot give the change of this order");
+        }
+        publishDispensed(units);
+        if (!deposited.isEmpty()) {
+            events.publish(new CoinsDeposited(List.copyOf(deposited)));
+        }
+        List<Money> coins = ChangeCalculator.coins(plan);
+        events.publish(new ChangeDispensed(change, coins));
+        return coins;
+    }
+
+    /**
+     * Returns the current stock and coins of the machine.
+     *
+     * <p>Each product and coin count is read atomically, but the state as a whole is not
+     * isolated from orders running at the same time.</p>
+     *
+     * @return the state of the machine
+     */
+    public MachineState state() {
+        Map<ProductId, Integer> stock = new LinkedHashMap<>();
+        products.forEach((id, product) -> stock.put(id, product.quantity()));
+        List<Money> coins = new ArrayList<>();
+        int[] counts = availableChange.counts();
+        for (int i = 0; i < counts.length; i++) {
+            coins.addAll(Collections.nCopies(counts[i], Money.denominations().get(i)));
+        }
+        return new MachineState(stock, coins);
     }
 
     /**
-     * Returns a copy of all products in the vending machine.
+     * Attaches the machine to the publisher receiving its domain events.
      *
-     * @return an immutable list of all products
+     * @param publisher the publisher of the events emitted from now on
+     */
+    public void publishEventsTo(DomainEventPublisher publisher) {
+        this.events = publisher;
+    }
+
+    /**
+     * Returns all products in the vending machine.
+     *
+     * @return an immutable list of all products, cheapest first
      */
     public List<Product> getAllProducts() {
-        return List.copyOf(products.values());
+        return byPrice;
+    }
+
+    /**
+     * Returns the products in stock whose price is within the given budget.
+     *
+     * <p>The cheapest products are the only candidates, so the search stops at the first price
+     * above the budget, and out-of-stock products are skipped a word of the bitset at a time.</p>
+     *
+     * @param budget the amount the customer can spend, in centimes
+     * @return the affordable products in stock, cheapest first
+     */
+    public List<Product> affordableProducts(long budget) {
+        int end = upperBound(budget);
+        List<Product> affordable = new ArrayList<>();
+        for (int word = 0; word << 6 < end; word++) {
+            long bits = inStock.get(word);
+            while (bits != 0) {
+                int position = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (position >= end) {
+                    break;
+                }
+                affordable.add(byPrice.get(position));
+                bits &= bits - 1;
+            }
+        }
+        return affordable;
+    }
+
+    /** Returns the position of the first product priced above the budget */
+    private int upperBound(long budget) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prices[middle] <= budget) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Takes the units of an order from the stock, all of them or none.
+     *
+     * @param ids the identifiers of the products, repeated once per unit
+     * @return the units reserved per product
+     * @throws ProductNotFoundException if a product does not exist or has too few units left
+     */
+    private Map<ProductId, Integer> reserve(List<ProductId> ids) {
+        Map<ProductId, Integer> units = new LinkedHashMap<>();
+        for (ProductId id : ids) {
+            units.merge(id, 1, Integer::sum);
+        }
+        Map<ProductId, Integer> reserved = new LinkedHashMap<>();
+        for (Map.Entry<ProductId, Integer> entry : units.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null || !product.tryDecreaseQuantity(entry.getValue())) {
+                release(reserved);
+                throw new ProductNotFoundException("Product not available");
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+            refreshStock(entry.getKey());
+        }
+        return reserved;
+    }
+
+    /**
+     * Puts reserved units back in stock.
+     *
+     * @param units the units to put back per product
+     */
+    private void release(Map<ProductId, Integer> units) {
+        units.forEach((id, n) -> {
+            products.get(id).increaseQuantity(n);
+            refreshStock(id);
+        });
+    }
+
+    /**
+     * Publishes a {@link ProductDispensed} event per product of an order.
+     *
+     * @param units the units dispensed per product
+     */
+    private void publishDispensed(Map<ProductId, Integer> units) {
+        units.forEach((id, n) -> events.publish(new ProductDispensed(id, n, products.get(id).quantity())));
+    }
+
+    /**
+     * Brings the in-stock bit of a product in line with its quantity.
+     *
+     * <p>Concurrent dispenses and releases may write the bit in any order, so the quantity is
+     * read again after writing it: the last writer always leaves the bit matching the stock.</p>
+     */
+    private void refreshStock(ProductId id) {
+        int position = positions.get(id);
+        Product product = byPrice.get(position);
+        boolean available;
+        do {
+            available = product.isAvailable();
+            setInStock(position, available);
+        } while (product.isAvailable() != available);
+    }
+
+    private void setInStock(int position, boolean available) {
+        int word = position >>> 6;
+        long mask = 1L << position;
+        long current;
+        long updated;
+        do {
+            current = inStock.get(word);
+            updated = available ? current | mask : current & ~mask;
+        } while (current != updated && !inStock.compareAndSet(word, current, updated));
     }
 }
@@ -0,0 +1,7 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions;
+
+public class StaleProductException extends RuntimeException {
+    public StaleProductException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Repository interface for the coins held by every machine of the fleet.
+ *
+ * <p>Coins are stored as one count per machine and denomination, indexed like
+ * {@link io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money#denominations()},
+ * and changed with relative adjustments, so dispensing or depositing coins never reads or
+ * rewrites a count.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public interface CoinInventoryRepository {
+
+    /**
+     * Retrieves the coin counts of a machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return the number of coins per denomination index, or empty if the machine has no stored inventory
+     */
+    Optional<int[]> findCounts(String machineId);
+
+    /**
+     * Stores the coin counts of a machine, replacing any previous inventory.
+     *
+     * @param machineId the identifier of the machine
+     * @param counts the number of coins per denomination index
+     */
+    void saveCounts(String machineId, int[] counts);
+
+    /**
+     * Adds coins to, or removes coins from, the stored inventory of several machines at once.
+     *
+     * @param deltas the change of the number of coins per denomination index, by machine id
+     */
+    void adjustCounts(Map<String, int[]> deltas);
+}
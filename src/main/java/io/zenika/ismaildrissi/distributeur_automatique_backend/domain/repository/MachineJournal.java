@@ -0,0 +1,57 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.MachineState;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Append-only journal of the {@link io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent}s
+ * of every machine, from which the {@link MachineState} of a machine can be rebuilt.
+ *
+ * <p>The in-memory {@link io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine}
+ * is the system of record for its stock and coins: the journal records its changes as they
+ * happen, and a machine is recovered from its last snapshot followed by the events journaled
+ * after it.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public interface MachineJournal {
+
+    /**
+     * Rebuilds the last journaled state of a machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return the state of the machine, or empty if it was never journaled
+     */
+    Optional<MachineState> recover(String machineId);
+
+    /**
+     * Rebuilds the last journaled state of every machine.
+     *
+     * @return the state of every journaled machine, by machine id
+     */
+    Map<String, MachineState> recoverAll();
+
+    /**
+     * Starts journaling a machine from the given state.
+     *
+     * @param machineId the identifier of the machine
+     * @param state the current state of the machine, recorded as the starting point
+     * @return the publisher to attach the machine to, which journals its events
+     */
+    DomainEventPublisher attach(String machineId, MachineState state);
+
+    /**
+     * Stops journaling a machine that is no longer held in memory.
+     *
+     * <p>The state journaled so far is kept, and the machine is recovered from it on its next
+     * load. The resources held for the machine are released, and the events published to its
+     * former publisher are no longer journaled. A machine that is not attached is ignored.</p>
+     *
+     * @param machineId the identifier of the machine
+     */
+    void detach(String machineId);
+}
@@ -2,8 +2,11 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repositor
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.StaleProductException;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -17,6 +20,10 @@ import java.util.Optional;
  * infrastructure layer, ensuring that the domain remains independent of specific
  * persistence technologies.</p>
  *
+ * <p>Every product belongs to one machine of the fleet. Operations that do not take a
+ * machine id work on {@link #DEFAULT_MACHINE_ID}, the machine of single-machine
+ * deployments.</p>
+ *
  * <p>Operations supported:
  * <ul>
  *   <li>Finding products by ID or retrieving all products</li>
@@ -31,6 +38,9 @@ import java.util.Optional;
  */
 public interface VendingMachineRepository {
 
+    /** Machine used when no machine id is given */
+    String DEFAULT_MACHINE_ID = "default";
+
     /**
      * Finds a product by its unique identifier.
      *
@@ -46,6 +56,14 @@ public interface VendingMachineRepository {
      */
     List<Product> findAllProducts();
 
+    /**
+     * Retrieves the products of one machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return the products stocked in that machine
+     */
+    List<Product> findAllProducts(String machineId);
+
     /**
      * Saves a new product to the repository.
      *
@@ -54,17 +72,53 @@ public interface VendingMachineRepository {
      */
     Product saveProduct(Product product);
 
+    /**
+     * Saves a new product to the given machine.
+     *
+     * @param machineId the identifier of the machine stocking the product
+     * @param product the product to save
+     * @return the saved product
+     */
+    Product saveProduct(String machineId, Product product);
+
     /**
      * Updates an existing product in the repository.
      *
-     * <p>This method is typically used to update product quantities after
-     * dispensing or restocking operations.</p>
+     * <p>This method is typically used for catalog edits such as a new name or price. The whole
+     * product is written, so the update is only applied if the stored product still has the
+     * {@link Product#version() version} the given one was read with: an edit based on a stale
+     * copy, or racing a stock write of another node, is refused rather than lost.</p>
      *
-     * @param product the product with updated information
-     * @return the updated product
+     * @param product the product with updated information, as read from this repository
+     * @return the updated product, with its new version
+     * @throws StaleProductException if the stored product was changed or deleted since it was read
      */
     Product updateProduct(Product product);
 
+    /**
+     * Removes dispensed units from the stored stock of several products at once.
+     *
+     * <p>Unlike {@link #updateProduct(Product)}, only the quantities are written, as
+     * relative decrements sent to the database in a single batch. The units were already
+     * dispensed, so they are removed even if the stored stock goes below zero.</p>
+     *
+     * @param quantities the number of units dispensed per product
+     */
+    void decrementStock(Map<ProductId, Integer> quantities);
+
+    /**
+     * Removes units about to be dispensed from the stored stock, if every product has enough left.
+     *
+     * <p>Each product is decremented only where its stored quantity covers the units, so that
+     * nodes sharing the database cannot sell the same unit twice without locking the rows.
+     * All the products are reserved, or none.</p>
+     *
+     * @param quantities the number of units to dispense per product
+     * @throws IllegalProductQuantity if a product does not have enough units left, in which case
+     *         nothing is reserved
+     */
+    void reserveStock(Map<ProductId, Integer> quantities);
+
     /**
      * Deletes a product from the repository by its identifier.
      *
@@ -2,8 +2,59 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service;
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Domain service deciding which coins to return as change.
+ *
+ * <p>Plans are expressed as coin counts indexed like {@link Money#denominations()},
+ * which is also how the available inventory is passed in. Implementations never
+ * modify the inventory: the caller commits the returned plan.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
 public interface ChangeCalculator{
-    List<Money> calculateChange(double changeAmount);
-}
\ No newline at end of file
+
+    /**
+     * Plans the coins to return for the given amount.
+     *
+     * @param changeAmount the amount to return, in centimes
+     * @param available the number of coins available per denomination index
+     * @return the number of coins to return per denomination index, or null if
+     *         exact change cannot be made with the available coins
+     */
+    int[] calculateChange(long changeAmount, int[] available);
+
+    /**
+     * Tells whether this calculator makes change whenever some of the available coins add
+     * up to the amount, so that its answer can be predicted from the payable amounts alone.
+     *
+     * @return true if no payable amount is ever refused
+     */
+    default boolean findsEveryExactChange() {
+        return true;
+    }
+
+    /**
+     * Expands a plan into the list of coins to hand out, largest first.
+     *
+     * @param plan the number of coins per denomination index
+     * @return the coins described by the plan
+     */
+    static List<Money> coins(int[] plan) {
+        List<Money> denominations = Money.denominations();
+        int size = 0;
+        for (int count : plan) {
+            size += count;
+        }
+        List<Money> coins = new ArrayList<>(size);
+        for (int i = plan.length - 1; i >= 0; i--) {
+            for (int k = 0; k < plan[i]; k++) {
+                coins.add(denominations.get(i));
+            }
+        }
+        return coins;
+    }
+}
@@ -0,0 +1,53 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.CachingChangeCalculator;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.ChangeCalculatorImpl;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.OptimalChangeCalculator;
+
+import java.util.Locale;
+
+/**
+ * Available change calculation strategies.
+ *
+ * <ul>
+ *   <li>GREEDY: largest coins first, may miss a solution</li>
+ *   <li>DP: minimum number of coins within the inventory</li>
+ *   <li>CACHED: DP with the unlimited-inventory plans memoized per amount</li>
+ * </ul>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public enum ChangeStrategy {
+
+    GREEDY,
+    DP,
+    CACHED;
+
+    /** Maximum number of amounts whose plan is kept by the CACHED strategy */
+    public static final int CACHE_SIZE = 4096;
+
+    /**
+     * Creates a calculator implementing this strategy.
+     *
+     * @return a new change calculator
+     */
+    public ChangeCalculator create() {
+        return switch (this) {
+            case GREEDY -> new ChangeCalculatorImpl();
+            case DP -> new OptimalChangeCalculator();
+            case CACHED -> new CachingChangeCalculator(new OptimalChangeCalculator(), CACHE_SIZE);
+        };
+    }
+
+    /**
+     * Resolves a strategy from its name, ignoring case.
+     *
+     * @param name the strategy name, such as "greedy", "dp" or "cached"
+     * @return the matching strategy
+     * @throws IllegalArgumentException if no strategy has this name
+     */
+    public static ChangeStrategy from(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,88 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Change calculator remembering, per amount, the plan another calculator makes with an
+ * unlimited inventory.
+ *
+ * <p>The coin inventory changes with every sale, so plans are keyed by the amount alone.
+ * A request is answered from the remembered plan when the available coins cover it, and
+ * handed to the delegate otherwise. This is sound when an unlimited-inventory plan covered
+ * by the coins is also a right answer for them: the plan of the minimum-coin
+ * {@link OptimalChangeCalculator} is a lower bound on the coin count, and the greedy
+ * {@link ChangeCalculatorImpl} makes the same choices whenever its coins suffice.</p>
+ *
+ * <p>The cache is bounded: once it holds {@code maxEntries} amounts it is cleared and
+ * refilled.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class CachingChangeCalculator implements ChangeCalculator {
+
+    /** Marker for amounts that cannot be paid even with an unlimited inventory */
+    private static final int[] NO_CHANGE = new int[0];
+
+    /** Inventory holding as many coins of each denomination as any amount needs */
+    private static final int[] UNLIMITED = unlimited();
+
+    private final ChangeCalculator delegate;
+
+    private final int maxEntries;
+
+    private final Map<Long, int[]> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a caching calculator.
+     *
+     * @param delegate the calculator computing the plans
+     * @param maxEntries the maximum number of cached amounts
+     */
+    public CachingChangeCalculator(ChangeCalculator delegate, int maxEntries) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public int[] calculateChange(long changeAmount, int[] available) {
+        int[] plan = plans.get(changeAmount);
+        if (plan == null) {
+            int[] computed = delegate.calculateChange(changeAmount, UNLIMITED);
+            plan = computed == null ? NO_CHANGE : computed;
+            if (plans.size() >= maxEntries) {
+                plans.clear();
+            }
+            plans.put(changeAmount, plan);
+        }
+        if (plan == NO_CHANGE) {
+            return null;
+        }
+        return fits(plan, available) ? plan.clone() : delegate.calculateChange(changeAmount, available);
+    }
+
+    @Override
+    public boolean findsEveryExactChange() {
+        return delegate.findsEveryExactChange();
+    }
+
+    private static boolean fits(int[] plan, int[] available) {
+        for (int i = 0; i < plan.length; i++) {
+            if (plan[i] > available[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] unlimited() {
+        int[] unlimited = new int[Money.denominations().size()];
+        Arrays.fill(unlimited, Integer.MAX_VALUE);
+        return unlimited;
+    }
+}
@@ -3,34 +3,40 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.i
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
 /**
  * Used to calculate the change using VALID MONEY in MAD
  */
 public class ChangeCalculatorImpl implements ChangeCalculator {
 
-    private static final List<Double> VALID_DENOMINATIONS = List.of(10.0, 5.0, 2.0, 1.0, 0.5);
+    private static final long[] VALID_DENOMINATIONS = Money.denominations().stream().mapToLong(Money::cents).toArray();
 
     /**
-     * Calculates change using Greedy Algorithm
-     * @param changeAmount
-     * @return
+     * Calculates change using Greedy Algorithm, taking the largest coins first within the available inventory.
+     * Fast, but may miss a solution that exists when a large coin blocks smaller ones.
+     * @param changeAmount the amount to return, in centimes
+     * @param available the number of coins available per denomination index
+     * @return the coins to return per denomination index, or null if the greedy pass cannot make exact change
      */
-    public List<Money> calculateChange(double changeAmount) {
-        List<Money> change = new ArrayList<>();
-
-        for (double denom : VALID_DENOMINATIONS) {
-            while (changeAmount >= denom) {
-                change.add(new Money(denom));
-                changeAmount = changeAmount - denom;
-            }
+    @Override
+    public int[] calculateChange(long changeAmount, int[] available) {
+        int[] plan = new int[VALID_DENOMINATIONS.length];
+
+        for (int i = VALID_DENOMINATIONS.length - 1; i >= 0; i--) {
+            long denom = VALID_DENOMINATIONS[i];
+            int take = (int) Math.min(available[i], changeAmount / denom);
+            plan[i] = take;
+            changeAmount = changeAmount - take * denom;
         }
 
-        return change;
+        return changeAmount == 0 ? plan : null;
     }
-}
 
+    /**
+     * The greedy pass can refuse an amount the coins could pay, such as 6 MAD from 5, 2, 2 and 2.
+     * @return false
+     */
+    @Override
+    public boolean findsEveryExactChange() {
+        return false;
+    }
+}
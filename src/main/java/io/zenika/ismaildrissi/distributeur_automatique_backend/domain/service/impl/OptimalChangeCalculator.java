@@ -0,0 +1,201 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+
+import java.util.Arrays;
+
+/**
+ * Change calculator returning the minimum number of coins within the available inventory.
+ *
+ * <p>Unlike the greedy {@link ChangeCalculatorImpl}, it always finds exact change when
+ * some combination of the available coins makes it, for instance 6 MAD as 2 + 2 + 2
+ * when a single 5 MAD coin is also available.</p>
+ *
+ * <p>Amounts are handled in units of the greatest common divisor of the denominations
+ * (50 centimes for MAD coins). Two strategies are combined:
+ * <ul>
+ *   <li>A minimum-coin table ignoring the inventory is precomputed once for the common
+ *   amount range. Its solution is a lower bound on the coin count, so when the inventory
+ *   can cover it, it is the optimal answer and costs a table walk.</li>
+ *   <li>Otherwise a bounded dynamic programme runs over the amounts, one denomination at
+ *   a time. Each layer is solved with a sliding-window minimum per residue class, so the
+ *   cost is O(denominations &times; amount) whatever the coin counts.</li>
+ * </ul></p>
+ *
+ * <p>Instances are immutable and safe to share between threads.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class OptimalChangeCalculator implements ChangeCalculator {
+
+    /** Default upper bound of the precomputed range, in centimes (100 MAD) */
+    public static final long DEFAULT_PRECOMPUTED_AMOUNT = 100 * Money.CENTS_PER_MAD;
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    /** Size of a unit in centimes: the gcd of all denominations */
+    private final long unit;
+
+    /** Denominations expressed in units, ascending */
+    private final int[] units;
+
+    /** Minimum number of coins for each amount (in units) with an unlimited inventory */
+    private final int[] minCoins;
+
+    /** Denomination index of the last coin of each minimum-coin solution */
+    private final byte[] lastCoin;
+
+    /**
+     * Constructs a calculator precomputing the default amount range.
+     */
+    public OptimalChangeCalculator() {
+        this(DEFAULT_PRECOMPUTED_AMOUNT);
+    }
+
+    /**
+     * Constructs a calculator precomputing minimum-coin solutions up to the given amount.
+     *
+     * @param precomputedAmount the largest amount, in centimes, served from the precomputed table
+     */
+    public OptimalChangeCalculator(long precomputedAmount) {
+        long[] cents = Money.denominations().stream().mapToLong(Money::cents).toArray();
+        long gcd = 0;
+        for (long c : cents) {
+            gcd = gcd(gcd, c);
+        }
+        this.unit = gcd;
+        this.units = new int[cents.length];
+        for (int i = 0; i < cents.length; i++) {
+            units[i] = (int) (cents[i] / unit);
+        }
+
+        int size = (int) (precomputedAmount / unit) + 1;
+        this.minCoins = new int[size];
+        this.lastCoin = new byte[size];
+        Arrays.fill(minCoins, UNREACHABLE);
+        minCoins[0] = 0;
+        for (int a = 1; a < size; a++) {
+            for (int i = 0; i < units.length; i++) {
+                if (units[i] <= a && minCoins[a - units[i]] + 1 < minCoins[a]) {
+                    minCoins[a] = minCoins[a - units[i]] + 1;
+                    lastCoin[a] = (byte) i;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int[] calculateChange(long changeAmount, int[] available) {
+        if (changeAmount < 0 || changeAmount % unit != 0) {
+            return null;
+        }
+        long target = changeAmount / unit;
+        long availableUnits = 0;
+        for (int i = 0; i < units.length; i++) {
+            availableUnits += (long) available[i] * units[i];
+        }
+        if (target > availableUnits) {
+            return null;
+        }
+        if (target < minCoins.length) {
+            int[] plan = unboundedPlan((int) target);
+            if (plan != null && fits(plan, available)) {
+                return plan;
+            }
+        }
+        return boundedPlan((int) target, available);
+    }
+
+    /**
+     * Rebuilds the precomputed minimum-coin solution for the given amount.
+     */
+    private int[] unboundedPlan(int target) {
+        if (minCoins[target] >= UNREACHABLE) {
+            return null;
+        }
+        int[] plan = new int[units.length];
+        for (int a = target; a > 0; a -= units[lastCoin[a]]) {
+            plan[lastCoin[a]]++;
+        }
+        return plan;
+    }
+
+    /**
+     * Solves the bounded problem: best[a] is the minimum number of coins making a with
+     * the denominations processed so far, take[i][a] the number of coins of denomination
+     * i used in that solution.
+     */
+    private int[] boundedPlan(int target, int[] available) {
+        int[] best = new int[target + 1];
+        int[] next = new int[target + 1];
+        int[][] take = new int[units.length][target + 1];
+        int[] windowIndex = new int[target + 1];
+        int[] windowValue = new int[target + 1];
+        Arrays.fill(best, UNREACHABLE);
+        best[0] = 0;
+
+        for (int i = 0; i < units.length; i++) {
+            int d = units[i];
+            int count = available[i];
+            for (int r = 0; r < d && r <= target; r++) {
+                // Along a = r + j*d: next[a] = min over t in [j - count, j] of best[r + t*d] + (j - t)
+                int head = 0;
+                int tail = 0;
+                for (int j = 0, a = r; a <= target; j++, a += d) {
+                    if (best[a] < UNREACHABLE) {
+                        int value = best[a] - j;
+                        while (tail > head && windowValue[tail - 1] >= value) {
+                            tail--;
+                        }
+                        windowIndex[tail] = j;
+                        windowValue[tail] = value;
+                        tail++;
+                    }
+                    while (tail > head && windowIndex[head] < j - count) {
+                        head++;
+                    }
+                    if (tail > head) {
+                        next[a] = windowValue[head] + j;
+                        take[i][a] = j - windowIndex[head];
+                    } else {
+                        next[a] = UNREACHABLE;
+                    }
+                }
+            }
+            int[] swap = best;
+            best = next;
+            next = swap;
+        }
+
+        if (best[target] >= UNREACHABLE) {
+            return null;
+        }
+        int[] plan = new int[units.length];
+        int a = target;
+        for (int i = units.length - 1; i >= 0; i--) {
+            plan[i] = take[i][a];
+            a -= plan[i] * units[i];
+        }
+        return plan;
+    }
+
+    private static boolean fits(int[] plan, int[] available) {
+        for (int i = 0; i < plan.length; i++) {
+            if (plan[i] > available[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
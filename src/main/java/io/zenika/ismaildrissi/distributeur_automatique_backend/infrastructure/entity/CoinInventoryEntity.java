@@ -0,0 +1,37 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Entity
+@IdClass(CoinInventoryEntity.Key.class)
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CoinInventoryEntity {
+    // One row per machine and denomination, updated in place rather than one row per coin
+    @Id
+    @Column(name = "machine_id")
+    private String machineId;
+    // Denomination in centimes
+    @Id
+    private long denomination;
+    @Column(name = "coin_count")
+    private int count;
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Data
+    public static class Key implements Serializable {
+        private String machineId;
+        private long denomination;
+    }
+}
@@ -1,8 +1,12 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity;
 
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +14,7 @@ import lombok.NoArgsConstructor;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(name = "idx_product_machine", columnList = "machine_id"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
@@ -19,4 +24,10 @@ public class ProductEntity {
     private String name;
     private double price;
     private int quantity;
+    // Machine of the fleet holding this product
+    @Column(name = "machine_id", nullable = false)
+    private String machineId;
+    // Bumped by every write, stock decrements included, so that a stale catalog edit is refused
+    @Version
+    private Long version;
 }
@@ -0,0 +1,52 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity;
+
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class TransactionEntity implements Persistable<String> {
+    @Id
+    private String id;
+    @Enumerated(EnumType.STRING)
+    private TransactionStatus status;
+    // Amounts in centimes
+    private long insertedAmount;
+    private long totalPrice;
+    private int productCount;
+    private Instant closedAt;
+
+    // History rows are written once: skip the SELECT that merge() would issue for an assigned id
+    @Transient
+    private boolean newEntity = true;
+
+    public TransactionEntity(String id, TransactionStatus status, long insertedAmount, long totalPrice, int productCount, Instant closedAt) {
+        this(id, status, insertedAmount, totalPrice, productCount, closedAt, true);
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
+}
@@ -0,0 +1,221 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventSubscriber;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link DomainEventBus} backed by a preallocated ring of slots, in the style of a disruptor.
+ *
+ * <p>Publishing claims the next sequence with a single atomic increment, writes the event into
+ * the slot of that sequence and marks the slot published: no lock is taken and, apart from the
+ * event itself, nothing is allocated. Every subscriber has its own thread reading the ring in
+ * sequence order; it takes every published slot available at once and flags the last one as
+ * the end of the batch.</p>
+ *
+ * <p>The ring is bounded: a publisher that gets a full ring lap ahead of the slowest subscriber
+ * waits for it, so a stuck subscriber eventually slows the purchases down rather than losing
+ * events or growing the heap. Subscribers must therefore never publish on the bus themselves.
+ * An exception thrown by a subscriber is logged and the subscriber moves on to the next
+ * event.</p>
+ *
+ * <p>Closing the bus lets every subscriber handle the events already published before its
+ * thread stops; events published afterwards are dropped.</p>
+ *
+ * <p>A bus without subscribers hands out {@link DomainEventPublisher#NONE}, so that the
+ * aggregates do not even build their events.</p>
+ */
+public class RingBufferDomainEventBus implements DomainEventBus, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RingBufferDomainEventBus.class);
+
+    /** Busy spins before a waiting thread starts parking */
+    private static final int SPIN_TRIES = 100;
+
+    /** Longest park of a waiting thread, bounding the latency after an idle period */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Mutable holder reused for every lap of the ring */
+    private static final class Slot {
+        String machineId;
+        String sessionId;
+        DomainEvent event;
+    }
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    /** Sequence published in each slot, -1 while the slot was never written */
+    private final AtomicLongArray published;
+
+    /** Next sequence to claim */
+    private final AtomicLong claimed = new AtomicLong();
+
+    private final List<Consumer> consumers;
+
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a bus and starts one thread per subscriber.
+     *
+     * @param ringSize the number of slots, a power of two
+     * @param subscribers the subscribers receiving every event
+     * @throws IllegalArgumentException if ringSize is not a positive power of two
+     */
+    public RingBufferDomainEventBus(int ringSize, List<? extends DomainEventSubscriber> subscribers) {
+        if (ringSize < 1 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two");
+        }
+        this.slots = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = ringSize - 1;
+        this.published = new AtomicLongArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            published.set(i, -1);
+        }
+        List<Consumer> started = new ArrayList<>(subscribers.size());
+        for (DomainEventSubscriber subscriber : subscribers) {
+            Consumer consumer = new Consumer(subscriber);
+            consumer.thread.start();
+            started.add(consumer);
+        }
+        this.consumers = List.copyOf(started);
+    }
+
+    @Override
+    public DomainEventPublisher publisherFor(String machineId, String sessionId) {
+        return consumers.isEmpty() ? DomainEventPublisher.NONE : DomainEventBus.super.publisherFor(machineId, sessionId);
+    }
+
+    @Override
+    public void publish(String machineId, String sessionId, DomainEvent event) {
+        if (consumers.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            log.warn("Domain event bus closed, dropping {}", event);
+            return;
+        }
+        long sequence = claimed.getAndIncrement();
+        // The slot is free once every subscriber is past the sequence of the previous lap
+        long wrapPoint = sequence - slots.length;
+        for (int tries = 0; minConsumed() < wrapPoint; tries++) {
+            idle(tries);
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.machineId = machineId;
+        slot.sessionId = sessionId;
+        slot.event = event;
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Returns the number of events published but not yet handled by every subscriber.
+     *
+     * @return the backlog of the slowest subscriber
+     */
+    public long backlog() {
+        return consumers.isEmpty() ? 0 : claimed.get() - 1 - minConsumed();
+    }
+
+    /**
+     * Stops accepting events, lets the subscribers handle the published ones and waits for their threads.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long minConsumed() {
+        long min = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            min = Math.min(min, consumer.consumed.get());
+        }
+        return min;
+    }
+
+    private static void idle(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1L << Math.min(tries - SPIN_TRIES, 20)));
+        }
+    }
+
+    /**
+     * Thread reading the ring on behalf of one subscriber.
+     */
+    private final class Consumer implements Runnable {
+
+        private final DomainEventSubscriber subscriber;
+
+        /** Last sequence handled by the subscriber */
+        private final AtomicLong consumed = new AtomicLong(-1);
+
+        private final Thread thread;
+
+        private Consumer(DomainEventSubscriber subscriber) {
+            this.subscriber = subscriber;
+            this.thread = Thread.ofPlatform()
+                    .name("domain-events-" + subscriber.getClass().getSimpleName())
+                    .daemon(true)
+                    .unstarted(this);
+        }
+
+        @Override
+        public void run() {
+            long next = consumed.get() + 1;
+            int tries = 0;
+            while (true) {
+                if (!isPublished(next)) {
+                    // Exit once closed and every claimed sequence has been handled
+                    if (!running && next >= claimed.get()) {
+                        return;
+                    }
+                    idle(tries++);
+                    continue;
+                }
+                tries = 0;
+                long last = next;
+                while (isPublished(last + 1)) {
+                    last++;
+                }
+                for (long sequence = next; sequence <= last; sequence++) {
+                    Slot slot = slots[(int) sequence & mask];
+                    try {
+                        subscriber.onEvent(slot.machineId, slot.sessionId, slot.event, sequence == last);
+                    } catch (RuntimeException e) {
+                        log.error("Subscriber {} failed on {}", subscriber.getClass().getSimpleName(), slot.event, e);
+                    }
+                }
+                consumed.set(last);
+                next = last + 1;
+            }
+        }
+
+        private boolean isPublished(long sequence) {
+            return published.get((int) sequence & mask) == sequence;
+        }
+    }
+}
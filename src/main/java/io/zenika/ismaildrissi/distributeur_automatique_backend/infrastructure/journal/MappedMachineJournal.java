@@ -0,0 +1,626 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.journal;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.CoinsDeposited;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.MachineState;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.MachineJournal;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * {@link MachineJournal} keeping, for every machine, a snapshot file and a memory-mapped
+ * journal file of fixed size.
+ *
+ * <p>Events are appended to the mapped journal by the thread that changed the machine, under
+ * a lock of that machine only: an append is a copy into memory, and the mapped pages are
+ * forced to disk in one batch by {@link #flush()} on a fixed delay. A record is
+ * {@code length | generation | crc32 | payload} and is followed by an empty length marking the
+ * tail; replay stops at the first record that is empty, torn or of another generation.</p>
+ *
+ * <p>Every snapshot starts a new generation. The journal file is split in two halves, and the
+ * records of a generation go to the half of its parity. A snapshot is taken when a machine is
+ * attached and, on the flush thread, once {@code snapshot-interval} records or half of a half
+ * have been appended: the state is captured and appends move to the other half under the lock,
+ * then the snapshot is written to a temporary file, renamed over the previous one and the
+ * directory synced, without the lock. Until the rename, replay continues from the records of
+ * the previous generation into those of the new one, so nothing appended meanwhile is lost.
+ * Publishing never waits on a snapshot nor throws: an event that no longer fits in its half is
+ * kept in memory and written by the next snapshot.</p>
+ *
+ * <p>A machine evicted from memory is detached: its journal is forced and snapshotted, then
+ * dropped, so the mapped memory of the journals is bounded by the machines in memory rather
+ * than by every machine ever loaded.</p>
+ */
+@Repository
+public class MappedMachineJournal implements MachineJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedMachineJournal.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x564d534e;
+
+    private static final byte PRODUCT_DISPENSED = 1;
+
+    private static final byte CHANGE_DISPENSED = 2;
+
+    private static final byte COINS_DEPOSITED = 3;
+
+    /** Length, generation and checksum of a record */
+    private static final int RECORD_HEADER_BYTES = 12;
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private static final Pattern SAFE_FILE_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    private final int snapshotInterval;
+
+    /** Journals opened by this process, by machine id */
+    private final ConcurrentMap<String, Journal> journals = new ConcurrentHashMap<>();
+
+    public MappedMachineJournal(@Value("${vending-machine.journal.dir:data/journal}") Path directory,
+                                @Value("${vending-machine.journal.segment-bytes:1048576}") int segmentBytes,
+                                @Value("${vending-machine.journal.snapshot-interval:10000}") int snapshotInterval) {
+        if (segmentBytes < 4096 || snapshotInterval < 1) {
+            throw new IllegalArgumentException("Journal segments must hold at least 4096 bytes and one record");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.snapshotInterval = snapshotInterval;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal directory " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<MachineState> recover(String machineId) {
+        Journal journal = journals.get(machineId);
+        if (journal != null) {
+            return Optional.of(journal.state());
+        }
+        return readSnapshot(directory.resolve(fileName(machineId) + SNAPSHOT_SUFFIX)).map(this::replay);
+    }
+
+    @Override
+    public Map<String, MachineState> recoverAll() {
+        Map<String, MachineState> states = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .forEach(file -> readSnapshot(file).ifPresent(snapshot -> states.put(snapshot.machineId(), replay(snapshot))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal directory " + directory, e);
+        }
+        return states;
+    }
+
+    @Override
+    public DomainEventPublisher attach(String machineId, MachineState state) {
+        Journal journal = journals.computeIfAbsent(machineId, Journal::new);
+        journal.start(state);
+        return journal::append;
+    }
+
+    @Override
+    public void detach(String machineId) {
+        Journal journal = journals.remove(machineId);
+        if (journal != null) {
+            journal.stop();
+        }
+    }
+
+    /**
+     * Forces the journal pages written since the last flush to disk, and takes the snapshots
+     * the appends called for.
+     */
+    @Scheduled(fixedDelayString = "${vending-machine.journal.flush-interval:PT0.05S}")
+    public void flush() {
+        for (Journal journal : journals.values()) {
+            journal.force();
+            journal.snapshot(false);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private MachineState replay(Snapshot snapshot) {
+        Map<ProductId, Integer> stock = new LinkedHashMap<>(snapshot.stock());
+        int[] coins = snapshot.coins().clone();
+        Path file = directory.resolve(fileName(snapshot.machineId()) + JOURNAL_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer journal = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int half = (int) (channel.size() / 2);
+            // Records appended after the next snapshot was captured, if it was never written, follow in the other half
+            for (int generation = snapshot.generation(); generation <= snapshot.generation() + 1; generation++) {
+                ByteBuffer records = journal.slice((generation & 1) * half, half);
+                if (!replay(records, generation, stock, coins)) {
+                    break;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Crashed between the snapshot and the first record: the snapshot is the state
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal " + file, e);
+        }
+        return new MachineState(stock, coinList(coins));
+    }
+
+    /**
+     * Applies the records of a generation, up to the tail.
+     *
+     * @return false if replay stopped at a record that is not empty, such as a torn one
+     */
+    private static boolean replay(ByteBuffer records, int generation, Map<ProductId, Integer> stock, int[] coins) {
+        CRC32 crc = new CRC32();
+        while (records.remaining() >= RECORD_HEADER_BYTES) {
+            int length = records.getInt();
+            int recordGeneration = records.getInt();
+            int checksum = records.getInt();
+            if (length == 0) {
+                return true;
+            }
+            if (length < 0 || length > records.remaining() || recordGeneration != generation) {
+                return false;
+            }
+            ByteBuffer payload = records.slice(records.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return false;
+            }
+            apply(payload, stock, coins);
+            records.position(records.position() + length);
+        }
+        return true;
+    }
+
+    private static void apply(ByteBuffer payload, Map<ProductId, Integer> stock, int[] coins) {
+        byte type = payload.get();
+        if (type == PRODUCT_DISPENSED) {
+            ProductId productId = new ProductId(new UUID(payload.getLong(), payload.getLong()));
+            stock.merge(productId, -payload.getInt(), Integer::sum);
+        } else if (type == CHANGE_DISPENSED) {
+            while (payload.hasRemaining()) {
+                coins[payload.get()]--;
+            }
+        } else if (type == COINS_DEPOSITED) {
+            while (payload.hasRemaining()) {
+                coins[payload.get()]++;
+            }
+        }
+    }
+
+    private Optional<Snapshot> readSnapshot(Path file) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+        CRC32 crc = new CRC32();
+        if (bytes.length < Long.BYTES) {
+            log.warn("Ignoring truncated snapshot {}", file);
+            return Optional.empty();
+        }
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong() != crc.getValue()) {
+            log.warn("Ignoring corrupted snapshot {}", file);
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                log.warn("Ignoring unknown snapshot format {}", file);
+                return Optional.empty();
+            }
+            String machineId = in.readUTF();
+            int generation = in.readInt();
+            Map<ProductId, Integer> stock = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                stock.put(new ProductId(new UUID(in.readLong(), in.readLong())), in.readInt());
+            }
+            int[] coins = new int[in.readInt()];
+            for (int i = 0; i < coins.length; i++) {
+                coins[i] = in.readInt();
+            }
+            return Optional.of(new Snapshot(machineId, generation, stock, coins));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+    }
+
+    private static String fileName(String machineId) {
+        if (SAFE_FILE_NAME.matcher(machineId).matches()) {
+            return machineId;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(machineId.getBytes(StandardCharsets.UTF_8));
+            return "machine-" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int[] coinCounts(List<Money> coins) {
+        int[] counts = new int[Money.denominations().size()];
+        coins.forEach(coin -> counts[coin.index()]++);
+        return counts;
+    }
+
+    private static List<Money> coinList(int[] counts) {
+        List<Money> coins = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            for (int n = 0; n < counts[i]; n++) {
+                coins.add(Money.denominations().get(i));
+            }
+        }
+        return coins;
+    }
+
+    /** Content of a snapshot file */
+    private record Snapshot(String machineId, int generation, Map<ProductId, Integer> stock, int[] coins) {
+    }
+
+    /**
+     * Journal of one machine, with the state it has recorded so far.
+     */
+    private final class Journal {
+
+        private final String machineId;
+
+        private final Path snapshotFile;
+
+        private final Path journalFile;
+
+        /** Guards the buffer and the state; not a monitor, so appending never pins a virtual thread */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** Serializes the writes of the snapshot file; taken before the lock, never after */
+        private final ReentrantLock snapshotLock = new ReentrantLock();
+
+        private final CRC32 crc = new CRC32();
+
+        private final MappedByteBuffer buffer;
+
+        /** Size of each half of the journal file */
+        private final int half;
+
+        /** State as of the last event appended */
+        private Map<ProductId, Integer> stock = new LinkedHashMap<>();
+
+        private int[] coins = new int[Money.denominations().size()];
+
+        /** Generation of the records being appended, that of the last snapshot captured */
+        private int generation;
+
+        /** Records appended since the last snapshot */
+        private int records;
+
+        /** Whether an event did not fit in the journal and is only kept by the next snapshot */
+        private boolean overflowed;
+
+        /** Set by appends once a snapshot should be taken by the flush thread */
+        private volatile boolean snapshotDue;
+
+        /** Snapshot captured but not written yet; guarded by the snapshot lock */
+        private byte[] pendingSnapshot;
+
+        /** Whether records were appended since the last flush */
+        private volatile boolean dirty;
+
+        /** Set once the machine is detached; guarded by the lock */
+        private boolean stopped;
+
+        private Journal(String machineId) {
+            this.machineId = machineId;
+            String name = fileName(machineId);
+            this.snapshotFile = directory.resolve(name + SNAPSHOT_SUFFIX);
+            this.journalFile = directory.resolve(name + JOURNAL_SUFFIX);
+            this.generation = readSnapshot(snapshotFile).map(Snapshot::generation).orElse(0);
+            try (FileChannel channel = FileChannel.open(journalFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map journal " + journalFile, e);
+            }
+            this.half = segmentBytes / 2;
+        }
+
+        /**
+         * Snapshots the given state before any event is appended. Unlike the periodic snapshots,
+         * it is written before the appends move to the next half, which may still hold the only
+         * copy of records of an earlier run whose snapshot was never written.
+         */
+        private void start(MachineState state) {
+            snapshotLock.lock();
+            try {
+                if (pendingSnapshot != null) {
+                    writeSnapshot(pendingSnapshot);
+                    pendingSnapshot = null;
+                }
+                lock.lock();
+                try {
+                    stock = new LinkedHashMap<>(state.stock());
+                    coins = coinCounts(state.coins());
+                    byte[] snapshot = serialize(generation + 1);
+                    writeSnapshot(snapshot);
+                    rewind(generation + 1);
+                } finally {
+                    lock.unlock();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write snapshot " + snapshotFile, e);
+            } finally {
+                snapshotLock.unlock();
+            }
+        }
+
+        private MachineState state() {
+            lock.lock();
+            try {
+                return new MachineState(stock, coinList(coins));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Records an event on the thread that published it. Only copies into the mapped buffer:
+         * the snapshots it calls for are taken by the flush thread.
+         */
+        private void append(DomainEvent event) {
+            int payloadBytes = switch (event) {
+                case ProductDispensed dispensed -> 1 + 2 * Long.BYTES + Integer.BYTES;
+                case ChangeDispensed change -> 1 + change.coins().size();
+                case CoinsDeposited deposited -> 1 + deposited.coins().size();
+                default -> 0;
+            };
+            if (payloadBytes == 0) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (stopped) {
+                    log.warn("Not journaling {} of detached machine {}", event.getClass().getSimpleName(), machineId);
+                    return;
+                }
+                if (overflowed || buffer.remaining() < RECORD_HEADER_BYTES + payloadBytes + Integer.BYTES) {
+                    if (!overflowed) {
+                        log.warn("Journal of machine {} is full, keeping its events for the next snapshot", machineId);
+                        overflowed = true;
+                    }
+                    applyToState(event);
+                } else {
+                    writeRecord(event, payloadBytes);
+                }
+                if (overflowed || records >= snapshotInterval || buffer.position() % half >= half / 2) {
+                    snapshotDue = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Appends the record of an event and applies it to the state; the lock must be held */
+        private void writeRecord(DomainEvent event, int payloadBytes) {
+            int start = buffer.position();
+            int payloadStart = start + RECORD_HEADER_BYTES;
+            // The new tail is marked before the record becomes visible
+            buffer.putInt(payloadStart + payloadBytes, 0);
+            buffer.position(payloadStart);
+            switch (event) {
+                case ProductDispensed dispensed -> buffer.put(PRODUCT_DISPENSED)
+                        .putLong(dispensed.productId().id().getMostSignificantBits())
+                        .putLong(dispensed.productId().id().getLeastSignificantBits())
+                        .putInt(dispensed.quantity());
+                case ChangeDispensed change -> {
+                    buffer.put(CHANGE_DISPENSED);
+                    change.coins().forEach(coin -> buffer.put((byte) coin.index()));
+                }
+                case CoinsDeposited deposited -> {
+                    buffer.put(COINS_DEPOSITED);
+                    deposited.coins().forEach(coin -> buffer.put((byte) coin.index()));
+                }
+                default -> throw new IllegalStateException("Unexpected event " + event);
+            }
+            crc.reset();
+            crc.update(buffer.slice(payloadStart, payloadBytes));
+            // The length goes last: a record is only visible once complete
+            buffer.putInt(start + Integer.BYTES, generation)
+                    .putInt(start + 2 * Integer.BYTES, (int) crc.getValue())
+                    .putInt(start, payloadBytes);
+            applyToState(event);
+            records++;
+            dirty = true;
+        }
+
+        private void applyToState(DomainEvent event) {
+            switch (event) {
+                case ProductDispensed dispensed -> stock.merge(dispensed.productId(), -dispensed.quantity(), Integer::sum);
+                case ChangeDispensed change -> change.coins().forEach(coin -> coins[coin.index()]--);
+                case CoinsDeposited deposited -> deposited.coins().forEach(coin -> coins[coin.index()]++);
+                default -> throw new IllegalStateException("Unexpected event " + event);
+            }
+        }
+
+        private void force() {
+            if (dirty) {
+                dirty = false;
+                buffer.force();
+            }
+        }
+
+        /**
+         * Takes the snapshot called for by the appends, or writes the one a previous flush
+         * could not write. A failure is logged and retried on the next flush.
+         *
+         * @param always whether to snapshot even if no append called for it
+         * @return false if a snapshot is still waiting to be written
+         */
+        private boolean snapshot(boolean always) {
+            snapshotLock.lock();
+            try {
+                if (pendingSnapshot == null) {
+                    lock.lock();
+                    try {
+                        if (!always && !snapshotDue) {
+                            return true;
+                        }
+                        // The previous snapshot is written, so the other half only holds obsolete records
+                        pendingSnapshot = serialize(generation + 1);
+                        rewind(generation + 1);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                writeSnapshot(pendingSnapshot);
+                pendingSnapshot = null;
+                return true;
+            } catch (IOException e) {
+                log.warn("Could not write snapshot {}, retrying on next flush", snapshotFile, e);
+                return false;
+            } finally {
+                snapshotLock.unlock();
+            }
+        }
+
+        /**
+         * Forces the records appended so far and snapshots them, after which nothing is appended.
+         * The mapping is released with the journal, once it is no longer referenced.
+         */
+        private void stop() {
+            lock.lock();
+            try {
+                stopped = true;
+                dirty = false;
+                buffer.force();
+            } catch (UncheckedIOException e) {
+                log.warn("Could not force the journal of detached machine {}", machineId, e);
+            } finally {
+                lock.unlock();
+            }
+            if (snapshot(false)) {
+                boolean unsnapshotted;
+                lock.lock();
+                try {
+                    unsnapshotted = records > 0 || overflowed;
+                } finally {
+                    lock.unlock();
+                }
+                if (unsnapshotted) {
+                    snapshot(true);
+                }
+            }
+        }
+
+        /** Writes the current state as the given generation; the lock must be held */
+        private byte[] serialize(int next) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeUTF(machineId);
+                out.writeInt(next);
+                out.writeInt(stock.size());
+                for (Map.Entry<ProductId, Integer> entry : stock.entrySet()) {
+                    out.writeLong(entry.getKey().id().getMostSignificantBits());
+                    out.writeLong(entry.getKey().id().getLeastSignificantBits());
+                    out.writeInt(entry.getValue());
+                }
+                out.writeInt(coins.length);
+                for (int count : coins) {
+                    out.writeInt(count);
+                }
+                CRC32 checksum = new CRC32();
+                checksum.update(bytes.toByteArray());
+                out.writeLong(checksum.getValue());
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** Moves the appends to the start of the half of the given generation; the lock must be held */
+        private void rewind(int next) {
+            int start = half(next);
+            buffer.limit(start + half).position(start);
+            buffer.putInt(start, 0);
+            generation = next;
+            records = 0;
+            overflowed = false;
+            snapshotDue = false;
+        }
+
+        /** Writes a snapshot to a temporary file and renames it over the previous one, durably */
+        private void writeSnapshot(byte[] snapshot) throws IOException {
+            Path temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(snapshot));
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // The rename is only durable once the directory entry is
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                // Directories cannot be opened on every platform, Windows among them
+                log.debug("Cannot sync journal directory {}", directory, e);
+            }
+        }
+
+        private int half(int generation) {
+            return (generation & 1) * half;
+        }
+    }
+}
@@ -3,27 +3,24 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.m
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.ProductEntity;
-import lombok.AllArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
 @Component
-@AllArgsConstructor
 public class ProductMapper {
 
-    ModelMapper modelMapper;
-
     public Product toDomain(ProductEntity productEntity) {
-        Product product = new Product(productEntity.getName(), productEntity.getPrice(), new ProductId(productEntity.getId()), productEntity.getQuantity());
+        Product product = new Product(productEntity.getName(), productEntity.getPrice(), new ProductId(productEntity.getId()), productEntity.getQuantity(), productEntity.getVersion());
         return product;
     }
 
-    public ProductEntity toEntity(Product product) {
+    public ProductEntity toEntity(Product product, String machineId) {
         ProductEntity productEntity = new ProductEntity();
         productEntity.setId(product.productId().id());
         productEntity.setName(product.name());
         productEntity.setPrice(product.price());
         productEntity.setQuantity(product.quantity());
+        productEntity.setMachineId(machineId);
+        productEntity.setVersion(product.version());
 
         return productEntity;
     }
@@ -0,0 +1,26 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.mapper;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.TransactionEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+@Component
+public class TransactionMapper {
+
+    public Transaction toDomain(TransactionEntity transactionEntity) {
+        return Transaction.restore(transactionEntity.getId(), transactionEntity.getStatus());
+    }
+
+    public TransactionEntity toEntity(Transaction transaction) {
+        return new TransactionEntity(
+                transaction.id(),
+                transaction.status(),
+                transaction.insertedAmount(),
+                transaction.totalPrice(),
+                transaction.selectedProducts().size(),
+                Instant.now()
+        );
+    }
+}
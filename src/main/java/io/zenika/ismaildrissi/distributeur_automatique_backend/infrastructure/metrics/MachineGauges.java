@@ -0,0 +1,68 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gauges of the stock and coins of every machine held in memory.
+ *
+ * <p>{@code vending.stock} has one row per machine and product, {@code vending.coins} one row
+ * per machine and denomination. A row reads the live counter of the aggregate when it is
+ * scraped, so purchases never touch the gauges. The set of rows follows the machines loaded and
+ * evicted by the {@link VendingMachineRegistry}; it is refreshed every
+ * {@code vending-machine.metrics.gauge-refresh} (10 seconds by default).</p>
+ */
+public class MachineGauges {
+
+    private final VendingMachineRegistry vendingMachines;
+
+    private final MultiGauge stock;
+
+    private final MultiGauge coins;
+
+    /**
+     * Constructs the gauges and registers the rows of the machines already loaded.
+     *
+     * @param vendingMachines the machines to report on
+     * @param registry the registry of the gauges
+     */
+    public MachineGauges(VendingMachineRegistry vendingMachines, MeterRegistry registry) {
+        this.vendingMachines = vendingMachines;
+        this.stock = MultiGauge.builder("vending.stock")
+                .description("Units in stock per machine and product")
+                .register(registry);
+        this.coins = MultiGauge.builder("vending.coins")
+                .description("Coins for change per machine and denomination")
+                .register(registry);
+        refresh();
+    }
+
+    /**
+     * Registers the rows of the machines currently loaded and removes those of evicted machines.
+     */
+    @Scheduled(fixedDelayString = "${vending-machine.metrics.gauge-refresh:PT10S}")
+    public void refresh() {
+        List<MultiGauge.Row<?>> stockRows = new ArrayList<>();
+        List<MultiGauge.Row<?>> coinRows = new ArrayList<>();
+        vendingMachines.forEachLoaded((machineId, machine) -> {
+            for (Product product : machine.getAllProducts()) {
+                stockRows.add(MultiGauge.Row.of(Tags.of("machine", machineId, "product", product.name()),
+                        product, Product::quantity));
+            }
+            for (Money coin : Money.denominations()) {
+                coinRows.add(MultiGauge.Row.of(Tags.of("machine", machineId, "denomination", String.valueOf(coin.value())),
+                        machine, m -> m.coinCount(coin)));
+            }
+        });
+        stock.register(stockRows, true);
+        coins.register(coinRows, true);
+    }
+}
@@ -0,0 +1,61 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ChangeCalculator} timing the change plans of the machines.
+ *
+ * <p>Every plan is recorded in the {@code vending.change.calculation} timer, tagged with the
+ * strategy and with the outcome: {@code exact} when change was planned, {@code unavailable}
+ * when the coins could not make it. The count of the {@code unavailable} timer is the number of
+ * failed change calculations. Machines plan the change when dispensing it, and when checking
+ * an amount the payable amounts of their inventory cannot answer.</p>
+ */
+public class MeteredChangeCalculator implements ChangeCalculator {
+
+    static final String TIMER = "vending.change.calculation";
+
+    private final ChangeCalculator delegate;
+
+    private final Timer exact;
+
+    private final Timer unavailable;
+
+    /**
+     * Constructs a calculator timing the plans of the delegate.
+     *
+     * @param delegate the calculator planning the change
+     * @param strategy the name of the strategy of the delegate, used as a tag
+     * @param registry the registry of the timers
+     */
+    public MeteredChangeCalculator(ChangeCalculator delegate, String strategy, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.exact = timer(registry, strategy, "exact");
+        this.unavailable = timer(registry, strategy, "unavailable");
+    }
+
+    private static Timer timer(MeterRegistry registry, String strategy, String outcome) {
+        return Timer.builder(TIMER)
+                .description("Change plans of the machines")
+                .tag("strategy", strategy)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @Override
+    public int[] calculateChange(long changeAmount, int[] available) {
+        long start = System.nanoTime();
+        int[] plan = delegate.calculateChange(changeAmount, available);
+        (plan != null ? exact : unavailable).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return plan;
+    }
+
+    @Override
+    public boolean findsEveryExactChange() {
+        return delegate.findsEveryExactChange();
+    }
+}
@@ -0,0 +1,114 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link TransactionService} timing the steps of a purchase.
+ *
+ * <p>Inserting money, selecting a product, completing and cancelling an order, and one-shot
+ * purchases are recorded in the {@code vending.transaction} timer, tagged with the operation and with the exception
+ * it failed with, or {@code none}. A timer also counts its calls, so the number of orders
+ * refused because their change could not be given is the count of
+ * {@code operation=complete_order, exception=ChangeNotAvailableException}. The other
+ * operations are passed through untimed.</p>
+ */
+public class MeteredTransactionService implements TransactionService {
+
+    static final String TIMER = "vending.transaction";
+
+    private final TransactionService delegate;
+
+    private final OperationTimer insertMoney;
+
+    private final OperationTimer selectProduct;
+
+    private final OperationTimer completeOrder;
+
+    private final OperationTimer cancelOrder;
+
+    private final OperationTimer purchase;
+
+    /**
+     * Constructs a service timing the purchase steps of the delegate.
+     *
+     * @param delegate the service performing the operations
+     * @param registry the registry of the timers
+     */
+    public MeteredTransactionService(TransactionService delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.insertMoney = timer(registry, "insert_money");
+        this.selectProduct = timer(registry, "select_product");
+        this.completeOrder = timer(registry, "complete_order");
+        this.cancelOrder = timer(registry, "cancel_order");
+        this.purchase = timer(registry, "purchase");
+    }
+
+    private static OperationTimer timer(MeterRegistry registry, String operation) {
+        return new OperationTimer(registry, TIMER, "Steps of a purchase", Tags.of("operation", operation));
+    }
+
+    @Override
+    public void insertMoney(String machineId, String sessionId, MoneyDTO money) {
+        insertMoney.record(() -> delegate.insertMoney(machineId, sessionId, money));
+    }
+
+    @Override
+    public OrderDTO completeOrder(String machineId, String sessionId) {
+        return completeOrder.record(() -> delegate.completeOrder(machineId, sessionId));
+    }
+
+    @Override
+    public OrderDTO purchase(String machineId, String sessionId, PurchaseDTO purchase) {
+        return this.purchase.record(() -> delegate.purchase(machineId, sessionId, purchase));
+    }
+
+    @Override
+    public boolean changeAvailable(String machineId, String sessionId, UUID productId) {
+        return delegate.changeAvailable(machineId, sessionId, productId);
+    }
+
+    @Override
+    public MoneyDTO totalInsertedAmount(String machineId, String sessionId) {
+        return delegate.totalInsertedAmount(machineId, sessionId);
+    }
+
+    @Override
+    public List<ProductDTO> affordableProducts(String machineId, String sessionId) {
+        return delegate.affordableProducts(machineId, sessionId);
+    }
+
+    @Override
+    public void selectProduct(String machineId, String sessionId, UUID productId) {
+        selectProduct.record(() -> delegate.selectProduct(machineId, sessionId, productId));
+    }
+
+    @Override
+    public void unselectProduct(String machineId, String sessionId, UUID productId) {
+        delegate.unselectProduct(machineId, sessionId, productId);
+    }
+
+    @Override
+    public OrderDTO cancelOrder(String machineId, String sessionId) {
+        return cancelOrder.record(() -> delegate.cancelOrder(machineId, sessionId));
+    }
+
+    @Override
+    public List<SelectedProductDTO> selectedProducts(String machineId, String sessionId) {
+        return delegate.selectedProducts(machineId, sessionId);
+    }
+
+    @Override
+    public List<SelectedProductDTO> getSelectedProducst(String machineId, String sessionId) {
+        return delegate.getSelectedProducst(machineId, sessionId);
+    }
+}
@@ -0,0 +1,112 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link VendingMachineRepository} timing every call to the product store.
+ *
+ * <p>Calls are recorded in the {@code vending.repository} timer, tagged with the method and with
+ * the exception it failed with, or {@code none}. Overloads share the timer of their method.</p>
+ */
+public class MeteredVendingMachineRepository implements VendingMachineRepository {
+
+    static final String TIMER = "vending.repository";
+
+    private final VendingMachineRepository delegate;
+
+    private final OperationTimer findProductById;
+
+    private final OperationTimer findAllProducts;
+
+    private final OperationTimer saveProduct;
+
+    private final OperationTimer updateProduct;
+
+    private final OperationTimer decrementStock;
+
+    private final OperationTimer reserveStock;
+
+    private final OperationTimer deleteProductById;
+
+    private final OperationTimer productExistsById;
+
+    /**
+     * Constructs a repository timing the calls to the delegate.
+     *
+     * @param delegate the repository storing the products
+     * @param registry the registry of the timers
+     */
+    public MeteredVendingMachineRepository(VendingMachineRepository delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.findProductById = timer(registry, "findProductById");
+        this.findAllProducts = timer(registry, "findAllProducts");
+        this.saveProduct = timer(registry, "saveProduct");
+        this.updateProduct = timer(registry, "updateProduct");
+        this.decrementStock = timer(registry, "decrementStock");
+        this.reserveStock = timer(registry, "reserveStock");
+        this.deleteProductById = timer(registry, "deleteProductById");
+        this.productExistsById = timer(registry, "productExistsById");
+    }
+
+    private static OperationTimer timer(MeterRegistry registry, String method) {
+        return new OperationTimer(registry, TIMER, "Calls to the product store", Tags.of("method", method));
+    }
+
+    @Override
+    public Optional<Product> findProductById(ProductId productId) {
+        return findProductById.record(() -> delegate.findProductById(productId));
+    }
+
+    @Override
+    public List<Product> findAllProducts() {
+        return findAllProducts.record(() -> delegate.findAllProducts());
+    }
+
+    @Override
+    public List<Product> findAllProducts(String machineId) {
+        return findAllProducts.record(() -> delegate.findAllProducts(machineId));
+    }
+
+    @Override
+    public Product saveProduct(Product product) {
+        return saveProduct.record(() -> delegate.saveProduct(product));
+    }
+
+    @Override
+    public Product saveProduct(String machineId, Product product) {
+        return saveProduct.record(() -> delegate.saveProduct(machineId, product));
+    }
+
+    @Override
+    public Product updateProduct(Product product) {
+        return updateProduct.record(() -> delegate.updateProduct(product));
+    }
+
+    @Override
+    public void decrementStock(Map<ProductId, Integer> quantities) {
+        decrementStock.record(() -> delegate.decrementStock(quantities));
+    }
+
+    @Override
+    public void reserveStock(Map<ProductId, Integer> quantities) {
+        reserveStock.record(() -> delegate.reserveStock(quantities));
+    }
+
+    @Override
+    public void deleteProductById(ProductId productId) {
+        deleteProductById.record(() -> delegate.deleteProductById(productId));
+    }
+
+    @Override
+    public boolean productExistsById(ProductId productId) {
+        return productExistsById.record(() -> delegate.productExistsById(productId));
+    }
+}
@@ -0,0 +1,71 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timer of one operation, tagged with the exception it failed with, if any.
+ *
+ * <p>The timer of successful calls is registered up front and the timer of each exception
+ * type the first time it is thrown, so recording a call is a clock read and an update of an
+ * existing timer: no meter lookup or tag allocation happens on the hot path.</p>
+ */
+final class OperationTimer {
+
+    /** Tag value of the calls that did not throw */
+    static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry registry;
+
+    private final String name;
+
+    private final String description;
+
+    private final Tags tags;
+
+    private final Timer success;
+
+    private final Map<Class<?>, Timer> failures = new ConcurrentHashMap<>();
+
+    OperationTimer(MeterRegistry registry, String name, String description, Tags tags) {
+        this.registry = registry;
+        this.name = name;
+        this.description = description;
+        this.tags = tags;
+        this.success = timer(NO_EXCEPTION);
+    }
+
+    <T> T record(Supplier<T> operation) {
+        long start = System.nanoTime();
+        try {
+            T result = operation.get();
+            success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException e) {
+            failures.computeIfAbsent(e.getClass(), type -> timer(type.getSimpleName()))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    void record(Runnable operation) {
+        record(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private Timer timer(String exception) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag("exception", exception)
+                .register(registry);
+    }
+}
@@ -0,0 +1,61 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.CoinInventoryRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.CoinInventoryEntity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa.SpringDataCoinInventoryRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@AllArgsConstructor
+public class CoinInventoryRepositoryImpl implements CoinInventoryRepository {
+    static final String ADJUST_COUNT_SQL =
+            "UPDATE coin_inventory_entity SET coin_count = coin_count + ? WHERE machine_id = ? AND denomination = ?";
+
+    SpringDataCoinInventoryRepository springDataCoinInventoryRepository;
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<int[]> findCounts(String machineId) {
+        List<CoinInventoryEntity> entities = springDataCoinInventoryRepository.findByMachineId(machineId);
+        if (entities.isEmpty()) {
+            return Optional.empty();
+        }
+        int[] counts = new int[Money.denominations().size()];
+        entities.forEach(entity -> counts[Money.ofCents(entity.getDenomination()).index()] = entity.getCount());
+        return Optional.of(counts);
+    }
+
+    @Override
+    public void saveCounts(String machineId, int[] counts) {
+        // Every denomination gets a row, so later adjustments always have one to update
+        List<CoinInventoryEntity> entities = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            entities.add(new CoinInventoryEntity(machineId, Money.denominations().get(i).cents(), counts[i]));
+        }
+        springDataCoinInventoryRepository.saveAll(entities);
+    }
+
+    // One JDBC batch for the whole map: relative updates, skipping unchanged denominations
+    @Override
+    public void adjustCounts(Map<String, int[]> deltas) {
+        List<Object[]> args = new ArrayList<>();
+        deltas.forEach((machineId, delta) -> {
+            for (int i = 0; i < delta.length; i++) {
+                if (delta[i] != 0) {
+                    args.add(new Object[]{delta[i], machineId, Money.denominations().get(i).cents()});
+                }
+            }
+        });
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADJUST_COUNT_SQL, args);
+        }
+    }
+}
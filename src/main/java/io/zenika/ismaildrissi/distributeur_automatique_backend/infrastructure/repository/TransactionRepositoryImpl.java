@@ -0,0 +1,197 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.TransactionEntity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.mapper.TransactionMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa.SpringDataTransactionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Two-tier implementation of the {@link TransactionRepository}.
+ *
+ * <p>Transactions that are still {@link TransactionStatus#IN_PROGRESS} only live in an
+ * in-memory hot tier, so the purchase path never waits on the database. Once a transaction
+ * is completed or cancelled it moves to a write-behind buffer that is flushed to the
+ * {@link TransactionEntity} table in JDBC batches, keeping a durable history.</p>
+ *
+ * <p>When a batch fails, its rows are retried one by one so that a single bad row does not
+ * hold back the others. A row still failing after {@code max-write-attempts} flushes is
+ * dead-lettered: it is logged in full at error level and dropped from the buffer.</p>
+ *
+ * <p>Both tiers are {@link ConcurrentHashMap}s, so concurrent sessions only contend on the
+ * bin of their own transaction id.</p>
+ */
+@Repository
+public class TransactionRepositoryImpl implements TransactionRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionRepositoryImpl.class);
+
+    private final SpringDataTransactionRepository springDataTransactionRepository;
+    private final TransactionMapper transactionMapper;
+    private final int flushBatchSize;
+    private final int maxWriteAttempts;
+
+    /** Hot tier: transactions still in progress */
+    private final ConcurrentMap<String, Transaction> active = new ConcurrentHashMap<>();
+
+    /** Closed transactions waiting to be written, still readable until flushed */
+    private final ConcurrentMap<String, Transaction> pending = new ConcurrentHashMap<>();
+
+    /** History rows of the pending transactions, in write order */
+    private final Queue<TransactionEntity> writeQueue = new ConcurrentLinkedQueue<>();
+
+    /** Failed writes of the history rows being retried, by transaction id */
+    private final ConcurrentMap<String, Integer> failedWrites = new ConcurrentHashMap<>();
+
+    public TransactionRepositoryImpl(SpringDataTransactionRepository springDataTransactionRepository,
+                                     TransactionMapper transactionMapper,
+                                     @Value("${vending-machine.transactions.flush-batch-size:100}") int flushBatchSize,
+                                     @Value("${vending-machine.transactions.max-write-attempts:10}") int maxWriteAttempts) {
+        this.springDataTransactionRepository = springDataTransactionRepository;
+        this.transactionMapper = transactionMapper;
+        this.flushBatchSize = flushBatchSize;
+        this.maxWriteAttempts = maxWriteAttempts;
+    }
+
+    @Override
+    public void save(Transaction transaction) {
+        if (transaction.status() == TransactionStatus.IN_PROGRESS) {
+            active.put(transaction.id(), transaction);
+            return;
+        }
+        active.remove(transaction.id());
+        if (pending.put(transaction.id(), transaction) == null) {
+            writeQueue.add(transactionMapper.toEntity(transaction));
+        }
+    }
+
+    @Override
+    public Optional<Transaction> findById(String transactionId) {
+        Transaction transaction = active.get(transactionId);
+        if (transaction == null) {
+            transaction = pending.get(transactionId);
+        }
+        if (transaction != null) {
+            return Optional.of(transaction);
+        }
+        return springDataTransactionRepository.findById(transactionId).map(transactionMapper::toDomain);
+    }
+
+    @Override
+    public void deleteById(String transactionId) {
+        active.remove(transactionId);
+        pending.remove(transactionId);
+        failedWrites.remove(transactionId);
+        springDataTransactionRepository.deleteById(transactionId);
+    }
+
+    @Override
+    public boolean existsById(String transactionId) {
+        return active.containsKey(transactionId)
+                || pending.containsKey(transactionId)
+                || springDataTransactionRepository.existsById(transactionId);
+    }
+
+    /**
+     * Writes the closed transactions accumulated since the last flush, one batch at a time.
+     */
+    @Scheduled(fixedDelayString = "${vending-machine.transactions.flush-interval:PT1S}")
+    public void flush() {
+        List<TransactionEntity> batch = new ArrayList<>(flushBatchSize);
+        // Rows that failed are queued again once this flush is over, so each flush tries them once
+        List<TransactionEntity> retries = new ArrayList<>();
+        try {
+            TransactionEntity entity;
+            while ((entity = writeQueue.poll()) != null) {
+                // Skip transactions deleted while waiting in the queue
+                if (pending.containsKey(entity.getId())) {
+                    batch.add(entity);
+                }
+                if (batch.size() == flushBatchSize) {
+                    if (!write(batch, retries)) {
+                        return;
+                    }
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch, retries);
+            }
+        } finally {
+            writeQueue.addAll(retries);
+        }
+    }
+
+    /**
+     * Flushes the remaining history before the application stops.
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Returns the number of closed transactions not yet written to the database.
+     *
+     * @return the write-behind backlog
+     */
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    private boolean write(List<TransactionEntity> batch, List<TransactionEntity> retries) {
+        try {
+            springDataTransactionRepository.saveAll(batch);
+            batch.forEach(this::written);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} transactions to the history, retrying them one by one", batch.size(), e);
+        }
+        boolean anyWritten = false;
+        for (TransactionEntity row : batch) {
+            // saveAll runs in a single transaction, so no row of the failed batch was committed
+            row.setNewEntity(true);
+            try {
+                springDataTransactionRepository.save(row);
+                written(row);
+                anyWritten = true;
+            } catch (RuntimeException e) {
+                failed(row, e, retries);
+            }
+        }
+        return anyWritten;
+    }
+
+    private void written(TransactionEntity row) {
+        pending.remove(row.getId());
+        failedWrites.remove(row.getId());
+    }
+
+    private void failed(TransactionEntity row, RuntimeException e, List<TransactionEntity> retries) {
+        int attempts = failedWrites.merge(row.getId(), 1, Integer::sum);
+        if (attempts < maxWriteAttempts) {
+            log.warn("Could not write transaction {} to the history (attempt {} of {}), retrying on next flush: {}",
+                    row.getId(), attempts, maxWriteAttempts, e.toString());
+            retries.add(row);
+            return;
+        }
+        log.error("Dropping transaction {} from the history after {} failed writes: {}", row.getId(), attempts, row, e);
+        pending.remove(row.getId());
+        failedWrites.remove(row.getId());
+    }
+}
@@ -2,21 +2,34 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.r
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.StaleProductException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.ProductEntity;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.mapper.ProductMapper;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa.SpringDataProductRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Repository
 @AllArgsConstructor
 public class VendingMachineRepositoryImpl implements VendingMachineRepository {
+    // Stock writes bump the version too, so that a catalog edit read before them is refused
+    static final String DECREMENT_STOCK_SQL = "UPDATE product_entity SET quantity = quantity - ?, version = version + 1 WHERE id = ?";
+    static final String RESERVE_STOCK_SQL = "UPDATE product_entity SET quantity = quantity - ?, version = version + 1 WHERE id = ? AND quantity >= ?";
+
     SpringDataProductRepository springDataProductRepository;
     ProductMapper productMapper;
+    JdbcTemplate jdbcTemplate;
 
     @Override
     public Optional<Product> findProductById(ProductId productId) {
@@ -26,12 +39,22 @@ public class VendingMachineRepositoryImpl implements VendingMachineRepository {
 
     @Override
     public List<Product> findAllProducts() {
-        return springDataProductRepository.findAll().stream().map(productMapper::toDomain).collect(Collectors.toList());
+        return findAllProducts(DEFAULT_MACHINE_ID);
+    }
+
+    @Override
+    public List<Product> findAllProducts(String machineId) {
+        return springDataProductRepository.findByMachineId(machineId).stream().map(productMapper::toDomain).collect(Collectors.toList());
     }
 
     @Override
     public Product saveProduct(Product product) {
-        return productMapper.toDomain(springDataProductRepository.save(productMapper.toEntity(product)));
+        return saveProduct(DEFAULT_MACHINE_ID, product);
+    }
+
+    @Override
+    public Product saveProduct(String machineId, Product product) {
+        return productMapper.toDomain(springDataProductRepository.save(productMapper.toEntity(product, machineId)));
     }
 
     @Override
@@ -46,6 +69,38 @@ public class VendingMachineRepositoryImpl implements VendingMachineRepository {
 
     @Override
     public Product updateProduct(Product product) {
-        return productMapper.toDomain(springDataProductRepository.save(productMapper.toEntity(product)));
+        // Keep the product in the machine it already belongs to
+        String machineId = springDataProductRepository.findById(product.productId().id())
+                .map(ProductEntity::getMachineId)
+                .orElse(DEFAULT_MACHINE_ID);
+        // The merge compares the version read with the stored one
+        try {
+            return productMapper.toDomain(springDataProductRepository.save(productMapper.toEntity(product, machineId)));
+        } catch (OptimisticLockingFailureException e) {
+            throw new StaleProductException("Product " + product.productId().id() + " was changed since it was read");
+        }
+    }
+
+    // One JDBC batch per order: relative decrements, no SELECT and no full-row merge
+    @Override
+    public void decrementStock(Map<ProductId, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> args.add(new Object[]{quantity, productId.id()}));
+        jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, args);
+    }
+
+    // One conditional decrement per product: an update matching no row means not enough stock,
+    // and the exception rolls back the products already reserved
+    @Override
+    @Transactional
+    public void reserveStock(Map<ProductId, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            if (jdbcTemplate.update(RESERVE_STOCK_SQL, quantity, productId.id(), quantity) == 0) {
+                throw new IllegalProductQuantity("Not enough units of product " + productId.id() + " left");
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.CoinInventoryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SpringDataCoinInventoryRepository extends JpaRepository<CoinInventoryEntity, CoinInventoryEntity.Key> {
+    List<CoinInventoryEntity> findByMachineId(String machineId);
+}
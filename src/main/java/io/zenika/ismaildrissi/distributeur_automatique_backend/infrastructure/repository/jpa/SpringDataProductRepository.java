@@ -4,8 +4,10 @@ import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.en
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface SpringDataProductRepository extends JpaRepository<ProductEntity, UUID> {
+    List<ProductEntity> findByMachineId(String machineId);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.TransactionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SpringDataTransactionRepository extends JpaRepository<TransactionEntity, String> {
+}
@@ -0,0 +1,265 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseItemDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MoneyNotYetInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCancelled;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCompleted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveTransactionServiceImplTest {
+
+    @Mock
+    private VendingMachine vendingMachine;
+
+    @Mock
+    private VendingMachineRegistry vendingMachines;
+
+    @Mock
+    private MoneyMapper moneyMapper;
+
+    @Mock
+    private SelectedProductMapper selectedProductMapper;
+
+    @Mock
+    private ProductMapperDto productMapper;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private final List<DomainEvent> events = new ArrayList<>();
+
+    private final DomainEventBus domainEventBus = (machineId, sessionId, event) -> events.add(event);
+
+    @Spy
+    private TransactionSessionRegistry sessionRegistry = new TransactionSessionRegistry(mock(TransactionRepository.class), Duration.ofMinutes(5), domainEventBus);
+
+    @Spy
+    private StockReservation stockReservation = StockReservation.local();
+
+    @InjectMocks
+    private ReactiveTransactionServiceImpl transactionService;
+
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
+    private UUID productUuid;
+    private ProductId productId;
+    private Product product;
+    private MoneyDTO moneyDTO;
+
+    @BeforeEach
+    void setUp() {
+        productUuid = UUID.randomUUID();
+        productId = new ProductId(productUuid);
+        product = new Product("Test Product", 2.0, productId, 5);
+        moneyDTO = new MoneyDTO(5.0);
+        lenient().when(vendingMachines.ifLoaded(MACHINE)).thenReturn(Optional.of(vendingMachine));
+        lenient().when(moneyMapper.toDomain(moneyDTO)).thenReturn(Money.of(5.0));
+    }
+
+    @Test
+    void shouldInsertMoneyAndReportTotal() {
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.totalInsertedAmount(MACHINE, SESSION)))
+                .expectNext(new MoneyDTO(5.0))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldLoadMachineWhenNotInMemory() {
+        when(vendingMachines.ifLoaded(MACHINE)).thenReturn(Optional.empty());
+        when(vendingMachines.machine(MACHINE)).thenReturn(vendingMachine);
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.selectProduct(MACHINE, SESSION, productUuid)))
+                .verifyComplete();
+
+        verify(vendingMachines).machine(MACHINE);
+    }
+
+    @Test
+    void shouldNotLoadMachineAlreadyInMemory() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.selectProduct(MACHINE, SESSION, productUuid)))
+                .verifyComplete();
+
+        verify(vendingMachines, never()).machine(MACHINE);
+    }
+
+    @Test
+    void shouldSignalErrorWhenSelectingUnavailableProduct() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(false);
+
+        StepVerifier.create(transactionService.selectProduct(MACHINE, SESSION, productUuid))
+                .expectErrorSatisfies(error -> {
+                    assertInstanceOf(ProductNotFoundException.class, error);
+                    assertEquals("Product was not found", error.getMessage());
+                })
+                .verify();
+
+        verify(vendingMachine, never()).getProduct(productId);
+    }
+
+    @Test
+    void shouldCompleteOrderWithoutWaitingForStockUpdate() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        Money changeAmount = Money.of(2.0);
+        when(vendingMachine.canDispenseChange(300, List.of(Money.of(5.0)))).thenReturn(true);
+        when(vendingMachine.sell(List.of(productId), List.of(Money.of(5.0)), 300)).thenReturn(List.of(changeAmount));
+        when(moneyMapper.toDTO(changeAmount)).thenReturn(new MoneyDTO(2.0));
+        SelectedProductDTO selectedProductDTO = new SelectedProductDTO(productUuid, "Test Product", 2.0);
+        when(selectedProductMapper.toDto(any(SelectedProduct.class))).thenReturn(selectedProductDTO);
+
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.selectProduct(MACHINE, SESSION, productUuid))
+                        .then(transactionService.completeOrder(MACHINE, SESSION)))
+                .assertNext(order -> {
+                    assertEquals(List.of(selectedProductDTO), order.getSelectedProducts());
+                    assertEquals(List.of(new MoneyDTO(2.0)), order.getReturnedMoney());
+                })
+                .verifyComplete();
+
+        verify(vendingMachine).sell(List.of(productId), List.of(Money.of(5.0)), 300);
+        assertInstanceOf(TransactionCompleted.class, events.get(events.size() - 1));
+    }
+
+    @Test
+    void shouldSignalErrorWhenChangeCannotBeGiven() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(vendingMachine.canDispenseChange(300, List.of(Money.of(5.0)))).thenReturn(false);
+
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.selectProduct(MACHINE, SESSION, productUuid))
+                        .then(transactionService.completeOrder(MACHINE, SESSION)))
+                .expectError(ChangeNotAvailableException.class)
+                .verify();
+
+        verify(vendingMachine, never()).sell(any(), any(), anyLong());
+        StepVerifier.create(transactionService.selectedProducts(MACHINE, SESSION))
+                .assertNext(selected -> assertEquals(1, selected.size()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReportChangeAvailabilityForAnExtraProduct() {
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(vendingMachine.canDispenseChange(300, List.of(Money.of(5.0)))).thenReturn(true);
+
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.changeAvailable(MACHINE, SESSION, productUuid)))
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnProductsAffordableWithTheMoneyInserted() {
+        when(vendingMachine.affordableProducts(500)).thenReturn(List.of(product));
+        ProductDTO productDTO = new ProductDTO(productUuid, "Test Product", 2.0, 5);
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.affordableProducts(MACHINE, SESSION)))
+                .expectNext(List.of(productDTO))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldPurchaseInOneStep() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(vendingMachine.canDispenseChange(100, List.of(Money.of(5.0)))).thenReturn(true);
+        when(vendingMachine.sell(List.of(productId, productId), List.of(Money.of(5.0)), 100)).thenReturn(List.of(Money.of(1.0)));
+        when(moneyMapper.toDTO(Money.of(1.0))).thenReturn(new MoneyDTO(1.0));
+
+        StepVerifier.create(transactionService.purchase(MACHINE, SESSION,
+                        new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 2)))))
+                .assertNext(order -> assertEquals(List.of(new MoneyDTO(1.0)), order.getReturnedMoney()))
+                .verifyComplete();
+
+        verify(vendingMachine).sell(List.of(productId, productId), List.of(Money.of(5.0)), 100);
+        verify(transactionRepository, times(1)).save(any());
+        assertInstanceOf(TransactionCompleted.class, events.get(events.size() - 1));
+    }
+
+    @Test
+    void shouldReturnTheCoinsOfAPurchaseWhoseChangeCannotBeGiven() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(vendingMachine.canDispenseChange(300, List.of(Money.of(5.0)))).thenReturn(false);
+
+        StepVerifier.create(transactionService.purchase(MACHINE, SESSION,
+                        new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 1)))))
+                .verifyError(ChangeNotAvailableException.class);
+
+        assertInstanceOf(TransactionCancelled.class, events.get(events.size() - 1));
+        verify(vendingMachine, never()).sell(any(), any(), anyLong());
+    }
+
+    @Test
+    void shouldSignalErrorWhenCompletingOrderWithoutTransaction() {
+        StepVerifier.create(transactionService.completeOrder(MACHINE, SESSION))
+                .expectError(MoneyNotYetInserted.class)
+                .verify();
+
+        verify(vendingMachine, never()).sell(any(), any(), anyLong());
+    }
+
+    @Test
+    void shouldCancelOrderAndReturnInsertedMoney() {
+        when(moneyMapper.toDTO(any(Money.class))).thenReturn(moneyDTO);
+
+        StepVerifier.create(transactionService.insertMoney(MACHINE, SESSION, moneyDTO)
+                        .then(transactionService.cancelOrder(MACHINE, SESSION)))
+                .assertNext(order -> {
+                    assertTrue(order.getSelectedProducts().isEmpty());
+                    assertEquals(List.of(moneyDTO), order.getReturnedMoney());
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,43 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveSessionIdArgumentResolverTest {
+
+    @Test
+    void shouldResolveSessionFromHeader() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/transaction")
+                .header(SessionIdArgumentResolver.SESSION_HEADER, "kiosk-1"));
+
+        assertEquals("kiosk-1", new ReactiveSessionIdArgumentResolver(false).resolveArgumentValue(null, null, exchange));
+        assertTrue(exchange.getResponse().getCookies().isEmpty());
+    }
+
+    @Test
+    void shouldStartANewSessionWhenNoneIsSent() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/transaction"));
+
+        Object sessionId = new ReactiveSessionIdArgumentResolver(false).resolveArgumentValue(null, null, exchange);
+
+        assertNotEquals(SessionIdArgumentResolver.DEFAULT_SESSION, sessionId);
+        assertEquals(sessionId, exchange.getResponse().getHeaders().getFirst(SessionIdArgumentResolver.SESSION_HEADER));
+        ResponseCookie cookie = exchange.getResponse().getCookies().getFirst(SessionIdArgumentResolver.SESSION_COOKIE);
+        assertNotNull(cookie);
+        assertEquals(sessionId, cookie.getValue());
+        assertTrue(cookie.isHttpOnly());
+        assertEquals("Lax", cookie.getSameSite());
+    }
+
+    @Test
+    void shouldShareTheDefaultSessionOnASingleKiosk() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/transaction"));
+
+        assertEquals(SessionIdArgumentResolver.DEFAULT_SESSION,
+                new ReactiveSessionIdArgumentResolver(true).resolveArgumentValue(null, null, exchange));
+    }
+}
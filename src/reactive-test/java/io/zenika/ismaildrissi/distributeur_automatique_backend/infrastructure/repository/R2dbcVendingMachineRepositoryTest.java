@@ -0,0 +1,63 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class R2dbcVendingMachineRepositoryTest {
+
+    private DatabaseClient databaseClient;
+
+    private R2dbcVendingMachineRepository repository;
+
+    private final UUID water = UUID.randomUUID();
+    private final UUID soda = UUID.randomUUID();
+    private final UUID other = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        databaseClient = DatabaseClient.create(
+                ConnectionFactories.get("r2dbc:h2:mem:///r2dbc-" + UUID.randomUUID() + "?DB_CLOSE_DELAY=-1"));
+        repository = new R2dbcVendingMachineRepository(databaseClient);
+        databaseClient.sql("CREATE TABLE product_entity (id UUID PRIMARY KEY, name VARCHAR(255), "
+                + "price DOUBLE PRECISION NOT NULL, quantity INT NOT NULL, machine_id VARCHAR(255) NOT NULL)")
+                .then().block();
+        insert(water, "Water", 2.0, 5, "machine-1");
+        insert(soda, "Soda", 3.5, 4, "machine-1");
+        insert(other, "Chips", 5.0, 3, "machine-2");
+    }
+
+    @Test
+    void shouldFindOnlyProductsOfTheMachine() {
+        StepVerifier.create(repository.findAllProducts("machine-1").map(Product::name).collectList())
+                .assertNext(names -> assertEquals(2, names.size()))
+                .verifyComplete();
+
+        StepVerifier.create(repository.findAllProducts("machine-2"))
+                .assertNext(product -> {
+                    assertEquals(new ProductId(other), product.productId());
+                    assertEquals("Chips", product.name());
+                    assertEquals(5.0, product.price());
+                    assertEquals(3, product.quantity());
+                })
+                .verifyComplete();
+    }
+
+    private void insert(UUID id, String name, double price, int quantity, String machineId) {
+        databaseClient.sql("INSERT INTO product_entity (id, name, price, quantity, machine_id) VALUES (:id, :name, :price, :quantity, :machineId)")
+                .bind("id", id)
+                .bind("name", name)
+                .bind("price", price)
+                .bind("quantity", quantity)
+                .bind("machineId", machineId)
+                .then().block();
+    }
+}
@@ -0,0 +1,21 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterpart of {@link ProductService} for the reactive API.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public interface ReactiveProductService {
+
+    /**
+     * Retrieves all products available in the given vending machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return the products of the machine as DTOs
+     */
+    Flux<ProductDTO> listProducts(String machineId);
+}
@@ -0,0 +1,121 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Non-blocking counterpart of {@link TransactionService} for the reactive API.
+ *
+ * <p>Every operation has the semantics of its {@link TransactionService} equivalent and
+ * signals its errors through the returned {@link Mono}.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public interface ReactiveTransactionService {
+
+    /**
+     * Inserts money into the current transaction of the given session.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param money the money denomination to insert
+     * @return a Mono completing once the money is inserted
+     */
+    Mono<Void> insertMoney(String machineId, String sessionId, MoneyDTO money);
+
+    /**
+     * Completes the current transaction of the given session, dispensing products and calculating change.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return an OrderDTO containing the dispensed products and change
+     */
+    Mono<OrderDTO> completeOrder(String machineId, String sessionId);
+
+    /**
+     * Buys the given products with the given coins in one step, as a transaction of the given
+     * session that is completed in full or cancelled with its coins returned.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller, which must have no money or product in its transaction
+     * @param purchase the coins inserted and the products to buy
+     * @return an OrderDTO containing the dispensed products and change
+     */
+    Mono<OrderDTO> purchase(String machineId, String sessionId, PurchaseDTO purchase);
+
+    /**
+     * Checks, without changing anything, if the machine could give the exact change of the
+     * current transaction of the given session, optionally with one more product selected.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the product that would be added to the selection, or null for the current selection
+     * @return true if the inserted money covers the selection and its change could be given
+     */
+    Mono<Boolean> changeAvailable(String machineId, String sessionId, UUID productId);
+
+    /**
+     * Returns the total amount of money inserted in the current transaction of the given session.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return the total inserted amount as a MoneyDTO
+     */
+    Mono<MoneyDTO> totalInsertedAmount(String machineId, String sessionId);
+
+    /**
+     * Selects a product for purchase in the current transaction of the given session.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the unique identifier of the product to select
+     * @return a Mono completing once the product is selected
+     */
+    Mono<Void> selectProduct(String machineId, String sessionId, UUID productId);
+
+    /**
+     * Removes a product from the current transaction of the given session.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the unique identifier of the product to unselect
+     * @return a Mono completing once the product is removed
+     */
+    Mono<Void> unselectProduct(String machineId, String sessionId, UUID productId);
+
+    /**
+     * Cancels the current transaction of the given session and returns all inserted money.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return an OrderDTO containing the returned money
+     */
+    Mono<OrderDTO> cancelOrder(String machineId, String sessionId);
+
+    /**
+     * Returns the list of currently selected products of the given session.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return a list of selected products as DTOs
+     */
+    Mono<List<SelectedProductDTO>> selectedProducts(String machineId, String sessionId);
+
+    /**
+     * Returns the products in stock that the money left in the current transaction of the given
+     * session can pay for, once the selected products are paid.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return the affordable products as DTOs, cheapest first
+     */
+    Mono<List<ProductDTO>> affordableProducts(String machineId, String sessionId);
+}
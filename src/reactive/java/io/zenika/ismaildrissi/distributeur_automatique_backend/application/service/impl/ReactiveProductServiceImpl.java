@@ -0,0 +1,37 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.ReactiveProductService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.ReactiveVendingMachineRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+/**
+ * Implementation of the ReactiveProductService interface, reading the catalog through R2DBC.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Service
+@AllArgsConstructor
+public class ReactiveProductServiceImpl implements ReactiveProductService {
+
+    /** Non-blocking repository for reading the products of a machine */
+    ReactiveVendingMachineRepository productRepository;
+
+    /** Mapper for converting between Product domain objects and ProductDTOs */
+    ProductMapperDto productMapper;
+
+    /**
+     * Retrieves all products available in the given vending machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return the products of the machine as DTOs
+     */
+    @Override
+    public Flux<ProductDTO> listProducts(String machineId) {
+        return productRepository.findAllProducts(machineId).map(productMapper::toDTO);
+    }
+}
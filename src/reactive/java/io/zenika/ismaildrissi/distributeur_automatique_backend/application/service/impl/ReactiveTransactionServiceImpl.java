@@ -0,0 +1,328 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseItemDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MoneyNotYetInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.ReactiveTransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSession;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionResult;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.IllegalTransactionStateException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the ReactiveTransactionService interface for the WebFlux API.
+ *
+ * <p>The purchase rules are the ones of {@link TransactionServiceImpl}: the session, machine
+ * and transaction state live in memory and are updated under the session lock, which is only
+ * held for in-memory steps and never across an asynchronous boundary. The stock update of a
+ * completed order is written by a subscriber of the domain events, off the event loop, so the
+ * purchase path does no I/O at all.</p>
+ *
+ * <p>A machine that is not in memory yet is loaded through the blocking repository on the
+ * bounded elastic scheduler; once loaded it is served from the
+ * {@link VendingMachineRegistry} without leaving the event loop.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveTransactionServiceImpl implements ReactiveTransactionService {
+
+    /** Mapper for converting between Money domain objects and MoneyDTOs */
+    private final MoneyMapper moneyMapper;
+
+    /** Mapper for converting between SelectedProduct domain objects and SelectedProductDTOs */
+    private final SelectedProductMapper selectedProductMapper;
+
+    /** Mapper for converting Product domain objects to ProductDTOs */
+    private final ProductMapperDto productMapper;
+
+    /** The vending machines of the fleet, for product and change operations */
+    private final VendingMachineRegistry vendingMachines;
+
+    /** Registry holding the in-flight transaction of every purchase session */
+    private final TransactionSessionRegistry sessionRegistry;
+
+    /** Repository tracking in-flight transactions and archiving closed ones */
+    private final TransactionRepository transactionRepository;
+
+    /** Takes the units of an order from the stored stock first, when nodes share the database */
+    private final StockReservation stockReservation;
+
+    @Override
+    public Mono<Void> insertMoney(String machineId, String sessionId, MoneyDTO money) {
+        return inSession(machineId, sessionId, session -> {
+            Transaction transaction = session.currentTransaction();
+            transaction.insertMoney(moneyMapper.toDomain(money));
+            transactionRepository.save(transaction);
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> selectProduct(String machineId, String sessionId, UUID productId) {
+        ProductId id = new ProductId(productId);
+        return availableMachine(machineId, sessionId, id).flatMap(vendingMachine -> inSession(machineId, sessionId, session -> {
+            Transaction transaction = session.currentTransaction();
+            transaction.addProduct(vendingMachine.getProduct(id));
+            transactionRepository.save(transaction);
+            return null;
+        })).then();
+    }
+
+    @Override
+    public Mono<Void> unselectProduct(String machineId, String sessionId, UUID productId) {
+        ProductId id = new ProductId(productId);
+        return availableMachine(machineId, sessionId, id).flatMap(vendingMachine -> inSession(machineId, sessionId, session -> {
+            session.currentTransaction().removeProduct(vendingMachine.getProduct(id));
+            return null;
+        })).then();
+    }
+
+    @Override
+    public Mono<OrderDTO> completeOrder(String machineId, String sessionId) {
+        return machine(machineId, sessionId).flatMap(vendingMachine -> completing(inSession(machineId, sessionId, session -> {
+            Transaction transaction = session.activeTransaction().orElseThrow(
+                    () -> new MoneyNotYetInserted("Can't complete order because there is no current transaction")
+            );
+            return complete(session, vendingMachine, transaction);
+        })));
+    }
+
+    @Override
+    public Mono<OrderDTO> purchase(String machineId, String sessionId, PurchaseDTO purchase) {
+        return machine(machineId, sessionId).flatMap(vendingMachine -> {
+            List<Product> products = purchasedProducts(vendingMachine, purchase.getProducts());
+            List<Money> coins = purchase.getMoney() == null ? List.of()
+                    : purchase.getMoney().stream().map(moneyMapper::toDomain).toList();
+            return completing(inSession(machineId, sessionId, session -> {
+                // A transaction only opened by reading the session state holds nothing and can be used
+                Transaction transaction = session.currentTransaction();
+                if (transaction.insertedAmount() > 0 || !transaction.selectedProducts().isEmpty()) {
+                    throw new IllegalTransactionStateException("Complete or cancel the transaction in progress first.");
+                }
+                try {
+                    coins.forEach(transaction::insertMoney);
+                    products.forEach(transaction::addProduct);
+                    return complete(session, vendingMachine, transaction);
+                } catch (RuntimeException e) {
+                    // Give the coins back: a failed purchase leaves nothing in the session, whatever state
+                    // it failed in and even if the cancellation cannot be saved
+                    try {
+                        if (transaction.status() == TransactionStatus.IN_PROGRESS) {
+                            transaction.cancel();
+                            transactionRepository.save(transaction);
+                        }
+                    } catch (RuntimeException cancellation) {
+                        e.addSuppressed(cancellation);
+                    } finally {
+                        session.close();
+                    }
+                    throw e;
+                }
+            }));
+        });
+    }
+
+    /**
+     * Completes the transaction of a session, which must be locked by the caller.
+     */
+    private OrderDTO complete(TransactionSession session, VendingMachine vendingMachine, Transaction transaction) {
+        // Refuse the order while it is still open if it cannot be completed or its change cannot be given
+        transaction.checkCompletable();
+        if (transaction.change() > 0 && !vendingMachine.canDispenseChange(transaction.change(), transaction.insertedMoney())) {
+            throw new ChangeNotAvailableException("The machine cannot give the change of this order");
+        }
+
+        // Sell before completing: the products, the coins paid and the change move together, or
+        // nothing moves and the order stays open, to be retried or cancelled
+        List<Money> change = stockReservation.sell(vendingMachine,
+                transaction.selectedProducts().stream().map(SelectedProduct::productId).toList(),
+                transaction.insertedMoney(),
+                transaction.change()
+        );
+        TransactionResult result = transaction.complete();
+        OrderDTO orderDTO = new OrderDTO();
+        orderDTO.setSelectedProducts(
+                result.selectedProducts().stream().map(selectedProductMapper::toDto).collect(Collectors.toList())
+        );
+        orderDTO.setReturnedMoney(
+                change.stream().map(moneyMapper::toDTO).collect(Collectors.toList())
+        );
+        transactionRepository.save(transaction);
+        session.close();
+        return orderDTO;
+    }
+
+    /**
+     * Resolves the lines of a purchase to the products to select, one per unit.
+     */
+    private static List<Product> purchasedProducts(VendingMachine vendingMachine, List<PurchaseItemDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalProductQuantity("A purchase needs at least one product.");
+        }
+        List<Product> products = new ArrayList<>();
+        for (PurchaseItemDTO item : items) {
+            if (item.getQuantity() < 1) {
+                throw new IllegalProductQuantity("Cannot buy less than one unit of a product.");
+            }
+            ProductId id = new ProductId(item.getId());
+            if (!vendingMachine.isProductAvailable(id) || vendingMachine.getProduct(id).quantity() < item.getQuantity()) {
+                throw new ProductNotFoundException("Product was not found");
+            }
+            products.addAll(Collections.nCopies(item.getQuantity(), vendingMachine.getProduct(id)));
+        }
+        return products;
+    }
+
+    @Override
+    public Mono<Boolean> changeAvailable(String machineId, String sessionId, UUID productId) {
+        return machine(machineId, sessionId).flatMap(vendingMachine -> inSession(machineId, sessionId, session -> {
+            long price = productId == null ? 0 : vendingMachine.getProduct(new ProductId(productId)).priceCents();
+            Transaction transaction = session.currentTransaction();
+            long change = transaction.change() - price;
+            return change >= 0 && vendingMachine.canDispenseChange(change, transaction.insertedMoney());
+        }));
+    }
+
+    @Override
+    public Mono<OrderDTO> cancelOrder(String machineId, String sessionId) {
+        return inSession(machineId, sessionId, session -> {
+            Transaction transaction = session.activeTransaction().orElseThrow(
+                    () -> new MoneyNotYetInserted("Can't cancel order because there is no current transaction")
+            );
+            TransactionResult result = transaction.cancel();
+
+            OrderDTO orderDTO = new OrderDTO();
+            orderDTO.setSelectedProducts(List.of());
+            orderDTO.setReturnedMoney(
+                    result.insertedMoney().stream().map(moneyMapper::toDTO).collect(Collectors.toList())
+            );
+
+            transactionRepository.save(transaction);
+            session.close();
+            return orderDTO;
+        });
+    }
+
+    @Override
+    public Mono<List<SelectedProductDTO>> selectedProducts(String machineId, String sessionId) {
+        return inSession(machineId, sessionId, session -> session.currentTransaction()
+                .selectedProducts()
+                .stream()
+                .map(selectedProductMapper::toDto)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Mono<List<ProductDTO>> affordableProducts(String machineId, String sessionId) {
+        return machine(machineId, sessionId).flatMap(vendingMachine -> inSession(machineId, sessionId,
+                session -> session.currentTransaction().change())
+                .map(budget -> vendingMachine.affordableProducts(budget).stream().map(productMapper::toDTO).toList()));
+    }
+
+    @Override
+    public Mono<MoneyDTO> totalInsertedAmount(String machineId, String sessionId) {
+        return inSession(machineId, sessionId,
+                session -> new MoneyDTO(Money.toMad(session.currentTransaction().insertedAmount())));
+    }
+
+    /**
+     * Runs an in-memory step on the session of the caller while holding its lock.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param step the step to run, which must not block
+     * @return a Mono of the result of the step, empty if it returns null
+     */
+    private <T> Mono<T> inSession(String machineId, String sessionId, Function<TransactionSession, T> step) {
+        return Mono.fromCallable(() -> {
+            TransactionSession session = sessionRegistry.session(machineId, sessionId);
+            session.lock();
+            try {
+                return step.apply(session);
+            } finally {
+                session.unlock();
+            }
+        });
+    }
+
+    /**
+     * Moves a step completing an order off the event loop when it reserves stock in the database.
+     *
+     * @param step the step completing the order
+     * @return the step, subscribed on a thread allowed to block in database mode
+     */
+    private <T> Mono<T> completing(Mono<T> step) {
+        return stockReservation.writesStock() ? step.subscribeOn(Schedulers.boundedElastic()) : step;
+    }
+
+    /**
+     * Returns the given machine, loading it off the event loop if it is not in memory.
+     *
+     * <p>The session of the caller is registered first: it pins the machine, which can then not be
+     * evicted and loaded again as a second instance while the caller uses it.</p>
+     *
+     * @param machineId the identifier of the machine
+     * @param sessionId the purchase session of the caller
+     * @return a Mono of the machine
+     */
+    private Mono<VendingMachine> machine(String machineId, String sessionId) {
+        return Mono.defer(() -> {
+                    sessionRegistry.session(machineId, sessionId);
+                    return Mono.justOrEmpty(vendingMachines.ifLoaded(machineId));
+                })
+                .switchIfEmpty(Mono.fromCallable(() -> vendingMachines.machine(machineId))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    /**
+     * Returns the given machine if it has the given product in stock.
+     *
+     * @param machineId the identifier of the machine
+     * @param sessionId the purchase session of the caller
+     * @param productId the product to check
+     * @return a Mono of the machine, or a ProductNotFoundException
+     */
+    private Mono<VendingMachine> availableMachine(String machineId, String sessionId, ProductId productId) {
+        return machine(machineId, sessionId).handle((vendingMachine, sink) -> {
+            if (vendingMachine.isProductAvailable(productId)) {
+                sink.next(vendingMachine);
+            } else {
+                sink.error(new ProductNotFoundException("Product was not found"));
+            }
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Spring Boot skips the JDBC DataSource once an R2DBC ConnectionFactory exists, but JPA
+// still seeds the catalog, loads machines and writes the transaction history
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactivePersistenceConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(DataSource.class)
+    public DataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().build();
+    }
+}
@@ -0,0 +1,34 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.config;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.ReactiveMachineIdArgumentResolver;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.ReactiveSessionIdArgumentResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    // Clients without a session id share one session only on a single-kiosk deployment
+    private final boolean singleKiosk;
+
+    public ReactiveWebConfig(@Value("${vending-machine.session.single-kiosk:false}") boolean singleKiosk) {
+        this.singleKiosk = singleKiosk;
+    }
+
+    // Tomcat is still on the classpath for the servlet API; serve WebFlux from Reactor Netty event loops
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactiveSessionIdArgumentResolver(singleKiosk), new ReactiveMachineIdArgumentResolver());
+    }
+}
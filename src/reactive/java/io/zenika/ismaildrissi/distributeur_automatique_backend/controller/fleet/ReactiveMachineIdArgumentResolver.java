@@ -0,0 +1,41 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.springframework.core.MethodParameter;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Map;
+
+/**
+ * Resolves {@link MachineId}-annotated parameters of the reactive controllers, with the
+ * same path variable, header and default as {@link MachineIdArgumentResolver}.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class ReactiveMachineIdArgumentResolver implements SyncHandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(MachineId.class)
+                && String.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgumentValue(MethodParameter parameter, BindingContext bindingContext,
+                                       ServerWebExchange exchange) {
+        Map<String, String> variables = exchange.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables != null && StringUtils.hasText(variables.get(MachineIdArgumentResolver.MACHINE_PATH_VARIABLE))) {
+            return variables.get(MachineIdArgumentResolver.MACHINE_PATH_VARIABLE);
+        }
+        String header = exchange.getRequest().getHeaders().getFirst(MachineIdArgumentResolver.MACHINE_HEADER);
+        if (StringUtils.hasText(header)) {
+            return header;
+        }
+        return VendingMachineRepository.DEFAULT_MACHINE_ID;
+    }
+}
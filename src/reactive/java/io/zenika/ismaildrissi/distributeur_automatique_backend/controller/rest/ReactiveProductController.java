@@ -0,0 +1,51 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.ReactiveProductService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * WebFlux controller serving the product catalog with the contract of {@link ProductController}.
+ *
+ * <p>Active when the application runs as a reactive web application. The catalog is read
+ * through R2DBC on every request and is not cached as pre-encoded JSON.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping({"/api/products", "/api/machines/{machineId}/products"})
+@CrossOrigin(origins = "http://localhost:3000")
+public class ReactiveProductController {
+
+    /** Service for reading the products of a machine */
+    private final ReactiveProductService productService;
+
+    /**
+     * Constructs a new ReactiveProductController.
+     *
+     * @param productService the service for reading products
+     */
+    public ReactiveProductController(ReactiveProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Retrieves all products of the machine of the caller.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @return the products of the machine
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<ProductDTO> getAllProducts(@MachineId String machineId) {
+        return productService.listProducts(machineId);
+    }
+}
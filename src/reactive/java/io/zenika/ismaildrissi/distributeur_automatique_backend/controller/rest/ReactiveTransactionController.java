@@ -0,0 +1,218 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineBusyException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.idempotency.IdempotencyCache;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.ReactiveTransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.fleet.MachineId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session.SessionIdArgumentResolver;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * WebFlux controller exposing the transaction lifecycle with the contract of
+ * {@link TransactionController}.
+ *
+ * <p>Active when the application runs as a reactive web application. Sessions and machines
+ * are resolved from the same headers, cookie and path as the servlet controller, and idempotency
+ * keys are honoured the same way.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping({"/api/transaction", "/api/machines/{machineId}/transaction"})
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = SessionIdArgumentResolver.SESSION_HEADER)
+public class ReactiveTransactionController {
+
+    /** Service for handling transaction-related business logic */
+    private final ReactiveTransactionService transactionService;
+
+    /** Results of the requests sent with an idempotency key */
+    private final IdempotencyCache idempotencyCache;
+
+    /**
+     * Constructs a new ReactiveTransactionController.
+     *
+     * @param transactionService the service for handling transaction operations
+     * @param idempotencyCache the results of the requests sent with an idempotency key
+     */
+    public ReactiveTransactionController(ReactiveTransactionService transactionService, IdempotencyCache idempotencyCache) {
+        this.transactionService = transactionService;
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    /**
+     * Retrieves the total amount of money inserted in the current transaction.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return a MoneyDTO representing the total inserted amount
+     */
+    @GetMapping("/money/inserted")
+    public Mono<MoneyDTO> insertedMoney(@MachineId String machineId, @SessionId String sessionId) {
+        return transactionService.totalInsertedAmount(machineId, sessionId);
+    }
+
+    /**
+     * Retrieves the list of products currently selected in the transaction.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return the selected products
+     */
+    @GetMapping("/products/selected")
+    public Mono<List<SelectedProductDTO>> getSelectedProducts(@MachineId String machineId, @SessionId String sessionId) {
+        return transactionService.selectedProducts(machineId, sessionId);
+    }
+
+    /**
+     * Retrieves the products in stock that the money left in the current transaction can pay for.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @return the affordable products, cheapest first
+     */
+    @GetMapping("/products/affordable")
+    public Mono<List<ProductDTO>> getAffordableProducts(@MachineId String machineId, @SessionId String sessionId) {
+        return transactionService.affordableProducts(machineId, sessionId);
+    }
+
+    /**
+     * Checks if the machine could give the exact change of the current transaction, optionally
+     * with one more product selected, so a kiosk can warn before the order is completed.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the product that would be added to the selection, if any
+     * @return true if the inserted money covers the selection and its change could be given
+     */
+    @GetMapping("/change/available")
+    public Mono<Boolean> changeAvailable(@MachineId String machineId, @SessionId String sessionId,
+                                         @RequestParam(required = false) UUID productId) {
+        return transactionService.changeAvailable(machineId, sessionId, productId);
+    }
+
+    /**
+     * Selects a product for purchase in the current transaction.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the string representation of the product UUID to select
+     * @return a Mono completing once the product is selected
+     */
+    @GetMapping("/products/select/{productId}")
+    public Mono<Void> selectProduct(@MachineId String machineId, @SessionId String sessionId, @PathVariable String productId) {
+        return transactionService.selectProduct(machineId, sessionId, UUID.fromString(productId));
+    }
+
+    /**
+     * Removes a product from the current transaction.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param productId the string representation of the product UUID to unselect
+     * @return a Mono completing once the product is removed
+     */
+    @GetMapping("/products/unselect/{productId}")
+    public Mono<Void> unselectProduct(@MachineId String machineId, @SessionId String sessionId, @PathVariable String productId) {
+        return transactionService.unselectProduct(machineId, sessionId, UUID.fromString(productId));
+    }
+
+    /**
+     * Inserts money into the current transaction.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param moneyDTO the money denomination to insert
+     * @return a Mono completing once the money is inserted
+     */
+    @PostMapping("/money")
+    public Mono<Void> insertMoney(@MachineId String machineId, @SessionId String sessionId, @RequestBody MoneyDTO moneyDTO) {
+        return transactionService.insertMoney(machineId, sessionId, moneyDTO);
+    }
+
+    /**
+     * Completes the current transaction, dispensing products and calculating change.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param idempotencyKey the key identifying the request across retries, if any
+     * @return an OrderDTO containing the dispensed products and returned change
+     */
+    @PostMapping("/complete")
+    public Mono<OrderDTO> complete(@MachineId String machineId, @SessionId String sessionId,
+                                   @RequestHeader(name = TransactionController.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(machineId, sessionId, idempotencyKey, "complete",
+                () -> transactionService.completeOrder(machineId, sessionId));
+    }
+
+    /**
+     * Buys products in a single request: the coins are inserted, the products selected and the
+     * order completed at once, or the coins are returned if the purchase cannot be served.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param purchase the coins inserted and the products to buy, with their quantities
+     * @param idempotencyKey the key identifying the request across retries, if any
+     * @return an OrderDTO containing the dispensed products and returned change
+     */
+    @PostMapping("/purchase")
+    public Mono<OrderDTO> purchase(@MachineId String machineId, @SessionId String sessionId, @RequestBody PurchaseDTO purchase,
+                                   @RequestHeader(name = TransactionController.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(machineId, sessionId, idempotencyKey, purchase,
+                () -> transactionService.purchase(machineId, sessionId, purchase));
+    }
+
+    /**
+     * Cancels the current transaction and returns all inserted money.
+     *
+     * @param machineId the machine the caller is purchasing from
+     * @param sessionId the purchase session of the caller
+     * @param idempotencyKey the key identifying the request across retries, if any
+     * @return an OrderDTO containing the returned money
+     */
+    @PostMapping("/cancel")
+    public Mono<OrderDTO> cancel(@MachineId String machineId, @SessionId String sessionId,
+                                 @RequestHeader(name = TransactionController.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(machineId, sessionId, idempotencyKey, "cancel",
+                () -> transactionService.cancelOrder(machineId, sessionId));
+    }
+
+    /**
+     * Runs an operation at most once per idempotency key, claiming the key on subscription.
+     *
+     * <p>A retry of a request still running waits for its result without cancelling it, for
+     * the wait timeout of the cache at most; a request cancelled by its client releases its key so that a retry runs it again.</p>
+     */
+    private Mono<OrderDTO> idempotent(String machineId, String sessionId, String idempotencyKey, Object request,
+                                      Supplier<Mono<OrderDTO>> operation) {
+        if (idempotencyKey == null) {
+            return operation.get();
+        }
+        return Mono.defer(() -> {
+            IdempotencyCache.Claim claim = idempotencyCache.claim(machineId, sessionId, idempotencyKey, request);
+            if (!claim.isOwner()) {
+                return Mono.fromFuture(claim.result(), true)
+                        .timeout(idempotencyCache.waitTimeout(), Mono.error(() -> new MachineBusyException(
+                                "The request with this idempotency key is still running, retry later")));
+            }
+            return operation.get()
+                    .doOnSuccess(result -> idempotencyCache.complete(claim, result))
+                    .doOnError(e -> idempotencyCache.release(claim, e))
+                    .doOnCancel(() -> idempotencyCache.release(claim, new CancellationException("Request cancelled")));
+        });
+    }
+}
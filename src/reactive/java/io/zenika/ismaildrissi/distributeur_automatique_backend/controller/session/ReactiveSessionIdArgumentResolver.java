@@ -0,0 +1,58 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Resolves {@link SessionId}-annotated parameters of the reactive controllers, with the
+ * same header, cookie, new sessions and single-kiosk default as {@link SessionIdArgumentResolver}.
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public class ReactiveSessionIdArgumentResolver implements SyncHandlerMethodArgumentResolver {
+
+    /** Whether clients without an identifier share the default session instead of starting their own */
+    private final boolean singleKiosk;
+
+    /**
+     * Constructs a new ReactiveSessionIdArgumentResolver.
+     *
+     * @param singleKiosk whether clients without an identifier share the default session
+     */
+    public ReactiveSessionIdArgumentResolver(boolean singleKiosk) {
+        this.singleKiosk = singleKiosk;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(SessionId.class)
+                && String.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgumentValue(MethodParameter parameter, BindingContext bindingContext,
+                                       ServerWebExchange exchange) {
+        String header = exchange.getRequest().getHeaders().getFirst(SessionIdArgumentResolver.SESSION_HEADER);
+        if (StringUtils.hasText(header)) {
+            return header;
+        }
+        HttpCookie cookie = exchange.getRequest().getCookies().getFirst(SessionIdArgumentResolver.SESSION_COOKIE);
+        if (cookie != null && StringUtils.hasText(cookie.getValue())) {
+            return cookie.getValue();
+        }
+        if (singleKiosk) {
+            return SessionIdArgumentResolver.DEFAULT_SESSION;
+        }
+        String sessionId = SessionIdArgumentResolver.newSessionId();
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().set(SessionIdArgumentResolver.SESSION_HEADER, sessionId);
+        response.addCookie(SessionIdArgumentResolver.sessionCookie(sessionId, exchange.getRequest().getSslInfo() != null));
+        return sessionId;
+    }
+}
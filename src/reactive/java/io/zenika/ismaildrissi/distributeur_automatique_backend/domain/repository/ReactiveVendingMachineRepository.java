@@ -0,0 +1,25 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking counterpart of {@link VendingMachineRepository} for the reactive API.
+ *
+ * <p>Only the catalog read of the purchase path is exposed. The dispensed stock is written
+ * off the event loop by the domain event subscribers, and seeding and administration keep
+ * using the blocking repository.</p>
+ *
+ * @author Ismail Drissi
+ * @since 1.0
+ */
+public interface ReactiveVendingMachineRepository {
+
+    /**
+     * Retrieves the products of one machine.
+     *
+     * @param machineId the identifier of the machine
+     * @return the products of the machine
+     */
+    Flux<Product> findAllProducts(String machineId);
+}
@@ -0,0 +1,43 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository;
+
+import io.r2dbc.spi.Readable;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.ReactiveVendingMachineRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+
+/**
+ * R2DBC implementation of the {@link ReactiveVendingMachineRepository}, on the
+ * {@code product_entity} table created by JPA.
+ */
+@Repository
+@AllArgsConstructor
+public class R2dbcVendingMachineRepository implements ReactiveVendingMachineRepository {
+
+    static final String FIND_BY_MACHINE_SQL =
+            "SELECT id, name, price, quantity FROM product_entity WHERE machine_id = :machineId";
+
+    DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Product> findAllProducts(String machineId) {
+        return databaseClient.sql(FIND_BY_MACHINE_SQL)
+                .bind("machineId", machineId)
+                .map(R2dbcVendingMachineRepository::toDomain)
+                .all();
+    }
+
+    private static Product toDomain(Readable row) {
+        return new Product(
+                row.get("name", String.class),
+                row.get("price", Double.class),
+                new ProductId(row.get("id", UUID.class)),
+                row.get("quantity", Integer.class)
+        );
+    }
+}
@@ -3,7 +3,7 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "vending-machine.journal.dir=target/journal")
 class DistributeurAutomatiqueBackendApplicationTests {
 
     @Test
@@ -0,0 +1,137 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogCacheTest {
+
+    @Mock
+    private VendingMachineRepository productRepository;
+
+    @Mock
+    private ProductMapperDto productMapper;
+
+    private ProductCatalogCache catalogCache;
+
+    private ProductId productId;
+    private Product product;
+    private ProductDTO productDTO;
+
+    @BeforeEach
+    void setUp() {
+        catalogCache = new ProductCatalogCache(productRepository, productMapper, 2);
+        productId = new ProductId(UUID.randomUUID());
+        product = new Product("Coke", 1.5, productId, 5);
+        productDTO = new ProductDTO(productId.id(), "Coke", 1.5, 5);
+    }
+
+    @Test
+    void shouldLoadCatalogOnce() {
+        when(productRepository.findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID)).thenReturn(List.of(product));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+
+        assertEquals(List.of(productDTO), catalogCache.products());
+        assertEquals(List.of(productDTO), catalogCache.products());
+
+        verify(productRepository, times(1)).findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+
+    @Test
+    void shouldPatchQuantitiesWithoutReloading() {
+        when(productRepository.findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID)).thenReturn(List.of(product));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+        long version = catalogCache.catalog().version();
+
+        catalogCache.decrementStock(Map.of(productId, 2));
+
+        ProductCatalogCache.Snapshot catalog = catalogCache.catalog();
+        assertEquals(3, catalog.products().get(0).getQuantity());
+        assertTrue(catalog.version() > version);
+        assertEquals(5, productDTO.getQuantity());
+        verify(productRepository, times(1)).findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        when(productRepository.findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID)).thenReturn(List.of(product));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+        catalogCache.products();
+
+        catalogCache.invalidate();
+        catalogCache.products();
+
+        verify(productRepository, times(2)).findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+
+    @Test
+    void shouldNotCacheLoadThatRacedWithPatch() {
+        when(productRepository.findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID)).thenAnswer(invocation -> {
+            catalogCache.decrementStock(Map.of(productId, 1));
+            return List.of(product);
+        });
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+
+        catalogCache.products();
+        catalogCache.products();
+
+        verify(productRepository, times(2)).findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID);
+    }
+
+    @Test
+    void shouldKeepOneCatalogPerMachine() {
+        Product water = new Product("Water", 1.0, new ProductId(UUID.randomUUID()), 3);
+        ProductDTO waterDTO = new ProductDTO(water.productId().id(), "Water", 1.0, 3);
+        when(productRepository.findAllProducts("machine-1")).thenReturn(List.of(product));
+        when(productRepository.findAllProducts("machine-2")).thenReturn(List.of(water));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+        when(productMapper.toDTO(water)).thenReturn(waterDTO);
+
+        ProductCatalogCache.Snapshot first = catalogCache.catalog("machine-1");
+        ProductCatalogCache.Snapshot second = catalogCache.catalog("machine-2");
+        catalogCache.decrementStock("machine-1", Map.of(productId, 1));
+
+        assertEquals(List.of(waterDTO), second.products());
+        assertNotEquals(first.version(), second.version());
+        assertEquals(4, catalogCache.products("machine-1").get(0).getQuantity());
+        assertSame(second, catalogCache.catalog("machine-2"));
+    }
+
+    @Test
+    void shouldReloadCatalogsBeyondCapacity() {
+        when(productRepository.findAllProducts(anyString())).thenReturn(List.of(product));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+
+        catalogCache.products("machine-1");
+        catalogCache.products("machine-2");
+        catalogCache.products("machine-3");
+        catalogCache.products("machine-1");
+
+        verify(productRepository, times(2)).findAllProducts("machine-1");
+    }
+
+    @Test
+    void shouldReturnUnmodifiableCatalog() {
+        when(productRepository.findAllProducts(VendingMachineRepository.DEFAULT_MACHINE_ID)).thenReturn(List.of(product));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+
+        List<ProductDTO> products = catalogCache.products();
+
+        assertThrows(UnsupportedOperationException.class, () -> products.add(productDTO));
+    }
+}
@@ -0,0 +1,123 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.CoinsDeposited;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.MoneyInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.CoinInventoryRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockUpdateSubscriberTest {
+
+    @Mock
+    private VendingMachineRepository vendingMachineRepository;
+
+    @Mock
+    private CoinInventoryRepository coinInventoryRepository;
+
+    @Mock
+    private ProductCatalogCache productCatalog;
+
+    private StockUpdateSubscriber subscriber;
+
+    private ProductId coke;
+    private ProductId water;
+
+    @BeforeEach
+    void setUp() {
+        subscriber = new StockUpdateSubscriber(vendingMachineRepository, coinInventoryRepository,
+                TransactionOperations.withoutTransaction(), productCatalog, StockReservation.local());
+        coke = new ProductId(UUID.randomUUID());
+        water = new ProductId(UUID.randomUUID());
+    }
+
+    @Test
+    void shouldWriteTheWholeBatchAtOnce() {
+        subscriber.onEvent("machine-1", null, new ProductDispensed(coke, 1, 4), false);
+        subscriber.onEvent("machine-1", "kiosk-1", new MoneyInserted("tx", Money.of(2.0), 200), false);
+        subscriber.onEvent("machine-1", null, new ProductDispensed(coke, 2, 2), false);
+        verifyNoInteractions(vendingMachineRepository, coinInventoryRepository, productCatalog);
+
+        subscriber.onEvent("machine-2", null, new ProductDispensed(water, 1, 9), true);
+
+        verify(vendingMachineRepository).decrementStock(Map.of(coke, 3, water, 1));
+        verify(productCatalog).decrementStock("machine-1", Map.of(coke, 3));
+        verify(productCatalog).decrementStock("machine-2", Map.of(water, 1));
+    }
+
+    @Test
+    void shouldNotWriteBatchWithoutDispensedProducts() {
+        subscriber.onEvent("machine-1", "kiosk-1", new MoneyInserted("tx", Money.of(2.0), 200), true);
+
+        verifyNoInteractions(vendingMachineRepository, coinInventoryRepository, productCatalog);
+    }
+
+    @Test
+    void shouldWriteCoinMovementsWithTheStock() {
+        subscriber.onEvent("machine-1", null, new ProductDispensed(coke, 1, 4), false);
+        subscriber.onEvent("machine-1", null, new CoinsDeposited(List.of(Money.of(5), Money.of(0.5))), false);
+        subscriber.onEvent("machine-1", null, new ChangeDispensed(300, List.of(Money.of(2), Money.of(1))), false);
+        subscriber.onEvent("machine-2", null, new ChangeDispensed(50, List.of(Money.of(0.5))), true);
+
+        verify(vendingMachineRepository).decrementStock(Map.of(coke, 1));
+        verify(coinInventoryRepository).adjustCounts(argThat(deltas -> deltas.size() == 2
+                && Arrays.equals(deltas.get("machine-1"), new int[]{1, -1, -1, 1, 0})
+                && Arrays.equals(deltas.get("machine-2"), new int[]{-1, 0, 0, 0, 0})));
+    }
+
+    @Test
+    void shouldKeepAFailedBatchAndWriteItWithTheNextOne() {
+        doThrow(new IllegalStateException("database down")).doNothing()
+                .when(vendingMachineRepository).decrementStock(anyMap());
+
+        subscriber.onEvent("machine-1", null, new ProductDispensed(coke, 1, 4), false);
+        subscriber.onEvent("machine-1", null, new CoinsDeposited(List.of(Money.of(2))), true);
+        verifyNoInteractions(productCatalog, coinInventoryRepository);
+
+        subscriber.onEvent("machine-1", null, new ProductDispensed(coke, 1, 3), false);
+        subscriber.onEvent("machine-1", null, new ProductDispensed(water, 1, 9), true);
+
+        verify(vendingMachineRepository).decrementStock(Map.of(coke, 2, water, 1));
+        verify(coinInventoryRepository).adjustCounts(argThat(deltas -> deltas.size() == 1
+                && Arrays.equals(deltas.get("machine-1"), new int[]{0, 0, 1, 0, 0})));
+        verify(productCatalog).decrementStock("machine-1", Map.of(coke, 2, water, 1));
+
+        subscriber.onEvent("machine-1", null, new ProductDispensed(water, 1, 8), true);
+
+        verify(vendingMachineRepository).decrementStock(Map.of(water, 1));
+    }
+
+    @Test
+    void shouldOnlyWriteCoinsWhenTheStockIsReservedInTheDatabase() {
+        subscriber = new StockUpdateSubscriber(vendingMachineRepository, coinInventoryRepository,
+                TransactionOperations.withoutTransaction(), productCatalog,
+                StockReservation.database(vendingMachineRepository, TransactionOperations.withoutTransaction()));
+
+        subscriber.onEvent("machine-1", null, new ProductDispensed(coke, 1, 4), false);
+        subscriber.onEvent("machine-1", null, new CoinsDeposited(List.of(Money.of(2))), true);
+
+        verify(vendingMachineRepository, never()).decrementStock(any());
+        verify(coinInventoryRepository).adjustCounts(any());
+        verify(productCatalog).decrementStock("machine-1", Map.of(coke, 1));
+    }
+}
@@ -0,0 +1,186 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineBusyException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MachinePartitionExecutorTest {
+
+    private final VendingMachineRegistry registry =
+            new VendingMachineRegistry(2, 10, machineId -> new VendingMachine(List.of(), List.of()));
+
+    private MachinePartitionExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void shouldReturnResultOfCommand() {
+        executor = new MachinePartitionExecutor(registry, 16);
+
+        assertEquals("done", executor.execute("machine-1", () -> "done"));
+    }
+
+    @Test
+    void shouldRunCommandsOfMachineOnSingleThreadInOrder() throws InterruptedException {
+        executor = new MachinePartitionExecutor(registry, 1024);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Integer> applied = new ArrayList<>();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 500; i++) {
+            int command = i;
+            callers.execute(() -> executor.run("machine-1", () -> {
+                threads.add(Thread.currentThread().getName());
+                // Not thread-safe on purpose: only the partition thread touches it
+                applied.add(command);
+            }));
+        }
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, threads.size());
+        assertEquals(500, executor.execute("machine-1", applied::size));
+    }
+
+    @Test
+    void shouldRethrowExceptionOfCommand() {
+        executor = new MachinePartitionExecutor(registry, 16);
+
+        assertThrows(ProductNotFoundException.class, () -> executor.run("machine-1", () -> {
+            throw new ProductNotFoundException("Product not available");
+        }));
+    }
+
+    @Test
+    void shouldRunNestedCommandOfSamePartitionInline() {
+        executor = new MachinePartitionExecutor(registry, 16);
+
+        assertEquals(42, executor.execute("machine-1", () -> executor.execute("machine-1", () -> 42)));
+    }
+
+    @Test
+    void shouldRejectCommandWhenQueueIsFull() throws InterruptedException {
+        executor = new MachinePartitionExecutor(registry, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(5);
+        callers.execute(() -> executor.run("machine-1", () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // The event loop is busy: one command fits in the queue, the three others are rejected
+        for (int i = 0; i < 4; i++) {
+            callers.execute(() -> {
+                try {
+                    executor.run("machine-1", () -> {
+                    });
+                } catch (MachineBusyException e) {
+                    rejected.incrementAndGet();
+                }
+            });
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (rejected.get() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(3, rejected.get());
+    }
+
+    @Test
+    void shouldRejectCommandsOnceClosed() {
+        executor = new MachinePartitionExecutor(registry, 16);
+        executor.close();
+
+        assertThrows(MachineBusyException.class, () -> executor.execute("machine-1", () -> 1));
+    }
+
+    @Test
+    void shouldWithdrawCommandNotStartedInTime() throws InterruptedException {
+        executor = new MachinePartitionExecutor(registry, 16, Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        Thread blocker = new Thread(() -> executor.run("machine-1", () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        blocker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(MachineBusyException.class, () -> executor.run("machine-1", () -> ran.set(true)));
+
+        release.countDown();
+        blocker.join(5000);
+        assertEquals("next", executor.execute("machine-1", () -> "next"));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void shouldFailCommandsLeftQueuedWhenClosed() throws InterruptedException {
+        executor = new MachinePartitionExecutor(registry, 16, Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread blocker = new Thread(() -> executor.run("machine-1", () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        blocker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread queued = new Thread(() -> {
+            try {
+                executor.execute("machine-1", () -> {
+                    ran.set(true);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        queued.start();
+
+        // The event loop does not stop in time: the queued command is failed instead of left waiting
+        executor.close();
+        queued.join(5000);
+        release.countDown();
+        blocker.join(5000);
+
+        assertFalse(queued.isAlive());
+        assertInstanceOf(MachineBusyException.class, failure.get());
+        assertFalse(ran.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.MachineState;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.CoinInventoryRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.MachineJournal;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.ChangeCalculatorImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VendingMachineLoaderTest {
+
+    @Mock
+    private VendingMachineRepository vendingMachineRepository;
+
+    @Mock
+    private CoinInventoryRepository coinInventoryRepository;
+
+    @Mock
+    private MachineJournal journal;
+
+    private final List<String> published = new ArrayList<>();
+
+    private VendingMachineLoader loader;
+
+    private ProductId water;
+
+    private ProductId chips;
+
+    @BeforeEach
+    void setUp() {
+        DomainEventBus bus = (machineId, sessionId, event) -> published.add("bus:" + machineId);
+        loader = new VendingMachineLoader(vendingMachineRepository, coinInventoryRepository, journal, new ChangeCalculatorImpl(), bus,
+                List.of(Money.of(1), Money.of(1)));
+        water = new ProductId(UUID.randomUUID());
+        chips = new ProductId(UUID.randomUUID());
+    }
+
+    private void stockMachine() {
+        when(vendingMachineRepository.findAllProducts("machine-1")).thenReturn(List.of(
+                new Product("Water", 1.5, water, 10, 3L),
+                new Product("Chips", 3.0, chips, 6, 1L)
+        ));
+    }
+
+    @Test
+    void shouldStartWithTheInitialFloatWhenNeverJournaled() {
+        stockMachine();
+        when(journal.recover("machine-1")).thenReturn(Optional.empty());
+        when(coinInventoryRepository.findCounts("machine-1")).thenReturn(Optional.empty());
+        when(journal.attach(eq("machine-1"), any())).thenReturn(event -> published.add("journal"));
+
+        VendingMachine machine = loader.apply("machine-1");
+
+        assertEquals(10, machine.getProduct(water).quantity());
+        assertEquals(List.of(Money.of(1), Money.of(1)), machine.state().coins());
+        verify(coinInventoryRepository).saveCounts("machine-1", new int[]{0, 2, 0, 0, 0});
+        verify(journal).attach("machine-1", machine.state());
+    }
+
+    @Test
+    void shouldLoadStoredCoinsWhenNeverJournaled() {
+        stockMachine();
+        when(journal.recover("machine-1")).thenReturn(Optional.empty());
+        when(coinInventoryRepository.findCounts("machine-1")).thenReturn(Optional.of(new int[]{1, 0, 0, 2, 0}));
+        when(journal.attach(eq("machine-1"), any())).thenReturn(event -> published.add("journal"));
+
+        VendingMachine machine = loader.apply("machine-1");
+
+        assertEquals(List.of(Money.of(0.5), Money.of(5), Money.of(5)), machine.state().coins());
+        verify(coinInventoryRepository, never()).saveCounts(any(), any());
+    }
+
+    @Test
+    void shouldRestoreJournaledStockAndCoins() {
+        stockMachine();
+        when(journal.recover("machine-1")).thenReturn(Optional.of(new MachineState(Map.of(water, 7), List.of(Money.of(5)))));
+        when(journal.attach(eq("machine-1"), any())).thenReturn(event -> published.add("journal"));
+
+        VendingMachine machine = loader.apply("machine-1");
+
+        assertEquals(7, machine.getProduct(water).quantity());
+        assertEquals(6, machine.getProduct(chips).quantity());
+        assertEquals(List.of(Money.of(5)), machine.state().coins());
+    }
+
+    @Test
+    void shouldKeepTheStoredVersionOfRestoredProducts() {
+        stockMachine();
+        when(journal.recover("machine-1")).thenReturn(Optional.of(new MachineState(Map.of(water, 7), List.of(Money.of(5)))));
+        when(journal.attach(eq("machine-1"), any())).thenReturn(event -> published.add("journal"));
+
+        VendingMachine machine = loader.apply("machine-1");
+
+        assertEquals(3L, machine.getProduct(water).version());
+        assertEquals(1L, machine.getProduct(chips).version());
+    }
+
+    @Test
+    void shouldJournalEventsBeforePublishingThem() {
+        stockMachine();
+        when(journal.recover("machine-1")).thenReturn(Optional.empty());
+        when(coinInventoryRepository.findCounts("machine-1")).thenReturn(Optional.of(new int[5]));
+        when(journal.attach(eq("machine-1"), any())).thenReturn(event -> published.add("journal"));
+
+        loader.apply("machine-1").dispenseProduct(water);
+
+        assertEquals(List.of("journal", "bus:machine-1"), published);
+    }
+
+    @Test
+    void shouldNotJournalAMachineWithoutProducts() {
+        when(vendingMachineRepository.findAllProducts("empty")).thenReturn(List.of());
+        when(journal.recover("empty")).thenReturn(Optional.empty());
+        when(coinInventoryRepository.findCounts("empty")).thenReturn(Optional.of(new int[]{0, 2, 0, 0, 0}));
+
+        VendingMachine machine = loader.apply("empty");
+
+        assertEquals(List.of(Money.of(1), Money.of(1)), machine.state().coins());
+        verify(journal, never()).attach(any(), any());
+        verify(coinInventoryRepository, never()).saveCounts(any(), any());
+    }
+
+    @Test
+    void shouldRejectAMachineThatIsNotPartOfTheFleet() {
+        when(vendingMachineRepository.findAllProducts("typo")).thenReturn(List.of());
+        when(journal.recover("typo")).thenReturn(Optional.empty());
+        when(coinInventoryRepository.findCounts("typo")).thenReturn(Optional.empty());
+
+        assertThrows(MachineNotFoundException.class, () -> loader.apply("typo"));
+
+        verify(journal, never()).attach(any(), any());
+        verify(coinInventoryRepository, never()).saveCounts(any(), any());
+    }
+
+    @Test
+    void shouldReconcileStoredStockAndCoinsWithTheJournal() {
+        stockMachine();
+        when(journal.recoverAll()).thenReturn(Map.of("machine-1",
+                new MachineState(Map.of(water, 7, chips, 6), List.of(Money.of(1), Money.of(10)))));
+        when(coinInventoryRepository.findCounts("machine-1")).thenReturn(Optional.of(new int[]{0, 2, 0, 0, 0}));
+
+        loader.reconcile();
+
+        verify(vendingMachineRepository).decrementStock(Map.of(water, 3));
+        verify(coinInventoryRepository).adjustCounts(argThat(deltas ->
+                Arrays.equals(deltas.get("machine-1"), new int[]{0, -1, 0, 0, 1})));
+    }
+
+    @Test
+    void shouldStoreJournaledCoinsOfAMachineWithoutStoredInventory() {
+        stockMachine();
+        when(journal.recoverAll()).thenReturn(Map.of("machine-1", new MachineState(Map.of(water, 10), List.of(Money.of(2)))));
+        when(coinInventoryRepository.findCounts("machine-1")).thenReturn(Optional.empty());
+
+        loader.reconcile();
+
+        verify(coinInventoryRepository).saveCounts("machine-1", new int[]{0, 0, 1, 0, 0});
+        verify(coinInventoryRepository, never()).adjustCounts(any());
+    }
+
+    @Test
+    void shouldLeaveStoredStockAndCoinsAloneWhenInSync() {
+        stockMachine();
+        when(journal.recoverAll()).thenReturn(Map.of("machine-1", new MachineState(Map.of(water, 10), List.of(Money.of(2)))));
+        when(coinInventoryRepository.findCounts("machine-1")).thenReturn(Optional.of(new int[]{0, 0, 1, 0, 0}));
+
+        loader.reconcile();
+
+        verify(vendingMachineRepository, never()).decrementStock(any());
+        verify(coinInventoryRepository, never()).adjustCounts(any());
+    }
+}
@@ -0,0 +1,226 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VendingMachineRegistryTest {
+
+    private final List<String> loaded = new ArrayList<>();
+
+    private final Function<String, VendingMachine> loader = machineId -> {
+        synchronized (loaded) {
+            loaded.add(machineId);
+        }
+        return new VendingMachine(List.of(), List.of());
+    };
+
+    @Test
+    void shouldLoadMachineOnFirstUseOnly() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(4, 100, loader);
+
+        VendingMachine machine = registry.machine("machine-1");
+
+        assertSame(machine, registry.machine("machine-1"));
+        assertNotSame(machine, registry.machine("machine-2"));
+        assertEquals(List.of("machine-1", "machine-2"), loaded);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedMachineBeyondCapacity() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(1, 2, loader);
+
+        registry.machine("machine-1");
+        registry.machine("machine-2");
+        registry.machine("machine-1");
+        registry.machine("machine-3");
+        registry.machine("machine-1");
+        registry.machine("machine-2");
+
+        assertEquals(List.of("machine-1", "machine-2", "machine-3", "machine-2"), loaded);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void shouldNeverEvictAPinnedMachine() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(1, 1, loader, "machine-1"::equals);
+
+        VendingMachine pinned = registry.machine("machine-1");
+        registry.machine("machine-2");
+        registry.machine("machine-3");
+
+        assertSame(pinned, registry.machine("machine-1"));
+        assertEquals(List.of("machine-1", "machine-2", "machine-3"), loaded);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void shouldReleaseEvictedMachines() {
+        List<String> released = new ArrayList<>();
+        VendingMachineRegistry registry = new VendingMachineRegistry(1, 1, loader, machineId -> false, released::add);
+
+        registry.machine("machine-1");
+        registry.machine("machine-2");
+        registry.machine("machine-1");
+
+        assertEquals(List.of("machine-1", "machine-2"), released);
+    }
+
+    @Test
+    void shouldReloadAnEvictedMachineOnlyOnceReleased() throws Exception {
+        CountDownLatch releasing = new CountDownLatch(1);
+        CountDownLatch finishRelease = new CountDownLatch(1);
+        List<String> events = new ArrayList<>();
+        Function<String, VendingMachine> recordingLoader = machineId -> {
+            synchronized (events) {
+                events.add("load " + machineId);
+            }
+            return new VendingMachine(List.of(), List.of());
+        };
+        VendingMachineRegistry registry = new VendingMachineRegistry(1, 1, recordingLoader, machineId -> false, machineId -> {
+            releasing.countDown();
+            await(finishRelease);
+            synchronized (events) {
+                events.add("release " + machineId);
+            }
+        });
+        VendingMachine first = registry.machine("machine-1");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> registry.machine("machine-2"));
+            assertTrue(releasing.await(5, TimeUnit.SECONDS));
+            Future<VendingMachine> reloaded = executor.submit(() -> registry.machine("machine-1"));
+
+            Thread.sleep(100);
+            assertFalse(reloaded.isDone());
+            finishRelease.countDown();
+
+            assertNotSame(first, reloaded.get(5, TimeUnit.SECONDS));
+            assertEquals(List.of("load machine-1", "load machine-2", "release machine-1", "load machine-1"), events.subList(0, 4));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldServeLoadedMachinesOfAPartitionWhileAnotherLoads() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VendingMachineRegistry registry = new VendingMachineRegistry(1, 10, machineId -> {
+            if (machineId.equals("slow")) {
+                loading.countDown();
+                await(release);
+            }
+            return loader.apply(machineId);
+        });
+        VendingMachine fast = registry.machine("fast");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<VendingMachine> first = executor.submit(() -> registry.machine("slow"));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        Future<VendingMachine> second = executor.submit(() -> registry.machine("slow"));
+
+        assertSame(fast, registry.machine("fast"));
+        assertSame(fast, registry.ifLoaded("fast").orElseThrow());
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(List.of("fast", "slow"), loaded);
+    }
+
+    @Test
+    void shouldNotKeepAMachineThatFailedToLoad() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(1, 10, machineId -> {
+            if (loaded.add(machineId) && loaded.size() == 1) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            return new VendingMachine(List.of(), List.of());
+        });
+
+        assertThrows(IllegalStateException.class, () -> registry.machine("machine-1"));
+
+        assertNotNull(registry.machine("machine-1"));
+        assertEquals(List.of("machine-1", "machine-1"), loaded);
+    }
+
+    @Test
+    void shouldReturnOnlyLoadedMachinesWithoutLoading() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(2, 10, loader);
+
+        assertTrue(registry.ifLoaded("machine-1").isEmpty());
+        VendingMachine machine = registry.machine("machine-1");
+
+        assertSame(machine, registry.ifLoaded("machine-1").orElseThrow());
+        assertEquals(List.of("machine-1"), loaded);
+    }
+
+    @Test
+    void shouldAssignMachineToStablePartition() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(8, 100, loader);
+
+        for (int i = 0; i < 100; i++) {
+            int partition = registry.partitionOf("machine-" + i);
+            assertTrue(partition >= 0 && partition < registry.partitionCount());
+            assertEquals(partition, registry.partitionOf("machine-" + i));
+        }
+    }
+
+    @Test
+    void shouldLoadEachMachineOnceUnderConcurrentAccess() throws InterruptedException {
+        VendingMachineRegistry registry = new VendingMachineRegistry(4, 100, loader);
+        ConcurrentHashMap<String, VendingMachine> seen = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            String machineId = "machine-" + (i % 10);
+            executor.execute(() -> {
+                VendingMachine machine = registry.machine(machineId);
+                assertSame(machine, seen.computeIfAbsent(machineId, id -> machine));
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10, loaded.size());
+    }
+
+    @Test
+    void shouldVisitEveryLoadedMachineWithoutLoadingAny() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(4, 100, loader);
+        VendingMachine first = registry.machine("machine-1");
+        VendingMachine second = registry.machine("machine-2");
+        Map<String, VendingMachine> visited = new HashMap<>();
+
+        registry.forEachLoaded(visited::put);
+
+        assertEquals(Map.of("machine-1", first, "machine-2", second), visited);
+        assertEquals(List.of("machine-1", "machine-2"), loaded);
+    }
+
+    @Test
+    void shouldRejectInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new VendingMachineRegistry(0, 10, loader));
+        assertThrows(IllegalArgumentException.class, () -> new VendingMachineRegistry(2, 0, loader));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
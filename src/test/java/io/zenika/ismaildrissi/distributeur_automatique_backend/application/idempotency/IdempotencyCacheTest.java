@@ -0,0 +1,204 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.idempotency;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.IdempotencyKeyReusedException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MachineBusyException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private OrderDTO order() {
+        runs.incrementAndGet();
+        return new OrderDTO(List.of(), List.of());
+    }
+
+    @Test
+    void shouldRunAnOperationOncePerKey() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), WAIT, now::get);
+
+        OrderDTO first = cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+        OrderDTO retry = cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+
+        assertSame(first, retry);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldScopeKeysToTheSession() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), WAIT, now::get);
+
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+        cache.execute(MACHINE, "kiosk-2", "key-1", "complete", this::order);
+        cache.execute("machine-2", SESSION, "key-1", "complete", this::order);
+
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void shouldRunEveryRequestWithoutKey() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), WAIT, now::get);
+
+        cache.execute(MACHINE, SESSION, null, "complete", this::order);
+        cache.execute(MACHINE, SESSION, null, "complete", this::order);
+
+        assertEquals(2, runs.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldRejectAKeyReusedForAnotherRequest() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), WAIT, now::get);
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+
+        assertThrows(IdempotencyKeyReusedException.class,
+                () -> cache.execute(MACHINE, SESSION, "key-1", "cancel", this::order));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldReleaseTheKeyOfAFailedOperation() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), WAIT, now::get);
+
+        assertThrows(ChangeNotAvailableException.class, () -> cache.execute(MACHINE, SESSION, "key-1", "complete", () -> {
+            throw new ChangeNotAvailableException("No change");
+        }));
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldForgetResultsOnceExpired() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofSeconds(60), WAIT, now::get);
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+
+        now.addAndGet(Duration.ofSeconds(59).toNanos());
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+        assertEquals(1, runs.get());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void shouldDropTheOldestKeysBeyondCapacity() {
+        IdempotencyCache cache = new IdempotencyCache(2, Duration.ofMinutes(10), WAIT, now::get);
+
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+        cache.execute(MACHINE, SESSION, "key-2", "complete", this::order);
+        cache.execute(MACHINE, SESSION, "key-3", "complete", this::order);
+        cache.execute(MACHINE, SESSION, "key-3", "complete", this::order);
+        assertEquals(3, runs.get());
+        assertEquals(2, cache.size());
+
+        cache.execute(MACHINE, SESSION, "key-1", "complete", this::order);
+        assertEquals(4, runs.get());
+    }
+
+    @Test
+    void shouldDropTheOldestFinishedKeyAndKeepRunningOnesAtCapacity() {
+        IdempotencyCache cache = new IdempotencyCache(2, Duration.ofMinutes(10), WAIT, now::get);
+        IdempotencyCache.Claim running = cache.claim(MACHINE, SESSION, "key-1", "complete");
+        cache.execute(MACHINE, SESSION, "key-2", "complete", this::order);
+
+        cache.execute(MACHINE, SESSION, "key-3", "complete", this::order);
+
+        assertEquals(2, cache.size());
+        assertSame(running.result(), cache.claim(MACHINE, SESSION, "key-1", "complete").result());
+        assertTrue(cache.claim(MACHINE, SESSION, "key-2", "complete").isOwner());
+    }
+
+    @Test
+    void shouldRefuseAClaimWhenEveryKeptKeyIsRunning() {
+        IdempotencyCache cache = new IdempotencyCache(1, Duration.ofMinutes(10), WAIT, now::get);
+        cache.claim(MACHINE, SESSION, "key-1", "complete");
+
+        assertThrows(MachineBusyException.class, () -> cache.execute(MACHINE, SESSION, "key-2", "complete", this::order));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void shouldKeepARunningKeyPastItsLifetime() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofSeconds(60), WAIT, now::get);
+        cache.claim(MACHINE, SESSION, "key-1", "complete");
+
+        now.addAndGet(Duration.ofSeconds(61).toNanos());
+
+        assertFalse(cache.claim(MACHINE, SESSION, "key-1", "complete").isOwner());
+    }
+
+    @Test
+    void shouldStopWaitingForARequestThatDoesNotFinishInTime() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), Duration.ofMillis(50), now::get);
+        cache.claim(MACHINE, SESSION, "key-1", "complete");
+
+        assertThrows(MachineBusyException.class, () -> cache.execute(MACHINE, SESSION, "key-1", "complete", this::order));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void shouldMakeARetryWaitForTheRequestInFlight() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), WAIT, now::get);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<OrderDTO> first = executor.submit(() -> cache.execute(MACHINE, SESSION, "key-1", "complete", () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return order();
+            }));
+            running.await();
+            Future<OrderDTO> retry = executor.submit(() -> cache.execute(MACHINE, SESSION, "key-1", "complete", this::order));
+            release.countDown();
+
+            assertSame(first.get(), retry.get());
+        }
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldKeepTheResultWhenReleasedAfterCompletion() {
+        IdempotencyCache cache = new IdempotencyCache(10, Duration.ofMinutes(10), WAIT, now::get);
+        IdempotencyCache.Claim claim = cache.claim(MACHINE, SESSION, "key-1", "complete");
+        OrderDTO order = order();
+
+        cache.complete(claim, order);
+        cache.release(claim, new IllegalStateException("cancelled"));
+
+        IdempotencyCache.Claim retry = cache.claim(MACHINE, SESSION, "key-1", "complete");
+        assertFalse(retry.isOwner());
+        assertSame(order, retry.result().join());
+    }
+
+    @Test
+    void shouldRejectInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyCache(0, Duration.ofMinutes(10), WAIT));
+    }
+}
@@ -0,0 +1,156 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.live;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.StockLevelDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveEventHubTest {
+
+    private static final String MACHINE = "machine-1";
+
+    /** Drain tasks, run only when the test calls runPending */
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+
+    private final Executor executor = pending::add;
+
+    private LiveEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        hub = new LiveEventHub(3, executor);
+    }
+
+    @Test
+    void shouldDeliverMachineEventsAndOwnSessionEventsOnly() {
+        RecordingSink kiosk1 = new RecordingSink();
+        RecordingSink kiosk2 = new RecordingSink();
+        RecordingSink otherMachine = new RecordingSink();
+        hub.subscribe(MACHINE, "kiosk-1", kiosk1);
+        hub.subscribe(MACHINE, "kiosk-2", kiosk2);
+        hub.subscribe("machine-2", "kiosk-1", otherMachine);
+
+        LiveEvent stock = LiveEvent.stockChanged(MACHINE, new StockLevelDTO(UUID.randomUUID(), 4));
+        LiveEvent money = LiveEvent.moneyInserted(MACHINE, "kiosk-1", new MoneyDTO(2.0));
+        hub.publish(stock);
+        hub.publish(money);
+        runPending();
+
+        assertEquals(List.of(stock, money), kiosk1.events);
+        assertEquals(List.of(stock), kiosk2.events);
+        assertTrue(otherMachine.events.isEmpty());
+    }
+
+    @Test
+    void shouldCoalescePendingEventsWithTheSameKey() {
+        RecordingSink sink = new RecordingSink();
+        hub.subscribe(MACHINE, "kiosk-1", sink);
+        UUID product = UUID.randomUUID();
+
+        hub.publish(LiveEvent.moneyInserted(MACHINE, "kiosk-1", new MoneyDTO(1.0)));
+        hub.publish(LiveEvent.stockChanged(MACHINE, new StockLevelDTO(product, 4)));
+        LiveEvent latestMoney = LiveEvent.moneyInserted(MACHINE, "kiosk-1", new MoneyDTO(3.0));
+        hub.publish(latestMoney);
+        runPending();
+
+        assertEquals(List.of(LiveEvent.stockChanged(MACHINE, new StockLevelDTO(product, 4)), latestMoney), sink.events);
+    }
+
+    @Test
+    void shouldScheduleOneDrainWhileEventsArePending() {
+        hub.subscribe(MACHINE, "kiosk-1", new RecordingSink());
+
+        hub.publish(LiveEvent.moneyInserted(MACHINE, "kiosk-1", new MoneyDTO(1.0)));
+        hub.publish(LiveEvent.stockChanged(MACHINE, new StockLevelDTO(UUID.randomUUID(), 4)));
+
+        assertEquals(1, pending.size());
+    }
+
+    @Test
+    void shouldReplaceOverflowingBufferWithResync() {
+        RecordingSink sink = new RecordingSink();
+        hub.subscribe(MACHINE, "kiosk-1", sink);
+
+        for (int i = 0; i < 3; i++) {
+            hub.publish(LiveEvent.stockChanged(MACHINE, new StockLevelDTO(UUID.randomUUID(), i)));
+        }
+        LiveEvent last = LiveEvent.stockChanged(MACHINE, new StockLevelDTO(UUID.randomUUID(), 9));
+        hub.publish(last);
+        runPending();
+
+        assertEquals(2, sink.events.size());
+        assertEquals(LiveEventType.RESYNC, sink.events.get(0).type());
+        assertEquals(last, sink.events.get(1));
+    }
+
+    @Test
+    void shouldCancelSubscriptionWhenConnectionBreaks() {
+        RecordingSink sink = new RecordingSink();
+        sink.broken = true;
+        hub.subscribe(MACHINE, "kiosk-1", sink);
+
+        hub.publish(LiveEvent.moneyInserted(MACHINE, "kiosk-1", new MoneyDTO(1.0)));
+        runPending();
+
+        assertTrue(sink.closed);
+        assertEquals(0, hub.subscriptionCount());
+    }
+
+    @Test
+    void shouldStopDeliveringAfterCancel() {
+        RecordingSink sink = new RecordingSink();
+        LiveEventHub.Subscription subscription = hub.subscribe(MACHINE, "kiosk-1", sink);
+
+        hub.publish(LiveEvent.moneyInserted(MACHINE, "kiosk-1", new MoneyDTO(1.0)));
+        subscription.cancel();
+        runPending();
+
+        assertTrue(sink.events.isEmpty());
+        assertTrue(sink.closed);
+        assertEquals(0, hub.subscriptionCount());
+    }
+
+    @Test
+    void shouldRejectNonPositiveBufferCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new LiveEventHub(0, executor));
+    }
+
+    private void runPending() {
+        Runnable task;
+        while ((task = pending.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static final class RecordingSink implements LiveEventSink {
+
+        private final List<LiveEvent> events = new ArrayList<>();
+
+        private boolean broken;
+
+        private boolean closed;
+
+        @Override
+        public void send(LiveEvent event) throws IOException {
+            if (broken) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(event);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.live;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.CompletedOrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.StockLevelDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.MoneyInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductSelected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCancelled;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCompleted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LiveEventSubscriberTest {
+
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
+    @Mock
+    private LiveEventHub liveEvents;
+
+    @Mock
+    private MoneyMapper moneyMapper;
+
+    @Mock
+    private SelectedProductMapper selectedProductMapper;
+
+    @InjectMocks
+    private LiveEventSubscriber subscriber;
+
+    private ProductId productId;
+    private SelectedProduct selectedProduct;
+    private SelectedProductDTO selectedProductDTO;
+
+    @BeforeEach
+    void setUp() {
+        productId = new ProductId(UUID.randomUUID());
+        selectedProduct = new SelectedProduct(new Product("Coke", 1.5, productId, 5));
+        selectedProductDTO = new SelectedProductDTO(productId.id(), "Coke", 1.5);
+    }
+
+    @Test
+    void shouldPushTotalInsertedAmount() {
+        subscriber.onEvent(MACHINE, SESSION, new MoneyInserted("tx", Money.of(2.0), 700), true);
+
+        verify(liveEvents).publish(LiveEvent.moneyInserted(MACHINE, SESSION, new MoneyDTO(7.0)));
+    }
+
+    @Test
+    void shouldPushWholeSelection() {
+        when(selectedProductMapper.toDto(selectedProduct)).thenReturn(selectedProductDTO);
+
+        subscriber.onEvent(MACHINE, SESSION, new ProductSelected("tx", productId, List.of(selectedProduct)), true);
+
+        verify(liveEvents).publish(LiveEvent.selectionChanged(
+                LiveEventType.PRODUCT_SELECTED, MACHINE, SESSION, List.of(selectedProductDTO)));
+    }
+
+    @Test
+    void shouldPushRemainingStockToTheWholeMachine() {
+        subscriber.onEvent(MACHINE, null, new ProductDispensed(productId, 2, 3), true);
+
+        verify(liveEvents).publish(LiveEvent.stockChanged(MACHINE, new StockLevelDTO(productId.id(), 3)));
+    }
+
+    @Test
+    void shouldPushCompletedOrderWithChangeOwed() {
+        when(selectedProductMapper.toDto(selectedProduct)).thenReturn(selectedProductDTO);
+
+        subscriber.onEvent(MACHINE, SESSION, new TransactionCompleted("tx", List.of(selectedProduct), 500, 150), true);
+
+        verify(liveEvents).publish(LiveEvent.orderCompleted(MACHINE, SESSION,
+                new CompletedOrderDTO(List.of(selectedProductDTO), new MoneyDTO(3.5))));
+    }
+
+    @Test
+    void shouldPushReturnedMoneyOfCancelledOrder() {
+        Money coin = Money.of(5.0);
+        when(moneyMapper.toDTO(coin)).thenReturn(new MoneyDTO(5.0));
+
+        subscriber.onEvent(MACHINE, SESSION, new TransactionCancelled("tx", List.of(coin)), true);
+
+        verify(liveEvents).publish(LiveEvent.orderCancelled(MACHINE, SESSION,
+                new OrderDTO(List.of(), List.of(new MoneyDTO(5.0)))));
+    }
+
+    @Test
+    void shouldNotPushDispensedCoins() {
+        subscriber.onEvent(MACHINE, null, new ChangeDispensed(350, List.of(Money.of(2.0))), true);
+
+        verifyNoInteractions(liveEvents);
+    }
+}
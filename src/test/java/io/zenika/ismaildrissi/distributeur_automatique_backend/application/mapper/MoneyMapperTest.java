@@ -28,7 +28,7 @@ class MoneyMapperTest {
 
     @Test
     void shouldMapMoneyToDTO() {
-        Money money = new Money(2.0);
+        Money money = Money.of(2.0);
         
         MoneyDTO result = moneyMapper.toDTO(money);
         
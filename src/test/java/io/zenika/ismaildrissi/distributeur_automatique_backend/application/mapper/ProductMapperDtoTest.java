@@ -7,21 +7,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
-import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ProductMapperDtoTest {
 
-    @Mock
-    private ModelMapper modelMapper;
-
     @InjectMocks
     private ProductMapperDto productMapperDto;
 
@@ -51,13 +45,14 @@ class ProductMapperDtoTest {
 
     @Test
     void shouldMapProductDTOToDomain() {
-        when(modelMapper.map(productDTO, Product.class)).thenReturn(product);
-        
         Product result = productMapperDto.toDomain(productDTO);
         
         assertNotNull(result);
-        assertEquals(product, result);
-        verify(modelMapper).map(productDTO, Product.class);
+        assertEquals(productId, result.productId());
+        assertEquals("Test Product", result.name());
+        assertEquals(2.5, result.price());
+        assertEquals(5, result.quantity());
+        assertNull(result.version());
     }
 
     @Test
@@ -123,16 +118,13 @@ class ProductMapperDtoTest {
     }
 
     @Test
-    void shouldCallModelMapperForDomainMapping() {
-        ProductDTO customDTO = new ProductDTO(productUuid, "Custom Product", 3.0, 7);
-        Product expectedProduct = new Product("Custom Product", 3.0, productId, 7);
-        when(modelMapper.map(customDTO, Product.class)).thenReturn(expectedProduct);
+    void shouldRoundTripProductThroughDTO() {
+        Product result = productMapperDto.toDomain(productMapperDto.toDTO(product));
         
-        Product result = productMapperDto.toDomain(customDTO);
-        
-        assertNotNull(result);
-        assertEquals(expectedProduct, result);
-        verify(modelMapper, times(1)).map(customDTO, Product.class);
+        assertEquals(product.productId(), result.productId());
+        assertEquals(product.name(), result.name());
+        assertEquals(product.priceCents(), result.priceCents());
+        assertEquals(product.quantity(), result.quantity());
     }
 
     @Test
@@ -0,0 +1,116 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseItemDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.MachinePartitionExecutor;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionedTransactionServiceTest {
+
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
+    @Mock
+    private TransactionService delegate;
+
+    private final List<String> loads = new ArrayList<>();
+
+    private final TransactionSessionRegistry sessionRegistry =
+            new TransactionSessionRegistry(mock(TransactionRepository.class), Duration.ofMinutes(5), (machineId, sessionId, event) -> {
+            });
+
+    private MachinePartitionExecutor executor;
+
+    private PartitionedTransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        VendingMachineRegistry registry = new VendingMachineRegistry(2, 10, machineId -> {
+            loads.add(Thread.currentThread().getName());
+            return new VendingMachine(List.of(), List.of());
+        });
+        executor = new MachinePartitionExecutor(registry, 16);
+        transactionService = new PartitionedTransactionService(delegate, executor, registry, sessionRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void shouldRunOperationsOnPartitionThread() {
+        AtomicReference<String> thread = new AtomicReference<>();
+        OrderDTO orderDTO = new OrderDTO();
+        when(delegate.completeOrder(MACHINE, SESSION)).thenAnswer(invocation -> {
+            thread.set(Thread.currentThread().getName());
+            return orderDTO;
+        });
+
+        assertSame(orderDTO, transactionService.completeOrder(MACHINE, SESSION));
+        assertTrue(thread.get().startsWith("machine-partition-"));
+    }
+
+    @Test
+    void shouldDelegateEveryOperation() {
+        UUID productId = UUID.randomUUID();
+        MoneyDTO moneyDTO = new MoneyDTO(2.0);
+        PurchaseDTO purchase = new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productId, 1)));
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productId);
+        transactionService.unselectProduct(MACHINE, SESSION, productId);
+        transactionService.totalInsertedAmount(MACHINE, SESSION);
+        transactionService.getSelectedProducst(MACHINE, SESSION);
+        transactionService.cancelOrder(MACHINE, SESSION);
+        transactionService.purchase(MACHINE, SESSION, purchase);
+
+        verify(delegate).insertMoney(MACHINE, SESSION, moneyDTO);
+        verify(delegate).selectProduct(MACHINE, SESSION, productId);
+        verify(delegate).unselectProduct(MACHINE, SESSION, productId);
+        verify(delegate).totalInsertedAmount(MACHINE, SESSION);
+        verify(delegate).selectedProducts(MACHINE, SESSION);
+        verify(delegate).cancelOrder(MACHINE, SESSION);
+        verify(delegate).purchase(MACHINE, SESSION, purchase);
+    }
+
+    @Test
+    void shouldLoadTheMachineAndRegisterTheSessionBeforeQueuingTheCommand() {
+        String caller = Thread.currentThread().getName();
+
+        transactionService.insertMoney(MACHINE, SESSION, new MoneyDTO(2.0));
+
+        assertEquals(List.of(caller), loads);
+        assertTrue(sessionRegistry.hasOpenSessions(MACHINE));
+    }
+
+    @Test
+    void shouldPropagateExceptionOfDelegate() {
+        when(delegate.cancelOrder(MACHINE, SESSION)).thenThrow(new IllegalStateException("boom"));
+
+        assertThrows(IllegalStateException.class, () -> transactionService.cancelOrder(MACHINE, SESSION));
+    }
+}
@@ -1,5 +1,6 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.impl;
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
@@ -8,7 +9,6 @@ import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -29,7 +29,8 @@ class ProductServiceImplTest {
     @Mock
     private ProductMapperDto productMapper;
 
-    @InjectMocks
+    private static final String MACHINE = "machine-1";
+
     private ProductServiceImpl productService;
 
     private Product product1;
@@ -41,6 +42,8 @@ class ProductServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        productService = new ProductServiceImpl(productRepository, productMapper, new ProductCatalogCache(productRepository, productMapper, 100));
+
         productUuid = UUID.randomUUID();
         productId = new ProductId(productUuid);
         
@@ -56,28 +59,28 @@ class ProductServiceImplTest {
         List<Product> products = Arrays.asList(product1, product2);
         List<ProductDTO> expectedDTOs = Arrays.asList(productDTO1, productDTO2);
         
-        when(productRepository.findAllProducts()).thenReturn(products);
+        when(productRepository.findAllProducts(MACHINE)).thenReturn(products);
         when(productMapper.toDTO(product1)).thenReturn(productDTO1);
         when(productMapper.toDTO(product2)).thenReturn(productDTO2);
         
-        List<ProductDTO> result = productService.listProducts();
+        List<ProductDTO> result = productService.listProducts(MACHINE);
         
         assertEquals(2, result.size());
         assertEquals(expectedDTOs, result);
         
-        verify(productRepository).findAllProducts();
+        verify(productRepository).findAllProducts(MACHINE);
         verify(productMapper).toDTO(product1);
         verify(productMapper).toDTO(product2);
     }
 
     @Test
     void shouldReturnEmptyListWhenNoProducts() {
-        when(productRepository.findAllProducts()).thenReturn(Arrays.asList());
+        when(productRepository.findAllProducts(MACHINE)).thenReturn(Arrays.asList());
         
-        List<ProductDTO> result = productService.listProducts();
+        List<ProductDTO> result = productService.listProducts(MACHINE);
         
         assertTrue(result.isEmpty());
-        verify(productRepository).findAllProducts();
+        verify(productRepository).findAllProducts(MACHINE);
         verifyNoInteractions(productMapper);
     }
 
@@ -106,4 +109,16 @@ class ProductServiceImplTest {
         verify(productRepository).findProductById(productId);
         verifyNoInteractions(productMapper);
     }
+
+    @Test
+    void shouldServeRepeatedListingsFromCache() {
+        when(productRepository.findAllProducts(MACHINE)).thenReturn(Arrays.asList(product1));
+        when(productMapper.toDTO(product1)).thenReturn(productDTO1);
+
+        productService.listProducts(MACHINE);
+        List<ProductDTO> result = productService.listProducts(MACHINE);
+
+        assertEquals(List.of(productDTO1), result);
+        verify(productRepository, times(1)).findAllProducts(MACHINE);
+    }
 }
@@ -2,27 +2,48 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.application.serv
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseItemDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.MoneyNotYetInserted;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.MoneyMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.ProductMapperDto;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.mapper.SelectedProductMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.session.TransactionSessionRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock.StockReservation;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.MoneyInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductSelected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductUnselected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCancelled;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCompleted;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.SelectedProduct;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionResult;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.IllegalTransactionStateException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.InsufficientFundsException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
-import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -38,7 +59,7 @@ class TransactionServiceImplTest {
     private VendingMachine vendingMachine;
 
     @Mock
-    private VendingMachineRepository vendingMachineRepository;
+    private VendingMachineRegistry vendingMachines;
 
     @Mock
     private MoneyMapper moneyMapper;
@@ -46,9 +67,35 @@ class TransactionServiceImplTest {
     @Mock
     private SelectedProductMapper selectedProductMapper;
 
+    @Mock
+    private ProductMapperDto productMapper;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    /** Events published by the sessions, with their routing context */
+    private final List<String> routes = new ArrayList<>();
+
+    private final List<DomainEvent> events = new ArrayList<>();
+
+    private final DomainEventBus domainEventBus = (machineId, sessionId, event) -> {
+        routes.add(machineId + "/" + sessionId);
+        events.add(event);
+    };
+
+    @Spy
+    private TransactionSessionRegistry sessionRegistry = new TransactionSessionRegistry(mock(TransactionRepository.class), Duration.ofMinutes(5), domainEventBus);
+
+    @Spy
+    private StockReservation stockReservation = StockReservation.local();
+
     @InjectMocks
     private TransactionServiceImpl transactionService;
 
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
     private UUID productUuid;
     private ProductId productId;
     private Product product;
@@ -61,14 +108,16 @@ class TransactionServiceImplTest {
         productId = new ProductId(productUuid);
         product = new Product("Test Product", 2.0, productId, 5);
         moneyDTO = new MoneyDTO(5.0);
-        money = new Money(5.0);
+        money = Money.of(5.0);
+        lenient().when(vendingMachines.machine(MACHINE)).thenReturn(vendingMachine);
+        lenient().when(vendingMachine.canDispenseChange(anyLong(), anyList())).thenReturn(true);
     }
 
     @Test
     void shouldInsertMoneySuccessfully() {
         when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
         
-        transactionService.insertMoney(moneyDTO);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
         
         verify(moneyMapper).toDomain(moneyDTO);
     }
@@ -79,8 +128,8 @@ class TransactionServiceImplTest {
         when(vendingMachine.getProduct(productId)).thenReturn(product);
         when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
 
-        transactionService.insertMoney(moneyDTO);
-        transactionService.selectProduct(productUuid);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
 
         verify(vendingMachine).isProductAvailable(productId);
         verify(vendingMachine).getProduct(productId);
@@ -92,7 +141,7 @@ class TransactionServiceImplTest {
         
         ProductNotFoundException exception = assertThrows(
             ProductNotFoundException.class,
-            () -> transactionService.selectProduct(productUuid)
+            () -> transactionService.selectProduct(MACHINE, SESSION, productUuid)
         );
         
         assertEquals("Product was not found", exception.getMessage());
@@ -106,21 +155,38 @@ class TransactionServiceImplTest {
         when(vendingMachine.getProduct(productId)).thenReturn(product);
         when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
 
-        transactionService.insertMoney(moneyDTO);
-        transactionService.selectProduct(productUuid);
-        transactionService.unselectProduct(productUuid);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
+        transactionService.unselectProduct(MACHINE, SESSION, productUuid);
 
         verify(vendingMachine, times(2)).isProductAvailable(productId);
         verify(vendingMachine, times(2)).getProduct(productId);
     }
 
+    @Test
+    void shouldPublishDomainEventsOfTheSession() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
+        transactionService.unselectProduct(MACHINE, SESSION, productUuid);
+
+        assertEquals(List.of(MoneyInserted.class, ProductSelected.class, ProductUnselected.class),
+                events.stream().map(Object::getClass).toList());
+        assertEquals(List.of(MACHINE + "/" + SESSION), routes.stream().distinct().toList());
+        assertEquals(500, ((MoneyInserted) events.get(0)).insertedAmount());
+        assertTrue(((ProductUnselected) events.get(2)).selection().isEmpty());
+    }
+
     @Test
     void shouldThrowExceptionWhenUnselectingUnavailableProduct() {
         when(vendingMachine.isProductAvailable(productId)).thenReturn(false);
         
         ProductNotFoundException exception = assertThrows(
             ProductNotFoundException.class,
-            () -> transactionService.unselectProduct(productUuid)
+            () -> transactionService.unselectProduct(MACHINE, SESSION, productUuid)
         );
         
         assertEquals("Product was not found", exception.getMessage());
@@ -130,7 +196,7 @@ class TransactionServiceImplTest {
 
     @Test
     void shouldReturnTotalInsertedAmount() {
-        MoneyDTO result = transactionService.totalInsertedAmount();
+        MoneyDTO result = transactionService.totalInsertedAmount(MACHINE, SESSION);
         
         assertNotNull(result);
         assertEquals(0.0, result.getValue());
@@ -138,15 +204,30 @@ class TransactionServiceImplTest {
 
     @Test
     void shouldReturnSelectedProducts() {
-        List<SelectedProductDTO> result = transactionService.selectedProducts();
+        List<SelectedProductDTO> result = transactionService.selectedProducts(MACHINE, SESSION);
         
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void shouldReturnProductsAffordableWithTheMoneyLeft() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        when(vendingMachine.affordableProducts(300)).thenReturn(List.of(product));
+        ProductDTO productDTO = new ProductDTO(productUuid, "Test Product", 2.0, 5);
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
+
+        assertEquals(List.of(productDTO), transactionService.affordableProducts(MACHINE, SESSION));
+    }
+
     @Test
     void shouldReturnSelectedProductsFromGetMethod() {
-        List<SelectedProductDTO> result = transactionService.getSelectedProducst();
+        List<SelectedProductDTO> result = transactionService.getSelectedProducst(MACHINE, SESSION);
 
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -158,9 +239,9 @@ class TransactionServiceImplTest {
         when(vendingMachine.getProduct(productId)).thenReturn(product);
         when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
 
-        Money changeAmount = new Money(2.0);
+        Money changeAmount = Money.of(2.0);
         List<Money> change = Arrays.asList(changeAmount);
-        when(vendingMachine.calculateChange(3.0)).thenReturn(change);
+        when(vendingMachine.sell(List.of(productId), List.of(money), 300)).thenReturn(change);
 
         MoneyDTO changeDTOResult = new MoneyDTO(2.0);
         when(moneyMapper.toDTO(changeAmount)).thenReturn(changeDTOResult);
@@ -168,10 +249,10 @@ class TransactionServiceImplTest {
         SelectedProductDTO selectedProductDTO = new SelectedProductDTO(productUuid, "Test Product", 2.0);
         when(selectedProductMapper.toDto(any(SelectedProduct.class))).thenReturn(selectedProductDTO);
 
-        transactionService.insertMoney(moneyDTO);
-        transactionService.selectProduct(productUuid);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
 
-        OrderDTO result = transactionService.completeOrder();
+        OrderDTO result = transactionService.completeOrder(MACHINE, SESSION);
 
         assertNotNull(result);
         assertEquals(1, result.getSelectedProducts().size());
@@ -179,16 +260,86 @@ class TransactionServiceImplTest {
         assertEquals(1, result.getReturnedMoney().size());
         assertEquals(changeDTOResult, result.getReturnedMoney().get(0));
 
-        verify(vendingMachine).dispenseProduct(productId);
-        verify(vendingMachine).calculateChange(3.0);
-        verify(vendingMachineRepository).updateProduct(product);
+        verify(vendingMachine).sell(List.of(productId), List.of(money), 300);
+        TransactionCompleted completed = (TransactionCompleted) events.get(events.size() - 1);
+        assertEquals(300, completed.change());
+        assertEquals(List.of(productId), completed.selectedProducts().stream().map(SelectedProduct::productId).toList());
+    }
+
+    @Test
+    void shouldRefuseOrderWhoseChangeCannotBeGivenAndKeepItOpen() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        when(vendingMachine.canDispenseChange(300, List.of(money))).thenReturn(false);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
+
+        assertThrows(ChangeNotAvailableException.class, () -> transactionService.completeOrder(MACHINE, SESSION));
+
+        verify(vendingMachine, never()).sell(any(), any(), anyLong());
+        assertEquals(1, transactionService.selectedProducts(MACHINE, SESSION).size());
+        assertFalse(events.stream().anyMatch(TransactionCompleted.class::isInstance));
+    }
+
+    @Test
+    void shouldKeepTheLosingOrderOpenWhenTwoSessionsRaceForTheLastUnit() {
+        VendingMachine machine = new VendingMachine(
+                List.of(new Product("Test Product", 2.0, productId, 1)),
+                List.of(Money.of(2.0), Money.of(1.0), Money.of(2.0), Money.of(1.0)));
+        when(vendingMachines.machine(MACHINE)).thenReturn(machine);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        when(moneyMapper.toDTO(any(Money.class))).thenAnswer(invocation -> new MoneyDTO(invocation.<Money>getArgument(0).value()));
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
+        transactionService.insertMoney(MACHINE, "kiosk-2", moneyDTO);
+        transactionService.selectProduct(MACHINE, "kiosk-2", productUuid);
+
+        transactionService.completeOrder(MACHINE, SESSION);
+
+        assertThrows(ProductNotFoundException.class, () -> transactionService.completeOrder(MACHINE, "kiosk-2"));
+        assertEquals(TransactionStatus.IN_PROGRESS,
+                sessionRegistry.session(MACHINE, "kiosk-2").activeTransaction().orElseThrow().status());
+        assertEquals(1, machine.coinCount(Money.of(5.0)));
+        assertEquals(List.of(moneyDTO), transactionService.cancelOrder(MACHINE, "kiosk-2").getReturnedMoney());
+        assertEquals(1, events.stream().filter(TransactionCompleted.class::isInstance).count());
+    }
+
+    @Test
+    void shouldReportChangeAvailabilityOfTheCurrentSelection() {
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        when(vendingMachine.canDispenseChange(500, List.of(money))).thenReturn(false);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+
+        assertFalse(transactionService.changeAvailable(MACHINE, SESSION, null));
+    }
+
+    @Test
+    void shouldReportChangeAvailabilityWithAnExtraProduct() {
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+
+        assertTrue(transactionService.changeAvailable(MACHINE, SESSION, productUuid));
+        verify(vendingMachine).canDispenseChange(300, List.of(money));
+    }
+
+    @Test
+    void shouldReportChangeUnavailableWhenFundsAreShort() {
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+
+        assertFalse(transactionService.changeAvailable(MACHINE, SESSION, productUuid));
+        verify(vendingMachine, never()).canDispenseChange(anyLong(), anyList());
     }
 
     @Test
     void shouldThrowExceptionWhenCompletingOrderWithoutTransaction() {
         MoneyNotYetInserted exception = assertThrows(
             MoneyNotYetInserted.class,
-            () -> transactionService.completeOrder()
+            () -> transactionService.completeOrder(MACHINE, SESSION)
         );
         assertEquals("Can't complete order because there is no current transaction", exception.getMessage());
     }
@@ -197,17 +348,122 @@ class TransactionServiceImplTest {
     void shouldThrowExceptionWhenCompletingOrderWithInsufficientFunds() {
         when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
         when(vendingMachine.getProduct(productId)).thenReturn(product);
-        when(moneyMapper.toDomain(any(MoneyDTO.class))).thenReturn(new Money(1.0));
+        when(moneyMapper.toDomain(any(MoneyDTO.class))).thenReturn(Money.of(1.0));
 
-        transactionService.insertMoney(new MoneyDTO(1.0));
+        transactionService.insertMoney(MACHINE, SESSION, new MoneyDTO(1.0));
 
         InsufficientFundsException exception = assertThrows(
             InsufficientFundsException.class,
-            () -> transactionService.selectProduct(productUuid)
+            () -> transactionService.selectProduct(MACHINE, SESSION, productUuid)
         );
         assertEquals("Cannot add product due to insufficient funds.", exception.getMessage());
     }
 
+    @Test
+    void shouldPurchaseInOneStep() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        Money changeCoin = Money.of(1.0);
+        when(vendingMachine.sell(List.of(productId, productId), List.of(money), 100)).thenReturn(List.of(changeCoin));
+        MoneyDTO changeDTO = new MoneyDTO(1.0);
+        when(moneyMapper.toDTO(changeCoin)).thenReturn(changeDTO);
+        SelectedProductDTO selectedProductDTO = new SelectedProductDTO(productUuid, "Test Product", 2.0);
+        when(selectedProductMapper.toDto(any(SelectedProduct.class))).thenReturn(selectedProductDTO);
+        // Reading the state opens an empty transaction, which the purchase can use
+        transactionService.totalInsertedAmount(MACHINE, SESSION);
+
+        OrderDTO result = transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 2))));
+
+        assertEquals(List.of(selectedProductDTO, selectedProductDTO), result.getSelectedProducts());
+        assertEquals(List.of(changeDTO), result.getReturnedMoney());
+        verify(vendingMachine).sell(List.of(productId, productId), List.of(money), 100);
+        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        assertInstanceOf(TransactionCompleted.class, events.get(events.size() - 1));
+        assertTrue(sessionRegistry.session(MACHINE, SESSION).activeTransaction().isEmpty());
+    }
+
+    @Test
+    void shouldRefusePurchaseBeyondTheStockBeforeTakingTheCoins() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+
+        assertThrows(ProductNotFoundException.class, () -> transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 6)))));
+
+        assertTrue(events.isEmpty());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void shouldRejectPurchaseWithoutProducts() {
+        assertThrows(IllegalProductQuantity.class, () -> transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(moneyDTO), List.of())));
+        assertThrows(IllegalProductQuantity.class, () -> transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 0)))));
+    }
+
+    @Test
+    void shouldReturnTheCoinsOfAPurchaseThatCannotBePaid() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        MoneyDTO oneDirham = new MoneyDTO(1.0);
+        when(moneyMapper.toDomain(oneDirham)).thenReturn(Money.of(1.0));
+
+        assertThrows(InsufficientFundsException.class, () -> transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(oneDirham), List.of(new PurchaseItemDTO(productUuid, 1)))));
+
+        TransactionCancelled cancelled = (TransactionCancelled) events.get(events.size() - 1);
+        assertEquals(List.of(Money.of(1.0)), cancelled.returnedMoney());
+        verify(vendingMachine, never()).sell(any(), any(), anyLong());
+        assertTrue(sessionRegistry.session(MACHINE, SESSION).activeTransaction().isEmpty());
+    }
+
+    @Test
+    void shouldReleaseTheSessionOfAPurchaseThatFailsAfterCompleting() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        doThrow(new IllegalStateException("Database unavailable")).when(transactionRepository).save(any(Transaction.class));
+
+        assertThrows(IllegalStateException.class, () -> transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 1)))));
+
+        assertFalse(events.stream().anyMatch(TransactionCancelled.class::isInstance));
+        assertTrue(sessionRegistry.session(MACHINE, SESSION).activeTransaction().isEmpty());
+    }
+
+    @Test
+    void shouldReleaseTheSessionOfAPurchaseWhoseCancellationCannotBeSaved() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        when(vendingMachine.sell(List.of(productId), List.of(money), 300))
+                .thenThrow(new ChangeNotAvailableException("The machine cannot give the change of this order"));
+        IllegalStateException saveFailure = new IllegalStateException("Database unavailable");
+        doThrow(saveFailure).when(transactionRepository).save(any(Transaction.class));
+
+        ChangeNotAvailableException error = assertThrows(ChangeNotAvailableException.class, () -> transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 1)))));
+
+        assertArrayEquals(new Throwable[]{saveFailure}, error.getSuppressed());
+        assertTrue(sessionRegistry.session(MACHINE, SESSION).activeTransaction().isEmpty());
+    }
+
+    @Test
+    void shouldRefusePurchaseWhileATransactionIsInProgress() {
+        when(vendingMachine.isProductAvailable(productId)).thenReturn(true);
+        when(vendingMachine.getProduct(productId)).thenReturn(product);
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+
+        assertThrows(IllegalTransactionStateException.class, () -> transactionService.purchase(MACHINE, SESSION,
+                new PurchaseDTO(List.of(moneyDTO), List.of(new PurchaseItemDTO(productUuid, 1)))));
+
+        assertEquals(5.0, transactionService.totalInsertedAmount(MACHINE, SESSION).getValue());
+    }
+
     @Test
     void shouldCancelOrderSuccessfully() {
         when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
@@ -215,9 +471,9 @@ class TransactionServiceImplTest {
         MoneyDTO returnedMoneyDTO = new MoneyDTO(5.0);
         when(moneyMapper.toDTO(money)).thenReturn(returnedMoneyDTO);
 
-        transactionService.insertMoney(moneyDTO);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
 
-        OrderDTO result = transactionService.cancelOrder();
+        OrderDTO result = transactionService.cancelOrder(MACHINE, SESSION);
 
         assertNotNull(result);
         assertTrue(result.getSelectedProducts().isEmpty());
@@ -225,6 +481,8 @@ class TransactionServiceImplTest {
         assertEquals(returnedMoneyDTO, result.getReturnedMoney().get(0));
 
         verify(moneyMapper).toDTO(money);
+        assertEquals(new TransactionCancelled(((MoneyInserted) events.get(0)).transactionId(), List.of(money)),
+                events.get(events.size() - 1));
     }
 
     @Test
@@ -236,10 +494,10 @@ class TransactionServiceImplTest {
         MoneyDTO returnedMoneyDTO = new MoneyDTO(5.0);
         when(moneyMapper.toDTO(money)).thenReturn(returnedMoneyDTO);
 
-        transactionService.insertMoney(moneyDTO);
-        transactionService.selectProduct(productUuid);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
 
-        OrderDTO result = transactionService.cancelOrder();
+        OrderDTO result = transactionService.cancelOrder(MACHINE, SESSION);
 
         assertNotNull(result);
         assertTrue(result.getSelectedProducts().isEmpty());
@@ -247,14 +505,14 @@ class TransactionServiceImplTest {
         assertEquals(returnedMoneyDTO, result.getReturnedMoney().get(0));
 
         verify(moneyMapper).toDTO(money);
-        verifyNoInteractions(vendingMachineRepository);
+        verify(transactionRepository, atLeastOnce()).save(argThat(t -> t.status() == TransactionStatus.CANCELLED));
     }
 
     @Test
     void shouldThrowExceptionWhenCancellingOrderWithoutTransaction() {
         MoneyNotYetInserted exception = assertThrows(
             MoneyNotYetInserted.class,
-            () -> transactionService.cancelOrder()
+            () -> transactionService.cancelOrder(MACHINE, SESSION)
         );
         assertEquals("Can't cancel order because there is no current transaction", exception.getMessage());
     }
@@ -263,8 +521,8 @@ class TransactionServiceImplTest {
     void shouldCancelOrderWithMultipleMoneyInsertions() {
         MoneyDTO money1DTO = new MoneyDTO(2.0);
         MoneyDTO money2DTO = new MoneyDTO(1.0);
-        Money money1 = new Money(2.0);
-        Money money2 = new Money(1.0);
+        Money money1 = Money.of(2.0);
+        Money money2 = Money.of(1.0);
 
         when(moneyMapper.toDomain(money1DTO)).thenReturn(money1);
         when(moneyMapper.toDomain(money2DTO)).thenReturn(money2);
@@ -274,10 +532,10 @@ class TransactionServiceImplTest {
         when(moneyMapper.toDTO(money1)).thenReturn(returnedMoney1DTO);
         when(moneyMapper.toDTO(money2)).thenReturn(returnedMoney2DTO);
 
-        transactionService.insertMoney(money1DTO);
-        transactionService.insertMoney(money2DTO);
+        transactionService.insertMoney(MACHINE, SESSION, money1DTO);
+        transactionService.insertMoney(MACHINE, SESSION, money2DTO);
 
-        OrderDTO result = transactionService.cancelOrder();
+        OrderDTO result = transactionService.cancelOrder(MACHINE, SESSION);
 
         assertNotNull(result);
         assertTrue(result.getSelectedProducts().isEmpty());
@@ -292,23 +550,22 @@ class TransactionServiceImplTest {
         when(vendingMachine.getProduct(productId)).thenReturn(product);
         when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
 
-        when(vendingMachine.calculateChange(3.0)).thenReturn(Collections.emptyList());
+        when(vendingMachine.sell(List.of(productId), List.of(money), 300)).thenReturn(Collections.emptyList());
 
         SelectedProductDTO selectedProductDTO = new SelectedProductDTO(productUuid, "Test Product", 2.0);
         when(selectedProductMapper.toDto(any(SelectedProduct.class))).thenReturn(selectedProductDTO);
 
-        transactionService.insertMoney(moneyDTO);
-        transactionService.selectProduct(productUuid);
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
 
-        OrderDTO result = transactionService.completeOrder();
+        OrderDTO result = transactionService.completeOrder(MACHINE, SESSION);
 
         assertNotNull(result);
         assertEquals(1, result.getSelectedProducts().size());
         assertTrue(result.getReturnedMoney().isEmpty());
 
-        verify(vendingMachine).dispenseProduct(productId);
-        verify(vendingMachine).calculateChange(3.0);
-        verify(vendingMachineRepository).updateProduct(product);
+        // The inserted coins are handed to the sale, which deposits them before taking the change
+        verify(vendingMachine).sell(List.of(productId), List.of(money), 300);
     }
 
     @Test
@@ -323,17 +580,17 @@ class TransactionServiceImplTest {
         when(vendingMachine.getProduct(product2Id)).thenReturn(product2);
 
         MoneyDTO largeMoneyDTO = new MoneyDTO(10.0);
-        Money largeMoney = new Money(10.0);
+        Money largeMoney = Money.of(10.0);
         when(moneyMapper.toDomain(largeMoneyDTO)).thenReturn(largeMoney);
 
-        Money changeAmount = new Money(5.0);
-        List<Money> change = Arrays.asList(changeAmount, new Money(1.0));
-        when(vendingMachine.calculateChange(6.5)).thenReturn(change);
+        Money changeAmount = Money.of(5.0);
+        List<Money> change = Arrays.asList(changeAmount, Money.of(1.0));
+        when(vendingMachine.sell(List.of(productId, product2Id), List.of(largeMoney), 650)).thenReturn(change);
 
         MoneyDTO changeDTOResult1 = new MoneyDTO(5.0);
         MoneyDTO changeDTOResult2 = new MoneyDTO(1.0);
         when(moneyMapper.toDTO(changeAmount)).thenReturn(changeDTOResult1);
-        when(moneyMapper.toDTO(new Money(1.0))).thenReturn(changeDTOResult2);
+        when(moneyMapper.toDTO(Money.of(1.0))).thenReturn(changeDTOResult2);
 
         SelectedProductDTO selectedProductDTO1 = new SelectedProductDTO(productUuid, "Test Product", 2.0);
         SelectedProductDTO selectedProductDTO2 = new SelectedProductDTO(product2Uuid, "Test Product 2", 1.5);
@@ -341,20 +598,74 @@ class TransactionServiceImplTest {
             .thenReturn(selectedProductDTO1)
             .thenReturn(selectedProductDTO2);
 
-        transactionService.insertMoney(largeMoneyDTO);
-        transactionService.selectProduct(productUuid);
-        transactionService.selectProduct(product2Uuid);
+        transactionService.insertMoney(MACHINE, SESSION, largeMoneyDTO);
+        transactionService.selectProduct(MACHINE, SESSION, productUuid);
+        transactionService.selectProduct(MACHINE, SESSION, product2Uuid);
 
-        OrderDTO result = transactionService.completeOrder();
+        OrderDTO result = transactionService.completeOrder(MACHINE, SESSION);
 
         assertNotNull(result);
         assertEquals(2, result.getSelectedProducts().size());
         assertEquals(2, result.getReturnedMoney().size());
 
-        verify(vendingMachine).dispenseProduct(productId);
-        verify(vendingMachine).dispenseProduct(product2Id);
-        verify(vendingMachine).calculateChange(6.5);
-        verify(vendingMachineRepository).updateProduct(product);
-        verify(vendingMachineRepository).updateProduct(product2);
+        verify(vendingMachine).sell(List.of(productId, product2Id), List.of(largeMoney), 650);
+    }
+
+    @Test
+    void shouldIsolateTransactionsOfDifferentSessions() {
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+
+        assertEquals(5.0, transactionService.totalInsertedAmount(MACHINE, SESSION).getValue());
+        assertEquals(0.0, transactionService.totalInsertedAmount(MACHINE, "kiosk-2").getValue());
+        assertThrows(MoneyNotYetInserted.class, () -> transactionService.completeOrder(MACHINE, "kiosk-3"));
+    }
+
+    @Test
+    void shouldIsolateSessionsOfDifferentMachines() {
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+
+        assertEquals(5.0, transactionService.totalInsertedAmount(MACHINE, SESSION).getValue());
+        assertEquals(0.0, transactionService.totalInsertedAmount("machine-2", SESSION).getValue());
+    }
+
+    @Test
+    void shouldStartNewTransactionAfterCompletion() {
+        when(moneyMapper.toDomain(moneyDTO)).thenReturn(money);
+        when(moneyMapper.toDTO(money)).thenReturn(moneyDTO);
+
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionService.cancelOrder(MACHINE, SESSION);
+
+        assertThrows(MoneyNotYetInserted.class, () -> transactionService.cancelOrder(MACHINE, SESSION));
+        transactionService.insertMoney(MACHINE, SESSION, moneyDTO);
+        verify(transactionRepository, times(3)).save(any(Transaction.class));
+        assertEquals(5.0, transactionService.totalInsertedAmount(MACHINE, SESSION).getValue());
+    }
+
+    @Test
+    void shouldKeepUsingTheSameMachineWhenTheFleetEvictsBetweenLookupAndUse() {
+        List<String> loads = new ArrayList<>();
+        VendingMachine loaded = spy(new VendingMachine(List.of(product), List.of()));
+        VendingMachineRegistry fleet = new VendingMachineRegistry(1, 1, machineId -> {
+            loads.add(machineId);
+            return machineId.equals(MACHINE) ? loaded : new VendingMachine(List.of(), List.of());
+        }, sessionRegistry::hasOpenSessions);
+        TransactionServiceImpl service = new TransactionServiceImpl(moneyMapper, selectedProductMapper, productMapper,
+                fleet, sessionRegistry, transactionRepository, stockReservation);
+        // Another machine is loaded right after the lookup, which evicts the machine unless it is pinned
+        doAnswer(invocation -> {
+            fleet.machine("machine-2");
+            return invocation.callRealMethod();
+        }).when(loaded).getProduct(productId);
+
+        assertFalse(service.changeAvailable(MACHINE, SESSION, productUuid));
+
+        // Still the machine first loaded, not a second instance loaded after an eviction
+        fleet.machine(MACHINE);
+        assertEquals(List.of(MACHINE, "machine-2"), loads);
     }
 }
@@ -0,0 +1,129 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.session;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventBus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionSessionRegistryTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    /** Events published by the sessions, prefixed with their machine and session */
+    private final List<String> published = new ArrayList<>();
+
+    private final DomainEventBus domainEventBus =
+            (machineId, sessionId, event) -> published.add(machineId + "/" + sessionId + ":" + event.getClass().getSimpleName());
+
+    @Test
+    void shouldReturnSameSessionForSameId() {
+        TransactionSessionRegistry registry = new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus);
+
+        TransactionSession first = registry.session("kiosk-1");
+        TransactionSession second = registry.session("kiosk-1");
+
+        assertSame(first, second);
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void shouldKeepTransactionsOfDifferentSessionsApart() {
+        TransactionSessionRegistry registry = new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus);
+
+        Transaction first = registry.session("kiosk-1").currentTransaction();
+        Transaction second = registry.session("kiosk-2").currentTransaction();
+
+        assertNotSame(first, second);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void shouldNotCreateTransactionWhenOnlyQueried() {
+        TransactionSession session = new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus).session("kiosk-1");
+
+        assertTrue(session.activeTransaction().isEmpty());
+    }
+
+    @Test
+    void shouldStartNewTransactionAfterClose() {
+        TransactionSession session = new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus).session("kiosk-1");
+        Transaction first = session.currentTransaction();
+
+        session.close();
+
+        assertTrue(session.activeTransaction().isEmpty());
+        assertNotSame(first, session.currentTransaction());
+    }
+
+    @Test
+    void shouldEvictIdleSessions() {
+        TransactionSessionRegistry registry = new TransactionSessionRegistry(transactionRepository, Duration.ZERO, domainEventBus);
+        registry.session("kiosk-1");
+
+        registry.evictIdleSessions();
+
+        assertEquals(0, registry.size());
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void shouldCancelAndArchiveTransactionOfEvictedSession() {
+        TransactionSessionRegistry registry = new TransactionSessionRegistry(transactionRepository, Duration.ZERO, domainEventBus);
+        Transaction transaction = registry.session("kiosk-1").currentTransaction();
+        transaction.insertMoney(Money.of(2.0));
+
+        registry.evictIdleSessions();
+
+        assertEquals(TransactionStatus.CANCELLED, transaction.status());
+        verify(transactionRepository).save(transaction);
+        assertEquals("default/kiosk-1:TransactionCancelled", published.get(published.size() - 1));
+    }
+
+    @Test
+    void shouldRouteTransactionEventsToTheirMachineAndSession() {
+        TransactionSessionRegistry registry = new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus);
+
+        registry.session("machine-1", "kiosk-1").currentTransaction().insertMoney(Money.of(2.0));
+        registry.session("machine-2", "kiosk-1").currentTransaction().insertMoney(Money.of(1.0));
+
+        assertEquals(List.of("machine-1/kiosk-1:MoneyInserted", "machine-2/kiosk-1:MoneyInserted"), published);
+    }
+
+    @Test
+    void shouldKeepRecentlyUsedSessions() {
+        TransactionSessionRegistry registry = new TransactionSessionRegistry(transactionRepository, Duration.ofMinutes(5), domainEventBus);
+        registry.session("kiosk-1");
+
+        registry.evictIdleSessions();
+
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void shouldTellWhichMachinesHaveOpenSessions() {
+        TransactionSessionRegistry registry = new TransactionSessionRegistry(transactionRepository, Duration.ZERO, domainEventBus);
+        registry.session("machine-1", "kiosk-1");
+        registry.session("machine-1", "kiosk-2");
+
+        assertTrue(registry.hasOpenSessions("machine-1"));
+        assertFalse(registry.hasOpenSessions("machine-2"));
+
+        registry.evictIdleSessions();
+
+        assertFalse(registry.hasOpenSessions("machine-1"));
+    }
+}
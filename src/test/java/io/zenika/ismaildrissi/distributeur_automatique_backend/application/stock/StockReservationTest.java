@@ -0,0 +1,74 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.application.stock;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationTest {
+
+    @Mock
+    private VendingMachineRepository vendingMachineRepository;
+
+    @Mock
+    private VendingMachine vendingMachine;
+
+    private ProductId water;
+
+    private ProductId chips;
+
+    @BeforeEach
+    void setUp() {
+        water = new ProductId(UUID.randomUUID());
+        chips = new ProductId(UUID.randomUUID());
+    }
+
+    @Test
+    void shouldSellFromTheMachineOnlyInLocalMode() {
+        StockReservation reservation = StockReservation.local();
+        when(vendingMachine.sell(List.of(water, chips, water), List.of(Money.of(5.0)), 100)).thenReturn(List.of(Money.of(1.0)));
+
+        assertEquals(List.of(Money.of(1.0)), reservation.sell(vendingMachine, List.of(water, chips, water), List.of(Money.of(5.0)), 100));
+
+        assertFalse(reservation.writesStock());
+    }
+
+    @Test
+    void shouldReserveTheUnitsBeforeSellingThemInDatabaseMode() {
+        StockReservation reservation = StockReservation.database(vendingMachineRepository, TransactionOperations.withoutTransaction());
+
+        reservation.sell(vendingMachine, List.of(water, chips, water), List.of(Money.of(5.0)), 100);
+
+        assertTrue(reservation.writesStock());
+        InOrder inOrder = inOrder(vendingMachineRepository, vendingMachine);
+        inOrder.verify(vendingMachineRepository).reserveStock(Map.of(water, 2, chips, 1));
+        inOrder.verify(vendingMachine).sell(List.of(water, chips, water), List.of(Money.of(5.0)), 100);
+    }
+
+    @Test
+    void shouldNotSellUnitsSoldByAnotherNode() {
+        StockReservation reservation = StockReservation.database(vendingMachineRepository, TransactionOperations.withoutTransaction());
+        doThrow(new IllegalProductQuantity("Not enough units")).when(vendingMachineRepository).reserveStock(Map.of(water, 1));
+
+        assertThrows(ProductNotFoundException.class, () -> reservation.sell(vendingMachine, List.of(water), List.of(Money.of(5.0)), 300));
+
+        verifyNoInteractions(vendingMachine);
+    }
+}
@@ -0,0 +1,40 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.live.LiveEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.live.LiveEventHub;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStreamControllerTest {
+
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
+    private final LiveEventHub hub = new LiveEventHub(8, Runnable::run);
+
+    private final EventStreamController controller = new EventStreamController(hub, Duration.ofMinutes(5));
+
+    @Test
+    void shouldSubscribeStreamToHub() {
+        SseEmitter emitter = controller.stream(MACHINE, SESSION);
+
+        assertEquals(Duration.ofMinutes(5).toMillis(), emitter.getTimeout());
+        assertEquals(1, hub.subscriptionCount());
+    }
+
+    @Test
+    void shouldReleaseSubscriptionWhenHubCloses() {
+        controller.stream(MACHINE, SESSION);
+        hub.publish(LiveEvent.moneyInserted(MACHINE, SESSION, new MoneyDTO(2.0)));
+
+        hub.close();
+
+        assertEquals(0, hub.subscriptionCount());
+    }
+}
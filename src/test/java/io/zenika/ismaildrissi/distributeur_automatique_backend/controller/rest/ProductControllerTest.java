@@ -1,14 +1,20 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.catalog.ProductCatalogCache;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -22,7 +28,10 @@ class ProductControllerTest {
     @Mock
     private ProductService productService;
 
-    @InjectMocks
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String MACHINE = "machine-1";
+
     private ProductController productController;
 
     private ProductDTO productDTO1;
@@ -31,42 +40,95 @@ class ProductControllerTest {
 
     @BeforeEach
     void setUp() {
+        productController = new ProductController(productService, objectMapper, 100);
         productDTO1 = new ProductDTO(UUID.randomUUID(), "Coke", 1.5, 5);
         productDTO2 = new ProductDTO(UUID.randomUUID(), "Water", 1.0, 3);
         productList = Arrays.asList(productDTO1, productDTO2);
     }
 
     @Test
-    void shouldReturnAllProducts() {
-        when(productService.listProducts()).thenReturn(productList);
-        
-        List<ProductDTO> result = productController.getAllProducts();
-        
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(productList, result);
-        
-        verify(productService).listProducts();
+    void shouldReturnAllProducts() throws IOException {
+        when(productService.catalog(MACHINE)).thenReturn(new ProductCatalogCache.Snapshot(1, productList));
+
+        ResponseEntity<byte[]> response = productController.getAllProducts(MACHINE, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals(productList, decode(response.getBody()));
+        verify(productService).catalog(MACHINE);
     }
 
     @Test
-    void shouldReturnEmptyListWhenNoProducts() {
-        when(productService.listProducts()).thenReturn(Arrays.asList());
-        
-        List<ProductDTO> result = productController.getAllProducts();
-        
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
-        
-        verify(productService).listProducts();
+    void shouldReturnEmptyListWhenNoProducts() throws IOException {
+        when(productService.catalog(MACHINE)).thenReturn(new ProductCatalogCache.Snapshot(1, List.of()));
+
+        ResponseEntity<byte[]> response = productController.getAllProducts(MACHINE, null);
+
+        assertTrue(decode(response.getBody()).isEmpty());
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenEtagMatches() {
+        when(productService.catalog(MACHINE)).thenReturn(new ProductCatalogCache.Snapshot(1, productList));
+        String etag = productController.getAllProducts(MACHINE, null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> response = productController.getAllProducts(MACHINE, etag);
+
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void shouldMatchWeakAndListedEtags() {
+        when(productService.catalog(MACHINE)).thenReturn(new ProductCatalogCache.Snapshot(1, productList));
+        String etag = productController.getAllProducts(MACHINE, null).getHeaders().getETag();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, productController.getAllProducts(MACHINE, "\"other\", W/" + etag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, productController.getAllProducts(MACHINE, "*").getStatusCode());
     }
 
     @Test
-    void shouldCallProductServiceOnce() {
-        when(productService.listProducts()).thenReturn(productList);
-        
-        productController.getAllProducts();
-        
-        verify(productService, times(1)).listProducts();
+    void shouldReuseEncodingUntilCatalogChanges() {
+        when(productService.catalog(MACHINE)).thenReturn(new ProductCatalogCache.Snapshot(1, productList));
+        ResponseEntity<byte[]> first = productController.getAllProducts(MACHINE, null);
+        ResponseEntity<byte[]> second = productController.getAllProducts(MACHINE, null);
+
+        when(productService.catalog(MACHINE)).thenReturn(new ProductCatalogCache.Snapshot(2, List.of(productDTO1)));
+        ResponseEntity<byte[]> third = productController.getAllProducts(MACHINE, first.getHeaders().getETag());
+
+        assertSame(first.getBody(), second.getBody());
+        assertEquals(HttpStatus.OK, third.getStatusCode());
+        assertNotEquals(first.getHeaders().getETag(), third.getHeaders().getETag());
+    }
+
+    @Test
+    void shouldEncodeCatalogPerMachine() throws IOException {
+        when(productService.catalog(MACHINE)).thenReturn(new ProductCatalogCache.Snapshot(1, productList));
+        when(productService.catalog("machine-2")).thenReturn(new ProductCatalogCache.Snapshot(2, List.of(productDTO2)));
+
+        ResponseEntity<byte[]> first = productController.getAllProducts(MACHINE, null);
+        ResponseEntity<byte[]> second = productController.getAllProducts("machine-2", first.getHeaders().getETag());
+
+        assertEquals(HttpStatus.OK, second.getStatusCode());
+        assertEquals(List.of(productDTO2), decode(second.getBody()));
+        assertEquals(productList, decode(productController.getAllProducts(MACHINE, null).getBody()));
+        assertEquals(List.of("X-Machine-Id"), second.getHeaders().getVary());
+    }
+
+    @Test
+    void shouldNotTagUncachedCatalog() {
+        when(productService.catalog(MACHINE)).thenReturn(
+                new ProductCatalogCache.Snapshot(ProductCatalogCache.Snapshot.UNCACHED, productList));
+
+        ResponseEntity<byte[]> response = productController.getAllProducts(MACHINE, "*");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getETag());
+    }
+
+    private List<ProductDTO> decode(byte[] json) throws IOException {
+        return objectMapper.readValue(json, new TypeReference<>() {});
     }
 }
@@ -2,15 +2,21 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.rest;
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.ProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseItemDTO;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.SelectedProductDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.idempotency.IdempotencyCache;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -24,6 +30,9 @@ class TransactionControllerTest {
     @Mock
     private TransactionService transactionService;
 
+    @Spy
+    private IdempotencyCache idempotencyCache = new IdempotencyCache(100, Duration.ofMinutes(10), Duration.ofSeconds(30));
+
     @InjectMocks
     private TransactionController transactionController;
 
@@ -32,6 +41,10 @@ class TransactionControllerTest {
     private SelectedProductDTO selectedProductDTO;
     private UUID productUuid;
 
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
     @BeforeEach
     void setUp() {
         moneyDTO = new MoneyDTO(5.0);
@@ -42,83 +55,127 @@ class TransactionControllerTest {
 
     @Test
     void shouldReturnInsertedMoney() {
-        when(transactionService.totalInsertedAmount()).thenReturn(moneyDTO);
+        when(transactionService.totalInsertedAmount(MACHINE, SESSION)).thenReturn(moneyDTO);
         
-        MoneyDTO result = transactionController.insertedMoney();
+        MoneyDTO result = transactionController.insertedMoney(MACHINE, SESSION);
         
         assertNotNull(result);
         assertEquals(moneyDTO, result);
-        verify(transactionService).totalInsertedAmount();
+        verify(transactionService).totalInsertedAmount(MACHINE, SESSION);
     }
 
     @Test
     void shouldReturnSelectedProducts() {
         List<SelectedProductDTO> selectedProducts = Arrays.asList(selectedProductDTO);
-        when(transactionService.selectedProducts()).thenReturn(selectedProducts);
+        when(transactionService.selectedProducts(MACHINE, SESSION)).thenReturn(selectedProducts);
         
-        List<SelectedProductDTO> result = transactionController.getSelectedProducts();
+        List<SelectedProductDTO> result = transactionController.getSelectedProducts(MACHINE, SESSION);
         
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(selectedProducts, result);
-        verify(transactionService).selectedProducts();
+        verify(transactionService).selectedProducts(MACHINE, SESSION);
     }
 
     @Test
     void shouldSelectProduct() {
         String productIdString = productUuid.toString();
         
-        transactionController.selectProduct(productIdString);
+        transactionController.selectProduct(MACHINE, SESSION, productIdString);
         
-        verify(transactionService).selectProduct(productUuid);
+        verify(transactionService).selectProduct(MACHINE, SESSION, productUuid);
     }
 
     @Test
     void shouldUnselectProduct() {
         String productIdString = productUuid.toString();
         
-        transactionController.unselectProduct(productIdString);
+        transactionController.unselectProduct(MACHINE, SESSION, productIdString);
         
-        verify(transactionService).unselectProduct(productUuid);
+        verify(transactionService).unselectProduct(MACHINE, SESSION, productUuid);
     }
 
     @Test
     void shouldInsertMoney() {
-        transactionController.insertMoney(moneyDTO);
+        transactionController.insertMoney(MACHINE, SESSION, moneyDTO);
         
-        verify(transactionService).insertMoney(moneyDTO);
+        verify(transactionService).insertMoney(MACHINE, SESSION, moneyDTO);
     }
 
     @Test
     void shouldCompleteTransaction() {
-        when(transactionService.completeOrder()).thenReturn(orderDTO);
+        when(transactionService.completeOrder(MACHINE, SESSION)).thenReturn(orderDTO);
         
-        OrderDTO result = transactionController.complete();
+        OrderDTO result = transactionController.complete(MACHINE, SESSION, null);
         
         assertNotNull(result);
         assertEquals(orderDTO, result);
-        verify(transactionService).completeOrder();
+        verify(transactionService).completeOrder(MACHINE, SESSION);
+    }
+
+    @Test
+    void shouldPurchaseInOneRequest() {
+        PurchaseDTO purchase = new PurchaseDTO(List.of(new MoneyDTO(5.0)), List.of(new PurchaseItemDTO(productUuid, 2)));
+        when(transactionService.purchase(MACHINE, SESSION, purchase)).thenReturn(orderDTO);
+
+        assertEquals(orderDTO, transactionController.purchase(MACHINE, SESSION, purchase, null));
+    }
+
+    @Test
+    void shouldReturnAffordableProducts() {
+        List<ProductDTO> affordable = List.of(new ProductDTO(productUuid, "Test Product", 2.0, 5));
+        when(transactionService.affordableProducts(MACHINE, SESSION)).thenReturn(affordable);
+
+        assertEquals(affordable, transactionController.getAffordableProducts(MACHINE, SESSION));
+    }
+
+    @Test
+    void shouldReportChangeAvailability() {
+        when(transactionService.changeAvailable(MACHINE, SESSION, productUuid)).thenReturn(true);
+
+        assertTrue(transactionController.changeAvailable(MACHINE, SESSION, productUuid));
     }
 
     @Test
     void shouldCancelTransaction() {
-        when(transactionService.cancelOrder()).thenReturn(orderDTO);
+        when(transactionService.cancelOrder(MACHINE, SESSION)).thenReturn(orderDTO);
         
-        OrderDTO result = transactionController.cancel();
+        OrderDTO result = transactionController.cancel(MACHINE, SESSION, null);
         
         assertNotNull(result);
         assertEquals(orderDTO, result);
-        verify(transactionService).cancelOrder();
+        verify(transactionService).cancelOrder(MACHINE, SESSION);
+    }
+
+    @Test
+    void shouldReturnTheFirstResultToARetryWithTheSameKey() {
+        when(transactionService.completeOrder(MACHINE, SESSION)).thenReturn(orderDTO);
+
+        OrderDTO first = transactionController.complete(MACHINE, SESSION, "key-1");
+        OrderDTO retry = transactionController.complete(MACHINE, SESSION, "key-1");
+
+        assertSame(first, retry);
+        verify(transactionService, times(1)).completeOrder(MACHINE, SESSION);
+    }
+
+    @Test
+    void shouldRunRequestsWithoutKeyEveryTime() {
+        when(transactionService.cancelOrder(MACHINE, SESSION)).thenReturn(orderDTO);
+
+        transactionController.cancel(MACHINE, SESSION, null);
+        transactionController.cancel(MACHINE, SESSION, null);
+
+        verify(transactionService, times(2)).cancelOrder(MACHINE, SESSION);
     }
 
     @Test
     void shouldCallTransactionServiceMethodsOnce() {
-        transactionController.insertMoney(moneyDTO);
-        transactionController.selectProduct(productUuid.toString());
-        transactionController.unselectProduct(productUuid.toString());
+        transactionController.insertMoney(MACHINE, SESSION, moneyDTO);
+        transactionController.selectProduct(MACHINE, SESSION, productUuid.toString());
+        transactionController.unselectProduct(MACHINE, SESSION, productUuid.toString());
         
-        verify(transactionService, times(1)).insertMoney(moneyDTO);
-        verify(transactionService, times(1)).selectProduct(productUuid);
-        verify(transactionService, times(1)).unselectProduct(productUuid);
+        verify(transactionService, times(1)).insertMoney(MACHINE, SESSION, moneyDTO);
+        verify(transactionService, times(1)).selectProduct(MACHINE, SESSION, productUuid);
+        verify(transactionService, times(1)).unselectProduct(MACHINE, SESSION, productUuid);
     }
 }
@@ -0,0 +1,67 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.controller.session;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionIdArgumentResolverTest {
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private Object resolve(boolean singleKiosk) {
+        return new SessionIdArgumentResolver(singleKiosk)
+                .resolveArgument(null, null, new ServletWebRequest(request, response), null);
+    }
+
+    @Test
+    void shouldResolveSessionFromHeaderBeforeCookie() {
+        request.addHeader(SessionIdArgumentResolver.SESSION_HEADER, "kiosk-1");
+        request.setCookies(new Cookie(SessionIdArgumentResolver.SESSION_COOKIE, "kiosk-2"));
+
+        assertEquals("kiosk-1", resolve(false));
+        assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+    }
+
+    @Test
+    void shouldResolveSessionFromCookie() {
+        request.setCookies(new Cookie(SessionIdArgumentResolver.SESSION_COOKIE, "kiosk-2"));
+
+        assertEquals("kiosk-2", resolve(false));
+        assertNull(response.getHeader(SessionIdArgumentResolver.SESSION_HEADER));
+    }
+
+    @Test
+    void shouldStartANewSessionWhenNoneIsSent() {
+        Object sessionId = resolve(false);
+
+        assertNotEquals(SessionIdArgumentResolver.DEFAULT_SESSION, sessionId);
+        assertEquals(sessionId, response.getHeader(SessionIdArgumentResolver.SESSION_HEADER));
+        String cookie = response.getHeader(HttpHeaders.SET_COOKIE);
+        assertNotNull(cookie);
+        assertTrue(cookie.startsWith(SessionIdArgumentResolver.SESSION_COOKIE + "=" + sessionId));
+        assertTrue(cookie.contains("HttpOnly"));
+        assertTrue(cookie.contains("SameSite=Lax"));
+    }
+
+    @Test
+    void shouldStartADifferentSessionForEachClient() {
+        Object first = resolve(false);
+        Object second = new SessionIdArgumentResolver(false)
+                .resolveArgument(null, null, new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()), null);
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void shouldShareTheDefaultSessionOnASingleKiosk() {
+        assertEquals(SessionIdArgumentResolver.DEFAULT_SESSION, resolve(true));
+        assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+    }
+}
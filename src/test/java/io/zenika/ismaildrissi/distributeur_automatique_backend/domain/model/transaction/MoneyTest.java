@@ -9,24 +9,24 @@ class MoneyTest {
 
     @Test
     void shouldCreateValidMoney() {
-        Money money = new Money(1.0);
+        Money money = Money.of(1.0);
         assertEquals(1.0, money.value());
     }
 
     @Test
     void shouldCreateValidMoneyWithAllValidValues() {
-        assertDoesNotThrow(() -> new Money(0.5));
-        assertDoesNotThrow(() -> new Money(1.0));
-        assertDoesNotThrow(() -> new Money(2.0));
-        assertDoesNotThrow(() -> new Money(5.0));
-        assertDoesNotThrow(() -> new Money(10.0));
+        assertDoesNotThrow(() -> Money.of(0.5));
+        assertDoesNotThrow(() -> Money.of(1.0));
+        assertDoesNotThrow(() -> Money.of(2.0));
+        assertDoesNotThrow(() -> Money.of(5.0));
+        assertDoesNotThrow(() -> Money.of(10.0));
     }
 
     @Test
     void shouldThrowExceptionForNegativeValue() {
         InvalidMoneyValueException exception = assertThrows(
             InvalidMoneyValueException.class,
-            () -> new Money(-1.0)
+            () -> Money.of(-1.0)
         );
         assertEquals("Money must be positive.", exception.getMessage());
     }
@@ -35,7 +35,7 @@ class MoneyTest {
     void shouldThrowExceptionForZeroValue() {
         InvalidMoneyValueException exception = assertThrows(
             InvalidMoneyValueException.class,
-            () -> new Money(0.0)
+            () -> Money.of(0.0)
         );
         assertEquals("Money must be positive.", exception.getMessage());
     }
@@ -44,7 +44,7 @@ class MoneyTest {
     void shouldThrowExceptionForInvalidValue() {
         InvalidMoneyValueException exception = assertThrows(
             InvalidMoneyValueException.class,
-            () -> new Money(3.0)
+            () -> Money.of(3.0)
         );
         assertEquals("Invalid MAD coin: 3.0", exception.getMessage());
     }
@@ -63,4 +63,41 @@ class MoneyTest {
         );
         assertEquals("Invalid MAD coin: 7.5", exception.getMessage());
     }
+
+    @Test
+    void shouldReturnCanonicalInstances() {
+        assertSame(Money.of(2.0), Money.of(2.0));
+        assertSame(Money.of(0.5), Money.ofCents(50));
+    }
+
+    @Test
+    void shouldExposeValueInCents() {
+        assertEquals(50, Money.of(0.5).cents());
+        assertEquals(1000, Money.of(10.0).cents());
+    }
+
+    @Test
+    void shouldThrowExceptionForInvalidCents() {
+        InvalidMoneyValueException exception = assertThrows(
+            InvalidMoneyValueException.class,
+            () -> Money.ofCents(300)
+        );
+        assertEquals("Invalid MAD coin: 3.0", exception.getMessage());
+    }
+
+    @Test
+    void shouldListDenominationsInAscendingOrder() {
+        assertEquals(5, Money.denominations().size());
+        for (int i = 0; i < Money.denominations().size(); i++) {
+            assertEquals(i, Money.denominations().get(i).index());
+        }
+        assertEquals(50, Money.denominations().get(0).cents());
+        assertEquals(1000, Money.denominations().get(4).cents());
+    }
+
+    @Test
+    void shouldConvertBetweenMadAndCents() {
+        assertEquals(220, Money.toCents(2.2));
+        assertEquals(2.7, Money.toMad(270));
+    }
 }
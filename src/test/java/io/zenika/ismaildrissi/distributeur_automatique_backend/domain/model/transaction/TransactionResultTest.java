@@ -23,10 +23,10 @@ class TransactionResultTest {
         product = new Product("Test Product", 2.0, new ProductId(UUID.randomUUID()), 5);
         selectedProduct = new SelectedProduct(product);
         selectedProducts = Arrays.asList(selectedProduct);
-        insertedMoney = Arrays.asList(new Money(5.0));
+        insertedMoney = Arrays.asList(Money.of(5.0));
         updateProducts = new HashSet<>(Arrays.asList(product));
         
-        transactionResult = new TransactionResult(selectedProducts, insertedMoney, 2.0, updateProducts);
+        transactionResult = new TransactionResult(selectedProducts, insertedMoney, 500, 200, updateProducts);
     }
 
     @Test
@@ -34,7 +34,7 @@ class TransactionResultTest {
         assertNotNull(transactionResult);
         assertEquals(selectedProducts, transactionResult.selectedProducts());
         assertEquals(insertedMoney, transactionResult.insertedMoney());
-        assertEquals(2.0, transactionResult.totalPrice());
+        assertEquals(200, transactionResult.totalPrice());
         assertEquals(updateProducts, transactionResult.updateProducts());
     }
 
@@ -58,10 +58,9 @@ class TransactionResultTest {
 
     @Test
     void shouldReturnCorrectTotalPrice() {
-        Double result = transactionResult.totalPrice();
-        
-        assertNotNull(result);
-        assertEquals(2.0, result);
+        long result = transactionResult.totalPrice();
+
+        assertEquals(200, result);
     }
 
     @Test
@@ -78,20 +77,21 @@ class TransactionResultTest {
         TransactionResult emptyResult = new TransactionResult(
             Collections.emptyList(),
             Collections.emptyList(),
-            0.0,
+            0,
+            0,
             Collections.emptySet()
         );
         
         assertNotNull(emptyResult);
         assertTrue(emptyResult.selectedProducts().isEmpty());
         assertTrue(emptyResult.insertedMoney().isEmpty());
-        assertEquals(0.0, emptyResult.totalPrice());
+        assertEquals(0, emptyResult.totalPrice());
         assertTrue(emptyResult.updateProducts().isEmpty());
     }
 
     @Test
     void shouldBeEqualForSameValues() {
-        TransactionResult anotherResult = new TransactionResult(selectedProducts, insertedMoney, 2.0, updateProducts);
+        TransactionResult anotherResult = new TransactionResult(selectedProducts, insertedMoney, 500, 200, updateProducts);
         
         assertEquals(transactionResult, anotherResult);
         assertEquals(transactionResult.hashCode(), anotherResult.hashCode());
@@ -102,10 +102,16 @@ class TransactionResultTest {
         TransactionResult differentResult = new TransactionResult(
             Collections.emptyList(),
             insertedMoney,
-            2.0,
+            500,
+            200,
             updateProducts
         );
         
         assertNotEquals(transactionResult, differentResult);
     }
+
+    @Test
+    void shouldReturnChangeInCents() {
+        assertEquals(300, transactionResult.change());
+    }
 }
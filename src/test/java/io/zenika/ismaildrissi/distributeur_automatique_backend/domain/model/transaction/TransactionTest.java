@@ -1,5 +1,11 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction;
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.MoneyInserted;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductSelected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductUnselected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCancelled;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.TransactionCompleted;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.IllegalTransactionStateException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.exceptions.InsufficientFundsException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
@@ -7,6 +13,8 @@ import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vend
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,7 +29,7 @@ class TransactionTest {
     void setUp() {
         transaction = new Transaction("test-transaction-id");
         product = new Product("Test Product", 2.0, new ProductId(UUID.randomUUID()), 5);
-        money = new Money(5.0);
+        money = Money.of(5.0);
     }
 
     @Test
@@ -76,12 +84,12 @@ class TransactionTest {
         assertEquals(TransactionStatus.COMPLETED, transaction.status());
         assertEquals(1, result.selectedProducts().size());
         assertEquals(1, result.insertedMoney().size());
-        assertEquals(2.0, result.totalPrice());
+        assertEquals(200, result.totalPrice());
     }
 
     @Test
     void shouldThrowExceptionWhenAddingProductWithInsufficientFundsAfterInsertion() {
-        transaction.insertMoney(new Money(1.0));
+        transaction.insertMoney(Money.of(1.0));
 
         InsufficientFundsException exception = assertThrows(
             InsufficientFundsException.class,
@@ -92,7 +100,7 @@ class TransactionTest {
 
     @Test
     void shouldThrowExceptionWhenCompletingWithInsufficientTotalFunds() {
-        transaction.insertMoney(new Money(1.0));
+        transaction.insertMoney(Money.of(1.0));
         Product cheapProduct = new Product("Cheap Item", 0.5, new ProductId(UUID.randomUUID()), 3);
         transaction.addProduct(cheapProduct);
         transaction.addProduct(cheapProduct);
@@ -114,7 +122,7 @@ class TransactionTest {
         assertEquals(TransactionStatus.CANCELLED, transaction.status());
         assertTrue(result.selectedProducts().isEmpty());
         assertEquals(1, result.insertedMoney().size());
-        assertEquals(0.0, result.totalPrice());
+        assertEquals(0, result.totalPrice());
     }
 
     @Test
@@ -125,7 +133,7 @@ class TransactionTest {
         
         IllegalTransactionStateException exception = assertThrows(
             IllegalTransactionStateException.class,
-            () -> transaction.insertMoney(new Money(1.0))
+            () -> transaction.insertMoney(Money.of(1.0))
         );
         assertEquals("Cannot insert money into a completed transaction.", exception.getMessage());
     }
@@ -181,4 +189,62 @@ class TransactionTest {
         );
         assertEquals("Cannot cancel a completed transaction.", exception.getMessage());
     }
+
+    @Test
+    void shouldKeepRunningTotalsInCents() {
+        Product juice = new Product("Juice Box", 2.2, new ProductId(UUID.randomUUID()), 6);
+        transaction.insertMoney(money);
+        transaction.insertMoney(Money.of(0.5));
+        transaction.addProduct(juice);
+        transaction.addProduct(product);
+
+        assertEquals(550, transaction.insertedAmount());
+        assertEquals(420, transaction.totalPrice());
+        assertEquals(130, transaction.change());
+
+        transaction.removeProduct(juice);
+
+        assertEquals(200, transaction.totalPrice());
+        assertEquals(350, transaction.change());
+    }
+
+    @Test
+    void shouldPublishEveryStateChange() {
+        List<DomainEvent> events = new ArrayList<>();
+        transaction.publishEventsTo(events::add);
+
+        transaction.insertMoney(money);
+        transaction.addProduct(product);
+        transaction.removeProduct(product);
+        transaction.addProduct(product);
+        transaction.complete();
+
+        assertEquals(new MoneyInserted("test-transaction-id", money, 500), events.get(0));
+        assertInstanceOf(ProductSelected.class, events.get(1));
+        assertEquals(new ProductUnselected("test-transaction-id", product.productId(), List.of()), events.get(2));
+        TransactionCompleted completed = assertInstanceOf(TransactionCompleted.class, events.get(4));
+        assertEquals(300, completed.change());
+        assertEquals(5, events.size());
+    }
+
+    @Test
+    void shouldPublishReturnedMoneyOnCancel() {
+        List<DomainEvent> events = new ArrayList<>();
+        transaction.insertMoney(money);
+        transaction.publishEventsTo(events::add);
+
+        transaction.cancel();
+
+        assertEquals(List.of(new TransactionCancelled("test-transaction-id", List.of(money))), events);
+    }
+
+    @Test
+    void shouldNotPublishRejectedChanges() {
+        List<DomainEvent> events = new ArrayList<>();
+        transaction.publishEventsTo(events::add);
+
+        assertThrows(InsufficientFundsException.class, () -> transaction.addProduct(product));
+
+        assertTrue(events.isEmpty());
+    }
 }
@@ -0,0 +1,136 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoinInventoryTest {
+
+    private CoinInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        inventory = new CoinInventory(List.of(Money.of(2.0), Money.of(2.0), Money.of(5.0)));
+    }
+
+    @Test
+    void shouldCountCoinsPerDenomination() {
+        assertEquals(2, inventory.count(Money.of(2.0)));
+        assertEquals(1, inventory.count(Money.of(5.0)));
+        assertEquals(0, inventory.count(Money.of(10.0)));
+        assertArrayEquals(new int[]{0, 0, 2, 1, 0}, inventory.counts());
+    }
+
+    @Test
+    void shouldAddCoin() {
+        inventory.add(Money.of(0.5));
+
+        assertEquals(1, inventory.count(Money.of(0.5)));
+    }
+
+    @Test
+    void shouldWithdrawWholePlan() {
+        assertTrue(inventory.withdraw(new int[]{0, 0, 1, 1, 0}));
+
+        assertArrayEquals(new int[]{0, 0, 1, 0, 0}, inventory.counts());
+    }
+
+    @Test
+    void shouldLeaveInventoryUnchangedWhenPlanCannotBeCovered() {
+        assertFalse(inventory.withdraw(new int[]{0, 0, 1, 2, 0}));
+
+        assertArrayEquals(new int[]{0, 0, 2, 1, 0}, inventory.counts());
+    }
+
+    @Test
+    void shouldDepositCoinsAndWithdrawThePlanInOneChange() {
+        int[] plan = inventory.exchange(List.of(Money.of(10.0)), counts -> {
+            assertArrayEquals(new int[]{0, 0, 2, 1, 1}, counts);
+            return new int[]{0, 0, 0, 1, 0};
+        });
+
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0}, plan);
+        assertArrayEquals(new int[]{0, 0, 2, 0, 1}, inventory.counts());
+    }
+
+    @Test
+    void shouldNeitherDepositNorWithdrawWithoutAPlan() {
+        assertNull(inventory.exchange(List.of(Money.of(10.0)), counts -> null));
+
+        assertArrayEquals(new int[]{0, 0, 2, 1, 0}, inventory.counts());
+    }
+
+    @Test
+    void shouldReturnCountsSnapshot() {
+        int[] counts = inventory.counts();
+        counts[2] = 0;
+
+        assertEquals(2, inventory.count(Money.of(2.0)));
+    }
+
+    @Test
+    void shouldKeepPayableAmountsInLineWithTheCounts() {
+        assertTrue(inventory.payableAmounts().canPay(900));
+        assertFalse(inventory.payableAmounts().canPay(100));
+
+        inventory.add(Money.of(1.0));
+        assertTrue(inventory.payableAmounts().canPay(100));
+
+        assertTrue(inventory.withdraw(new int[]{0, 0, 0, 1, 0}));
+        assertFalse(inventory.payableAmounts().canPay(900));
+        assertTrue(inventory.payableAmounts().canPay(500));
+    }
+
+    @Test
+    void shouldNeverGoNegativeUnderConcurrentWithdrawals() throws InterruptedException {
+        CoinInventory shared = new CoinInventory(Collections.nCopies(100, Money.of(1.0)));
+        AtomicInteger withdrawn = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> {
+                if (shared.withdraw(new int[]{0, 3, 0, 0, 0})) {
+                    withdrawn.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(33, withdrawn.get());
+        assertEquals(1, shared.count(Money.of(1.0)));
+    }
+
+    @Test
+    void shouldNeverShowAWithdrawalHalfDone() throws InterruptedException {
+        CoinInventory shared = new CoinInventory(List.of(Money.of(1.0), Money.of(2.0)));
+        AtomicInteger inconsistent = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.execute(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                // Fails on the 2.0 coin once the 1.0 coin is gone, and must not take it meanwhile
+                shared.withdraw(new int[]{0, 1, 2, 0, 0});
+            }
+        });
+        executor.execute(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                if (shared.counts()[1] != 1) {
+                    inconsistent.incrementAndGet();
+                }
+            }
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, inconsistent.get());
+        assertArrayEquals(new int[]{0, 1, 1, 0, 0}, shared.counts());
+    }
+}
@@ -0,0 +1,98 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.OptimalChangeCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayableAmountsTest {
+
+    @Test
+    void shouldPayOnlyZeroWithoutCoins() {
+        PayableAmounts payable = PayableAmounts.of(new int[5], 1000);
+
+        assertTrue(payable.canPay(0));
+        assertFalse(payable.canPay(50));
+        assertFalse(payable.canPay(1000));
+    }
+
+    @Test
+    void shouldPayEverySumOfAvailableCoins() {
+        PayableAmounts payable = PayableAmounts.of(new int[]{0, 0, 3, 1, 0}, 2000);
+
+        for (long amount : new long[]{0, 200, 400, 500, 600, 700, 900, 1100}) {
+            assertTrue(payable.canPay(amount), "amount " + amount);
+        }
+        for (long amount : new long[]{50, 100, 300, 800, 1000, 1200}) {
+            assertFalse(payable.canPay(amount), "amount " + amount);
+        }
+    }
+
+    @Test
+    void shouldNotPayAmountsBelowTheSmallestCoin() {
+        PayableAmounts payable = PayableAmounts.of(new int[]{10, 10, 10, 10, 10}, 2000);
+
+        assertFalse(payable.canPay(30));
+    }
+
+    @Test
+    void shouldExtendWithAddedCoins() {
+        PayableAmounts payable = PayableAmounts.of(new int[]{0, 0, 1, 0, 0}, 2000);
+
+        PayableAmounts extended = payable.plus(List.of(Money.of(0.5), Money.of(10.0)));
+
+        assertTrue(extended.canPay(1250));
+        assertFalse(payable.canPay(1250));
+        assertSame(payable, payable.plus(List.of()));
+    }
+
+    @Test
+    void shouldRebuildWhenCoinsAreRemoved() {
+        PayableAmounts payable = PayableAmounts.of(new int[]{0, 2, 0, 0, 0}, 2000);
+
+        PayableAmounts updated = payable.update(new int[]{0, 1, 0, 0, 0});
+
+        assertTrue(updated.canPay(100));
+        assertFalse(updated.canPay(200));
+    }
+
+    @Test
+    void shouldReuseTheSetWhenOnlyUnusableCoinsChange() {
+        PayableAmounts payable = PayableAmounts.of(new int[]{0, 0, 0, 0, 2}, 1000);
+
+        assertSame(payable, payable.update(new int[]{0, 0, 0, 0, 5}));
+    }
+
+    @Test
+    void shouldRejectAmountsBeyondTheBound() {
+        PayableAmounts payable = PayableAmounts.of(new int[]{10, 10, 10, 10, 10}, 1000);
+
+        assertFalse(payable.covers(1050));
+        assertFalse(payable.covers(-50));
+        assertThrows(IllegalArgumentException.class, () -> payable.canPay(1050));
+    }
+
+    @Test
+    void shouldAgreeWithOptimalChangeCalculatorOnRandomInventories() {
+        Random random = new Random(42);
+        OptimalChangeCalculator calculator = new OptimalChangeCalculator();
+        PayableAmounts incremental = PayableAmounts.of(new int[5], PayableAmounts.DEFAULT_MAX_AMOUNT);
+        for (int round = 0; round < 50; round++) {
+            int[] counts = new int[5];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(8);
+            }
+            PayableAmounts rebuilt = PayableAmounts.of(counts, PayableAmounts.DEFAULT_MAX_AMOUNT);
+            incremental = incremental.update(counts);
+            for (long amount = 0; amount <= 5000; amount += 50) {
+                boolean expected = calculator.calculateChange(amount, counts) != null;
+                assertEquals(expected, rebuilt.canPay(amount), "amount " + amount);
+                assertEquals(expected, incremental.canPay(amount), "amount " + amount);
+            }
+        }
+    }
+}
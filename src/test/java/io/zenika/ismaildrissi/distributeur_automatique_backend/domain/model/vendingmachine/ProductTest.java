@@ -5,6 +5,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -74,4 +78,41 @@ class ProductTest {
         );
         assertEquals("Cannot decrease quantity. Product out of stock.", exception.getMessage());
     }
+
+    @Test
+    void shouldDecreaseSeveralUnitsAtOnce() {
+        assertTrue(product.tryDecreaseQuantity(3));
+        assertEquals(2, product.quantity());
+    }
+
+    @Test
+    void shouldNotDecreaseBelowZero() {
+        assertFalse(product.tryDecreaseQuantity(6));
+        assertEquals(5, product.quantity());
+    }
+
+    @Test
+    void shouldIncreaseQuantity() {
+        product.increaseQuantity(2);
+        assertEquals(7, product.quantity());
+    }
+
+    @Test
+    void shouldNeverOversellUnderConcurrentDecrements() throws InterruptedException {
+        Product stocked = new Product("Stocked", 1.0, productId, 1000);
+        AtomicInteger sold = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            executor.execute(() -> {
+                if (stocked.tryDecreaseQuantity(1)) {
+                    sold.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, sold.get());
+        assertEquals(0, stocked.quantity());
+    }
 }
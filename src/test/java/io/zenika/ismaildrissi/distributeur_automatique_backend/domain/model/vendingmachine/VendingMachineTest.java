@@ -1,13 +1,25 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine;
 
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ProductNotFoundException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.CoinsDeposited;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.ChangeCalculatorImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,11 +40,11 @@ class VendingMachineTest {
         
         List<Product> products = Arrays.asList(product1, product2);
         List<Money> initialChange = Arrays.asList(
-            new Money(10.0), new Money(10.0),
-            new Money(5.0), new Money(5.0),
-            new Money(2.0), new Money(2.0),
-            new Money(1.0), new Money(1.0),
-            new Money(0.5), new Money(0.5)
+            Money.of(10.0), Money.of(10.0),
+            Money.of(5.0), Money.of(5.0),
+            Money.of(2.0), Money.of(2.0),
+            Money.of(1.0), Money.of(1.0),
+            Money.of(0.5), Money.of(0.5)
         );
         
         vendingMachine = new VendingMachine(products, initialChange);
@@ -46,6 +58,52 @@ class VendingMachineTest {
         assertTrue(allProducts.contains(product2));
     }
 
+    @Test
+    void shouldListProductsCheapestFirst() {
+        assertEquals(List.of(product2, product1), vendingMachine.getAllProducts());
+    }
+
+    @Test
+    void shouldReturnAffordableProductsInStock() {
+        assertEquals(List.of(), vendingMachine.affordableProducts(50));
+        assertEquals(List.of(product2), vendingMachine.affordableProducts(100));
+        assertEquals(List.of(product2, product1), vendingMachine.affordableProducts(1000));
+    }
+
+    @Test
+    void shouldDropSoldOutProductsFromAffordableProducts() {
+        vendingMachine.dispenseProducts(List.of(productId2, productId2));
+        vendingMachine.dispenseProduct(productId2);
+
+        assertEquals(List.of(product1), vendingMachine.affordableProducts(1000));
+    }
+
+    @Test
+    void shouldKeepReleasedProductsAffordable() {
+        vendingMachine.dispenseProducts(List.of(productId2, productId2));
+
+        assertThrows(ProductNotFoundException.class,
+                () -> vendingMachine.dispenseProducts(List.of(productId2, productId1, productId1, productId1, productId1, productId1, productId1)));
+
+        assertEquals(List.of(product2, product1), vendingMachine.affordableProducts(1000));
+    }
+
+    @Test
+    void shouldIndexMoreProductsThanOneBitsetWord() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            products.add(new Product("Product " + i, 0.5 * (150 - i), new ProductId(UUID.randomUUID()), i % 3));
+        }
+        VendingMachine largeMachine = new VendingMachine(products, List.of());
+
+        List<Product> affordable = largeMachine.affordableProducts(5000);
+
+        assertEquals(products.stream().filter(p -> p.priceCents() <= 5000 && p.isAvailable()).count(), affordable.size());
+        for (int i = 1; i < affordable.size(); i++) {
+            assertTrue(affordable.get(i - 1).priceCents() <= affordable.get(i).priceCents());
+        }
+    }
+
     @Test
     void shouldReturnProductById() {
         Product retrievedProduct = vendingMachine.getProduct(productId1);
@@ -93,7 +151,7 @@ class VendingMachineTest {
 
     @Test
     void shouldCalculateChangeCorrectly() {
-        List<Money> change = vendingMachine.calculateChange(3.5);
+        List<Money> change = vendingMachine.calculateChange(350);
         
         assertFalse(change.isEmpty());
         double totalChange = change.stream().mapToDouble(Money::value).sum();
@@ -102,23 +160,23 @@ class VendingMachineTest {
 
     @Test
     void shouldReturnEmptyListWhenCannotMakeExactChange() {
-        List<Money> change = vendingMachine.calculateChange(0.3);
+        List<Money> change = vendingMachine.calculateChange(30);
         assertTrue(change.isEmpty());
     }
 
     @Test
     void shouldReturnTrueWhenCanDispenseChange() {
-        assertTrue(vendingMachine.canDispenseChange(3.5));
+        assertTrue(vendingMachine.canDispenseChange(350));
     }
 
     @Test
     void shouldReturnFalseWhenCannotDispenseChange() {
-        assertFalse(vendingMachine.canDispenseChange(0.3));
+        assertFalse(vendingMachine.canDispenseChange(30));
     }
 
     @Test
     void shouldCalculateChangeUsingGreedyAlgorithm() {
-        List<Money> change = vendingMachine.calculateChange(7.5);
+        List<Money> change = vendingMachine.calculateChange(750);
         
         assertFalse(change.isEmpty());
         double totalChange = change.stream().mapToDouble(Money::value).sum();
@@ -132,4 +190,204 @@ class VendingMachineTest {
         assertTrue(twoCount >= 1);
         assertTrue(halfCount >= 1);
     }
+
+    @Test
+    void shouldFindChangeGreedyWouldMiss() {
+        VendingMachine machine = new VendingMachine(List.of(), Arrays.asList(
+            Money.of(5.0), Money.of(2.0), Money.of(2.0), Money.of(2.0)
+        ));
+
+        List<Money> change = machine.calculateChange(600);
+
+        assertEquals(List.of(Money.of(2.0), Money.of(2.0), Money.of(2.0)), change);
+        assertEquals(0, machine.coinCount(Money.of(2.0)));
+        assertEquals(1, machine.coinCount(Money.of(5.0)));
+    }
+
+    @Test
+    void shouldNotConsumeCoinsWhenChangeCannotBeMade() {
+        List<Money> change = vendingMachine.calculateChange(5000);
+
+        assertTrue(change.isEmpty());
+        assertEquals(2, vendingMachine.coinCount(Money.of(10.0)));
+        assertEquals(2, vendingMachine.coinCount(Money.of(0.5)));
+    }
+
+    @Test
+    void shouldNotConsumeCoinsWhenCheckingChange() {
+        assertTrue(vendingMachine.canDispenseChange(1000));
+        assertTrue(vendingMachine.canDispenseChange(1000));
+        assertEquals(2, vendingMachine.coinCount(Money.of(10.0)));
+    }
+
+    @Test
+    void shouldCheckChangeWithTheCoinsAboutToBeDeposited() {
+        assertFalse(vendingMachine.canDispenseChange(3800));
+        assertTrue(vendingMachine.canDispenseChange(3800, List.of(Money.of(1.0))));
+        assertEquals(2, vendingMachine.coinCount(Money.of(1.0)));
+    }
+
+    @Test
+    void shouldCheckChangeAgainstTheCurrentInventory() {
+        assertEquals(3700, vendingMachine.calculateChange(3700).stream().mapToLong(Money::cents).sum());
+        assertFalse(vendingMachine.canDispenseChange(50));
+
+        vendingMachine.depositCoins(List.of(Money.of(0.5)));
+
+        assertTrue(vendingMachine.canDispenseChange(50));
+    }
+
+    @Test
+    void shouldCheckAmountsBeyondThePayableBound() {
+        VendingMachine fullMachine = new VendingMachine(List.of(), Collections.nCopies(25, Money.of(10.0)));
+
+        assertTrue(fullMachine.canDispenseChange(25000));
+        assertFalse(fullMachine.canDispenseChange(25050));
+    }
+
+    @Test
+    void shouldDelegateToInjectedChangeCalculator() {
+        VendingMachine greedyMachine = new VendingMachine(List.of(), Arrays.asList(
+            Money.of(5.0), Money.of(2.0), Money.of(2.0), Money.of(2.0)
+        ), new ChangeCalculatorImpl());
+
+        assertFalse(greedyMachine.canDispenseChange(600));
+        assertTrue(greedyMachine.calculateChange(600).isEmpty());
+        assertEquals(3, greedyMachine.coinCount(Money.of(2.0)));
+    }
+
+    @Test
+    void shouldDispenseAllProductsOfAnOrder() {
+        vendingMachine.dispenseProducts(List.of(productId1, productId1, productId2));
+
+        assertEquals(3, product1.quantity());
+        assertEquals(2, product2.quantity());
+    }
+
+    @Test
+    void shouldReleaseReservedProductsWhenOneIsOutOfStock() {
+        List<ProductId> order = List.of(productId1, productId2, productId2, productId2, productId2);
+
+        ProductNotFoundException exception = assertThrows(
+            ProductNotFoundException.class,
+            () -> vendingMachine.dispenseProducts(order)
+        );
+
+        assertEquals("Product not available", exception.getMessage());
+        assertEquals(5, product1.quantity());
+        assertEquals(3, product2.quantity());
+    }
+
+    @Test
+    void shouldNotOversellUnderConcurrentOrders() throws InterruptedException {
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 50; i++) {
+            executor.execute(() -> {
+                try {
+                    vendingMachine.dispenseProducts(List.of(productId1, productId2));
+                    completed.incrementAndGet();
+                } catch (ProductNotFoundException ignored) {
+                    // out of stock
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(3, completed.get());
+        assertEquals(2, product1.quantity());
+        assertEquals(0, product2.quantity());
+    }
+
+    @Test
+    void shouldPublishDispensedProductsAndChange() {
+        List<DomainEvent> events = new ArrayList<>();
+        vendingMachine.publishEventsTo(events::add);
+
+        vendingMachine.dispenseProducts(List.of(productId1, productId1, productId2));
+        vendingMachine.dispenseProduct(productId2);
+        List<Money> change = vendingMachine.calculateChange(350);
+
+        assertEquals(List.of(
+                new ProductDispensed(productId1, 2, 3),
+                new ProductDispensed(productId2, 1, 2),
+                new ProductDispensed(productId2, 1, 1),
+                new ChangeDispensed(350, change)
+        ), events);
+    }
+
+    @Test
+    void shouldNotPublishFailedOrders() {
+        List<DomainEvent> events = new ArrayList<>();
+        vendingMachine.publishEventsTo(events::add);
+
+        assertThrows(ProductNotFoundException.class,
+                () -> vendingMachine.dispenseProducts(List.of(productId1, productId2, productId2, productId2, productId2)));
+        assertTrue(vendingMachine.calculateChange(5000).isEmpty());
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void shouldSellProductsTakeTheCoinsAndGiveTheChange() {
+        List<DomainEvent> events = new ArrayList<>();
+        vendingMachine.publishEventsTo(events::add);
+
+        List<Money> change = vendingMachine.sell(List.of(productId1, productId2), List.of(Money.of(10.0)), 750);
+
+        assertEquals(750, change.stream().mapToLong(Money::cents).sum());
+        assertEquals(4, product1.quantity());
+        assertEquals(2, product2.quantity());
+        assertEquals(List.of(
+                new ProductDispensed(productId1, 1, 4),
+                new ProductDispensed(productId2, 1, 2),
+                new CoinsDeposited(List.of(Money.of(10.0))),
+                new ChangeDispensed(750, change)
+        ), events);
+    }
+
+    @Test
+    void shouldLeaveTheMachineUntouchedWhenTheChangeOfASaleCannotBeMade() {
+        List<DomainEvent> events = new ArrayList<>();
+        vendingMachine.publishEventsTo(events::add);
+        MachineState before = vendingMachine.state();
+
+        assertThrows(ChangeNotAvailableException.class,
+                () -> vendingMachine.sell(List.of(productId1, productId2), List.of(Money.of(0.5)), 5000));
+
+        assertEquals(before, vendingMachine.state());
+        assertTrue(vendingMachine.isProductAvailable(productId1));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void shouldReportStockAndCoinsAsState() {
+        vendingMachine.dispenseProduct(productId1);
+        vendingMachine.calculateChange(1200);
+
+        MachineState state = vendingMachine.state();
+
+        assertEquals(4, state.stock().get(productId1));
+        assertEquals(3, state.stock().get(productId2));
+        assertEquals(List.of(
+                Money.of(0.5), Money.of(0.5),
+                Money.of(1.0), Money.of(1.0),
+                Money.of(2.0),
+                Money.of(5.0), Money.of(5.0),
+                Money.of(10.0)
+        ), state.coins());
+    }
+
+    @Test
+    void shouldDepositInsertedCoinsIntoTheInventory() {
+        List<DomainEvent> events = new ArrayList<>();
+        vendingMachine.publishEventsTo(events::add);
+
+        vendingMachine.depositCoins(List.of(Money.of(0.5), Money.of(0.5)));
+        vendingMachine.depositCoins(List.of());
+
+        assertEquals(4, vendingMachine.coinCount(Money.of(0.5)));
+        assertEquals(List.of(new CoinsDeposited(List.of(Money.of(0.5), Money.of(0.5)))), events);
+    }
 }
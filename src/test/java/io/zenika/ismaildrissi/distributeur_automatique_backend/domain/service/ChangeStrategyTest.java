@@ -0,0 +1,30 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.CachingChangeCalculator;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.ChangeCalculatorImpl;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.OptimalChangeCalculator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeStrategyTest {
+
+    @Test
+    void shouldResolveStrategyIgnoringCase() {
+        assertEquals(ChangeStrategy.GREEDY, ChangeStrategy.from("greedy"));
+        assertEquals(ChangeStrategy.DP, ChangeStrategy.from(" DP "));
+        assertEquals(ChangeStrategy.CACHED, ChangeStrategy.from("Cached"));
+    }
+
+    @Test
+    void shouldRejectUnknownStrategy() {
+        assertThrows(IllegalArgumentException.class, () -> ChangeStrategy.from("random"));
+    }
+
+    @Test
+    void shouldCreateMatchingCalculator() {
+        assertInstanceOf(ChangeCalculatorImpl.class, ChangeStrategy.GREEDY.create());
+        assertInstanceOf(OptimalChangeCalculator.class, ChangeStrategy.DP.create());
+        assertInstanceOf(CachingChangeCalculator.class, ChangeStrategy.CACHED.create());
+    }
+}
@@ -0,0 +1,75 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class CachingChangeCalculatorTest {
+
+    private final ChangeCalculator optimal = new OptimalChangeCalculator();
+
+    private ChangeCalculator delegate;
+
+    private CachingChangeCalculator changeCalculator;
+
+    @BeforeEach
+    void setUp() {
+        delegate = spy(optimal);
+        changeCalculator = new CachingChangeCalculator(delegate, 2);
+    }
+
+    @Test
+    void shouldComputeEachAmountOnceWhileTheInventoryChanges() {
+        assertArrayEquals(new int[]{0, 1, 1, 0, 0}, changeCalculator.calculateChange(300, new int[]{1, 1, 1, 1, 1}));
+        assertArrayEquals(new int[]{0, 1, 1, 0, 0}, changeCalculator.calculateChange(300, new int[]{0, 4, 2, 0, 3}));
+
+        verify(delegate, times(1)).calculateChange(anyLong(), any());
+    }
+
+    @Test
+    void shouldAskTheDelegateWhenTheCachedPlanDoesNotFit() {
+        int[] available = {0, 0, 3, 1, 0};
+
+        assertArrayEquals(new int[]{0, 0, 3, 0, 0}, changeCalculator.calculateChange(600, available));
+
+        verify(delegate).calculateChange(600, available);
+    }
+
+    @Test
+    void shouldCacheImpossibleChange() {
+        assertNull(changeCalculator.calculateChange(30, new int[]{1, 1, 1, 1, 1}));
+        assertNull(changeCalculator.calculateChange(30, new int[]{2, 2, 2, 2, 2}));
+
+        verify(delegate, times(1)).calculateChange(anyLong(), any());
+    }
+
+    @Test
+    void shouldAnswerLikeTheDelegate() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            long amount = 50L * random.nextInt(80);
+            int[] available = new int[5];
+            for (int d = 0; d < available.length; d++) {
+                available[d] = random.nextInt(4);
+            }
+
+            assertArrayEquals(optimal.calculateChange(amount, available), changeCalculator.calculateChange(amount, available));
+        }
+    }
+
+    @Test
+    void shouldNotExposeCachedPlan() {
+        int[] available = {1, 1, 1, 1, 1};
+
+        changeCalculator.calculateChange(100, available)[1] = 7;
+
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0}, changeCalculator.calculateChange(100, available));
+    }
+}
@@ -1,6 +1,7 @@
 package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl;
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -10,6 +11,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class ChangeCalculatorImplTest {
 
+    private static final int[] UNLIMITED = {100, 100, 100, 100, 100};
+
     private ChangeCalculatorImpl changeCalculator;
 
     @BeforeEach
@@ -19,7 +22,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldCalculateChangeForExactAmount() {
-        List<Money> change = changeCalculator.calculateChange(5.0);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(500, UNLIMITED));
         
         assertNotNull(change);
         assertEquals(1, change.size());
@@ -28,7 +31,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldCalculateChangeUsingGreedyAlgorithm() {
-        List<Money> change = changeCalculator.calculateChange(7.5);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(750, UNLIMITED));
         
         assertNotNull(change);
         assertFalse(change.isEmpty());
@@ -47,7 +50,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldCalculateChangeForComplexAmount() {
-        List<Money> change = changeCalculator.calculateChange(18.5);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(1850, UNLIMITED));
         
         assertNotNull(change);
         assertFalse(change.isEmpty());
@@ -70,7 +73,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldCalculateChangeForZeroAmount() {
-        List<Money> change = changeCalculator.calculateChange(0.0);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(0, UNLIMITED));
         
         assertNotNull(change);
         assertTrue(change.isEmpty());
@@ -78,7 +81,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldCalculateChangeForSmallAmount() {
-        List<Money> change = changeCalculator.calculateChange(0.5);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(50, UNLIMITED));
         
         assertNotNull(change);
         assertEquals(1, change.size());
@@ -87,7 +90,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldCalculateChangeForLargeAmount() {
-        List<Money> change = changeCalculator.calculateChange(50.0);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(5000, UNLIMITED));
         
         assertNotNull(change);
         assertFalse(change.isEmpty());
@@ -101,7 +104,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldUseGreedyAlgorithmOptimally() {
-        List<Money> change = changeCalculator.calculateChange(3.5);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(350, UNLIMITED));
         
         assertNotNull(change);
         assertFalse(change.isEmpty());
@@ -120,7 +123,7 @@ class ChangeCalculatorImplTest {
 
     @Test
     void shouldCalculateChangeForMultipleOfSameDenomination() {
-        List<Money> change = changeCalculator.calculateChange(4.0);
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(400, UNLIMITED));
         
         assertNotNull(change);
         assertFalse(change.isEmpty());
@@ -131,4 +134,16 @@ class ChangeCalculatorImplTest {
         long twoCount = change.stream().filter(m -> m.value() == 2.0).count();
         assertEquals(2, twoCount);
     }
+
+    @Test
+    void shouldRespectAvailableCoins() {
+        int[] plan = changeCalculator.calculateChange(400, new int[]{0, 0, 5, 0, 1});
+
+        assertArrayEquals(new int[]{0, 0, 2, 0, 0}, plan);
+    }
+
+    @Test
+    void shouldReturnNullWhenGreedyPassCannotMakeChange() {
+        assertNull(changeCalculator.calculateChange(600, new int[]{0, 0, 3, 1, 0}));
+    }
 }
@@ -0,0 +1,108 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.ChangeCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimalChangeCalculatorTest {
+
+    private static final int[] UNLIMITED = {100, 100, 100, 100, 100};
+
+    private OptimalChangeCalculator changeCalculator;
+
+    @BeforeEach
+    void setUp() {
+        changeCalculator = new OptimalChangeCalculator();
+    }
+
+    @Test
+    void shouldReturnMinimumCoinsWithUnlimitedInventory() {
+        List<Money> change = ChangeCalculator.coins(changeCalculator.calculateChange(1850, UNLIMITED));
+
+        assertEquals(List.of(Money.of(10.0), Money.of(5.0), Money.of(2.0), Money.of(1.0), Money.of(0.5)), change);
+    }
+
+    @Test
+    void shouldReturnEmptyPlanForZeroAmount() {
+        assertArrayEquals(new int[5], changeCalculator.calculateChange(0, UNLIMITED));
+    }
+
+    @Test
+    void shouldFindChangeThatGreedyMisses() {
+        int[] available = {0, 0, 3, 1, 0};
+
+        assertNull(new ChangeCalculatorImpl().calculateChange(600, available));
+        assertArrayEquals(new int[]{0, 0, 3, 0, 0}, changeCalculator.calculateChange(600, available));
+    }
+
+    @Test
+    void shouldRespectAvailableCoinsAboveThePrecomputedRange() {
+        OptimalChangeCalculator smallTable = new OptimalChangeCalculator(500);
+
+        int[] plan = smallTable.calculateChange(1600, new int[]{0, 0, 8, 1, 1});
+
+        assertArrayEquals(new int[]{0, 0, 3, 0, 1}, plan);
+    }
+
+    @Test
+    void shouldReturnNullWhenExactChangeIsImpossible() {
+        assertNull(changeCalculator.calculateChange(300, new int[]{0, 0, 0, 1, 1}));
+        assertNull(changeCalculator.calculateChange(30, UNLIMITED));
+        assertNull(changeCalculator.calculateChange(5000, new int[]{1, 1, 1, 1, 1}));
+    }
+
+    @Test
+    void shouldMatchExhaustiveSearchOnRandomInventories() {
+        Random random = new Random(42);
+        long[] denominations = Money.denominations().stream().mapToLong(Money::cents).toArray();
+
+        for (int round = 0; round < 300; round++) {
+            int[] available = new int[denominations.length];
+            for (int i = 0; i < available.length; i++) {
+                available[i] = random.nextInt(4);
+            }
+            long amount = 50L * random.nextInt(60);
+
+            int[] plan = changeCalculator.calculateChange(amount, available);
+            int expected = bruteForce(amount, available, denominations, denominations.length - 1);
+
+            if (expected == Integer.MAX_VALUE) {
+                assertNull(plan);
+            } else {
+                assertNotNull(plan);
+                long total = 0;
+                int coins = 0;
+                for (int i = 0; i < plan.length; i++) {
+                    assertTrue(plan[i] <= available[i]);
+                    total += plan[i] * denominations[i];
+                    coins += plan[i];
+                }
+                assertEquals(amount, total);
+                assertEquals(expected, coins);
+            }
+        }
+    }
+
+    private static int bruteForce(long amount, int[] available, long[] denominations, int index) {
+        if (amount == 0) {
+            return 0;
+        }
+        if (index < 0) {
+            return Integer.MAX_VALUE;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int k = 0; k <= available[index] && k * denominations[index] <= amount; k++) {
+            int rest = bruteForce(amount - k * denominations[index], available, denominations, index - 1);
+            if (rest != Integer.MAX_VALUE) {
+                best = Math.min(best, rest + k);
+            }
+        }
+        return best;
+    }
+}
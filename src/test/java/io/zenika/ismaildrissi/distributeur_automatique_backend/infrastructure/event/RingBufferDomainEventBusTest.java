@@ -0,0 +1,147 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.event;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.event.DomainEventSubscriber;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEvent;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferDomainEventBusTest {
+
+    private static final ProductId PRODUCT = new ProductId(UUID.randomUUID());
+
+    @Test
+    void shouldRejectRingSizeThatIsNotAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferDomainEventBus(6, List.of()));
+    }
+
+    @Test
+    void shouldDeliverEveryEventToEverySubscriberInOrder() {
+        RecordingSubscriber first = new RecordingSubscriber();
+        RecordingSubscriber second = new RecordingSubscriber();
+        RingBufferDomainEventBus bus = new RingBufferDomainEventBus(4, List.of(first, second));
+
+        for (int i = 0; i < 100; i++) {
+            bus.publish("machine-1", i % 2 == 0 ? null : "kiosk-1", new ProductDispensed(PRODUCT, 1, i));
+        }
+        bus.close();
+
+        assertEquals(100, first.remaining.size());
+        assertEquals(first.remaining, second.remaining);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, first.remaining.get(i));
+        }
+        assertEquals("machine-1/kiosk-1", first.routes.get(1));
+        assertEquals("machine-1/null", first.routes.get(2));
+        assertEquals(0, bus.backlog());
+    }
+
+    @Test
+    void shouldEndEveryBatchWithTheLastAvailableEvent() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        RingBufferDomainEventBus bus = new RingBufferDomainEventBus(64, List.of(subscriber));
+
+        for (int i = 0; i < 50; i++) {
+            bus.publish("machine-1", null, new ProductDispensed(PRODUCT, 1, i));
+        }
+        bus.close();
+
+        assertTrue(subscriber.endOfBatch.get(subscriber.endOfBatch.size() - 1));
+    }
+
+    @Test
+    void shouldKeepDeliveringAfterSubscriberFailure() {
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        DomainEventSubscriber failing = (machineId, sessionId, event, endOfBatch) -> {
+            int remaining = ((ProductDispensed) event).remaining();
+            if (remaining == 1) {
+                throw new IllegalStateException("database down");
+            }
+            delivered.add(remaining);
+        };
+        RingBufferDomainEventBus bus = new RingBufferDomainEventBus(8, List.of(failing));
+
+        for (int i = 0; i < 3; i++) {
+            bus.publish("machine-1", null, new ProductDispensed(PRODUCT, 1, i));
+        }
+        bus.close();
+
+        assertEquals(List.of(0, 2), delivered);
+    }
+
+    @Test
+    void shouldNotLoseEventsOfConcurrentPublishers() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        RingBufferDomainEventBus bus = new RingBufferDomainEventBus(16, List.of(subscriber));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 1000; i++) {
+                    bus.publish("machine-1", null, new ProductDispensed(PRODUCT, 1, i));
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        bus.close();
+
+        assertEquals(8000, subscriber.remaining.size());
+    }
+
+    @Test
+    void shouldDropEventsPublishedAfterClose() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        RingBufferDomainEventBus bus = new RingBufferDomainEventBus(4, List.of(subscriber));
+        bus.close();
+
+        bus.publish("machine-1", null, new ProductDispensed(PRODUCT, 1, 0));
+
+        assertTrue(subscriber.remaining.isEmpty());
+    }
+
+    @Test
+    void shouldHandOutNoPublisherWithoutSubscribers() {
+        try (RingBufferDomainEventBus bus = new RingBufferDomainEventBus(4, List.of())) {
+            assertSame(DomainEventPublisher.NONE, bus.publisherFor("machine-1", "kiosk-1"));
+        }
+        try (RingBufferDomainEventBus bus = new RingBufferDomainEventBus(4, List.of(new RecordingSubscriber()))) {
+            assertNotSame(DomainEventPublisher.NONE, bus.publisherFor("machine-1", "kiosk-1"));
+        }
+    }
+
+    /** Records what it receives; only read once the bus is closed */
+    private static final class RecordingSubscriber implements DomainEventSubscriber {
+
+        private final List<Integer> remaining = new ArrayList<>();
+
+        private final List<String> routes = new ArrayList<>();
+
+        private final List<Boolean> endOfBatch = new ArrayList<>();
+
+        @Override
+        public void onEvent(String machineId, String sessionId, DomainEvent event, boolean endOfBatch) {
+            remaining.add(((ProductDispensed) event).remaining());
+            routes.add(machineId + "/" + sessionId);
+            this.endOfBatch.add(endOfBatch);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.journal;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ChangeDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.CoinsDeposited;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.DomainEventPublisher;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductDispensed;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.event.ProductSelected;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.MachineState;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedMachineJournalTest {
+
+    private static final ProductId WATER = new ProductId(UUID.randomUUID());
+
+    private static final ProductId CHIPS = new ProductId(UUID.randomUUID());
+
+    private static final MachineState INITIAL = new MachineState(
+            Map.of(WATER, 10, CHIPS, 5),
+            List.of(Money.of(1), Money.of(1), Money.of(2), Money.of(5))
+    );
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRecoverNothingForAMachineNeverJournaled() {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 100);
+
+        assertTrue(journal.recover("machine-1").isEmpty());
+        assertTrue(journal.recoverAll().isEmpty());
+    }
+
+    @Test
+    void shouldReplayJournaledEventsAfterARestart() {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 100);
+        DomainEventPublisher publisher = journal.attach("machine-1", INITIAL);
+
+        publisher.publish(new ProductDispensed(WATER, 2, 8));
+        publisher.publish(new ProductSelected("transaction-1", CHIPS, List.of()));
+        publisher.publish(new CoinsDeposited(List.of(Money.of(10))));
+        publisher.publish(new ChangeDispensed(100, List.of(Money.of(1))));
+        journal.close();
+
+        MachineState recovered = new MappedMachineJournal(directory, 4096, 100).recover("machine-1").orElseThrow();
+        assertEquals(8, recovered.stock().get(WATER));
+        assertEquals(5, recovered.stock().get(CHIPS));
+        assertEquals(List.of(Money.of(1), Money.of(2), Money.of(5), Money.of(10)), recovered.coins());
+        assertEquals(recovered, journal.recover("machine-1").orElseThrow());
+    }
+
+    @Test
+    void shouldSnapshotOnFlushEverySnapshotInterval() {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 3);
+        DomainEventPublisher publisher = journal.attach("machine-1", new MachineState(Map.of(WATER, 1000), List.of()));
+
+        for (int i = 0; i < 500; i++) {
+            publisher.publish(new ProductDispensed(WATER, 1, 999 - i));
+            if (i % 10 == 0) {
+                journal.flush();
+            }
+        }
+
+        MachineState recovered = new MappedMachineJournal(directory, 4096, 3).recover("machine-1").orElseThrow();
+        assertEquals(500, recovered.stock().get(WATER));
+    }
+
+    @Test
+    void shouldNotSnapshotOnThePublishingThread() throws IOException {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 3);
+        DomainEventPublisher publisher = journal.attach("machine-1", INITIAL);
+        byte[] snapshot = Files.readAllBytes(directory.resolve("machine-1.snapshot"));
+
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(new ProductDispensed(WATER, 1, 9 - i));
+        }
+
+        assertArrayEquals(snapshot, Files.readAllBytes(directory.resolve("machine-1.snapshot")));
+        journal.flush();
+        assertFalse(Arrays.equals(snapshot, Files.readAllBytes(directory.resolve("machine-1.snapshot"))));
+        assertEquals(5, new MappedMachineJournal(directory, 4096, 3).recover("machine-1").orElseThrow().stock().get(WATER));
+    }
+
+    @Test
+    void shouldKeepEventsThatOverflowTheJournalForTheNextSnapshot() {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 1000);
+        DomainEventPublisher publisher = journal.attach("machine-1", new MachineState(Map.of(WATER, 1000), List.of()));
+
+        for (int i = 0; i < 200; i++) {
+            publisher.publish(new ProductDispensed(WATER, 1, 999 - i));
+        }
+
+        assertEquals(800, journal.recover("machine-1").orElseThrow().stock().get(WATER));
+        assertTrue(new MappedMachineJournal(directory, 4096, 1000).recover("machine-1").orElseThrow().stock().get(WATER) > 800);
+        journal.flush();
+        assertEquals(800, new MappedMachineJournal(directory, 4096, 1000).recover("machine-1").orElseThrow().stock().get(WATER));
+    }
+
+    @Test
+    void shouldReplayEventsAppendedWhileASnapshotCannotBeWritten() throws IOException {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 2);
+        DomainEventPublisher publisher = journal.attach("machine-1", INITIAL);
+        // A directory in the way of the temporary file makes every snapshot write fail
+        Path blocker = Files.createDirectories(directory.resolve("machine-1.snapshot.tmp").resolve("blocker"));
+        publisher.publish(new ProductDispensed(WATER, 1, 9));
+        publisher.publish(new ProductDispensed(WATER, 1, 8));
+
+        journal.flush();
+        publisher.publish(new ProductDispensed(WATER, 1, 7));
+        journal.flush();
+
+        assertEquals(7, new MappedMachineJournal(directory, 4096, 2).recover("machine-1").orElseThrow().stock().get(WATER));
+        Files.delete(blocker);
+        Files.delete(blocker.getParent());
+        journal.flush();
+        publisher.publish(new ProductDispensed(WATER, 1, 6));
+        assertEquals(6, new MappedMachineJournal(directory, 4096, 2).recover("machine-1").orElseThrow().stock().get(WATER));
+    }
+
+    @Test
+    void shouldKeepTheStateOfADetachedMachineAndStopJournalingIt() {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 100);
+        DomainEventPublisher publisher = journal.attach("machine-1", INITIAL);
+        publisher.publish(new ProductDispensed(WATER, 2, 8));
+
+        journal.detach("machine-1");
+        publisher.publish(new ProductDispensed(WATER, 1, 7));
+
+        assertEquals(8, journal.recover("machine-1").orElseThrow().stock().get(WATER));
+        assertEquals(8, new MappedMachineJournal(directory, 4096, 100).recover("machine-1").orElseThrow().stock().get(WATER));
+    }
+
+    @Test
+    void shouldJournalAMachineAttachedAgainAfterItsDetachment() {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 100);
+        journal.attach("machine-1", INITIAL).publish(new ProductDispensed(WATER, 2, 8));
+        journal.detach("machine-1");
+
+        MachineState recovered = journal.recover("machine-1").orElseThrow();
+        journal.attach("machine-1", recovered).publish(new ProductDispensed(WATER, 3, 5));
+        journal.close();
+
+        assertEquals(5, new MappedMachineJournal(directory, 4096, 100).recover("machine-1").orElseThrow().stock().get(WATER));
+    }
+
+    @Test
+    void shouldStopReplayingAtACorruptedRecord() throws IOException {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 100);
+        DomainEventPublisher publisher = journal.attach("machine-1", INITIAL);
+        publisher.publish(new ProductDispensed(WATER, 1, 9));
+        publisher.publish(new ProductDispensed(WATER, 1, 8));
+        journal.close();
+
+        // Flip the last byte of the second record, as a write torn by a crash would leave it; the
+        // records of the first generation go to the second half of the journal
+        int recordBytes = 12 + 1 + 16 + 4;
+        try (FileChannel channel = FileChannel.open(directory.resolve("machine-1.journal"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xff}), 2048 + 2L * recordBytes - 1);
+        }
+
+        MachineState recovered = new MappedMachineJournal(directory, 4096, 100).recover("machine-1").orElseThrow();
+        assertEquals(9, recovered.stock().get(WATER));
+    }
+
+    @Test
+    void shouldIgnoreACorruptedSnapshot() throws IOException {
+        new MappedMachineJournal(directory, 4096, 100).attach("machine-1", INITIAL);
+        Path snapshot = directory.resolve("machine-1.snapshot");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        assertTrue(new MappedMachineJournal(directory, 4096, 100).recover("machine-1").isEmpty());
+    }
+
+    @Test
+    void shouldRecoverEveryJournaledMachine() {
+        MappedMachineJournal journal = new MappedMachineJournal(directory, 4096, 100);
+        journal.attach("machine-1", INITIAL).publish(new ProductDispensed(CHIPS, 1, 4));
+        journal.attach("kiosk/hall 2", INITIAL);
+        journal.close();
+
+        Map<String, MachineState> recovered = new MappedMachineJournal(directory, 4096, 100).recoverAll();
+
+        assertEquals(2, recovered.size());
+        assertEquals(4, recovered.get("machine-1").stock().get(CHIPS));
+        assertEquals(INITIAL, recovered.get("kiosk/hall 2"));
+    }
+
+    @Test
+    void shouldRejectSegmentsTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> new MappedMachineJournal(directory, 1024, 100));
+    }
+}
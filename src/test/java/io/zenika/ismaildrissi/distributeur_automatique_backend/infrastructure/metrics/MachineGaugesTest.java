@@ -0,0 +1,56 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.fleet.VendingMachineRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.VendingMachine;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MachineGaugesTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ProductId water = new ProductId(UUID.randomUUID());
+
+    private final VendingMachineRegistry vendingMachines = new VendingMachineRegistry(1, 1, machineId ->
+            new VendingMachine(List.of(new Product("Water", 1.5, water, 10)), List.of(Money.of(2), Money.of(2))));
+
+    private double stock(String machineId) {
+        return registry.get("vending.stock").tag("machine", machineId).tag("product", "Water").gauge().value();
+    }
+
+    @Test
+    void shouldReadTheLiveStockAndCoinsOfLoadedMachines() {
+        VendingMachine machine = vendingMachines.machine("machine-1");
+        new MachineGauges(vendingMachines, registry);
+
+        machine.dispenseProduct(water);
+
+        assertEquals(9, stock("machine-1"));
+        assertEquals(2, registry.get("vending.coins").tag("machine", "machine-1").tag("denomination", "2.0").gauge().value());
+        assertEquals(0, registry.get("vending.coins").tag("machine", "machine-1").tag("denomination", "0.5").gauge().value());
+    }
+
+    @Test
+    void shouldFollowTheMachinesLoadedAndEvicted() {
+        MachineGauges gauges = new MachineGauges(vendingMachines, registry);
+        assertTrue(registry.find("vending.stock").gauges().isEmpty());
+
+        vendingMachines.machine("machine-1");
+        gauges.refresh();
+        assertEquals(10, stock("machine-1"));
+
+        // Capacity 1: loading another machine evicts the first one
+        vendingMachines.machine("machine-2");
+        gauges.refresh();
+        assertEquals(10, stock("machine-2"));
+        assertNull(registry.find("vending.stock").tag("machine", "machine-1").gauge());
+    }
+}
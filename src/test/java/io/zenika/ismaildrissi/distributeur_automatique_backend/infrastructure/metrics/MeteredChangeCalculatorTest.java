@@ -0,0 +1,35 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.ChangeCalculatorImpl;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.service.impl.OptimalChangeCalculator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeteredChangeCalculatorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private long count(String outcome) {
+        return registry.get(MeteredChangeCalculator.TIMER).tag("outcome", outcome).timer().count();
+    }
+
+    @Test
+    void shouldCountExactAndUnavailableChange() {
+        MeteredChangeCalculator calculator = new MeteredChangeCalculator(new OptimalChangeCalculator(), "dp", registry);
+
+        assertArrayEquals(new int[]{0, 0, 3, 0, 0}, calculator.calculateChange(600, new int[]{0, 0, 3, 1, 0}));
+        assertNull(calculator.calculateChange(100, new int[]{0, 0, 3, 1, 0}));
+
+        assertEquals(1, count("exact"));
+        assertEquals(1, count("unavailable"));
+        assertEquals("dp", registry.get(MeteredChangeCalculator.TIMER).timer().getId().getTag("strategy"));
+    }
+
+    @Test
+    void shouldKeepTheGuaranteeOfTheStrategy() {
+        assertFalse(new MeteredChangeCalculator(new ChangeCalculatorImpl(), "greedy", registry).findsEveryExactChange());
+        assertTrue(new MeteredChangeCalculator(new OptimalChangeCalculator(), "dp", registry).findsEveryExactChange());
+    }
+}
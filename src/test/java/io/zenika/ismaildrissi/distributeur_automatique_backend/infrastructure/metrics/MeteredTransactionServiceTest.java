@@ -0,0 +1,87 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.MoneyDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.OrderDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.dto.PurchaseDTO;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.exceptions.ChangeNotAvailableException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.application.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MeteredTransactionServiceTest {
+
+    private static final String MACHINE = "machine-1";
+
+    private static final String SESSION = "kiosk-1";
+
+    @Mock
+    private TransactionService delegate;
+
+    private SimpleMeterRegistry registry;
+
+    private MeteredTransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        transactionService = new MeteredTransactionService(delegate, registry);
+    }
+
+    private long count(String operation, String exception) {
+        return registry.get(MeteredTransactionService.TIMER)
+                .tag("operation", operation)
+                .tag("exception", exception)
+                .timer()
+                .count();
+    }
+
+    @Test
+    void shouldTimeEveryStepOfAPurchase() {
+        OrderDTO order = new OrderDTO();
+        when(delegate.completeOrder(MACHINE, SESSION)).thenReturn(order);
+        UUID productId = UUID.randomUUID();
+
+        transactionService.insertMoney(MACHINE, SESSION, new MoneyDTO(5.0));
+        transactionService.selectProduct(MACHINE, SESSION, productId);
+        assertSame(order, transactionService.completeOrder(MACHINE, SESSION));
+        transactionService.cancelOrder(MACHINE, SESSION);
+        transactionService.purchase(MACHINE, SESSION, new PurchaseDTO(List.of(), List.of()));
+
+        assertEquals(1, count("insert_money", "none"));
+        assertEquals(1, count("select_product", "none"));
+        assertEquals(1, count("complete_order", "none"));
+        assertEquals(1, count("cancel_order", "none"));
+        assertEquals(1, count("purchase", "none"));
+        verify(delegate).selectProduct(MACHINE, SESSION, productId);
+    }
+
+    @Test
+    void shouldTagFailedStepsWithTheirException() {
+        when(delegate.completeOrder(MACHINE, SESSION)).thenThrow(new ChangeNotAvailableException("No change"));
+
+        assertThrows(ChangeNotAvailableException.class, () -> transactionService.completeOrder(MACHINE, SESSION));
+
+        assertEquals(1, count("complete_order", "ChangeNotAvailableException"));
+        assertEquals(0, count("complete_order", "none"));
+    }
+
+    @Test
+    void shouldPassQueriesThroughUntimed() {
+        when(delegate.changeAvailable(MACHINE, SESSION, null)).thenReturn(true);
+
+        assertTrue(transactionService.changeAvailable(MACHINE, SESSION, null));
+
+        assertEquals(5, registry.get(MeteredTransactionService.TIMER).timers().size());
+    }
+}
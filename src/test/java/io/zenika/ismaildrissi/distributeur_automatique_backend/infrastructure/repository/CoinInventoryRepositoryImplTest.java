@@ -0,0 +1,87 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.CoinInventoryEntity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa.SpringDataCoinInventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoinInventoryRepositoryImplTest {
+
+    @Mock
+    private SpringDataCoinInventoryRepository springDataCoinInventoryRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private CoinInventoryRepositoryImpl coinInventoryRepository;
+
+    @Test
+    void shouldReturnCountsIndexedByDenomination() {
+        when(springDataCoinInventoryRepository.findByMachineId("machine-1")).thenReturn(List.of(
+                new CoinInventoryEntity("machine-1", 1000, 3),
+                new CoinInventoryEntity("machine-1", 50, 7)
+        ));
+
+        int[] counts = coinInventoryRepository.findCounts("machine-1").orElseThrow();
+
+        assertArrayEquals(new int[]{7, 0, 0, 0, 3}, counts);
+    }
+
+    @Test
+    void shouldReturnEmptyWhenMachineHasNoInventory() {
+        when(springDataCoinInventoryRepository.findByMachineId("machine-1")).thenReturn(List.of());
+
+        assertTrue(coinInventoryRepository.findCounts("machine-1").isEmpty());
+    }
+
+    @Test
+    void shouldSaveOneRowPerDenomination() {
+        coinInventoryRepository.saveCounts("machine-1", new int[]{5, 5, 5, 4, 3});
+
+        verify(springDataCoinInventoryRepository).saveAll(List.of(
+                new CoinInventoryEntity("machine-1", 50, 5),
+                new CoinInventoryEntity("machine-1", 100, 5),
+                new CoinInventoryEntity("machine-1", 200, 5),
+                new CoinInventoryEntity("machine-1", 500, 4),
+                new CoinInventoryEntity("machine-1", 1000, 3)
+        ));
+    }
+
+    @Test
+    void shouldAdjustChangedDenominationsInOneBatch() {
+        Map<String, int[]> deltas = new LinkedHashMap<>();
+        deltas.put("machine-1", new int[]{0, -2, 0, 1, 0});
+        deltas.put("machine-2", new int[]{3, 0, 0, 0, 0});
+
+        coinInventoryRepository.adjustCounts(deltas);
+
+        verify(jdbcTemplate).batchUpdate(eq(CoinInventoryRepositoryImpl.ADJUST_COUNT_SQL), argThat((List<Object[]> args) ->
+                args.size() == 3
+                        && Arrays.equals(args.get(0), new Object[]{-2, "machine-1", 100L})
+                        && Arrays.equals(args.get(1), new Object[]{1, "machine-1", 500L})
+                        && Arrays.equals(args.get(2), new Object[]{3, "machine-2", 50L})));
+    }
+
+    @Test
+    void shouldSkipDatabaseWhenNoCoinMoved() {
+        coinInventoryRepository.adjustCounts(Map.of("machine-1", new int[5]));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
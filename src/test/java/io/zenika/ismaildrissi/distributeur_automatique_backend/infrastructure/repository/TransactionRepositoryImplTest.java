@@ -0,0 +1,176 @@
+package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository;
+
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Money;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.Transaction;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.transaction.TransactionStatus;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.TransactionEntity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.mapper.TransactionMapper;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa.SpringDataTransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionRepositoryImplTest {
+
+    @Mock
+    private SpringDataTransactionRepository springDataTransactionRepository;
+
+    private TransactionRepositoryImpl transactionRepository;
+
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = new TransactionRepositoryImpl(springDataTransactionRepository, new TransactionMapper(), 2, 3);
+        transaction = new Transaction("tx-1");
+        transaction.insertMoney(Money.of(5.0));
+    }
+
+    @Test
+    void shouldKeepInProgressTransactionInMemoryOnly() {
+        transactionRepository.save(transaction);
+
+        assertEquals(Optional.of(transaction), transactionRepository.findById("tx-1"));
+        assertTrue(transactionRepository.existsById("tx-1"));
+        transactionRepository.flush();
+        verifyNoInteractions(springDataTransactionRepository);
+    }
+
+    @Test
+    void shouldWriteClosedTransactionOnFlush() {
+        transactionRepository.save(transaction);
+        transaction.cancel();
+        transactionRepository.save(transaction);
+
+        assertEquals(1, transactionRepository.pendingWrites());
+        assertEquals(Optional.of(transaction), transactionRepository.findById("tx-1"));
+
+        transactionRepository.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransactionEntity>> captor = ArgumentCaptor.forClass(List.class);
+        verify(springDataTransactionRepository).saveAll(captor.capture());
+        TransactionEntity entity = captor.getValue().get(0);
+        assertEquals("tx-1", entity.getId());
+        assertEquals(TransactionStatus.CANCELLED, entity.getStatus());
+        assertEquals(500, entity.getInsertedAmount());
+        assertTrue(entity.isNew());
+        assertEquals(0, transactionRepository.pendingWrites());
+    }
+
+    @Test
+    void shouldWriteInBatchesOfConfiguredSize() {
+        for (int i = 0; i < 5; i++) {
+            Transaction closed = new Transaction("tx-" + i);
+            closed.cancel();
+            transactionRepository.save(closed);
+        }
+
+        transactionRepository.flush();
+
+        verify(springDataTransactionRepository, times(3)).saveAll(anyList());
+        assertEquals(0, transactionRepository.pendingWrites());
+    }
+
+    @Test
+    void shouldKeepPendingWritesWhenDatabaseFails() {
+        transaction.cancel();
+        transactionRepository.save(transaction);
+        when(springDataTransactionRepository.saveAll(anyList())).thenThrow(new IllegalStateException("down"));
+        when(springDataTransactionRepository.save(any(TransactionEntity.class))).thenThrow(new IllegalStateException("down"));
+
+        transactionRepository.flush();
+
+        assertEquals(1, transactionRepository.pendingWrites());
+        assertTrue(transactionRepository.findById("tx-1").isPresent());
+    }
+
+    @Test
+    void shouldRetryFailedBatchRowByRow() {
+        Transaction bad = new Transaction("tx-bad");
+        bad.cancel();
+        transactionRepository.save(bad);
+        transaction.cancel();
+        transactionRepository.save(transaction);
+        when(springDataTransactionRepository.saveAll(anyList())).thenThrow(new IllegalStateException("constraint"));
+        when(springDataTransactionRepository.save(argThat(row -> row.getId().equals("tx-bad"))))
+                .thenThrow(new IllegalStateException("constraint"));
+
+        transactionRepository.flush();
+
+        ArgumentCaptor<TransactionEntity> captor = ArgumentCaptor.forClass(TransactionEntity.class);
+        verify(springDataTransactionRepository, times(2)).save(captor.capture());
+        assertTrue(captor.getAllValues().stream().allMatch(TransactionEntity::isNew));
+        assertEquals(1, transactionRepository.pendingWrites());
+        assertTrue(transactionRepository.findById("tx-bad").isPresent());
+    }
+
+    @Test
+    void shouldDropRowAfterMaxWriteAttempts() {
+        transaction.cancel();
+        transactionRepository.save(transaction);
+        when(springDataTransactionRepository.saveAll(anyList())).thenThrow(new IllegalStateException("constraint"));
+        when(springDataTransactionRepository.save(any(TransactionEntity.class))).thenThrow(new IllegalStateException("constraint"));
+
+        transactionRepository.flush();
+        transactionRepository.flush();
+        assertEquals(1, transactionRepository.pendingWrites());
+
+        transactionRepository.flush();
+
+        assertEquals(0, transactionRepository.pendingWrites());
+        verify(springDataTransactionRepository, times(3)).save(any(TransactionEntity.class));
+        transactionRepository.flush();
+        verify(springDataTransactionRepository, times(3)).saveAll(anyList());
+    }
+
+    @Test
+    void shouldForgetFailedAttemptsOnceRowIsWritten() {
+        transaction.cancel();
+        transactionRepository.save(transaction);
+        when(springDataTransactionRepository.saveAll(anyList()))
+                .thenThrow(new IllegalStateException("down"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(springDataTransactionRepository.save(any(TransactionEntity.class))).thenThrow(new IllegalStateException("down"));
+
+        transactionRepository.flush();
+        transactionRepository.flush();
+
+        assertEquals(0, transactionRepository.pendingWrites());
+        verify(springDataTransactionRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void shouldFallBackToHistoryForFlushedTransactions() {
+        when(springDataTransactionRepository.findById("tx-9"))
+                .thenReturn(Optional.of(new TransactionEntity("tx-9", TransactionStatus.COMPLETED, 500, 200, 1, null)));
+
+        Optional<Transaction> result = transactionRepository.findById("tx-9");
+
+        assertTrue(result.isPresent());
+        assertEquals(TransactionStatus.COMPLETED, result.get().status());
+    }
+
+    @Test
+    void shouldDeleteFromEveryTier() {
+        transactionRepository.save(transaction);
+
+        transactionRepository.deleteById("tx-1");
+
+        assertFalse(transactionRepository.existsById("tx-1"));
+        verify(springDataTransactionRepository).deleteById("tx-1");
+    }
+}
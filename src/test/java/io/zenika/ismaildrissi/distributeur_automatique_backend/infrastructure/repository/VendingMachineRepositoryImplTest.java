@@ -2,6 +2,9 @@ package io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.r
 
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.Product;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.ProductId;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.IllegalProductQuantity;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.model.vendingmachine.exceptions.StaleProductException;
+import io.zenika.ismaildrissi.distributeur_automatique_backend.domain.repository.VendingMachineRepository;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.entity.ProductEntity;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.mapper.ProductMapper;
 import io.zenika.ismaildrissi.distributeur_automatique_backend.infrastructure.repository.jpa.SpringDataProductRepository;
@@ -11,13 +14,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +38,9 @@ class VendingMachineRepositoryImplTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     @InjectMocks
     private VendingMachineRepositoryImpl vendingMachineRepository;
 
@@ -42,7 +54,7 @@ class VendingMachineRepositoryImplTest {
         productUuid = UUID.randomUUID();
         productId = new ProductId(productUuid);
         product = new Product("Test Product", 2.0, productId, 5);
-        productEntity = new ProductEntity(productUuid, "Test Product", 2.0, 5);
+        productEntity = new ProductEntity(productUuid, "Test Product", 2.0, 5, "machine-1", 3L);
     }
 
     @Test
@@ -76,7 +88,7 @@ class VendingMachineRepositoryImplTest {
         List<ProductEntity> entities = Arrays.asList(productEntity);
         List<Product> expectedProducts = Arrays.asList(product);
         
-        when(springDataProductRepository.findAll()).thenReturn(entities);
+        when(springDataProductRepository.findByMachineId(VendingMachineRepository.DEFAULT_MACHINE_ID)).thenReturn(entities);
         when(productMapper.toDomain(productEntity)).thenReturn(product);
         
         List<Product> result = vendingMachineRepository.findAllProducts();
@@ -84,25 +96,43 @@ class VendingMachineRepositoryImplTest {
         assertEquals(1, result.size());
         assertEquals(expectedProducts, result);
         
-        verify(springDataProductRepository).findAll();
+        verify(springDataProductRepository).findByMachineId(VendingMachineRepository.DEFAULT_MACHINE_ID);
         verify(productMapper).toDomain(productEntity);
     }
 
     @Test
     void shouldReturnEmptyListWhenNoProducts() {
-        when(springDataProductRepository.findAll()).thenReturn(Arrays.asList());
+        when(springDataProductRepository.findByMachineId(VendingMachineRepository.DEFAULT_MACHINE_ID)).thenReturn(Arrays.asList());
         
         List<Product> result = vendingMachineRepository.findAllProducts();
         
         assertTrue(result.isEmpty());
         
-        verify(springDataProductRepository).findAll();
+        verify(springDataProductRepository).findByMachineId(VendingMachineRepository.DEFAULT_MACHINE_ID);
         verifyNoInteractions(productMapper);
     }
 
+    @Test
+    void shouldFindProductsOfMachine() {
+        when(springDataProductRepository.findByMachineId("machine-1")).thenReturn(List.of(productEntity));
+        when(productMapper.toDomain(productEntity)).thenReturn(product);
+
+        assertEquals(List.of(product), vendingMachineRepository.findAllProducts("machine-1"));
+    }
+
+    @Test
+    void shouldSaveProductToMachine() {
+        when(productMapper.toEntity(product, "machine-1")).thenReturn(productEntity);
+        when(springDataProductRepository.save(productEntity)).thenReturn(productEntity);
+        when(productMapper.toDomain(productEntity)).thenReturn(product);
+
+        assertEquals(product, vendingMachineRepository.saveProduct("machine-1", product));
+        verify(productMapper).toEntity(product, "machine-1");
+    }
+
     @Test
     void shouldSaveProduct() {
-        when(productMapper.toEntity(product)).thenReturn(productEntity);
+        when(productMapper.toEntity(product, VendingMachineRepository.DEFAULT_MACHINE_ID)).thenReturn(productEntity);
         when(springDataProductRepository.save(productEntity)).thenReturn(productEntity);
         when(productMapper.toDomain(productEntity)).thenReturn(product);
         
@@ -110,14 +140,15 @@ class VendingMachineRepositoryImplTest {
         
         assertEquals(product, result);
         
-        verify(productMapper).toEntity(product);
+        verify(productMapper).toEntity(product, VendingMachineRepository.DEFAULT_MACHINE_ID);
         verify(springDataProductRepository).save(productEntity);
         verify(productMapper).toDomain(productEntity);
     }
 
     @Test
     void shouldUpdateProduct() {
-        when(productMapper.toEntity(product)).thenReturn(productEntity);
+        when(springDataProductRepository.findById(productUuid)).thenReturn(Optional.of(productEntity));
+        when(productMapper.toEntity(product, "machine-1")).thenReturn(productEntity);
         when(springDataProductRepository.save(productEntity)).thenReturn(productEntity);
         when(productMapper.toDomain(productEntity)).thenReturn(product);
         
@@ -125,11 +156,21 @@ class VendingMachineRepositoryImplTest {
         
         assertEquals(product, result);
         
-        verify(productMapper).toEntity(product);
+        verify(productMapper).toEntity(product, "machine-1");
         verify(springDataProductRepository).save(productEntity);
         verify(productMapper).toDomain(productEntity);
     }
 
+    @Test
+    void shouldRefuseToUpdateAStaleProduct() {
+        when(springDataProductRepository.findById(productUuid)).thenReturn(Optional.of(productEntity));
+        when(productMapper.toEntity(product, "machine-1")).thenReturn(productEntity);
+        when(springDataProductRepository.save(productEntity))
+                .thenThrow(new ObjectOptimisticLockingFailureException(ProductEntity.class, productUuid));
+
+        assertThrows(StaleProductException.class, () -> vendingMachineRepository.updateProduct(product));
+    }
+
     @Test
     void shouldDeleteProductById() {
         vendingMachineRepository.deleteProductById(productId);
@@ -156,4 +197,47 @@ class VendingMachineRepositoryImplTest {
         assertFalse(result);
         verify(springDataProductRepository).existsById(productUuid);
     }
+
+    @Test
+    void shouldDecrementStockInOneBatch() {
+        ProductId otherId = new ProductId(UUID.randomUUID());
+        Map<ProductId, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(productId, 2);
+        quantities.put(otherId, 1);
+
+        vendingMachineRepository.decrementStock(quantities);
+
+        verify(jdbcTemplate).batchUpdate(eq(VendingMachineRepositoryImpl.DECREMENT_STOCK_SQL), argThat((List<Object[]> args) ->
+                args.size() == 2
+                        && Arrays.equals(args.get(0), new Object[]{2, productUuid})
+                        && Arrays.equals(args.get(1), new Object[]{1, otherId.id()})));
+        verifyNoInteractions(springDataProductRepository);
+    }
+
+    @Test
+    void shouldSkipDatabaseWhenNothingWasDispensed() {
+        vendingMachineRepository.decrementStock(Map.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void shouldReserveEveryProductWithAConditionalDecrement() {
+        ProductId otherId = new ProductId(UUID.randomUUID());
+        Map<ProductId, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(productId, 2);
+        quantities.put(otherId, 1);
+        when(jdbcTemplate.update(VendingMachineRepositoryImpl.RESERVE_STOCK_SQL, 2, productUuid, 2)).thenReturn(1);
+        when(jdbcTemplate.update(VendingMachineRepositoryImpl.RESERVE_STOCK_SQL, 1, otherId.id(), 1)).thenReturn(1);
+
+        assertDoesNotThrow(() -> vendingMachineRepository.reserveStock(quantities));
+        verifyNoInteractions(springDataProductRepository);
+    }
+
+    @Test
+    void shouldRefuseAReservationMatchingNoRow() {
+        when(jdbcTemplate.update(VendingMachineRepositoryImpl.RESERVE_STOCK_SQL, 6, productUuid, 6)).thenReturn(0);
+
+        assertThrows(IllegalProductQuantity.class, () -> vendingMachineRepository.reserveStock(Map.of(productId, 6)));
+    }
 }